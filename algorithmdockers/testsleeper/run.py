@@ -3,8 +3,12 @@
 import os
 import sys
 import time
+import json
 import argparse
 
+DAEMON_ARG = '--daemon'
+BATCH_ARG = '--batch'
+
 def _parse_arguments(desc, args):
     """
     Parses command line arguments
@@ -24,6 +28,107 @@ def _parse_arguments(desc, args):
     return parser.parse_args(args)
 
 
+def _write_progress(progress_file, elapsed, total):
+    """
+    Appends progress line of form <percent complete> <message>
+    to progress_file ignoring any errors
+
+    :param progress_file: path to progress file
+    :param elapsed: seconds slept so far
+    :param total: total seconds to sleep
+    """
+    try:
+        with open(progress_file, 'a') as f:
+            f.write(str(int(100 * elapsed / total)) + ' slept ' +
+                    str(elapsed) + ' of ' + str(total) + ' seconds\n')
+    except Exception:
+        pass
+
+
+def _run_task(request):
+    """
+    Runs task described by run request of daemon protocol with
+    standard out and standard error sent to files set in request
+
+    :param request: run request
+    :type request: dict
+    :return: exit code of task
+    :rtype: int
+    """
+    orig_stdout = sys.stdout
+    orig_stderr = sys.stderr
+    with open(request['stdout'], 'w') as out, \
+            open(request['stderr'], 'w') as err:
+        sys.stdout = out
+        sys.stderr = err
+        try:
+            return main([sys.argv[0]] + request['args'])
+        except SystemExit as se:
+            return se.code if isinstance(se.code, int) else 2
+        except Exception as e:
+            sys.stderr.write('Caught exception: ' + str(e))
+            return 2
+        finally:
+            sys.stdout = orig_stdout
+            sys.stderr = orig_stderr
+
+
+def daemon(instream, outstream):
+    """
+    Reads one json request per line from instream writing one json
+    response per line to outstream until instream is closed.
+    Requests are either {"type": "ping"} answered with {"type": "pong"}
+    or {"type": "run", "id": X, "args": [], "stdout": path, "stderr": path}
+    answered with {"id": X, "exitcode": N}
+
+    :param instream: stream to read requests from
+    :param outstream: stream to write responses to
+    :return: 0 once instream is closed
+    """
+    for line in instream:
+        if not line.strip():
+            continue
+        request = json.loads(line)
+        if request.get('type') == 'ping':
+            response = {'type': 'pong'}
+        else:
+            response = {'id': request.get('id'),
+                        'exitcode': _run_task(request)}
+        outstream.write(json.dumps(response) + '\n')
+        outstream.flush()
+    return 0
+
+
+def batch(args):
+    """
+    Runs every task in batch directory set after --batch in args. Each
+    subdirectory holds input.txt of a task and gets stdout.txt, stderr.txt
+    and exitcode.txt written to it. The other arguments are passed to
+    every task
+
+    :param args: command line arguments usually :py:const:`sys.argv`
+    :return: 0 if batch directory was processed otherwise failure
+    :rtype: int
+    """
+    index = args.index(BATCH_ARG)
+    if index + 1 >= len(args):
+        sys.stderr.write('Missing batch directory after ' + BATCH_ARG + '\n')
+        return 2
+    batch_dir = args[index + 1]
+    task_args = args[1:index] + args[index + 2:]
+    for task_id in sorted(os.listdir(batch_dir)):
+        task_dir = os.path.join(batch_dir, task_id)
+        if not os.path.isdir(task_dir):
+            continue
+        exitcode = _run_task({'args': task_args +
+                                      [os.path.join(task_dir, 'input.txt')],
+                              'stdout': os.path.join(task_dir, 'stdout.txt'),
+                              'stderr': os.path.join(task_dir, 'stderr.txt')})
+        with open(os.path.join(task_dir, 'exitcode.txt'), 'w') as f:
+            f.write(str(exitcode) + '\n')
+    return 0
+
+
 def main(args):
     """
     Main entry point for program
@@ -38,7 +143,8 @@ def main(args):
     
     sleep: X
     
-    and exits
+    and exits. Progress is reported once a second by appending
+    lines to progress.txt in the directory of the input file
     """
 
     theargs = _parse_arguments(desc, args[1:])
@@ -46,7 +152,11 @@ def main(args):
     try:
         sys.stdout.write("sleep: " + str(theargs.sleeptime) + '\n')
         sys.stdout.flush()
-        time.sleep(theargs.sleeptime)
+        progress_file = os.path.join(os.path.dirname(os.path.abspath(theargs.input)),
+                                     'progress.txt')
+        for elapsed in range(theargs.sleeptime):
+            _write_progress(progress_file, elapsed, theargs.sleeptime)
+            time.sleep(1)
         return theargs.exitcode
     except Exception as e:
         sys.stderr.write('Caught exception: ' + str(e))
@@ -54,4 +164,8 @@ def main(args):
 
 
 if __name__ == '__main__':  # pragma: no cover
+    if len(sys.argv) > 1 and sys.argv[1] == DAEMON_ARG:
+        sys.exit(daemon(sys.stdin, sys.stdout))
+    if BATCH_ARG in sys.argv:
+        sys.exit(batch(sys.argv))
     sys.exit(main(sys.argv))
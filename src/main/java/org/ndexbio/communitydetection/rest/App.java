@@ -22,6 +22,7 @@ import org.eclipse.jetty.util.RolloverFileOutputStream;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.jboss.resteasy.plugins.server.servlet.FilterDispatcher;
@@ -180,11 +181,17 @@ public class App {
                 
                 restEasyServlet.setInitOrder(1);
                 restEasyServlet.setInitParameters(initMap);
+                
+                // needed so requests for results can wait for tasks to finish
+                // without holding a thread
+                restEasyServlet.setAsyncSupported(true);
                 webappContext.addServlet(restEasyServlet,
                                           applicationPath + "/*");
-                webappContext.addFilter(CorsFilter.class,
+                FilterHolder corsFilter = webappContext.addFilter(CorsFilter.class,
                                         applicationPath + "/*", null);
-                webappContext.addFilter(FilterDispatcher.class, "/*", null);
+                corsFilter.setAsyncSupported(true);
+                FilterHolder dispatcherFilter = webappContext.addFilter(FilterDispatcher.class, "/*", null);
+                dispatcherFilter.setAsyncSupported(true);
                 
                 
                 final ServletHolder openApiServlet = new ServletHolder(new OpenApiHttpServletDispatcher());
@@ -439,6 +446,155 @@ public class App {
         sb.append("# Path to file containing json of algorithms\n");
         sb.append(Configuration.ALGORITHM_MAP + " = " + CD_ALGORITHMS_FILE + "\n\n");
         
+        sb.append("# Sets order queued tasks are run. Valid values: "
+                + Configuration.FIFO_SCHEDULER + " (default) runs tasks in order submitted,\n");
+        sb.append("# " + Configuration.SHORTEST_JOB_FIRST_SCHEDULER
+                + " runs tasks with shortest estimated wall time first\n");
+        sb.append("# " + Configuration.SCHEDULER + " = " + Configuration.FIFO_SCHEDULER + "\n\n");
+        
+        sb.append("# Multiplier applied to estimated wall time of a task (in milliseconds) that is added\n");
+        sb.append("# to submission time to get priority of task when using "
+                + Configuration.SHORTEST_JOB_FIRST_SCHEDULER + " scheduler.\n");
+        sb.append("# Higher values favor short tasks more\n");
+        sb.append("# " + Configuration.SCHEDULER_RUNTIME_WEIGHT + " = 1.0\n\n");
+        
+        sb.append("# Maximum number of queued or running tasks. Requests over this limit\n");
+        sb.append("# are rejected with HTTP 429. 0 means no limit\n");
+        sb.append("# " + Configuration.MAX_QUEUED_TASKS + " = 0\n\n");
+        
+        sb.append("# Maximum total size in bytes of input data for queued or running tasks.\n");
+        sb.append("# Requests over this limit are rejected with HTTP 429. 0 means no limit\n");
+        sb.append("# " + Configuration.MAX_INFLIGHT_INPUT_BYTES + " = 0\n\n");
+        
+        sb.append("# Maximum number of queued or running tasks for an algorithm. Requests over\n");
+        sb.append("# this limit are rejected with HTTP 429. 0 means no limit\n");
+        sb.append("# (Replace louvain with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "louvain."
+                + Configuration.ALGORITHM_MAX_QUEUED_TASKS_SETTING + " = 0\n\n");
+        
+        sb.append("# Maximum number of task event streams open at once. Each open stream\n");
+        sb.append("# holds a server thread until its task finishes. Streams over this\n");
+        sb.append("# limit are rejected with HTTP 503. 0 means no limit\n");
+        sb.append("# " + Configuration.MAX_EVENT_STREAMS + " = "
+                + Integer.toString(Configuration.DEFAULT_MAX_EVENT_STREAMS) + "\n\n");
+        
+        sb.append("# Maximum number of requests in a batch, larger batches are\n");
+        sb.append("# rejected with HTTP 400. 0 means no limit\n");
+        sb.append("# " + Configuration.MAX_BATCH_SIZE + " = "
+                + Integer.toString(Configuration.DEFAULT_MAX_BATCH_SIZE) + "\n\n");
+        
+        sb.append("# Dedicated workers for an algorithm. Tasks for algorithms without\n");
+        sb.append("# this setting are run by the workers set via " + Configuration.NUM_WORKERS + "\n");
+        sb.append("# (Replace louvain with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "louvain."
+                + Configuration.ALGORITHM_WORKERS_SETTING + " = 1\n\n");
+        
+        sb.append("# Maximum tasks that can wait for dedicated workers of an algorithm\n");
+        sb.append("# before new tasks are rejected. 0 means no limit\n");
+        sb.append("# (Replace louvain with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "louvain."
+                + Configuration.ALGORITHM_QUEUE_SIZE_SETTING + " = 0\n\n");
+        
+        sb.append("# Number of long lived containers kept warm for an algorithm. Tasks are sent\n");
+        sb.append("# to a warm container over standard in instead of starting a new container.\n");
+        sb.append("# The docker image must support being run with --daemon, 0 disables\n");
+        sb.append("# (Replace gprofilersingletermv2 with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "gprofilersingletermv2."
+                + Configuration.ALGORITHM_WARM_POOL_SIZE_SETTING + " = 2\n\n");
+        
+        sb.append("# Number of tasks a warm container runs before it is replaced. 0 means no limit\n");
+        sb.append("# (Replace gprofilersingletermv2 with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "gprofilersingletermv2."
+                + Configuration.ALGORITHM_WARM_POOL_MAX_USES_SETTING + " = 100\n\n");
+        
+        sb.append("# Seconds a warm container can sit idle before it is stopped. 0 means never\n");
+        sb.append("# (Replace gprofilersingletermv2 with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "gprofilersingletermv2."
+                + Configuration.ALGORITHM_WARM_POOL_IDLE_TIMEOUT_SETTING + " = 600\n\n");
+        
+        sb.append("# Maximum number of queued tasks with the same parameters run together by\n");
+        sb.append("# one container. Batches hold at most as many tasks as the algorithm has\n");
+        sb.append("# workers, larger values are lowered to that. A batch is given the timeout\n");
+        sb.append("# of a task times the number of tasks in it. The docker image must support\n");
+        sb.append("# being run with --batch, 1 disables\n");
+        sb.append("# (Replace gprofilersingletermv2 with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "gprofilersingletermv2."
+                + Configuration.ALGORITHM_BATCH_SIZE_SETTING + " = 8\n\n");
+        
+        sb.append("# Milliseconds the first task of a batch waits for other tasks to join\n");
+        sb.append("# (Replace gprofilersingletermv2 with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "gprofilersingletermv2."
+                + Configuration.ALGORITHM_BATCH_LINGER_SETTING + " = 50\n\n");
+        
+        sb.append("# Maximum total size in bytes of completed results cached under the task\n");
+        sb.append("# directory. Identical requests are answered from the cache without running\n");
+        sb.append("# the algorithm. Least recently used results are removed once this size\n");
+        sb.append("# is exceeded. 0 disables the cache\n");
+        sb.append("# " + Configuration.RESULT_CACHE_MAX_BYTES + " = 0\n\n");
+        
+        sb.append("# If true, tasks are recorded in a journal in the task directory and tasks\n");
+        sb.append("# that were queued or running when the service stopped are queued again\n");
+        sb.append("# on startup\n");
+        sb.append("# " + Configuration.TASK_JOURNAL + " = true\n\n");
+        
+        sb.append("# If true, docker images of all algorithms are pulled in parallel on\n");
+        sb.append("# startup. Tasks wait for the image of their algorithm to be pulled so\n");
+        sb.append("# pull time does not count against " + Configuration.ALGORITHM_TIMEOUT + "\n");
+        sb.append("# " + Configuration.IMAGE_PREPULL + " = true\n\n");
+        
+        sb.append("# Maximum time in seconds to pull an image or run its warm up\n");
+        sb.append("# " + Configuration.IMAGE_PULL_TIMEOUT + " = "
+                + Long.toString(Configuration.DEFAULT_IMAGE_PULL_TIMEOUT) + "\n\n");
+        
+        sb.append("# Arguments for a warm up run of an algorithm after its image is pulled\n");
+        sb.append("# (Replace gprofilersingletermv2 with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "gprofilersingletermv2."
+                + Configuration.ALGORITHM_WARMUP_ARGS_SETTING + " = --help\n\n");
+        
+        sb.append("# How an algorithm is run: docker (default) runs its docker image,\n");
+        sb.append("# process runs the executable set via runner.command with the same\n");
+        sb.append("# arguments and jvm runs the class set via runner.class, which implements\n");
+        sb.append("# org.ndexbio.communitydetection.rest.engine.util.InProcessAlgorithm, on the worker\n");
+        sb.append("# thread. Algorithms not run with docker do not use warm containers or\n");
+        sb.append("# batching and jvm algorithms are not stopped by " + Configuration.ALGORITHM_TIMEOUT + "\n");
+        sb.append("# (Replace gprofilersingletermv2 with name of algorithm, can be commented out)\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "gprofilersingletermv2."
+                + Configuration.ALGORITHM_RUNNER_SETTING + " = " + Configuration.PROCESS_RUNNER + "\n");
+        sb.append("# " + Configuration.ALGORITHM_SETTING_PREFIX + "gprofilersingletermv2."
+                + Configuration.ALGORITHM_RUNNER_COMMAND_SETTING + " = /usr/local/bin/gprofilersingletermv2.py\n\n");
+        
+        sb.append("# Maximum size in bytes of the json of completed results kept in memory\n");
+        sb.append("# so frequently requested results are not read from the result store\n");
+        sb.append("# every time. 0 disables the in memory result cache\n");
+        sb.append("# " + Configuration.RESULT_MEMORY_CACHE_MAX_BYTES + " = "
+                + Long.toString(Configuration.DEFAULT_RESULT_MEMORY_CACHE_MAX_BYTES) + "\n\n");
+        
+        sb.append("# Where completed results are stored, either filesystem which writes a\n");
+        sb.append("# result file to each task directory or mvstore which keeps all results\n");
+        sb.append("# in a single key value store file under the task directory and\n");
+        sb.append("# removes task directories of completed tasks once their result is stored\n");
+        sb.append("# " + Configuration.RESULT_STORE + " = filesystem\n\n");
+        
+        sb.append("# Task directories of finished tasks older than this many seconds are\n");
+        sb.append("# removed, 0 disables removal by age\n");
+        sb.append("# " + Configuration.TASK_MAX_AGE_SECONDS + " = 0\n\n");
+        
+        sb.append("# Maximum total size in bytes of task directories, once exceeded the oldest\n");
+        sb.append("# finished tasks are removed until size drops to low watermark percent\n");
+        sb.append("# of this value. The mvstore result store file counts toward this value\n");
+        sb.append("# and its oldest results are removed as well. 0 disables removal by size\n");
+        sb.append("# " + Configuration.TASK_MAX_TOTAL_BYTES + " = 0\n\n");
+        
+        sb.append("# Percentage of maximum total size task directories are reduced to\n");
+        sb.append("# " + Configuration.TASK_LOW_WATERMARK_PERCENT + " = 80\n\n");
+        
+        sb.append("# Seconds between checks for task directories to remove\n");
+        sb.append("# " + Configuration.TASK_GC_INTERVAL_SECONDS + " = 300\n\n");
+        
+        sb.append("# If true, results written to the filesystem result store are gzip\n");
+        sb.append("# compressed and sent as is to clients that accept gzip encoding\n");
+        sb.append("# " + Configuration.RESULT_COMPRESS + " = true\n\n");
+        
         sb.append("# Name of Diffusion algorithm to serve on legacy POST endpoint\n");
         sb.append("# NOTE: Should be set to name of algorithm\n");
         sb.append("#       in algorithms json file.\n");
@@ -0,0 +1,260 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.ndexbio.communitydetection.rest.engine.util.CommandLineRunner;
+import org.ndexbio.communitydetection.rest.engine.util.CommandLineRunnerImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pulls docker images of algorithms in parallel when the service starts
+ * and optionally runs each algorithm once to warm it up. Tasks wait via
+ * {@link #awaitPrepared(java.lang.String)} so the first task for an
+ * algorithm after a deploy does not spend its runtime limit pulling the
+ * image. Algorithms that share an image wait on a single pull.
+ *
+ * @author churas
+ */
+public class AlgorithmImagePreparer {
+
+    static Logger _logger = LoggerFactory.getLogger(AlgorithmImagePreparer.class);
+
+    /**
+     * State of algorithm whose image is being pulled
+     */
+    public static final String PULLING_STATE = "pulling";
+
+    /**
+     * State of algorithm whose warm up run is running
+     */
+    public static final String WARMING_UP_STATE = "warmingup";
+
+    /**
+     * State of algorithm whose image was pulled and warmed up
+     */
+    public static final String READY_STATE = "ready";
+
+    /**
+     * State of algorithm whose image could not be pulled. Tasks for the
+     * algorithm still run and docker will try to pull the image again
+     */
+    public static final String FAILED_STATE = "failed";
+
+    private final String _dockerCmd;
+    private final Map<String, String> _images;
+    private final Map<String, List<String>> _warmUpArgs;
+    private final long _timeOut;
+    private final TimeUnit _timeUnit;
+    private final ConcurrentHashMap<String, String> _states;
+    private final Map<String, CountDownLatch> _prepared;
+
+    /**
+     * Constructor
+     * @param dockerCmd command to run docker
+     * @param images map of algorithm name to docker image of algorithm
+     * @param warmUpArgs map of algorithm name to arguments for warm up run
+     *                   of algorithm, algorithms not in map are not warmed up.
+     *                   Can be {@code null}
+     * @param timeOut maximum time to pull an image or run a warm up
+     * @param unit unit of {@code timeOut}
+     */
+    public AlgorithmImagePreparer(final String dockerCmd, final Map<String, String> images,
+            final Map<String, List<String>> warmUpArgs, long timeOut, TimeUnit unit){
+        _dockerCmd = dockerCmd;
+        _images = new LinkedHashMap<>(images);
+        _warmUpArgs = warmUpArgs == null ? Collections.emptyMap() : warmUpArgs;
+        _timeOut = timeOut;
+        _timeUnit = unit;
+        _states = new ConcurrentHashMap<>();
+        _prepared = new ConcurrentHashMap<>();
+        for (String algoName : _images.keySet()){
+            _states.put(algoName, PULLING_STATE);
+            _prepared.put(algoName, new CountDownLatch(1));
+        }
+    }
+
+    /**
+     * Starts pulling images in background threads, one per image, and
+     * returns immediately
+     */
+    public void start(){
+        Map<String, List<String>> algorithmsByImage = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : _images.entrySet()){
+            algorithmsByImage.computeIfAbsent(entry.getValue(),
+                    (String k) -> new ArrayList<>()).add(entry.getKey());
+        }
+        if (algorithmsByImage.isEmpty()){
+            return;
+        }
+        ExecutorService es = Executors.newFixedThreadPool(algorithmsByImage.size(),
+                (Runnable r) -> {
+                    Thread t = new Thread(r, "imagepreparer");
+                    t.setDaemon(true);
+                    return t;
+                });
+        for (Map.Entry<String, List<String>> entry : algorithmsByImage.entrySet()){
+            es.execute(() -> prepareImage(entry.getKey(), entry.getValue()));
+        }
+        es.shutdown();
+    }
+
+    /**
+     * Pulls {@code image} and runs warm up of each algorithm using it
+     * @param image docker image
+     * @param algoNames names of algorithms that use {@code image}
+     */
+    protected void prepareImage(final String image, final List<String> algoNames){
+        try {
+            long startTime = System.currentTimeMillis();
+            _logger.info("Pulling image " + image);
+            if (runDocker("pull", image) != 0){
+                _logger.error("Unable to pull image " + image + " for algorithms "
+                        + String.join(", ", algoNames));
+                for (String algoName : algoNames){
+                    setPrepared(algoName, FAILED_STATE);
+                }
+                return;
+            }
+            _logger.info("Pulled image " + image + " in "
+                    + Long.toString(System.currentTimeMillis() - startTime) + " ms");
+            for (String algoName : algoNames){
+                warmUp(algoName, image);
+                setPrepared(algoName, READY_STATE);
+            }
+        } finally {
+            // tasks must never wait forever, even on an unexpected error
+            for (String algoName : algoNames){
+                if (_prepared.get(algoName).getCount() > 0){
+                    setPrepared(algoName, FAILED_STATE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs algorithm with its warm up arguments if it has any. A failed
+     * warm up is logged but does not stop the algorithm from being used
+     * @param algoName name of algorithm
+     * @param image docker image of algorithm
+     */
+    private void warmUp(final String algoName, final String image){
+        List<String> args = _warmUpArgs.get(algoName);
+        if (args == null){
+            return;
+        }
+        _states.put(algoName, WARMING_UP_STATE);
+        List<String> cmd = new ArrayList<>();
+        cmd.add("run");
+        cmd.add("--rm");
+        cmd.add(image);
+        cmd.addAll(args);
+        int exitValue = runDocker(cmd.toArray(new String[0]));
+        if (exitValue != 0){
+            _logger.warn("Warm up of algorithm " + algoName + " exited with "
+                    + Integer.toString(exitValue));
+        }
+    }
+
+    /**
+     * Sets state of algorithm and releases tasks waiting for it
+     * @param algoName name of algorithm
+     * @param state new state
+     */
+    private void setPrepared(final String algoName, final String state){
+        _states.put(algoName, state);
+        _prepared.get(algoName).countDown();
+    }
+
+    /**
+     * Runs docker with {@code args}
+     * @param args arguments for docker
+     * @return exit code of docker, 500 if timeout was exceeded or -1
+     *         if docker could not be run
+     */
+    private int runDocker(final String... args){
+        File stdOutFile = null;
+        File stdErrFile = null;
+        try {
+            stdOutFile = File.createTempFile("imagepreparer", ".out");
+            stdErrFile = File.createTempFile("imagepreparer", ".err");
+            String[] cmd = new String[args.length + 1];
+            cmd[0] = _dockerCmd;
+            System.arraycopy(args, 0, cmd, 1, args.length);
+            CommandLineRunner clr = createCommandLineRunner();
+            int exitValue = clr.runCommandLineProcess(_timeOut, _timeUnit,
+                    stdOutFile, stdErrFile, cmd);
+            if (exitValue != 0){
+                _logger.error("Received exit code " + Integer.toString(exitValue)
+                        + " running: " + clr.getLastCommand() + " : "
+                        + FileUtils.readFileToString(stdErrFile, "UTF-8").trim());
+            }
+            return exitValue;
+        } catch(Exception ex){
+            _logger.error("Unable to run " + _dockerCmd + " " + String.join(" ", args), ex);
+            return -1;
+        } finally {
+            FileUtils.deleteQuietly(stdOutFile);
+            FileUtils.deleteQuietly(stdErrFile);
+        }
+    }
+
+    /**
+     * Creates runner used to run docker
+     * @return new command line runner
+     */
+    protected CommandLineRunner createCommandLineRunner(){
+        return new CommandLineRunnerImpl();
+    }
+
+    /**
+     * Waits until image of algorithm has been pulled and warmed up or
+     * failed. Returns immediately for algorithms not handled by this object
+     * @param algoName name of algorithm
+     * @return state of algorithm or {@code null} if not handled by this object
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public String awaitPrepared(final String algoName) throws InterruptedException {
+        if (algoName == null){
+            return null;
+        }
+        CountDownLatch latch = _prepared.get(algoName);
+        if (latch == null){
+            return null;
+        }
+        latch.await();
+        return _states.get(algoName);
+    }
+
+    /**
+     * Denotes whether image of algorithm has been pulled and warmed up
+     * @param algoName name of algorithm
+     * @return true if algorithm is ready
+     */
+    public boolean isReady(final String algoName){
+        return algoName != null && READY_STATE.equals(_states.get(algoName));
+    }
+
+    /**
+     * Gets state of every algorithm
+     * @return map of algorithm name to one of {@link #PULLING_STATE},
+     *         {@link #WARMING_UP_STATE}, {@link #READY_STATE} or {@link #FAILED_STATE}
+     */
+    public Map<String, String> getStates(){
+        Map<String, String> states = new LinkedHashMap<>();
+        for (String algoName : _images.keySet()){
+            states.put(algoName, _states.get(algoName));
+        }
+        return states;
+    }
+}
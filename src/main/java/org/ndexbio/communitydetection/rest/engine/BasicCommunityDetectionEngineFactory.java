@@ -1,9 +1,27 @@
 package org.ndexbio.communitydetection.rest.engine;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.ndexbio.communitydetection.rest.engine.util.CommunityDetectionRequestValidator;
 import org.ndexbio.communitydetection.rest.engine.util.CommunityDetectionRequestValidatorImpl;
+import org.ndexbio.communitydetection.rest.engine.util.CommunityDetectionRunnerFactory;
+import org.ndexbio.communitydetection.rest.engine.util.InProcessAlgorithm;
+import org.ndexbio.communitydetection.rest.engine.util.InProcessCommunityDetectionRunner;
+import org.ndexbio.communitydetection.rest.engine.util.LocalProcessCommunityDetectionRunner;
+import org.ndexbio.communitydetection.rest.engine.util.TaskBatcher;
+import org.ndexbio.communitydetection.rest.engine.util.WarmContainerPool;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithms;
 import org.ndexbio.communitydetection.rest.model.exceptions.CommunityDetectionException;
 import org.ndexbio.communitydetection.rest.services.Configuration;
@@ -12,11 +30,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Factory to create {@link org.ndexbio.communitydetection.rest.engine.CommunityDetectionEngine} objects
- * 
+ *
  * @author churas
  */
 public class BasicCommunityDetectionEngineFactory {
-    
+
     static Logger _logger = LoggerFactory.getLogger(BasicCommunityDetectionEngineFactory.class);
 
     private int _numWorkers;
@@ -24,33 +42,434 @@ public class BasicCommunityDetectionEngineFactory {
     private String _dockerCmd;
     private CommunityDetectionAlgorithms _algorithms;
     private CommunityDetectionRequestValidator _validator;
+    private boolean _shortestJobFirst;
+    private double _runtimeWeight;
+    private int _maxQueuedTasks;
+    private int _maxBatchSize;
+    private long _maxInFlightInputBytes;
+    private long _resultCacheMaxBytes;
+    private long _resultMemoryCacheMaxBytes;
+    private boolean _useMVStoreResultStore;
+    private boolean _resultCompress;
+    private long _taskMaxAgeSeconds;
+    private long _taskMaxTotalBytes;
+    private int _taskLowWatermarkPercent;
+    private long _taskGcIntervalSeconds;
+    private boolean _taskJournalEnabled;
+    private boolean _imagePrePull;
+    private long _imagePullTimeOut;
+    
+    /**
+     * Map of algorithm name to maximum number of queued or running tasks
+     */
+    private Map<String, Integer> _algorithmMaxQueuedTasks;
+
+    /**
+     * Map of algorithm name to number of dedicated workers
+     */
+    private Map<String, Integer> _algorithmWorkers;
+
+    /**
+     * Map of algorithm name to maximum number of tasks waiting for a worker
+     */
+    private Map<String, Integer> _algorithmQueueSizes;
     
+    /**
+     * Map of algorithm name to pool of warm containers for algorithm
+     */
+    private Map<String, WarmContainerPool> _warmContainerPools;
+    
+    /**
+     * Map of algorithm name to batcher that runs tasks for algorithm together
+     */
+    private Map<String, TaskBatcher> _taskBatchers;
+    
+    /**
+     * Map of algorithm name to arguments for warm up run of algorithm
+     */
+    private Map<String, List<String>> _warmUpArgs;
+    
+    /**
+     * Map of algorithm name to factory creating runners for algorithms
+     * not run with docker
+     */
+    private Map<String, CommunityDetectionRunnerFactory> _runnerFactories;
+
     /**
      * Temp directory where query results will temporarily be stored.
      * @param config Configuration containing number of workers, task directory, docker command,
      *               and algorithms.
      */
     public BasicCommunityDetectionEngineFactory(Configuration config){
-        
+
         _numWorkers = config.getNumberWorkers();
         _taskDir = config.getTaskDirectory();
         _dockerCmd = config.getDockerCommand();
         _algorithms = config.getAlgorithms();
         _validator = new CommunityDetectionRequestValidatorImpl();
-       
+        _shortestJobFirst = Configuration.SHORTEST_JOB_FIRST_SCHEDULER.equals(config.getScheduler());
+        _runtimeWeight = config.getSchedulerRuntimeWeight();
+        _maxQueuedTasks = config.getMaxQueuedTasks();
+        _maxBatchSize = config.getMaxBatchSize();
+        _maxInFlightInputBytes = config.getMaxInFlightInputBytes();
+        _resultCacheMaxBytes = config.getResultCacheMaxBytes();
+        _resultMemoryCacheMaxBytes = config.getResultMemoryCacheMaxBytes();
+        _useMVStoreResultStore = Configuration.MVSTORE_RESULT_STORE.equals(config.getResultStore());
+        _resultCompress = config.isResultCompressEnabled();
+        _taskMaxAgeSeconds = config.getTaskMaxAgeSeconds();
+        _taskMaxTotalBytes = config.getTaskMaxTotalBytes();
+        _taskLowWatermarkPercent = config.getTaskLowWatermarkPercent();
+        _taskGcIntervalSeconds = config.getTaskGcIntervalSeconds();
+        _taskJournalEnabled = config.isTaskJournalEnabled();
+        _imagePrePull = config.isImagePrePullEnabled();
+        if (_imagePrePull){
+            _imagePullTimeOut = config.getImagePullTimeOut();
+        }
+        _algorithmWorkers = new LinkedHashMap<>();
+        _algorithmQueueSizes = new LinkedHashMap<>();
+        _algorithmMaxQueuedTasks = new LinkedHashMap<>();
+        _warmContainerPools = new LinkedHashMap<>();
+        _taskBatchers = new LinkedHashMap<>();
+        _warmUpArgs = new LinkedHashMap<>();
+        _runnerFactories = new LinkedHashMap<>();
+        if (_algorithms == null || _algorithms.getAlgorithms() == null){
+            return;
+        }
+        for (String algoName : _algorithms.getAlgorithms().keySet()){
+            String maxQueued = config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_MAX_QUEUED_TASKS_SETTING, null);
+            if (maxQueued != null){
+                try {
+                    _algorithmMaxQueuedTasks.put(algoName, Integer.parseInt(maxQueued));
+                } catch(NumberFormatException nfe){
+                    _logger.error("Unable to parse maximum queued tasks for algorithm "
+                            + algoName, nfe);
+                }
+            }
+            String warmPoolSize = config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_WARM_POOL_SIZE_SETTING, null);
+            if (warmPoolSize != null){
+                addWarmContainerPool(config, algoName, warmPoolSize);
+            }
+            String batchSize = config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_BATCH_SIZE_SETTING, null);
+            if (batchSize != null){
+                addTaskBatcher(config, algoName, batchSize);
+            }
+            String runner = config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_RUNNER_SETTING, Configuration.DOCKER_RUNNER);
+            if (Configuration.DOCKER_RUNNER.equals(runner) == false){
+                addRunnerFactory(config, algoName, runner);
+            }
+            if (_imagePrePull){
+                String warmUpArgs = config.getAlgorithmSetting(algoName,
+                        Configuration.ALGORITHM_WARMUP_ARGS_SETTING, null);
+                if (warmUpArgs != null && warmUpArgs.trim().isEmpty() == false){
+                    _warmUpArgs.put(algoName, Arrays.asList(warmUpArgs.trim().split("\\s+")));
+                }
+            }
+            String workers = config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_WORKERS_SETTING, null);
+            if (workers == null){
+                continue;
+            }
+            try {
+                int numWorkers = Integer.parseInt(workers);
+                if (numWorkers <= 0){
+                    _logger.warn("Ignoring " + Integer.toString(numWorkers)
+                            + " workers for algorithm " + algoName);
+                    continue;
+                }
+                _algorithmWorkers.put(algoName, numWorkers);
+                _algorithmQueueSizes.put(algoName,
+                        Integer.parseInt(config.getAlgorithmSetting(algoName,
+                                Configuration.ALGORITHM_QUEUE_SIZE_SETTING, "0")));
+            } catch(NumberFormatException nfe){
+                _logger.error("Unable to parse worker settings for algorithm "
+                        + algoName, nfe);
+            }
+        }
+    }
+
+    /**
+     * Adds pool of warm containers for algorithm if {@code warmPoolSize}
+     * is greater than 0
+     * @param config configuration to get other warm pool settings from
+     * @param algoName name of algorithm
+     * @param warmPoolSize number of warm containers as string
+     */
+    private void addWarmContainerPool(Configuration config, final String algoName,
+            final String warmPoolSize){
+        try {
+            int size = Integer.parseInt(warmPoolSize);
+            if (size <= 0){
+                return;
+            }
+            int maxUses = Integer.parseInt(config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_WARM_POOL_MAX_USES_SETTING, "0"));
+            long idleTimeoutSeconds = Long.parseLong(config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_WARM_POOL_IDLE_TIMEOUT_SETTING, "0"));
+            _warmContainerPools.put(algoName, new WarmContainerPool(algoName,
+                    WarmContainerPool.getDockerCommand(_dockerCmd,
+                            _algorithms.getAlgorithms().get(algoName).getDockerImage(),
+                            _taskDir, config.getMountOptions()),
+                    size, maxUses, idleTimeoutSeconds * 1000L,
+                    WarmContainerPool.DEFAULT_HEALTH_CHECK_TIMEOUT_MILLIS));
+        } catch(NumberFormatException nfe){
+            _logger.error("Unable to parse warm pool settings for algorithm "
+                    + algoName, nfe);
+        }
+    }
+
+    /**
+     * Adds batcher for algorithm if {@code batchSize} is greater than 1.
+     * Tasks wait for their batch in a worker thread so {@code batchSize}
+     * is lowered to the number of workers that run the algorithm
+     * @param config configuration to get other batch settings from
+     * @param algoName name of algorithm
+     * @param batchSize maximum number of tasks in a batch as string
+     */
+    private void addTaskBatcher(Configuration config, final String algoName,
+            final String batchSize){
+        try {
+            int size = Integer.parseInt(batchSize);
+            int workers = _numWorkers;
+            String algoWorkers = config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_WORKERS_SETTING, null);
+            if (algoWorkers != null && Integer.parseInt(algoWorkers) > 0){
+                workers = Integer.parseInt(algoWorkers);
+            }
+            if (size > workers){
+                _logger.warn("Batch size of " + Integer.toString(size) + " for algorithm "
+                        + algoName + " exceeds its " + Integer.toString(workers)
+                        + " workers, lowering batch size to " + Integer.toString(workers));
+                size = workers;
+            }
+            if (size <= 1){
+                return;
+            }
+            long lingerMillis = Long.parseLong(config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_BATCH_LINGER_SETTING, "0"));
+            _taskBatchers.put(algoName, new TaskBatcher(algoName, _dockerCmd,
+                    _algorithms.getAlgorithms().get(algoName).getDockerImage(),
+                    new File(_taskDir + File.separator + CommunityDetectionEngineImpl.BATCH_DIR),
+                    config.getMountOptions(), size, lingerMillis));
+        } catch(NumberFormatException nfe){
+            _logger.error("Unable to parse batch settings for algorithm "
+                    + algoName, nfe);
+        }
+    }
+
+    /**
+     * Adds factory creating runners for algorithm that is not run with
+     * docker. If the settings for {@code runner} are invalid an error is
+     * logged and the algorithm is run with docker
+     * @param config configuration to get other runner settings from
+     * @param algoName name of algorithm
+     * @param runner one of {@link Configuration#PROCESS_RUNNER} or
+     *               {@link Configuration#JVM_RUNNER}
+     */
+    private void addRunnerFactory(Configuration config, final String algoName,
+            final String runner){
+        final String taskDir = _taskDir;
+        if (Configuration.PROCESS_RUNNER.equals(runner)){
+            final String command = config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_RUNNER_COMMAND_SETTING, null);
+            if (command == null || command.trim().isEmpty()){
+                _logger.error("No " + Configuration.ALGORITHM_RUNNER_COMMAND_SETTING
+                        + " set for algorithm " + algoName + ", running it with docker");
+                return;
+            }
+            final long timeOut = config.getAlgorithmTimeOut();
+            _runnerFactories.put(algoName, (id, request, cda, submitTime) ->
+                    new LocalProcessCommunityDetectionRunner(id, request, submitTime,
+                            taskDir, command.trim(), request.getCustomParameters(),
+                            timeOut, TimeUnit.SECONDS, cda.getOutputDataFormat()));
+        } else if (Configuration.JVM_RUNNER.equals(runner)){
+            String className = config.getAlgorithmSetting(algoName,
+                    Configuration.ALGORITHM_RUNNER_CLASS_SETTING, null);
+            if (className == null || className.trim().isEmpty()){
+                _logger.error("No " + Configuration.ALGORITHM_RUNNER_CLASS_SETTING
+                        + " set for algorithm " + algoName + ", running it with docker");
+                return;
+            }
+            try {
+                final InProcessAlgorithm algorithm = Class.forName(className.trim())
+                        .asSubclass(InProcessAlgorithm.class).getDeclaredConstructor().newInstance();
+                _runnerFactories.put(algoName, (id, request, cda, submitTime) ->
+                        new InProcessCommunityDetectionRunner(id, request, submitTime,
+                                taskDir, algorithm, cda.getInputDataFormat()));
+            } catch(ReflectiveOperationException | ClassCastException ex){
+                _logger.error("Unable to create " + Configuration.ALGORITHM_RUNNER_CLASS_SETTING
+                        + " " + className + " for algorithm " + algoName
+                        + ", running it with docker", ex);
+            }
+        } else {
+            _logger.error("Unknown " + Configuration.ALGORITHM_RUNNER_SETTING + " "
+                    + runner + " for algorithm " + algoName + ", running it with docker");
+        }
+    }
+
+    /**
+     * Creates object that pulls docker image of every algorithm run
+     * with docker
+     * @return object ready to be started
+     */
+    protected AlgorithmImagePreparer createAlgorithmImagePreparer(){
+        Map<String, String> images = new LinkedHashMap<>();
+        if (_algorithms != null && _algorithms.getAlgorithms() != null){
+            for (String algoName : _algorithms.getAlgorithms().keySet()){
+                if (_runnerFactories.containsKey(algoName)){
+                    continue;
+                }
+                String image = _algorithms.getAlgorithms().get(algoName).getDockerImage();
+                if (image != null && image.trim().isEmpty() == false){
+                    images.put(algoName, image);
+                }
+            }
+        }
+        return new AlgorithmImagePreparer(_dockerCmd, images, _warmUpArgs,
+                _imagePullTimeOut, TimeUnit.SECONDS);
     }
 
     /**
      * Creates CommunityDetectionEngine with a fixed threadpool to process requests
+     * as well as a dedicated fixed threadpool for any algorithm that has
+     * {@link org.ndexbio.communitydetection.rest.services.Configuration#ALGORITHM_WORKERS_SETTING}
+     * set in the configuration. If 
+     * {@link org.ndexbio.communitydetection.rest.services.Configuration#SHORTEST_JOB_FIRST_SCHEDULER}
+     * is the scheduler then the threadpools run queued tasks in priority order.
+     * If the task journal is enabled, tasks that did not finish before the
+     * last shutdown are queued again. If
+     * {@link org.ndexbio.communitydetection.rest.services.Configuration#IMAGE_PREPULL}
+     * is enabled, docker images of the algorithms start being pulled
+     * in the background
      * @throws CommunityDetectionException if there is an error
-     * @return {@link org.ndexbio.communitydetection.rest.engine.CommunityDetectionEngine} object 
+     * @return {@link org.ndexbio.communitydetection.rest.engine.CommunityDetectionEngine} object
      *         ready to service requests
      */
     public CommunityDetectionEngine getCommunityDetectionEngine() throws CommunityDetectionException {
         _logger.debug("Creating executor service with: " + Integer.toString(_numWorkers) + " workers");
-        ExecutorService es = Executors.newFixedThreadPool(_numWorkers);
-        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(es, _taskDir,
-                _dockerCmd, _algorithms, _validator);
+        ExecutorService es = createExecutorService(null, _numWorkers, 0);
+        Map<String, ExecutorService> algoExecutors = new LinkedHashMap<>();
+        for (String algoName : _algorithmWorkers.keySet()){
+            int workers = _algorithmWorkers.get(algoName);
+            int queueSize = _algorithmQueueSizes.get(algoName);
+            _logger.info("Creating dedicated executor service for algorithm "
+                    + algoName + " with " + Integer.toString(workers)
+                    + " workers and queue size of " + Integer.toString(queueSize));
+            algoExecutors.put(algoName, createExecutorService(algoName, workers, queueSize));
+        }
+        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(es,
+                algoExecutors, _taskDir, _dockerCmd, _algorithms, _validator);
+        engine.updateRuntimeWeight(_runtimeWeight);
+        for (String algoName : _warmContainerPools.keySet()){
+            _logger.info("Keeping up to " 
+                    + Integer.toString(_warmContainerPools.get(algoName).getSize())
+                    + " warm containers for algorithm " + algoName);
+        }
+        engine.updateWarmContainerPools(_warmContainerPools);
+        for (String algoName : _taskBatchers.keySet()){
+            TaskBatcher batcher = _taskBatchers.get(algoName);
+            _logger.info("Running up to " + Integer.toString(batcher.getMaxBatchSize())
+                    + " tasks together for algorithm " + algoName + " waiting up to "
+                    + Long.toString(batcher.getLingerMillis()) + " ms for a batch to fill");
+            if (_warmContainerPools.containsKey(algoName)){
+                _logger.warn("Algorithm " + algoName + " has batching and warm containers"
+                        + " enabled, warm containers will not be used");
+            }
+        }
+        engine.updateTaskBatchers(_taskBatchers);
+        for (String algoName : _runnerFactories.keySet()){
+            _logger.info("Running algorithm " + algoName + " without docker");
+            if (_warmContainerPools.containsKey(algoName) || _taskBatchers.containsKey(algoName)){
+                _logger.warn("Algorithm " + algoName + " is not run with docker,"
+                        + " warm containers and batching will not be used");
+            }
+        }
+        engine.updateRunnerFactories(_runnerFactories);
+        if (_imagePrePull){
+            AlgorithmImagePreparer imagePreparer = createAlgorithmImagePreparer();
+            engine.updateAlgorithmImagePreparer(imagePreparer);
+            imagePreparer.start();
+        }
+        engine.updateAdmissionLimits(_maxQueuedTasks, _maxInFlightInputBytes,
+                _algorithmMaxQueuedTasks);
+        engine.updateMaxBatchSize(_maxBatchSize);
+        if (_useMVStoreResultStore){
+            File storeFile = new File(_taskDir + File.separator
+                    + MVStoreResultStore.RESULT_STORE_FILE);
+            _logger.info("Storing results in " + storeFile.getAbsolutePath());
+            engine.updateResultStore(new MVStoreResultStore(storeFile));
+        } else if (_resultCompress){
+            engine.updateResultStore(new FileSystemResultStore(_taskDir, true));
+        }
+        if (_resultCacheMaxBytes > 0){
+            File cacheDir = new File(_taskDir + File.separator
+                    + CommunityDetectionEngineImpl.RESULT_CACHE_DIR);
+            _logger.info("Enabling result cache in " + cacheDir.getAbsolutePath()
+                    + " with maximum size of " + Long.toString(_resultCacheMaxBytes) + " bytes");
+            engine.updateResultCache(new CommunityDetectionResultCache(cacheDir,
+                    _resultCacheMaxBytes));
+        }
+        if (_resultMemoryCacheMaxBytes > 0){
+            engine.updateResultMemoryCache(new CommunityDetectionResultMemoryCache(
+                    _resultMemoryCacheMaxBytes));
+        }
+        if (_taskMaxAgeSeconds > 0 || _taskMaxTotalBytes > 0){
+            _logger.info("Removing finished tasks older than "
+                    + Long.toString(_taskMaxAgeSeconds) + " seconds or beyond "
+                    + Long.toString(_taskMaxTotalBytes) + " bytes every "
+                    + Long.toString(_taskGcIntervalSeconds) + " seconds");
+            engine.updateTaskDirectoryGarbageCollector(new TaskDirectoryGarbageCollector(
+                    new File(_taskDir), _taskMaxAgeSeconds * 1000L, _taskMaxTotalBytes,
+                    _taskLowWatermarkPercent), _taskGcIntervalSeconds * 1000L);
+        }
+        if (_taskJournalEnabled){
+            File journalFile = new File(_taskDir + File.separator
+                    + TaskJournal.TASK_JOURNAL_FILE);
+            try {
+                engine.updateTaskJournal(new TaskJournal(journalFile,
+                        TaskJournal.DEFAULT_COMPACT_THRESHOLD));
+                engine.replayTaskJournal();
+            } catch(IOException io){
+                _logger.error("Unable to open task journal " 
+                        + journalFile.getAbsolutePath()
+                        + ", tasks will not be restored after restart", io);
+            }
+        }
         return engine;
     }
+
+    /**
+     * Creates a fixed size thread pool that rejects new tasks
+     * once {@code queueSize} tasks are waiting for a worker. If shortest job
+     * first scheduling is enabled the waiting tasks are kept in a priority queue
+     * @param algoName name of algorithm this pool is dedicated to or {@code null}
+     *                 for the default pool
+     * @param workers number of worker threads
+     * @param queueSize maximum number of waiting tasks, 0 or less means unbounded
+     * @return executor service
+     */
+    protected ExecutorService createExecutorService(final String algoName,
+            int workers, int queueSize){
+        BlockingQueue<Runnable> queue;
+        if (_shortestJobFirst == true){
+            if (queueSize > 0){
+                queue = new BoundedPriorityBlockingQueue<>(queueSize);
+            } else {
+                queue = new PriorityBlockingQueue<>();
+            }
+        } else if (queueSize > 0){
+            queue = new ArrayBlockingQueue<>(queueSize);
+        } else {
+            queue = new LinkedBlockingQueue<>();
+        }
+        final String poolName = algoName == null ? CommunityDetectionEngineImpl.DEFAULT_POOL : algoName;
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                queue, (Runnable r, ThreadPoolExecutor executor) -> {
+                    throw new RejectedExecutionException("Queue for "
+                            + poolName + " is full");
+                });
+    }
 }
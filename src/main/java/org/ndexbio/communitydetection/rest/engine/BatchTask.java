@@ -0,0 +1,58 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.ndexbio.communitydetection.rest.model.ErrorResponse;
+
+/**
+ * Outcome of a single request submitted in a batch. Either the id of
+ * the task created for the request or the error explaining why the
+ * request was not accepted is set
+ * 
+ * @author churas
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchTask {
+    
+    private String _id;
+    private ErrorResponse _error;
+
+    /**
+     * Constructor
+     */
+    public BatchTask(){
+    }
+    
+    /**
+     * Constructor
+     * @param id id of task or {@code null} if request was not accepted
+     * @param error reason request was not accepted or {@code null}
+     */
+    public BatchTask(final String id, final ErrorResponse error){
+        _id = id;
+        _error = error;
+    }
+
+    /**
+     * Gets id of task created for request
+     * @return id of task or {@code null} if request was not accepted
+     */
+    public String getId() {
+        return _id;
+    }
+
+    public void setId(String id) {
+        _id = id;
+    }
+
+    /**
+     * Gets reason request was not accepted
+     * @return error or {@code null} if request was accepted
+     */
+    public ErrorResponse getError() {
+        return _error;
+    }
+
+    public void setError(ErrorResponse error) {
+        _error = error;
+    }
+}
@@ -0,0 +1,42 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * {@link java.util.concurrent.PriorityBlockingQueue} that refuses new
+ * elements via {@link #offer(java.lang.Object) } once it holds 
+ * {@code capacity} elements. This lets a 
+ * {@link java.util.concurrent.ThreadPoolExecutor} reject tasks when the
+ * queue is full just like it would with a bounded FIFO queue.
+ * 
+ * @author churas
+ * @param <E> type of element
+ */
+public class BoundedPriorityBlockingQueue<E> extends PriorityBlockingQueue<E> {
+    
+    private final int _capacity;
+
+    /**
+     * Constructor
+     * @param capacity maximum number of elements
+     */
+    public BoundedPriorityBlockingQueue(int capacity){
+        super();
+        _capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        synchronized(this){
+            if (size() >= _capacity){
+                return false;
+            }
+            return super.offer(e);
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, _capacity - size());
+    }
+}
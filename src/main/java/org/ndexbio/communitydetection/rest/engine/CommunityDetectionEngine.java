@@ -1,5 +1,8 @@
 package org.ndexbio.communitydetection.rest.engine;
 
+import java.io.File;
+import java.util.List;
+import java.util.Map;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithms;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
@@ -20,6 +23,38 @@ public interface CommunityDetectionEngine extends Runnable {
      * @return UUID as a string that is an identifier for query
      */
     public String request(CommunityDetectionRequest request) throws CommunityDetectionException;
+
+    /**
+     * Submits request whose data was written to {@code inputFile} for
+     * processing. If a task is created {@code inputFile} is moved into
+     * the directory of the task
+     * @param request to process, data of request is ignored
+     * @param inputFile file holding data of request or {@code null} if
+     *                  request has no data
+     * @throws CommunityDetectionException if there is an error
+     * @return UUID as a string that is an identifier for query
+     */
+    public String request(CommunityDetectionRequest request, File inputFile) throws CommunityDetectionException;
+
+    /**
+     * Checks that {@code inputBytes} more bytes of input data fit under the
+     * limit of input data for queued tasks so callers can refuse an upload
+     * before it is written to disk. Nothing is reserved by this call
+     * @param inputBytes size of input data in bytes
+     * @throws CommunityDetectionException if the input data would exceed
+     *         the limit, this is a {@link CommunityDetectionQueueFullException}
+     */
+    public void checkInputBytes(long inputBytes) throws CommunityDetectionException;
+
+    /**
+     * Submits several requests for processing. Unlike {@link #request(org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest) }
+     * a request that is invalid or rejected does not cause an exception,
+     * instead the error is set in the corresponding {@link BatchTask}
+     * @param requests to process
+     * @throws CommunityDetectionException if there is an error
+     * @return outcome of each request in same order as {@code requests}
+     */
+    public List<BatchTask> requestBatch(List<CommunityDetectionRequest> requests) throws CommunityDetectionException;
      
     /**
      * Gets query results
@@ -30,6 +65,30 @@ public interface CommunityDetectionEngine extends Runnable {
      */
     public CommunityDetectionResult getResult(final String id) throws CommunityDetectionException;
     
+    /**
+     * Gets file holding json of result of completed or failed task
+     * with {@code id} so it can be streamed without being parsed
+     * @param id id of task
+     * @param compressed if true get file holding gzip compressed json
+     * @return file or {@code null} if task is not finished, not found or
+     *         its result is not stored in a file in the requested form
+     * @throws CommunityDetectionException if {@code id} is {@code null}
+     */
+    public File getResultFile(final String id, boolean compressed) throws CommunityDetectionException;
+
+    /**
+     * Gets json of result of completed or failed task with {@code id} from
+     * memory so frequently requested results are sent without reading
+     * the result file
+     * @param id id of task
+     * @param compressed if true get gzip compressed json
+     * @return json or {@code null} if result is not available from memory
+     *         in the requested form, caller should then fall back to
+     *         {@link #getResultFile(java.lang.String, boolean) }
+     * @throws CommunityDetectionException if there is an error
+     */
+    public byte[] getResultBytes(final String id, boolean compressed) throws CommunityDetectionException;
+    
     
     /**
      * Gets query status
@@ -39,6 +98,58 @@ public interface CommunityDetectionEngine extends Runnable {
      */
     public CommunityDetectionResultStatus getStatus(final String id) throws CommunityDetectionException;
     
+    /**
+     * Gets status of several queries
+     * @param ids ids of tasks
+     * @return map of id to status where status is {@code null} if task was not found
+     * @throws CommunityDetectionException if there is an error
+     */
+    public Map<String, CommunityDetectionResultStatus> getStatuses(final List<String> ids) throws CommunityDetectionException;
+    
+    /**
+     * Gets results of several queries
+     * @param ids ids of tasks
+     * @return map of id to result where result is {@code null} if task was not found
+     * @throws CommunityDetectionException if there is an error
+     */
+    public Map<String, CommunityDetectionResult> getResults(final List<String> ids) throws CommunityDetectionException;
+    
+    /**
+     * Registers {@code listener} to be run once, on a separate thread, when
+     * the task with {@code id} completes, fails, or is deleted
+     * @param id id of task
+     * @param listener invoked when task reaches a terminal state
+     * @return true if registered, false if task is not pending in which case
+     *         {@code listener} is never run
+     */
+    public boolean addTaskFinishedListener(final String id, final Runnable listener);
+    
+    /**
+     * Removes listener added via {@link #addTaskFinishedListener(java.lang.String, java.lang.Runnable) }
+     * @param id id of task
+     * @param listener listener to remove
+     * @return true if listener was removed before it was run
+     */
+    public boolean removeTaskFinishedListener(final String id, final Runnable listener);
+    
+    /**
+     * Registers {@code listener} to receive lifecycle events of task with
+     * {@code id} until the task completes, fails, or is deleted
+     * @param id id of task
+     * @param listener receives events
+     * @return current status of task or {@code null} if task was not found.
+     *         If task is not found or has already finished, {@code listener}
+     *         is not registered
+     */
+    public CommunityDetectionResultStatus addTaskEventListener(final String id, final TaskEventListener listener);
+    
+    /**
+     * Removes listener added via {@link #addTaskEventListener(java.lang.String, org.ndexbio.communitydetection.rest.engine.TaskEventListener) }
+     * @param id id of task
+     * @param listener listener to remove
+     */
+    public void removeTaskEventListener(final String id, final TaskEventListener listener);
+    
     /**
      * Deletes query
      * @param id id of task
@@ -2,24 +2,47 @@ package org.ndexbio.communitydetection.rest.engine;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.commons.io.FileUtils;
+import org.ndexbio.communitydetection.rest.engine.util.BatchCommunityDetectionRunner;
+import org.ndexbio.communitydetection.rest.engine.util.CommunityDetectionRequestHasher;
 import org.ndexbio.communitydetection.rest.engine.util.CommunityDetectionRequestValidator;
+import org.ndexbio.communitydetection.rest.engine.util.CommunityDetectionRunnerFactory;
 import org.ndexbio.communitydetection.rest.engine.util.DockerCommunityDetectionRunner;
+import org.ndexbio.communitydetection.rest.engine.util.TaskBatcher;
+import org.ndexbio.communitydetection.rest.engine.util.WarmContainerPool;
+import org.ndexbio.communitydetection.rest.engine.util.WarmPoolCommunityDetectionRunner;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithms;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
@@ -46,15 +69,121 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
     
     public static final String CDRESULT_JSON_FILE = "cdresult.json";
     
+    /**
+     * Gzip compressed version of {@link #CDRESULT_JSON_FILE} written when
+     * result compression is enabled
+     */
+    public static final String CDRESULT_JSON_GZ_FILE = "cdresult.json.gz";
+    
+    /**
+     * Small file written next to {@link #CDRESULT_JSON_FILE} containing just
+     * the status of the result so status requests do not parse the result
+     */
+    public static final String CDSTATUS_JSON_FILE = "cdstatus.json";
+    
+    /**
+     * Name of directory under task directory where cached results are stored
+     */
+    public static final String RESULT_CACHE_DIR = "resultcache";
+    
+    /**
+     * Name of directory under task directory where batches of tasks
+     * run together by one container are put
+     */
+    public static final String BATCH_DIR = "batches";
+    
+    /**
+     * Name used in {@link ExtendedServerStatus#getWorkerPools()} for
+     * the pool that runs algorithms without dedicated workers
+     */
+    public static final String DEFAULT_POOL = "default";
+    
+    /**
+     * Wall time in milliseconds assumed for a task when computing the 
+     * Retry-After value for a rejected request and there is no history
+     * to estimate wall time from
+     */
+    public static final long DEFAULT_RETRY_AFTER_MILLIS = 30000;
+    
+    /**
+     * Upper limit on Retry-After value for a rejected request in seconds
+     */
+    public static final long MAX_RETRY_AFTER_SECONDS = 3600;
+    
+    /**
+     * Number of threads submitting requests of batches
+     */
+    public static final int BATCH_SUBMIT_THREADS = 4;
+    
+    /**
+     * Maximum number of statuses of finished tasks kept in memory
+     */
+    public static final int MAX_STATUS_INDEX_ENTRIES = 10000;
+    
     static Logger _logger = LoggerFactory.getLogger(CommunityDetectionEngineImpl.class);
 
     private String _taskDir;
-    private boolean _shutdown;
+    private volatile boolean _shutdown;
     private ExecutorService _executorService;
-    private ConcurrentHashMap<String, Future> _futureTaskMap;
+    
+    /**
+     * Map of algorithm name to executor service dedicated to that algorithm
+     */
+    private Map<String, ExecutorService> _algorithmExecutors;
+    private ConcurrentHashMap<String, CommunityDetectionTask> _futureTaskMap;
+    
+    /**
+     * Ids of tasks that have not finished. A task runs in the directory
+     * named by its id, which stays here even if the request that created
+     * the task is deleted while other requests share the task
+     */
+    private Set<String> _activeTaskIds;
+    
+    /**
+     * Submits requests of batches so writing of their input data overlaps.
+     * Its queue holds one batch of the maximum size, requests that do not
+     * fit are rejected
+     */
+    private volatile ThreadPoolExecutor _batchExecutor;
+    private int _maxBatchSize;
+    
+    /**
+     * Tasks add themselves to this queue when they finish or are canceled
+     */
+    private BlockingQueue<CommunityDetectionTask> _completionQueue;
     private AtomicInteger _completedTasks;
     private AtomicInteger _queuedTasks;
     private AtomicInteger _canceledTasks;
+    private AtomicInteger _rejectedTasks;
+    private AtomicInteger _coalescedTasks;
+    
+    /**
+     * Map of request hash to queued or running task for that request
+     */
+    private ConcurrentHashMap<String, CommunityDetectionTask> _inFlightByHash;
+    
+    /**
+     * Map of task id to listeners waiting for that task to finish
+     */
+    private ConcurrentHashMap<String, List<Runnable>> _finishedListeners;
+    
+    /**
+     * Map of task id to listeners receiving lifecycle events of that task
+     */
+    private ConcurrentHashMap<String, List<TaskEventListener>> _eventListeners;
+    
+    /**
+     * Map of algorithm name to number of queued or running tasks
+     */
+    private ConcurrentHashMap<String, AtomicInteger> _algorithmQueuedTasks;
+    
+    /**
+     * Total size in bytes of input files for queued or running tasks
+     */
+    private AtomicLong _inFlightInputBytes;
+    private int _maxQueuedTasks;
+    private long _maxInFlightInputBytes;
+    private Map<String, Integer> _algorithmMaxQueuedTasks;
     private CommunityDetectionAlgorithms _algorithms;
     private CommunityDetectionRequestValidator _validator;
     private String _dockerCmd;
@@ -63,8 +192,105 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
      * This should be a map of <query UUID> => EnrichmentQueryResults object
      */
     private ConcurrentHashMap<String, CommunityDetectionResult> _results;
-
-    private long _threadSleep = 10;
+    
+    /**
+     * Map of task id to status of tasks that are complete or failed so
+     * status requests do not need to load the result from the filesystem.
+     * Holds at most {@link #MAX_STATUS_INDEX_ENTRIES} statuses, least
+     * recently used statuses are removed and read from the
+     * {@link ResultStore} again when requested
+     */
+    private Map<String, CommunityDetectionResultStatus> _statusIndex;
+    
+    /**
+     * Stores completed and failed results
+     */
+    private ResultStore _resultStore;
+    
+    /**
+     * Added to completion queue by {@link #shutdown()} to wake the
+     * thread waiting on that queue
+     */
+    private static final CommunityDetectionTask SHUTDOWN_TASK =
+            new CommunityDetectionTask(null, () -> null, null);
+    
+    /**
+     * Default milliseconds between checks of progress reported by running tasks
+     */
+    public static final long DEFAULT_PROGRESS_POLL_TIME = 1000;
+    
+    /**
+     * Reads progress reported by running tasks
+     */
+    private TaskProgressMonitor _progressMonitor;
+    private long _progressPollTime = DEFAULT_PROGRESS_POLL_TIME;
+    private long _lastProgressCheck = 0;
+    
+    /**
+     * Estimates wall time of tasks from wall times of completed tasks
+     */
+    private TaskRuntimeEstimator _runtimeEstimator;
+    
+    /**
+     * Multiplier applied to estimated wall time when computing priority
+     * of a task
+     */
+    private double _runtimeWeight = 1.0;
+    
+    /**
+     * Cache of completed results keyed by request hash, {@code null} if
+     * caching is disabled
+     */
+    private CommunityDetectionResultCache _resultCache;
+    
+    /**
+     * In memory cache of completed results keyed by task id, {@code null}
+     * if disabled
+     */
+    private CommunityDetectionResultMemoryCache _memoryCache;
+    
+    /**
+     * Journal of submitted and finished tasks used to queue unfinished
+     * tasks again after a restart, {@code null} if disabled
+     */
+    private TaskJournal _taskJournal;
+    
+    /**
+     * Removes task directories of finished tasks, if {@code null} task
+     * directories are only removed by {@link #delete(java.lang.String)}
+     */
+    private volatile TaskDirectoryGarbageCollector _garbageCollector;
+    
+    /**
+     * Runs sweeps of {@link #_garbageCollector} on its own thread so
+     * finished tasks are not held up by them, {@code null} if task
+     * directories are not swept
+     */
+    private ScheduledExecutorService _gcExecutor;
+    
+    /**
+     * Map of algorithm name to pool of warm containers that run tasks
+     * for that algorithm
+     */
+    private Map<String, WarmContainerPool> _warmContainerPools = Collections.emptyMap();
+    
+    /**
+     * Map of algorithm name to batcher that runs tasks for that
+     * algorithm together
+     */
+    private Map<String, TaskBatcher> _taskBatchers = Collections.emptyMap();
+    
+    /**
+     * Map of algorithm name to factory creating runners for algorithms
+     * not run with docker
+     */
+    private Map<String, CommunityDetectionRunnerFactory> _runnerFactories = Collections.emptyMap();
+    
+    /**
+     * Pulls docker images of algorithms at startup, {@code null} if
+     * images are not pulled at startup
+     */
+    private AlgorithmImagePreparer _imagePreparer;
     
     /**
      * Constructor 
@@ -79,127 +305,1080 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
             final String dockerCmd,
             final CommunityDetectionAlgorithms algorithms,
             final CommunityDetectionRequestValidator validator){
+        this(es, null, taskDir, dockerCmd, algorithms, validator);
+    }
+    
+    /**
+     * Constructor 
+     * @param es Executor Service to run tasks for algorithms without 
+     *           an entry in {@code algorithmExecutors}
+     * @param algorithmExecutors Map of algorithm name to Executor Service
+     *                           dedicated to running tasks for that algorithm.
+     *                           Can be {@code null}
+     * @param taskDir Base directory for tasks
+     * @param dockerCmd Docker command to run
+     * @param algorithms Algorithms that can be run by this object
+     * @param validator Validates requests
+     */
+    public CommunityDetectionEngineImpl(ExecutorService es,
+            Map<String, ExecutorService> algorithmExecutors,
+            final String taskDir,
+            final String dockerCmd,
+            final CommunityDetectionAlgorithms algorithms,
+            final CommunityDetectionRequestValidator validator){
         _executorService = es;
+        if (algorithmExecutors != null){
+            _algorithmExecutors = algorithmExecutors;
+        } else {
+            _algorithmExecutors = Collections.emptyMap();
+        }
         _shutdown = false;
         _futureTaskMap = new ConcurrentHashMap<>();
+        _activeTaskIds = ConcurrentHashMap.newKeySet();
+        _maxBatchSize = Configuration.DEFAULT_MAX_BATCH_SIZE;
+        _batchExecutor = createBatchExecutor(_maxBatchSize);
+        _completionQueue = new LinkedBlockingQueue<>();
         _taskDir = taskDir;
         _dockerCmd = dockerCmd;
         _algorithms = algorithms;
         _validator = validator;
         _results = new ConcurrentHashMap<>();
+        _statusIndex = Collections.synchronizedMap(
+                new LinkedHashMap<String, CommunityDetectionResultStatus>(16, 0.75f, true){
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, CommunityDetectionResultStatus> eldest){
+                        return size() > MAX_STATUS_INDEX_ENTRIES;
+                    }
+                });
         _completedTasks = new AtomicInteger(0);
         _queuedTasks = new AtomicInteger(0);
         _canceledTasks = new AtomicInteger(0);
+        _rejectedTasks = new AtomicInteger(0);
+        _coalescedTasks = new AtomicInteger(0);
+        _inFlightByHash = new ConcurrentHashMap<>();
+        _finishedListeners = new ConcurrentHashMap<>();
+        _eventListeners = new ConcurrentHashMap<>();
+        _algorithmQueuedTasks = new ConcurrentHashMap<>();
+        _inFlightInputBytes = new AtomicLong(0);
+        _maxQueuedTasks = 0;
+        _maxInFlightInputBytes = 0;
+        _algorithmMaxQueuedTasks = Collections.emptyMap();
+        _runtimeEstimator = new TaskRuntimeEstimator();
+        _progressMonitor = new TaskProgressMonitor(taskDir);
+        _resultStore = new FileSystemResultStore(taskDir);
     }
     
     /**
-     * Sets milliseconds thread should sleep if no work needs to be done.
-     * @param sleepTime time in milliseconds
+     * Sets minimum milliseconds between checks of progress reported by
+     * running tasks
+     * @param pollTime time in milliseconds
      */
-    public void updateThreadSleepTime(long sleepTime){
-        _threadSleep = sleepTime;
+    public void updateProgressPollTime(long pollTime){
+        _progressPollTime = pollTime;
     }
-
-    protected void threadSleep(){
-        try {
-            Thread.sleep(_threadSleep);
+    
+    /**
+     * Sets estimator used to predict wall time of tasks
+     * @param estimator the estimator, if {@code null} call is ignored
+     */
+    public void updateTaskRuntimeEstimator(TaskRuntimeEstimator estimator){
+        if (estimator != null){
+            _runtimeEstimator = estimator;
         }
-        catch(InterruptedException ie){
-
+    }
+    
+    /**
+     * Sets cache used to return results of previously run requests without
+     * running the algorithm again
+     * @param resultCache the cache, {@code null} disables caching
+     */
+    public void updateResultCache(CommunityDetectionResultCache resultCache){
+        _resultCache = resultCache;
+    }
+    
+    /**
+     * Sets store where completed and failed results are saved
+     * @param resultStore the store, if {@code null} call is ignored
+     */
+    public void updateResultStore(ResultStore resultStore){
+        if (resultStore != null){
+            _resultStore = resultStore;
+        }
+    }
+    
+    /**
+     * Sets garbage collector that periodically removes task directories
+     * of finished tasks. Sweeps run on a separate thread every
+     * {@code sweepInterval} milliseconds until {@link #shutdown()} is invoked
+     * @param garbageCollector the garbage collector, {@code null} disables
+     *                         removal of task directories
+     * @param sweepInterval milliseconds between sweeps, 0 or less
+     *                      disables periodic sweeps
+     */
+    public synchronized void updateTaskDirectoryGarbageCollector(TaskDirectoryGarbageCollector garbageCollector,
+            long sweepInterval){
+        if (_gcExecutor != null){
+            _gcExecutor.shutdownNow();
+            _gcExecutor = null;
+        }
+        _garbageCollector = garbageCollector;
+        if (garbageCollector == null || sweepInterval <= 0){
+            return;
+        }
+        _gcExecutor = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread t = new Thread(r, "taskdirgc");
+            t.setDaemon(true);
+            return t;
+        });
+        _gcExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                collectTaskGarbage();
+            } catch(RuntimeException ex){
+                // an exception would cancel all future sweeps
+                _logger.error("Caught exception removing task directories", ex);
+            }
+        }, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Sets pools of warm containers used to run tasks instead of starting
+     * a new container for each task
+     * @param warmContainerPools map of algorithm name to pool of warm
+     *                           containers, {@code null} disables warm containers
+     */
+    public void updateWarmContainerPools(Map<String, WarmContainerPool> warmContainerPools){
+        if (warmContainerPools == null){
+            _warmContainerPools = Collections.emptyMap();
+        } else {
+            _warmContainerPools = warmContainerPools;
+        }
+    }
+    
+    /**
+     * Sets batchers used to run tasks of an algorithm together in one
+     * container. Algorithms with a batcher do not use warm containers
+     * @param taskBatchers map of algorithm name to batcher, {@code null}
+     *                     disables batching
+     */
+    public void updateTaskBatchers(Map<String, TaskBatcher> taskBatchers){
+        if (taskBatchers == null){
+            _taskBatchers = Collections.emptyMap();
+        } else {
+            _taskBatchers = taskBatchers;
         }
     }
     
     /**
-     * Processes any query tasks, looping until {@link #shutdown()} is invoked
+     * Sets factories creating runners for algorithms not run with docker.
+     * Algorithms with a factory do not use batching or warm containers
+     * @param runnerFactories map of algorithm name to factory, {@code null}
+     *                        runs every algorithm with docker
+     */
+    public void updateRunnerFactories(Map<String, CommunityDetectionRunnerFactory> runnerFactories){
+        if (runnerFactories == null){
+            _runnerFactories = Collections.emptyMap();
+        } else {
+            _runnerFactories = runnerFactories;
+        }
+    }
+    
+    /**
+     * Sets object pulling docker images of algorithms. Tasks wait for
+     * the image of their algorithm to be pulled before running so pull
+     * time is not counted against the algorithm timeout
+     * @param imagePreparer object pulling images, {@code null} means
+     *                      tasks do not wait
+     */
+    public void updateAlgorithmImagePreparer(AlgorithmImagePreparer imagePreparer){
+        _imagePreparer = imagePreparer;
+    }
+    
+    /**
+     * Sets in memory cache used to avoid reading result files of
+     * frequently requested results
+     * @param memoryCache the cache, {@code null} disables caching
+     */
+    public void updateResultMemoryCache(CommunityDetectionResultMemoryCache memoryCache){
+        _memoryCache = memoryCache;
+    }
+    
+    /**
+     * Sets journal where task state changes are recorded. Call
+     * {@link #replayTaskJournal() } to queue tasks that did not finish
+     * @param taskJournal the journal, {@code null} disables journaling
+     */
+    public void updateTaskJournal(TaskJournal taskJournal){
+        _taskJournal = taskJournal;
+    }
+    
+    /**
+     * Sets multiplier applied to estimated wall time of a task when computing
+     * its priority. Priority of a task is its submission time in milliseconds 
+     * plus its weighted estimated wall time, lower values run first. This 
+     * favors short tasks while still guaranteeing long tasks eventually run
+     * since priority of newer tasks keeps increasing with time.
+     * 
+     * Priority only affects tasks if the executor services use a priority queue
+     * @param runtimeWeight multiplier, values less then 0 are set to 0
+     */
+    public void updateRuntimeWeight(double runtimeWeight){
+        _runtimeWeight = Math.max(0.0, runtimeWeight);
+    }
+    
+    /**
+     * Sets limits used to reject new requests. A value of 0 or less
+     * for any limit means there is no limit
+     * @param maxQueuedTasks maximum number of queued or running tasks
+     * @param maxInFlightInputBytes maximum total size of input data in bytes 
+     *                              for queued or running tasks
+     * @param algorithmMaxQueuedTasks map of algorithm name to maximum number
+     *                                of queued or running tasks for that algorithm.
+     *                                Can be {@code null}
+     */
+    public void updateAdmissionLimits(int maxQueuedTasks, long maxInFlightInputBytes,
+            Map<String, Integer> algorithmMaxQueuedTasks){
+        _maxQueuedTasks = maxQueuedTasks;
+        _maxInFlightInputBytes = maxInFlightInputBytes;
+        if (algorithmMaxQueuedTasks != null){
+            _algorithmMaxQueuedTasks = algorithmMaxQueuedTasks;
+        } else {
+            _algorithmMaxQueuedTasks = Collections.emptyMap();
+        }
+    }
+    
+    /**
+     * Sets maximum number of requests in a batch, larger batches are rejected
+     * @param maxBatchSize maximum number of requests, 0 or less means no limit
+     */
+    public synchronized void updateMaxBatchSize(int maxBatchSize){
+        _maxBatchSize = maxBatchSize;
+        ThreadPoolExecutor oldExecutor = _batchExecutor;
+        _batchExecutor = createBatchExecutor(maxBatchSize);
+        // requests already queued on old executor are still submitted
+        oldExecutor.shutdown();
+    }
+    
+    /**
+     * Creates executor that submits requests of batches. Requests that
+     * do not fit in its queue, or are submitted after it is shut down,
+     * are rejected with a {@link RejectedExecutionException}
+     * @param maxBatchSize maximum number of requests in a batch, 0 or less
+     *                     means no limit and an unbounded queue is used
+     * @return executor
+     */
+    private ThreadPoolExecutor createBatchExecutor(int maxBatchSize){
+        BlockingQueue<Runnable> queue;
+        if (maxBatchSize > 0){
+            queue = new ArrayBlockingQueue<>(maxBatchSize);
+        } else {
+            queue = new LinkedBlockingQueue<>();
+        }
+        return new ThreadPoolExecutor(BATCH_SUBMIT_THREADS, BATCH_SUBMIT_THREADS,
+                0L, TimeUnit.MILLISECONDS, queue,
+                (Runnable r) -> {
+                    Thread t = new Thread(r, "batchsubmit");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    /**
+     * Computes priority of task (lower value runs first) as 
+     * {@code submitTime} plus weighted {@code estimatedWallTime}
+     * @param submitTime time task was submitted in ms since epoch
+     * @param estimatedWallTime estimated wall time in ms, values less then 0
+     *                          are treated as 0
+     * @return priority
+     */
+    protected long getTaskPriority(long submitTime, long estimatedWallTime){
+        return submitTime + Math.round(Math.max(0, estimatedWallTime) * _runtimeWeight);
+    }
+
+    /**
+     * Processes query tasks as they complete, looping until {@link #shutdown()} 
+     * is invoked. Tasks add themselves to an internal completion queue when 
+     * done so this method just waits on that queue instead of polling every
+     * outstanding task. The wait only times out when progress of running
+     * tasks is due to be checked and {@link #shutdown()} wakes the wait.
      */
     @Override
     public void run() {
         while(_shutdown == false){
-            Future f;
-            String taskId;
-            int queuedCount = 0;
-            Iterator<String> idItr = _futureTaskMap.keySet().iterator();
-            while(idItr.hasNext()){
-                taskId = idItr.next();
-                
-                f = _futureTaskMap.get(taskId);
-                if (f == null){
-                    continue;
+            CommunityDetectionTask task;
+            long waitTime = Math.max(0, _progressPollTime
+                    - (System.currentTimeMillis() - _lastProgressCheck));
+            try {
+                task = _completionQueue.poll(waitTime, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException ie){
+                _logger.debug("Interrupted waiting for completed task");
+                continue;
+            }
+            if (task != null && task != SHUTDOWN_TASK){
+                processCompletedTask(task);
+            }
+            if (System.currentTimeMillis() - _lastProgressCheck >= _progressPollTime){
+                checkTaskProgress();
+                closeIdleWarmContainers();
+                _lastProgressCheck = System.currentTimeMillis();
+            }
+        }
+        _logger.debug("Shutdown was invoked");
+        if (_taskJournal != null){
+            _taskJournal.close();
+        }
+        _resultStore.close();
+        for (WarmContainerPool pool : _warmContainerPools.values()){
+            pool.close();
+        }
+        logServerStatus(null);
+    }
+    
+    /**
+     * Stops warm containers that have been idle too long
+     */
+    private void closeIdleWarmContainers(){
+        for (WarmContainerPool pool : _warmContainerPools.values()){
+            pool.closeIdleContainers();
+        }
+    }
+    
+    /**
+     * Saves result of completed {@code task} to filesystem under the id of
+     * every request subscribed to the task and updates the task counters. 
+     * A task that threw an exception gets a failed result for every
+     * subscriber. Canceled tasks are just counted.
+     * @param task Task that has completed, failed or been canceled
+     */
+    protected void processCompletedTask(CommunityDetectionTask task){
+        if (task == null){
+            return;
+        }
+        List<String> subscribers = task.closeSubscribers();
+        _progressMonitor.remove(task.getId());
+        for (String subscriberId : subscribers){
+            _futureTaskMap.remove(subscriberId, task);
+        }
+        _futureTaskMap.remove(task.getId(), task);
+        if (task.getRequestHash() != null){
+            _inFlightByHash.remove(task.getRequestHash(), task);
+        }
+        if (task.isAdmitted()){
+            releaseTask(task.getAlgorithm(), task.getInputBytes());
+        }
+        if (task.isCancelled()){
+            _canceledTasks.incrementAndGet();
+            journalFinishedTasks(subscribers);
+            _activeTaskIds.remove(task.getId());
+            removeDeletedPrimaryTask(task, subscribers);
+            return;
+        }
+        _logger.debug("Found a completed or failed task");
+        try {
+            CommunityDetectionResult cdr = task.get();
+            if (cdr != null && CommunityDetectionResult.COMPLETE_STATUS.equals(cdr.getStatus())){
+                _runtimeEstimator.recordWallTime(task.getAlgorithm(),
+                        task.getInputBytes(), cdr.getWallTime());
+                if (_resultCache != null){
+                    _resultCache.put(task.getRequestHash(), cdr);
                 }
-                if (f.isCancelled()){
-                    _futureTaskMap.remove(taskId);
-                    _canceledTasks.incrementAndGet();
-                } else if (f.isDone()){
-                    _logger.debug("Found a completed or failed task");
-                    try {
-                        CommunityDetectionResult cdr = (CommunityDetectionResult) f.get();
-                        saveCommunityDetectionResultToFilesystem(cdr);
-                        _completedTasks.incrementAndGet();
-                    } catch (InterruptedException ex) {
-                        _logger.error("Got interrupted exception", ex);
-                    } catch (ExecutionException ex) {
-                        _logger.error("Got execution exception", ex);
-                    } catch (CancellationException ex){
-                        _logger.error("Got cancellation exception", ex);
-                    }
-                    _futureTaskMap.remove(taskId);
+            }
+            if (cdr == null){
+                saveCommunityDetectionResultToFilesystem(cdr);
+            } else {
+                for (String subscriberId : subscribers){
+                    cdr.setId(subscriberId);
+                    saveCommunityDetectionResultToFilesystem(cdr);
+                    _completedTasks.incrementAndGet();
+                }
+                cdr.setId(task.getId());
+            }
+        } catch (InterruptedException ex) {
+            _logger.error("Got interrupted exception", ex);
+        } catch (ExecutionException ex) {
+            _logger.error("Got execution exception", ex);
+            Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+            for (String subscriberId : subscribers){
+                saveFailedResult(subscriberId, "Received error trying to run task: "
+                        + cause.getMessage());
+            }
+        } catch (CancellationException ex){
+            _logger.error("Got cancellation exception", ex);
+        }
+        journalFinishedTasks(subscribers);
+        _activeTaskIds.remove(task.getId());
+        removeDeletedPrimaryTask(task, subscribers);
+    }
+    
+    /**
+     * Removes directory of {@code task} if the request that created it was
+     * deleted while other requests were subscribed. The directory is kept
+     * until the task finishes since the task runs in that directory
+     * @param task task that finished
+     * @param subscribers requests subscribed to {@code task} when it finished
+     */
+    private void removeDeletedPrimaryTask(final CommunityDetectionTask task,
+            final List<String> subscribers){
+        if (subscribers.contains(task.getId())){
+            return;
+        }
+        _logger.debug("Removing directory of deleted task " + task.getId()
+                + " that was kept for other subscribers");
+        FileUtils.deleteQuietly(new File(this._taskDir + File.separator + task.getId()));
+    }
+    
+    /**
+     * Saves a failed result for task with {@code id} so status requests and
+     * listeners waiting on the task see it finish
+     * @param id id of task
+     * @param message reason task failed
+     */
+    private void saveFailedResult(final String id, final String message){
+        CommunityDetectionResult pending = _results.get(id);
+        CommunityDetectionResult cdr = new CommunityDetectionResult(pending == null ?
+                System.currentTimeMillis() : pending.getStartTime());
+        cdr.setId(id);
+        cdr.setStatus(CommunityDetectionResult.FAILED_STATUS);
+        cdr.setMessage(message);
+        cdr.setProgress(100);
+        cdr.setWallTime(System.currentTimeMillis() - cdr.getStartTime());
+        saveCommunityDetectionResultToFilesystem(cdr);
+    }
+    
+    /**
+     * Records tasks with ids in {@code ids} as finished in the task journal
+     * @param ids ids of tasks
+     */
+    private void journalFinishedTasks(final List<String> ids){
+        if (_taskJournal == null){
+            return;
+        }
+        for (String id : ids){
+            _taskJournal.finished(id);
+        }
+    }
+    
+    /**
+     * Updates progress and message of running tasks with progress
+     * reported by the algorithms, passing any changes to event listeners.
+     * Identical requests sharing a task get the progress of that task
+     */
+    protected void checkTaskProgress(){
+        for (Map.Entry<String, CommunityDetectionResult> entry : _results.entrySet()){
+            CommunityDetectionResult cdr = entry.getValue();
+            if (CommunityDetectionResult.PROCESSING_STATUS.equals(cdr.getStatus()) == false){
+                continue;
+            }
+            CommunityDetectionTask task = _futureTaskMap.get(entry.getKey());
+            String taskId = task == null ? entry.getKey() : task.getId();
+            if (_progressMonitor.updateProgress(taskId, cdr)){
+                publishTaskEvent(entry.getKey(), new ExtendedCommunityDetectionResultStatus(cdr));
+            }
+        }
+    }
+    
+    /**
+     * Removes task directories of finished tasks that are too old or
+     * that push the task directory over its size limit. Runs on the
+     * garbage collection thread while tasks are submitted and finish
+     * @return number of task directories removed
+     */
+    protected int collectTaskGarbage(){
+        TaskDirectoryGarbageCollector garbageCollector = _garbageCollector;
+        if (garbageCollector == null){
+            return 0;
+        }
+        return garbageCollector.sweep((String id) -> isTaskActive(id),
+                (String id) -> evictTask(id), _resultStore);
+    }
+    
+    /**
+     * Denotes whether task with {@code id} is queued or running, or is
+     * the task running on behalf of other requests
+     * @param id id of task
+     * @return true if task has not finished
+     */
+    private boolean isTaskActive(final String id){
+        return _futureTaskMap.containsKey(id) || _results.containsKey(id)
+                || _activeTaskIds.contains(id);
+    }
+    
+    /**
+     * Forgets finished task with {@code id} whose task directory is about to
+     * be removed by the garbage collector
+     * @param id id of task
+     */
+    private void evictTask(final String id){
+        _logger.debug("Evicting finished task " + id);
+        _statusIndex.remove(id);
+        if (_memoryCache != null){
+            _memoryCache.remove(id);
+        }
+        try {
+            _resultStore.delete(id);
+        } catch(IOException io){
+            _logger.error("Unable to remove stored result of task " + id, io);
+        }
+        notifyTaskFinished(id, null);
+    }
+    
+    /**
+     * Invoked by worker thread just before {@code task} runs. Records the 
+     * start in the task journal and updates status of every subscriber of
+     * the task to {@link CommunityDetectionResult#PROCESSING_STATUS}
+     * @param task task about to run
+     */
+    private void taskStarted(final CommunityDetectionTask task){
+        if (_taskJournal != null){
+            _taskJournal.started(task.getId());
+        }
+        for (String subscriberId : task.getSubscribers()){
+            CommunityDetectionResult cdr = _results.computeIfPresent(subscriberId,
+                    (String k, CommunityDetectionResult v) -> {
+                        v.setStatus(CommunityDetectionResult.PROCESSING_STATUS);
+                        return v;
+                    });
+            if (cdr != null){
+                publishTaskEvent(subscriberId, new ExtendedCommunityDetectionResultStatus(cdr));
+            }
+        }
+    }
+    
+    /**
+     * Queues tasks from the task journal that were submitted but never 
+     * finished, such as tasks that were queued or running when the service
+     * was stopped. Tasks whose result already exists are marked finished and
+     * tasks that cannot be queued, because the input data or algorithm is
+     * gone, are given a failed result. This should be invoked before 
+     * {@link #run() }
+     * @return number of tasks queued
+     */
+    public int replayTaskJournal(){
+        if (_taskJournal == null){
+            return 0;
+        }
+        int requeuedCount = 0;
+        List<TaskJournalRecord> pending = _taskJournal.getPendingTasks();
+        
+        // tasks with their own execution are queued first so tasks
+        // sharing an execution can subscribe to them
+        List<TaskJournalRecord> ordered = new ArrayList<>(pending.size());
+        for (TaskJournalRecord record : pending){
+            if (record.getPrimaryId() == null){
+                ordered.add(record);
+            }
+        }
+        for (TaskJournalRecord record : pending){
+            if (record.getPrimaryId() != null){
+                ordered.add(record);
+            }
+        }
+        for (TaskJournalRecord record : ordered){
+            String id = record.getId();
+            if (_resultStore.contains(id)){
+                _taskJournal.finished(id);
+                continue;
+            }
+            try {
+                if (record.getPrimaryId() != null){
+                    resubscribeJournaledTask(record);
                 } else {
-                    queuedCount++;
+                    requeueJournaledTask(record);
+                    requeuedCount++;
                 }
+            } catch(Exception ex){
+                _logger.error("Unable to queue task " + id + " from journal", ex);
+                CommunityDetectionResult cdr = new CommunityDetectionResult(record.getTime());
+                cdr.setId(id);
+                cdr.setStatus(CommunityDetectionResult.FAILED_STATUS);
+                cdr.setMessage("Unable to restart task after service restart: "
+                        + ex.getMessage());
+                cdr.setProgress(100);
+                new File(this._taskDir + File.separator + id).mkdirs();
+                saveCommunityDetectionResultToFilesystem(cdr);
+                _taskJournal.finished(id);
+            }
+        }
+        _logger.info("Queued " + Integer.toString(requeuedCount) + " tasks from journal");
+        return requeuedCount;
+    }
+    
+    /**
+     * Queues task described by submitted journal {@code record} using the
+     * input data already in the task directory. If the input data is in
+     * the directory of a deleted task whose execution this task took over,
+     * the input data is first moved into the directory of this task and the
+     * directory of the deleted task is removed. The task counts toward the
+     * limits on queued tasks and input data, but is never rejected by them
+     * @param record submitted record of task
+     * @throws Exception if task cannot be queued
+     */
+    private void requeueJournaledTask(final TaskJournalRecord record) throws Exception {
+        String id = record.getId();
+        File inputFile = new File(_taskDir + File.separator + id + File.separator
+                    + DockerCommunityDetectionRunner.INPUT_FILE);
+        if (record.getInputId() != null && record.getInputId().equals(id) == false){
+            File inputDir = new File(_taskDir + File.separator + record.getInputId());
+            File deletedInputFile = new File(inputDir, DockerCommunityDetectionRunner.INPUT_FILE);
+            if (deletedInputFile.isFile()){
+                inputFile.getParentFile().mkdirs();
+                Files.move(deletedInputFile.toPath(), inputFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
             }
-            if (_queuedTasks.get() != queuedCount){
-                _queuedTasks.set(queuedCount);
+            FileUtils.deleteQuietly(inputDir);
+        }
+        if (inputFile.isFile() == false){
+            throw new CommunityDetectionException("Input data for task not found");
+        }
+        if (_algorithms == null || _algorithms.getAlgorithms() == null
+                || _algorithms.getAlgorithms().containsKey(record.getAlgorithm()) == false){
+            throw new CommunityDetectionException(record.getAlgorithm() 
+                    + " is not a valid algorithm");
+        }
+        CommunityDetectionAlgorithm cda = _algorithms.getAlgorithms().get(record.getAlgorithm());
+        CommunityDetectionRequest request = new CommunityDetectionRequest();
+        request.setAlgorithm(record.getAlgorithm());
+        request.setCustomParameters(record.getCustomParameters());
+        
+        CommunityDetectionResult cdr = new CommunityDetectionResult(record.getTime());
+        cdr.setStatus(CommunityDetectionResult.SUBMITTED_STATUS);
+        cdr.setId(id);
+        _results.put(id, cdr);
+        CommunityDetectionTask cdTask = createTask(id, request, cda, record.getTime());
+        cdTask.setRequestHash(record.getRequestHash());
+        cdTask.setAdmitted(true);
+        _queuedTasks.incrementAndGet();
+        getAlgorithmQueuedTasks(cdTask.getAlgorithm()).incrementAndGet();
+        _inFlightInputBytes.addAndGet(cdTask.getInputBytes());
+        _activeTaskIds.add(id);
+        _futureTaskMap.put(id, cdTask);
+        if (record.getRequestHash() != null){
+            _inFlightByHash.putIfAbsent(record.getRequestHash(), cdTask);
+        }
+        try {
+            getExecutorService(cdTask.getAlgorithm()).execute(cdTask);
+        } catch(RejectedExecutionException ree){
+            _futureTaskMap.remove(id, cdTask);
+            _activeTaskIds.remove(id);
+            if (record.getRequestHash() != null){
+                _inFlightByHash.remove(record.getRequestHash(), cdTask);
             }
-            threadSleep();
+            _results.remove(id);
+            releaseTask(cdTask.getAlgorithm(), cdTask.getInputBytes());
+            throw ree;
+        }
+        _logger.info("Queued task " + id + " from journal"
+                + (_taskJournal.isStarted(id) ? " which was running when service stopped" : ""));
+    }
+    
+    /**
+     * Subscribes task described by submitted journal {@code record} to the
+     * task whose execution it shared before the restart
+     * @param record submitted record of task
+     * @throws CommunityDetectionException if shared task was not queued again
+     */
+    private void resubscribeJournaledTask(final TaskJournalRecord record) throws CommunityDetectionException {
+        String id = record.getId();
+        CommunityDetectionTask primary = _futureTaskMap.get(record.getPrimaryId());
+        if (primary == null){
+            throw new CommunityDetectionException("Task " + record.getPrimaryId()
+                    + " whose execution this task shared was not restarted");
+        }
+        CommunityDetectionResult cdr = new CommunityDetectionResult(record.getTime());
+        cdr.setStatus(CommunityDetectionResult.SUBMITTED_STATUS);
+        cdr.setId(id);
+        _results.put(id, cdr);
+        _futureTaskMap.put(id, primary);
+        if (primary.addSubscriber(id) == false){
+            _futureTaskMap.remove(id, primary);
+            _results.remove(id);
+            throw new CommunityDetectionException("Task " + record.getPrimaryId()
+                    + " whose execution this task shared already finished");
+        }
+    }
+    
+    /**
+     * Creates task to run {@code request} writing the input data of the
+     * request to the task directory. If the request has no data, input data
+     * already in the task directory is used
+     * @param id id of task
+     * @param request the request
+     * @param cda algorithm to run
+     * @param submitTime time request was submitted in milliseconds since epoch
+     * @return task ready to be run
+     * @throws Exception if there is an error writing the input data
+     */
+    private CommunityDetectionTask createTask(final String id, 
+            final CommunityDetectionRequest request, 
+            final CommunityDetectionAlgorithm cda, long submitTime) throws Exception {
+        CommunityDetectionRunnerFactory runnerFactory = _runnerFactories.get(cda.getName());
+        TaskBatcher batcher = _taskBatchers.get(cda.getName());
+        WarmContainerPool warmPool = _warmContainerPools.get(cda.getName());
+        Callable<CommunityDetectionResult> runner;
+        if (runnerFactory != null){
+            runner = runnerFactory.createRunner(id, request, cda, submitTime);
+        } else if (batcher != null){
+            runner = new BatchCommunityDetectionRunner(id, request, submitTime,
+                    _taskDir, _dockerCmd, cda.getDockerImage(), request.getCustomParameters(),
+                    Configuration.getInstance().getAlgorithmTimeOut(),
+                    TimeUnit.SECONDS,
+                    Configuration.getInstance().getMountOptions(),
+                    cda.getOutputDataFormat(), batcher);
+        } else if (warmPool != null){
+            runner = new WarmPoolCommunityDetectionRunner(id, request, submitTime,
+                    _taskDir, _dockerCmd, cda.getDockerImage(), request.getCustomParameters(),
+                    Configuration.getInstance().getAlgorithmTimeOut(),
+                    TimeUnit.SECONDS,
+                    Configuration.getInstance().getMountOptions(),
+                    cda.getOutputDataFormat(), warmPool);
+        } else {
+            runner = new DockerCommunityDetectionRunner(id, request, submitTime,
+            _taskDir, _dockerCmd, cda.getDockerImage(), request.getCustomParameters(),
+                    Configuration.getInstance().getAlgorithmTimeOut(),
+            TimeUnit.SECONDS,
+            Configuration.getInstance().getMountOptions(),
+            cda.getOutputDataFormat());
+        }
+        final AtomicReference<CommunityDetectionTask> taskRef = new AtomicReference<>();
+        Callable<CommunityDetectionResult> callable = () -> {
+            if (_imagePreparer != null){
+                _imagePreparer.awaitPrepared(cda.getName());
+            }
+            taskStarted(taskRef.get());
+            return runner.call();
+        };
+        CommunityDetectionTask cdTask = new CommunityDetectionTask(id, callable,
+                _completionQueue);
+        taskRef.set(cdTask);
+        cdTask.setAlgorithm(request.getAlgorithm());
+        cdTask.setInputBytes(new File(_taskDir + File.separator + id + File.separator
+                + DockerCommunityDetectionRunner.INPUT_FILE).length());
+        cdTask.setEstimatedWallTime(_runtimeEstimator.estimateWallTime(
+                cdTask.getAlgorithm(), cdTask.getInputBytes()));
+        cdTask.setPriority(getTaskPriority(submitTime, cdTask.getEstimatedWallTime()));
+        return cdTask;
+    }
+    
+    /**
+     * Creates a new completed task from the result cache if a result for
+     * {@code requestHash} is found
+     * @param requestHash hash of request
+     * @return id of new task or {@code null} if caching is disabled or 
+     *         result was not found
+     */
+    protected String getResultFromCache(final String requestHash){
+        if (_resultCache == null || requestHash == null){
+            return null;
+        }
+        CommunityDetectionResult cdr = _resultCache.get(requestHash);
+        if (cdr == null){
+            return null;
+        }
+        String id = UUID.randomUUID().toString();
+        File thisTaskDir = new File(this._taskDir + File.separator + id);
+        if (thisTaskDir.mkdirs() == false){
+            _logger.error("Unable to create directory: " + thisTaskDir.getAbsolutePath());
+            return null;
+        }
+        cdr.setId(id);
+        cdr.setStartTime(System.currentTimeMillis());
+        cdr.setWallTime(0);
+        saveCommunityDetectionResultToFilesystem(cdr);
+        _logger.info("Request id: " + id + " found in result cache");
+        return id;
+    }
+    
+    /**
+     * Attempts to attach a new request to a queued or running task
+     * with the same {@code requestHash}
+     * @param requestHash hash of request
+     * @return id for new request or {@code null} if there is no matching
+     *         task to attach to
+     */
+    protected String subscribeToInFlightTask(final String requestHash){
+        if (requestHash == null){
+            return null;
+        }
+        CommunityDetectionTask existing = _inFlightByHash.get(requestHash);
+        if (existing == null){
+            return null;
+        }
+        String id = UUID.randomUUID().toString();
+        File thisTaskDir = new File(this._taskDir + File.separator + id);
+        if (thisTaskDir.mkdirs() == false){
+            _logger.error("Unable to create directory: " + thisTaskDir.getAbsolutePath());
+            return null;
+        }
+        CommunityDetectionResult cdr = new CommunityDetectionResult(System.currentTimeMillis());
+        cdr.setStatus(CommunityDetectionResult.SUBMITTED_STATUS);
+        cdr.setId(id);
+        _results.put(id, cdr);
+        _futureTaskMap.put(id, existing);
+        synchronized(existing){
+            if (existing.addSubscriber(id) == false){
+                _futureTaskMap.remove(id, existing);
+                _results.remove(id);
+                FileUtils.deleteQuietly(thisTaskDir);
+                return null;
+            }
+            if (_taskJournal != null){
+                // the earliest subscriber owns the execution in the journal
+                // which differs from the task if its request was deleted
+                _taskJournal.submitted(id, existing.getAlgorithm(), null,
+                        requestHash, existing.getSubscribers().get(0));
+            }
+        }
+        _coalescedTasks.incrementAndGet();
+        _logger.info("Request id: " + id + " is identical to task "
+                + existing.getId() + " and will share its result");
+        return id;
+    }
+    
+    /**
+     * Gets hash of request
+     * @param cda algorithm to be run
+     * @param request the request
+     * @param inputFile file holding data of request or {@code null} if
+     *                  data is set in {@code request}
+     * @return hash or {@code null} if there was an error
+     */
+    protected String getRequestHash(CommunityDetectionAlgorithm cda,
+            CommunityDetectionRequest request, final File inputFile){
+        try {
+            return CommunityDetectionRequestHasher.getHash(cda, request, inputFile);
+        } catch(IOException io){
+            _logger.error("Unable to generate hash of request", io);
+        }
+        return null;
+    }
+    
+    @Override
+    public void shutdown() {
+        _shutdown = true;
+        _completionQueue.offer(SHUTDOWN_TASK);
+        synchronized(this){
+            _batchExecutor.shutdown();
+            if (_gcExecutor != null){
+                _gcExecutor.shutdownNow();
+                _gcExecutor = null;
+            }
+        }
+    }
+    
+    /**
+     * Calls {@link #getServerStatus() } and dumps the status of the server as
+     * a JSON string to the info level of the logger for this class
+     * @param ss status to log
+     */
+    protected void logServerStatus(final ServerStatus ss){
+        try {
+            final ServerStatus sStat;
+            if (ss != null){
+                sStat = ss;
+            } else {
+                sStat = this.getServerStatus();
+            }
+           
+           ObjectMapper mapper = new ObjectMapper();
+           _logger.info("ServerStatus: " + mapper.writeValueAsString(sStat));
+        }catch(Exception ex){
+            _logger.error("error trying to log server status", ex);
+        }
+    }
+    
+    private AtomicInteger getAlgorithmQueuedTasks(final String algorithm){
+        return _algorithmQueuedTasks.computeIfAbsent(algorithm,
+                (String k) -> new AtomicInteger(0));
+    }
+    
+    /**
+     * Reserves a slot for a new task running {@code algorithm} 
+     * @param algorithm name of algorithm
+     * @throws CommunityDetectionQueueFullException if the maximum number of
+     *         queued tasks overall or for {@code algorithm} has been reached
+     */
+    protected void reserveTask(final String algorithm) throws CommunityDetectionQueueFullException {
+        int total = _queuedTasks.incrementAndGet();
+        int algoTotal = getAlgorithmQueuedTasks(algorithm).incrementAndGet();
+        String reason = null;
+        if (_maxQueuedTasks > 0 && total > _maxQueuedTasks){
+            reason = "Maximum of " + Integer.toString(_maxQueuedTasks)
+                    + " queued tasks reached";
+        } else {
+            Integer algoMax = _algorithmMaxQueuedTasks.get(algorithm);
+            if (algoMax != null && algoMax > 0 && algoTotal > algoMax){
+                reason = "Maximum of " + Integer.toString(algoMax)
+                        + " queued tasks for algorithm " + algorithm + " reached";
+            }
+        }
+        if (reason != null){
+            releaseTask(algorithm, 0);
+            throw rejectRequest(reason, algorithm, 0);
+        }
+    }
+    
+    /**
+     * Adds {@code inputBytes} to the total size of input data for queued tasks
+     * @param algorithm name of algorithm
+     * @param inputBytes size of input data in bytes
+     * @throws CommunityDetectionQueueFullException if adding {@code inputBytes} 
+     *         exceeds the maximum size of input data allowed
+     */
+    protected void reserveInputBytes(final String algorithm, long inputBytes) throws CommunityDetectionQueueFullException {
+        long total = _inFlightInputBytes.addAndGet(inputBytes);
+        if (_maxInFlightInputBytes > 0 && total > _maxInFlightInputBytes){
+            _inFlightInputBytes.addAndGet(-inputBytes);
+            throw rejectRequest("Maximum of " + Long.toString(_maxInFlightInputBytes)
+                    + " bytes of input data for queued tasks reached", algorithm, inputBytes);
+        }
+    }
+    
+    /**
+     * Checks that {@code inputBytes} fits under the maximum size of input
+     * data for queued tasks without reserving it
+     * @param inputBytes size of input data in bytes
+     * @throws CommunityDetectionQueueFullException if adding {@code inputBytes} 
+     *         exceeds the maximum size of input data allowed
+     */
+    @Override
+    public void checkInputBytes(long inputBytes) throws CommunityDetectionQueueFullException {
+        if (_maxInFlightInputBytes > 0 && _inFlightInputBytes.get() + inputBytes > _maxInFlightInputBytes){
+            throw rejectRequest("Maximum of " + Long.toString(_maxInFlightInputBytes)
+                    + " bytes of input data for queued tasks reached", null, inputBytes);
+        }
+    }
+    
+    /**
+     * Releases slot and input bytes reserved via {@link #reserveTask(java.lang.String) }
+     * and {@link #reserveInputBytes(java.lang.String, long) }
+     * @param algorithm name of algorithm
+     * @param inputBytes size of input data in bytes to release
+     */
+    protected void releaseTask(final String algorithm, long inputBytes){
+        _queuedTasks.decrementAndGet();
+        getAlgorithmQueuedTasks(algorithm).decrementAndGet();
+        if (inputBytes > 0){
+            _inFlightInputBytes.addAndGet(-inputBytes);
+        }
+    }
+    
+    /**
+     * Counts a rejected request and creates the exception to throw
+     * @param reason why request was rejected
+     * @param algorithm name of algorithm
+     * @param inputBytes size of input data in bytes
+     * @return exception with suggested Retry-After set
+     */
+    protected CommunityDetectionQueueFullException rejectRequest(final String reason,
+            final String algorithm, long inputBytes){
+        _rejectedTasks.incrementAndGet();
+        _logger.info("Rejecting request to run " + (algorithm == null ? "task" : algorithm)
+                + ": " + reason);
+        return new CommunityDetectionQueueFullException(reason,
+                getRetryAfterSeconds(algorithm, inputBytes));
+    }
+    
+    /**
+     * Estimates how many seconds a rejected caller should wait before
+     * resubmitting by dividing the estimated wall time of the task by 
+     * the number of workers available to run it
+     * @param algorithm name of algorithm
+     * @param inputBytes size of input data in bytes
+     * @return seconds between 1 and {@link #MAX_RETRY_AFTER_SECONDS}
+     */
+    protected long getRetryAfterSeconds(final String algorithm, long inputBytes){
+        long estimate = _runtimeEstimator.estimateWallTime(algorithm, inputBytes);
+        if (estimate == TaskRuntimeEstimator.UNKNOWN){
+            estimate = DEFAULT_RETRY_AFTER_MILLIS;
         }
-        _logger.debug("Shutdown was invoked");
-        logServerStatus(null);
+        int workers = 1;
+        ExecutorService es = getExecutorService(algorithm);
+        if (es instanceof ThreadPoolExecutor){
+            workers = Math.max(1, ((ThreadPoolExecutor)es).getMaximumPoolSize());
+        }
+        long seconds = (long)Math.ceil((double)estimate / (double)workers / 1000.0);
+        return Math.min(MAX_RETRY_AFTER_SECONDS, Math.max(1, seconds));
     }
-
-    @Override
-    public void shutdown() {
-        _shutdown = true;
+    
+    /**
+     * Gets the executor service that should run tasks for {@code algorithm}
+     * @param algorithm name of algorithm
+     * @return dedicated executor service for algorithm or default executor
+     *         service passed in via constructor
+     */
+    protected ExecutorService getExecutorService(final String algorithm){
+        ExecutorService es = algorithm == null ? null : _algorithmExecutors.get(algorithm);
+        if (es != null){
+            return es;
+        }
+        return _executorService;
     }
     
     /**
-     * Calls {@link #getServerStatus() } and dumps the status of the server as
-     * a JSON string to the info level of the logger for this class
-     * @param ss status to log
+     * Gets status of worker pools used by this engine. Only pools
+     * that are {@link java.util.concurrent.ThreadPoolExecutor} objects
+     * are included
+     * @return map of pool name to status
      */
-    protected void logServerStatus(final ServerStatus ss){
-        try {
-            final ServerStatus sStat;
-            if (ss != null){
-                sStat = ss;
-            } else {
-                sStat = this.getServerStatus();
+    protected Map<String, WorkerPoolStatus> getWorkerPoolStatus(){
+        Map<String, WorkerPoolStatus> poolStatus = new LinkedHashMap<>();
+        WorkerPoolStatus wps = getWorkerPoolStatus(_executorService);
+        if (wps != null){
+            poolStatus.put(DEFAULT_POOL, wps);
+        }
+        for (String algoName : _algorithmExecutors.keySet()){
+            wps = getWorkerPoolStatus(_algorithmExecutors.get(algoName));
+            if (wps != null){
+                poolStatus.put(algoName, wps);
             }
-           
-           ObjectMapper mapper = new ObjectMapper();
-           _logger.info("ServerStatus: " + mapper.writeValueAsString(sStat));
-        }catch(Exception ex){
-            _logger.error("error trying to log server status", ex);
         }
+        return poolStatus;
     }
     
-    protected String getCommunityDetectionResultFilePath(final String id){
-        return this._taskDir + File.separator + id + File.separator + CommunityDetectionEngineImpl.CDRESULT_JSON_FILE;
+    private WorkerPoolStatus getWorkerPoolStatus(ExecutorService es){
+        if (!(es instanceof ThreadPoolExecutor)){
+            return null;
+        }
+        ThreadPoolExecutor tpe = (ThreadPoolExecutor)es;
+        WorkerPoolStatus wps = new WorkerPoolStatus();
+        wps.setWorkers(tpe.getMaximumPoolSize());
+        wps.setActiveTasks(tpe.getActiveCount());
+        int queued = tpe.getQueue().size();
+        int remaining = tpe.getQueue().remainingCapacity();
+        wps.setQueuedTasks(queued);
+        if (remaining == Integer.MAX_VALUE || queued + remaining == Integer.MAX_VALUE){
+            wps.setQueueCapacity(-1);
+        } else {
+            wps.setQueueCapacity(remaining);
+        }
+        return wps;
     }
-
+    
+    /**
+     * Saves {@code cdr} to the {@link ResultStore} and removes it from the
+     * in memory map of pending results. If the {@link ResultStore} does not
+     * keep results in the task directory, the task directory of a completed
+     * task is removed once the result is stored. Task directories of failed
+     * tasks are kept, for their logs, until removed by the garbage collector
+     * @param cdr result to save
+     */
     protected void saveCommunityDetectionResultToFilesystem(final CommunityDetectionResult cdr){
         if (cdr == null){
             _logger.error("Received a null result, unable to save");
             return;
         }
         logResult(cdr);
-        File destFile = new File(getCommunityDetectionResultFilePath(cdr.getId()));
-        ObjectMapper mappy = new ObjectMapper();
-        try (FileOutputStream out = new FileOutputStream(destFile)){
-            mappy.writeValue(out, cdr);
+        try {
+            _resultStore.put(cdr);
+            indexStatus(cdr.getId(), new ExtendedCommunityDetectionResultStatus(cdr));
+            if (_resultStore.isStoredInTaskDirectory() == false
+                    && CommunityDetectionResult.COMPLETE_STATUS.equals(cdr.getStatus())){
+                FileUtils.deleteQuietly(new File(this._taskDir + File.separator + cdr.getId()));
+            }
         } catch(IOException io){
-            _logger.error("Caught exception writing " + destFile.getAbsolutePath(), io);
+            _logger.error("Caught exception saving result of task " + cdr.getId(), io);
         }
         _results.remove(cdr.getId());
+        notifyTaskFinished(cdr.getId(), new ExtendedCommunityDetectionResultStatus(cdr));
     }
     
     protected void logResult(final CommunityDetectionResult result){
@@ -221,33 +1400,203 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
 	_logger.info(sb.toString());
     }
 
+    /**
+     * Gets result of task with {@code id} from the {@link ResultStore}
+     * or, if task is not finished, from the in memory map of pending results
+     * @param id id of task
+     * @return result or {@code null} if not found
+     */
     protected CommunityDetectionResult getCommunityDetectionResultFromDbOrFilesystem(final String id){
-        ObjectMapper mappy = new ObjectMapper();
-        File cdrFile = new File(getCommunityDetectionResultFilePath(id));
-        if (cdrFile.isFile() == false){
-            _logger.debug(cdrFile.getAbsolutePath() + " is not a file. "
-		    + "Will attempt to retreive from in memory store");
+        if (_resultStore.contains(id) == false){
+            _logger.debug("No stored result for " + id
+		    + " Will attempt to retreive from in memory store");
             return _results.get(id);
         }
         try {
-            return mappy.readValue(cdrFile, CommunityDetectionResult.class);
+            byte[] json = getCachedResultBytes(id, false);
+            CommunityDetectionResult cdr;
+            if (json != null){
+                cdr = new ObjectMapper().readValue(json, CommunityDetectionResult.class);
+            } else {
+                cdr = _resultStore.get(id);
+            }
+            if (cdr != null){
+                return cdr;
+            }
         }catch(IOException io){
-            _logger.error("Caught exception trying to load " + cdrFile.getAbsolutePath(), io);
+            _logger.error("Caught exception trying to load result of task " + id, io);
         }
         return _results.get(id);
     }
     
     /**
      * Request a Community Detection algorithm be run. This is the call that
-     * should be coming from the rest POST endpoint
+     * should be coming from the rest POST endpoint. If an identical request
+     * is already queued or running, the new request is given its own id but
+     * shares the execution and result of the existing task. If result cache
+     * is enabled and has a result for the request, a completed task is
+     * created without running the algorithm
      * @param request The request
      * @return UUID as string
      * @throws CommunityDetectionBadRequestException if request is invalid
+     * @throws CommunityDetectionQueueFullException if a limit on queued tasks
+     *         or input data has been reached
      * @throws CommunityDetectionException If there is a server side error
      */
     @Override
     public String request(CommunityDetectionRequest request) throws CommunityDetectionException,
             CommunityDetectionBadRequestException {
+        CommunityDetectionAlgorithm cda = validateRequest(request);
+        return submitRequest(request, cda, null);
+    }
+    
+    /**
+     * Request a Community Detection algorithm be run on data that was
+     * written to {@code inputFile} instead of being set in {@code request}.
+     * If a task is created, {@code inputFile} is moved into the directory
+     * of the task so only the path of the data is held while the task is
+     * queued. Otherwise {@code inputFile} is left for caller to remove
+     * @param request The request without data
+     * @param inputFile File holding data of request, can be {@code null} if
+     *                  request had no data
+     * @return UUID as string
+     * @throws CommunityDetectionBadRequestException if request is invalid
+     * @throws CommunityDetectionQueueFullException if a limit on queued tasks
+     *         or input data has been reached
+     * @throws CommunityDetectionException If there is a server side error
+     */
+    @Override
+    public String request(CommunityDetectionRequest request, File inputFile) throws CommunityDetectionException {
+        if (inputFile == null){
+            return request(request);
+        }
+        CommunityDetectionAlgorithm cda = validateRequest(request, inputFile);
+        return submitRequest(request, cda, inputFile);
+    }
+    
+    /**
+     * Submits several requests. All requests are validated first and then
+     * the valid requests are handed, in order, to a small pool of threads
+     * shared by all batches so writing of their input data overlaps
+     * @param requests The requests
+     * @return outcome of each request in same order as {@code requests}
+     * @throws CommunityDetectionBadRequestException if {@code requests} is {@code null}
+     *         or has more than the maximum number of requests
+     */
+    @Override
+    public List<BatchTask> requestBatch(List<CommunityDetectionRequest> requests) throws CommunityDetectionException {
+        if (requests == null){
+            throw new CommunityDetectionBadRequestException("Request is null");
+        }
+        if (_maxBatchSize > 0 && requests.size() > _maxBatchSize){
+            throw new CommunityDetectionBadRequestException("Batch of "
+                    + Integer.toString(requests.size()) + " requests exceeds maximum of "
+                    + Integer.toString(_maxBatchSize) + " requests");
+        }
+        final BatchTask[] batchTasks = new BatchTask[requests.size()];
+        final CommunityDetectionAlgorithm[] algorithms = new CommunityDetectionAlgorithm[requests.size()];
+        for (int i = 0; i < batchTasks.length; i++){
+            try {
+                algorithms[i] = validateRequest(requests.get(i));
+            } catch(CommunityDetectionException cde){
+                batchTasks[i] = new BatchTask(null, getBatchError(cde));
+            }
+        }
+        List<Future<BatchTask>> submitted = new ArrayList<>();
+        ThreadPoolExecutor batchExecutor = _batchExecutor;
+        for (int i = 0; i < batchTasks.length; i++){
+            if (batchTasks[i] != null || _shutdown == true){
+                submitted.add(null);
+                if (batchTasks[i] == null){
+                    batchTasks[i] = new BatchTask(null, getBatchError(
+                            new CommunityDetectionException("Service is shutting down")));
+                }
+                continue;
+            }
+            final CommunityDetectionRequest request = requests.get(i);
+            final CommunityDetectionAlgorithm cda = algorithms[i];
+            try {
+                submitted.add(batchExecutor.submit(() -> {
+                    try {
+                        return new BatchTask(submitRequest(request, cda, null), null);
+                    } catch(CommunityDetectionException cde){
+                        return new BatchTask(null, getBatchError(cde));
+                    }
+                }));
+            } catch(RejectedExecutionException ree){
+                submitted.add(null);
+                CommunityDetectionException cde;
+                if (batchExecutor.isShutdown() && _shutdown == true){
+                    cde = new CommunityDetectionException("Service is shutting down");
+                } else {
+                    cde = rejectRequest("Too many batch requests being submitted",
+                            cda.getName(), 0);
+                }
+                batchTasks[i] = new BatchTask(null, getBatchError(cde));
+            }
+        }
+        for (int i = 0; i < batchTasks.length; i++){
+            if (submitted.get(i) == null){
+                continue;
+            }
+            try {
+                batchTasks[i] = submitted.get(i).get();
+            } catch(InterruptedException ie){
+                Thread.currentThread().interrupt();
+                throw new CommunityDetectionException("Interrupted submitting batch");
+            } catch(ExecutionException ee){
+                Throwable cause = ee.getCause() == null ? ee : ee.getCause();
+                batchTasks[i] = new BatchTask(null, getBatchError(
+                        new CommunityDetectionException(cause.getMessage())));
+            }
+        }
+        _logger.info("Batch of " + Integer.toString(batchTasks.length) + " requests received");
+        return Arrays.asList(batchTasks);
+    }
+    
+    /**
+     * Creates error for request in batch that was not accepted
+     * @param cde reason request was not accepted
+     * @return error
+     */
+    private ErrorResponse getBatchError(CommunityDetectionException cde){
+        if (cde instanceof CommunityDetectionBadRequestException){
+            ErrorResponse er = ((CommunityDetectionBadRequestException)cde).getErrorResponse();
+            if (er != null){
+                return er;
+            }
+            return new ErrorResponse("Bad request received", cde);
+        }
+        if (cde instanceof CommunityDetectionQueueFullException){
+            return new ErrorResponse("Service is too busy to accept task, retry after "
+                    + Long.toString(((CommunityDetectionQueueFullException)cde).getRetryAfterSeconds())
+                    + " seconds", cde);
+        }
+        return new ErrorResponse("Error requesting CommunityDetection", cde);
+    }
+    
+    /**
+     * Checks {@code request} is valid
+     * @param request The request
+     * @return algorithm to run for request
+     * @throws CommunityDetectionBadRequestException if request is invalid
+     * @throws CommunityDetectionException if no algorithms are available
+     */
+    protected CommunityDetectionAlgorithm validateRequest(CommunityDetectionRequest request) throws CommunityDetectionException {
+        return validateRequest(request, null);
+    }
+    
+    /**
+     * Checks {@code request} is valid
+     * @param request The request
+     * @param inputFile File holding data of request or {@code null} if
+     *                  data is set in {@code request}
+     * @return algorithm to run for request
+     * @throws CommunityDetectionBadRequestException if request is invalid
+     * @throws CommunityDetectionException if no algorithms are available
+     */
+    protected CommunityDetectionAlgorithm validateRequest(CommunityDetectionRequest request,
+            final File inputFile) throws CommunityDetectionException {
 
         if (request == null){ 
             throw new CommunityDetectionBadRequestException("Request is null");
@@ -266,11 +1615,44 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
         }
         
         CommunityDetectionAlgorithm cda = _algorithms.getAlgorithms().get(request.getAlgorithm());
-        ErrorResponse er = this._validator.validateRequest(cda, request);
+        ErrorResponse er;
+        if (inputFile == null){
+            er = this._validator.validateRequest(cda, request);
+        } else {
+            er = this._validator.validateRequest(cda, request, inputFile);
+        }
         if (er != null){
             throw new CommunityDetectionBadRequestException("Validation failed", er);
         }
         
+        return cda;
+    }
+    
+    /**
+     * Submits a request that has already been validated
+     * @param request The request
+     * @param cda algorithm to run for request
+     * @param inputFile File holding data of request, moved into task 
+     *                  directory if task is created, or {@code null} if 
+     *                  data is set in {@code request}
+     * @return id of task
+     * @throws CommunityDetectionQueueFullException if a limit on queued tasks
+     *         or input data has been reached
+     * @throws CommunityDetectionException If there is a server side error
+     */
+    private String submitRequest(CommunityDetectionRequest request,
+            CommunityDetectionAlgorithm cda, final File inputFile) throws CommunityDetectionException {
+        String requestHash = getRequestHash(cda, request, inputFile);
+        String cachedId = getResultFromCache(requestHash);
+        if (cachedId != null){
+            return cachedId;
+        }
+        String sharedId = subscribeToInFlightTask(requestHash);
+        if (sharedId != null){
+            return sharedId;
+        }
+        
+        reserveTask(request.getAlgorithm());
         String id = UUID.randomUUID().toString();
 
         CommunityDetectionResult cdr = new CommunityDetectionResult(System.currentTimeMillis());
@@ -278,20 +1660,105 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
         cdr.setId(id);
         _results.put(id, cdr);
         logRequest(request, id);
-        String dockerImage = cda.getDockerImage();
+        long reservedBytes = 0;
+        CommunityDetectionTask cdTask = null;
         try {
-            DockerCommunityDetectionRunner task = new DockerCommunityDetectionRunner(id, request, cdr.getStartTime(),
-            _taskDir, _dockerCmd, dockerImage, request.getCustomParameters(),
-                    Configuration.getInstance().getAlgorithmTimeOut(),
-            TimeUnit.SECONDS,
-            Configuration.getInstance().getMountOptions());
-            _futureTaskMap.put(id, _executorService.submit(task));
+            if (inputFile != null){
+                moveInputFile(id, inputFile);
+            }
+            cdTask = createTask(id, request, cda, cdr.getStartTime());
+            reserveInputBytes(cdTask.getAlgorithm(), cdTask.getInputBytes());
+            reservedBytes = cdTask.getInputBytes();
+            cdTask.setRequestHash(requestHash);
+            cdTask.setAdmitted(true);
+            
+            // hash is registered before task can run so a task that finishes
+            // right away always removes its own entry
+            if (requestHash != null
+                    && _inFlightByHash.putIfAbsent(requestHash, cdTask) != null){
+                // identical request was submitted while this one was prepared
+                sharedId = subscribeToInFlightTask(requestHash);
+                if (sharedId != null){
+                    CommunityDetectionTask unsubmitted = cdTask;
+                    cdTask = null;
+                    removeUnsubmittedTask(id, request.getAlgorithm(), reservedBytes,
+                            unsubmitted);
+                    return sharedId;
+                }
+                _inFlightByHash.putIfAbsent(requestHash, cdTask);
+            }
+            _activeTaskIds.add(id);
+            _futureTaskMap.put(id, cdTask);
+            if (_taskJournal != null){
+                _taskJournal.submitted(id, request.getAlgorithm(),
+                        request.getCustomParameters(), requestHash, null);
+            }
+            try {
+                getExecutorService(request.getAlgorithm()).execute(cdTask);
+            } catch(RejectedExecutionException ree){
+                throw rejectRequest(ree.getMessage(), cdTask.getAlgorithm(),
+                        cdTask.getInputBytes());
+            }
             return id;
+        } catch(CommunityDetectionQueueFullException qfe){
+            removeUnsubmittedTask(id, request.getAlgorithm(), reservedBytes, cdTask);
+            throw qfe;
         } catch(Exception ex){
+            removeUnsubmittedTask(id, request.getAlgorithm(), reservedBytes, cdTask);
             throw new CommunityDetectionException(ex.getMessage());
         }
     }
     
+    /**
+     * Moves {@code inputFile} to input file of task with {@code id}
+     * @param id id of task
+     * @param inputFile file holding data of request
+     * @throws IOException if the file could not be moved
+     */
+    private void moveInputFile(final String id, final File inputFile) throws IOException {
+        File thisTaskDir = new File(this._taskDir + File.separator + id);
+        if (thisTaskDir.isDirectory() == false && thisTaskDir.mkdirs() == false){
+            throw new IOException("Unable to create directory: " + thisTaskDir.getAbsolutePath());
+        }
+        Files.move(inputFile.toPath(), new File(thisTaskDir,
+                DockerCommunityDetectionRunner.INPUT_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * Removes all traces of a task that could not be submitted for 
+     * processing from memory and the filesystem. Requests that subscribed
+     * to the task in the meantime are given a failed result
+     * @param id id of task
+     * @param algorithm name of algorithm
+     * @param reservedBytes bytes of input data reserved for task
+     * @param task the task or {@code null} if it was not created
+     */
+    private void removeUnsubmittedTask(final String id, final String algorithm,
+            long reservedBytes, final CommunityDetectionTask task){
+        if (task != null){
+            if (task.getRequestHash() != null){
+                _inFlightByHash.remove(task.getRequestHash(), task);
+            }
+            for (String subscriberId : task.closeSubscribers()){
+                if (subscriberId.equals(id) == false){
+                    _futureTaskMap.remove(subscriberId, task);
+                    saveFailedResult(subscriberId, "Task " + id
+                            + " whose execution this task shared could not be queued");
+                    journalFinishedTasks(Collections.singletonList(subscriberId));
+                }
+            }
+        }
+        _futureTaskMap.remove(id);
+        _activeTaskIds.remove(id);
+        _results.remove(id);
+        if (_taskJournal != null){
+            _taskJournal.deleted(id);
+        }
+        releaseTask(algorithm, reservedBytes);
+        FileUtils.deleteQuietly(new File(this._taskDir + File.separator + id));
+    }
+    
     private void logRequest(final CommunityDetectionRequest request,
 	    final String id){
 	if (request == null){
@@ -347,7 +1814,228 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
     }
 
     /**
-     * Gets status of task with given {@code id}
+     * Gets file holding json of result of finished task with {@code id}
+     * from the {@link ResultStore}
+     * @param id id of task
+     * @param compressed if true get file holding gzip compressed json
+     * @return file or {@code null} if task is not finished, not found or
+     *         its result is not stored in a file in the requested form
+     * @throws CommunityDetectionException if {@code id} is {@code null}
+     */
+    @Override
+    public File getResultFile(final String id, boolean compressed) throws CommunityDetectionException {
+        if (id == null){
+            throw new CommunityDetectionException("Id is null");
+        }
+        return _resultStore.getFile(id, compressed);
+    }
+
+    /**
+     * Gets json of result of finished task with {@code id} from the in
+     * memory cache. If not cached, the result file in the requested form is
+     * read into the cache, or for uncompressed json, the result is loaded
+     * from the {@link ResultStore} and written to the cache as json
+     * @param id id of task
+     * @param compressed if true get gzip compressed json
+     * @return json or {@code null} if the cache is disabled, the task is not
+     *         finished or not found, the result is not stored in the
+     *         requested form, or the result is too large to cache
+     * @throws CommunityDetectionException if {@code id} is {@code null}
+     */
+    @Override
+    public byte[] getResultBytes(final String id, boolean compressed) throws CommunityDetectionException {
+        if (id == null){
+            throw new CommunityDetectionException("Id is null");
+        }
+        return getCachedResultBytes(id, compressed);
+    }
+    
+    /**
+     * Implementation of {@link #getResultBytes(java.lang.String, boolean) }
+     * @param id id of task
+     * @param compressed if true get gzip compressed json
+     * @return json or {@code null} if not available from cache
+     */
+    private byte[] getCachedResultBytes(final String id, boolean compressed){
+        if (_memoryCache == null){
+            return null;
+        }
+        byte[] data = _memoryCache.get(id, compressed);
+        if (data != null){
+            return data;
+        }
+        try {
+            File resultFile = _resultStore.getFile(id, compressed);
+            if (resultFile != null){
+                if (resultFile.length() > _memoryCache.getMaxBytes()){
+                    return null;
+                }
+                data = Files.readAllBytes(resultFile.toPath());
+            } else if (compressed == false){
+                if (_resultStore.getSize(id) > _memoryCache.getMaxBytes()){
+                    return null;
+                }
+                CommunityDetectionResult cdr = _resultStore.get(id);
+                if (cdr == null){
+                    return null;
+                }
+                data = new ObjectMapper().writeValueAsBytes(cdr);
+            } else {
+                return null;
+            }
+        } catch(IOException io){
+            _logger.error("Caught exception trying to cache result of task " + id, io);
+            return null;
+        }
+        _memoryCache.put(id, data, compressed);
+        return data;
+    }
+
+    /**
+     * Registers {@code listener} to be run once the task with {@code id}
+     * is no longer pending. Listeners are run on a separate thread so
+     * they do not delay processing of other completed tasks
+     * @param id id of task
+     * @param listener invoked when task reaches a terminal state
+     * @return true if registered, false if task is not pending in which case
+     *         {@code listener} is never run
+     */
+    @Override
+    public boolean addTaskFinishedListener(final String id, final Runnable listener) {
+        if (id == null || listener == null){
+            return false;
+        }
+        _finishedListeners.compute(id, (String k, List<Runnable> listeners) -> {
+            List<Runnable> updated = listeners == null ? new CopyOnWriteArrayList<>() : listeners;
+            updated.add(listener);
+            return updated;
+        });
+        
+        // task may have finished before listener was added, in which case
+        // the listener is removed here unless it was already run
+        if (_results.containsKey(id) == false){
+            return removeTaskFinishedListener(id, listener) == false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes listener added via {@link #addTaskFinishedListener(java.lang.String, java.lang.Runnable) }
+     * @param id id of task
+     * @param listener listener to remove
+     * @return true if listener was removed before it was run
+     */
+    @Override
+    public boolean removeTaskFinishedListener(final String id, final Runnable listener) {
+        if (id == null || listener == null){
+            return false;
+        }
+        final boolean[] removed = {false};
+        _finishedListeners.computeIfPresent(id, (String k, List<Runnable> listeners) -> {
+            removed[0] = listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+        return removed[0];
+    }
+    
+    /**
+     * Registers {@code listener} to receive lifecycle events of task with
+     * {@code id} until the task completes, fails, or is deleted
+     * @param id id of task
+     * @param listener receives events
+     * @return current status of task or {@code null} if task was not found.
+     *         If task is not found or has already finished, {@code listener}
+     *         is not registered
+     */
+    @Override
+    public CommunityDetectionResultStatus addTaskEventListener(final String id,
+            final TaskEventListener listener) {
+        if (id == null || listener == null){
+            return null;
+        }
+        _eventListeners.compute(id, (String k, List<TaskEventListener> listeners) -> {
+            List<TaskEventListener> updated = listeners == null ? new CopyOnWriteArrayList<>() : listeners;
+            updated.add(listener);
+            return updated;
+        });
+        
+        // status is obtained after the listener is added so no events
+        // are missed, which means the listener may also receive this status
+        CommunityDetectionResultStatus status = null;
+        try {
+            status = getStatus(id);
+        } catch(CommunityDetectionException cde){
+            _logger.debug("No status for task " + id + " : " + cde.getMessage());
+        }
+        if (status == null || _results.containsKey(id) == false){
+            removeTaskEventListener(id, listener);
+        }
+        return status;
+    }
+
+    /**
+     * Removes listener added via {@link #addTaskEventListener(java.lang.String, org.ndexbio.communitydetection.rest.engine.TaskEventListener) }
+     * @param id id of task
+     * @param listener listener to remove
+     */
+    @Override
+    public void removeTaskEventListener(final String id, final TaskEventListener listener) {
+        if (id == null || listener == null){
+            return;
+        }
+        _eventListeners.computeIfPresent(id, (String k, List<TaskEventListener> listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+    
+    /**
+     * Passes {@code status} to every event listener of task with {@code id}
+     * @param id id of task
+     * @param status new status of task or {@code null} if task was deleted
+     */
+    private void publishTaskEvent(final String id, final CommunityDetectionResultStatus status){
+        dispatchTaskEvent(_eventListeners.get(id), id, status);
+    }
+    
+    private void dispatchTaskEvent(final List<TaskEventListener> listeners,
+            final String id, final CommunityDetectionResultStatus status){
+        if (listeners == null){
+            return;
+        }
+        for (TaskEventListener listener : listeners){
+            try {
+                listener.taskEvent(id, status);
+            } catch(Exception ex){
+                _logger.error("Caught exception passing event for task " + id
+                        + " to listener", ex);
+            }
+        }
+    }
+    
+    /**
+     * Passes final {@code status} to event listeners of task with {@code id}
+     * and then runs and removes any listeners waiting on the task
+     * @param id id of task
+     * @param status final status of task or {@code null} if task was deleted
+     */
+    private void notifyTaskFinished(final String id, final CommunityDetectionResultStatus status){
+        dispatchTaskEvent(_eventListeners.remove(id), id, status);
+        List<Runnable> listeners = _finishedListeners.remove(id);
+        if (listeners == null){
+            return;
+        }
+        for (Runnable listener : listeners){
+            CompletableFuture.runAsync(listener).exceptionally((Throwable t) -> {
+                _logger.error("Caught exception running listener for task " + id, t);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Gets status of task with given {@code id}. If the task is still
+     * queued or running the status will also include an estimated wall time
      * @param id Id of task
      * @return The result
      * @throws CommunityDetectionException If id is {@code null} or no task is found
@@ -357,12 +2045,102 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
         if (id == null){
             throw new CommunityDetectionException("Id is null");
         }
-        
+        CommunityDetectionResultStatus indexedStatus = _statusIndex.get(id);
+        if (indexedStatus != null){
+            return indexedStatus;
+        }
+        CommunityDetectionResultStatus savedStatus = getCommunityDetectionStatusFromFilesystem(id);
+        if (savedStatus != null){
+            indexStatus(id, savedStatus);
+            return savedStatus;
+        }
         CommunityDetectionResult cdr = getCommunityDetectionResultFromDbOrFilesystem(id);
         if (cdr == null){
             throw new CommunityDetectionException("No task with id of " + id + " found");
         }
-        return new CommunityDetectionResultStatus(cdr);
+        ExtendedCommunityDetectionResultStatus status = new ExtendedCommunityDetectionResultStatus(cdr);
+        CommunityDetectionTask task = _futureTaskMap.get(id);
+        if (task != null){
+            status.setEstimatedWallTime(task.getEstimatedWallTime());
+        }
+        indexStatus(id, status);
+        return status;
+    }
+    
+    /**
+     * Gets status stored with result of task with {@code id}. This
+     * avoids loading the result, which can be large, after a restart
+     * @param id id of task
+     * @return status or {@code null} if task has no stored status
+     *         or there was an error reading it
+     */
+    private CommunityDetectionResultStatus getCommunityDetectionStatusFromFilesystem(final String id){
+        try {
+            return _resultStore.getStatus(id);
+        } catch(IOException io){
+            _logger.error("Caught exception trying to load status of task " + id, io);
+        }
+        return null;
+    }
+    
+    /**
+     * Adds {@code status} to the in memory status index if the task is
+     * complete or failed since those statuses no longer change
+     * @param id id of task
+     * @param status status of task
+     */
+    private void indexStatus(final String id, final CommunityDetectionResultStatus status){
+        if (CommunityDetectionResult.COMPLETE_STATUS.equals(status.getStatus())
+                || CommunityDetectionResult.FAILED_STATUS.equals(status.getStatus())){
+            _statusIndex.put(id, status);
+        }
+    }
+    
+    /**
+     * Gets status of every task in {@code ids}. Statuses of finished tasks 
+     * come from an in memory index
+     * @param ids ids of tasks
+     * @return map of id to status, in same order as {@code ids}, where 
+     *         status is {@code null} if task was not found
+     * @throws CommunityDetectionException if {@code ids} is {@code null}
+     */
+    @Override
+    public Map<String, CommunityDetectionResultStatus> getStatuses(List<String> ids) throws CommunityDetectionException {
+        if (ids == null){
+            throw new CommunityDetectionException("Ids are null");
+        }
+        LinkedHashMap<String, CommunityDetectionResultStatus> statuses = new LinkedHashMap<>();
+        for (String id : ids){
+            try {
+                statuses.put(id, getStatus(id));
+            } catch(CommunityDetectionException cde){
+                statuses.put(id, null);
+            }
+        }
+        return statuses;
+    }
+    
+    /**
+     * Gets result of every task in {@code ids}
+     * @param ids ids of tasks
+     * @return map of id to result, in same order as {@code ids}, where 
+     *         result is {@code null} if task was not found
+     * @throws CommunityDetectionException if {@code ids} is {@code null}
+     */
+    @Override
+    public Map<String, CommunityDetectionResult> getResults(List<String> ids) throws CommunityDetectionException {
+        if (ids == null){
+            throw new CommunityDetectionException("Ids are null");
+        }
+        LinkedHashMap<String, CommunityDetectionResult> results = new LinkedHashMap<>();
+        for (String id : ids){
+            try {
+                results.put(id, getResult(id));
+            } catch(CommunityDetectionException cde){
+                results.put(id, null);
+            }
+        }
+        return results;
     }
 
     /**
@@ -381,11 +2159,40 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
         if (_results.containsKey(id) == true){
             _results.remove(id);
         }
-        Future f = _futureTaskMap.get(id);
+        _statusIndex.remove(id);
+        if (_memoryCache != null){
+            _memoryCache.remove(id);
+        }
+        try {
+            _resultStore.delete(id);
+        } catch(IOException io){
+            _logger.error("Unable to remove stored result of task " + id, io);
+        }
+        notifyTaskFinished(id, null);
+        CommunityDetectionTask f = _futureTaskMap.remove(id);
         if (f != null){
-            _logger.info("Delete invoked, canceling task: " + id +
-		    " result of cancel(): " +
-                    Boolean.toString(f.cancel(true)));
+            int remaining;
+            synchronized(f){
+                // subscribers cannot change until the journal is updated so
+                // the request taking over the execution is still subscribed
+                List<String> subscribers = f.getSubscribers();
+                remaining = f.removeSubscriber(id);
+                journalDeletedTask(id, f, remaining > 0 && subscribers.isEmpty() == false
+                        && id.equals(subscribers.get(0)));
+            }
+            if (remaining == 0){
+                _logger.info("Delete invoked, canceling task: " + id +
+                        " result of cancel(): " +
+                        Boolean.toString(f.cancel(true)));
+            } else {
+                _logger.info("Delete invoked on task: " + id + " which is shared with "
+                        + Integer.toString(remaining) + " other request(s), not canceling");
+                if (id.equals(f.getId())){
+                    // the shared task runs in this directory so it is
+                    // removed once the task completes
+                    return;
+                }
+            }
         }
         File thisTaskDir = new File(this._taskDir + File.separator + id);
         if (thisTaskDir.exists() == false){
@@ -398,7 +2205,46 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
     }
 
     /**
-     * Gets algorithms available
+     * Records deletion of task with {@code id} in the task journal. If the
+     * deleted task was the one the journal queues again after a restart for
+     * the requests sharing {@code task}, the earliest remaining subscriber
+     * is recorded as owning the execution, with the input data left in the
+     * directory of {@code task}, and the other subscribers as sharing it
+     * @param id id of deleted task
+     * @param task task {@code id} was subscribed to
+     * @param leadDeleted true if {@code id} was the earliest subscriber and
+     *                    other subscribers remain
+     */
+    private void journalDeletedTask(final String id, final CommunityDetectionTask task,
+            boolean leadDeleted){
+        if (_taskJournal == null){
+            return;
+        }
+        TaskJournalRecord record = leadDeleted ? _taskJournal.getPendingTask(id) : null;
+        boolean started = _taskJournal.isStarted(id);
+        _taskJournal.deleted(id);
+        if (record == null){
+            return;
+        }
+        List<String> subscribers = task.getSubscribers();
+        String leadId = subscribers.get(0);
+        _taskJournal.submitted(leadId, record.getAlgorithm(), record.getCustomParameters(),
+                record.getRequestHash(), null, task.getId());
+        if (started == true){
+            _taskJournal.started(leadId);
+        }
+        for (String subscriberId : subscribers.subList(1, subscribers.size())){
+            _taskJournal.submitted(subscriberId, record.getAlgorithm(), null,
+                    record.getRequestHash(), leadId);
+        }
+        _logger.debug("Task " + leadId + " now owns execution of deleted task " + id
+                + " in the task journal");
+    }
+
+    /**
+     * Gets algorithms available. If images are pulled at startup the
+     * algorithms are returned as {@link ExtendedCommunityDetectionAlgorithms}
+     * with the state of the image of each algorithm
      * @return Available algorithms
      * @throws CommunityDetectionException if no algorithms are found
      */
@@ -407,7 +2253,13 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
         if (_algorithms == null){
             throw new CommunityDetectionException("No algorithms found");
         }
-        return _algorithms;
+        if (_imagePreparer == null){
+            return _algorithms;
+        }
+        ExtendedCommunityDetectionAlgorithms algos = new ExtendedCommunityDetectionAlgorithms();
+        algos.setAlgorithms(_algorithms.getAlgorithms());
+        algos.setAlgorithmStates(_imagePreparer.getStates());
+        return algos;
     }
 
     /**
@@ -419,7 +2271,7 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
     public ServerStatus getServerStatus() throws CommunityDetectionException {
         try {
             String version = "unknown";
-            ServerStatus sObj = new ServerStatus();
+            ExtendedServerStatus sObj = new ExtendedServerStatus();
             sObj.setStatus(ServerStatus.OK_STATUS);
             sObj.setRestVersion(CommunityDetectionHttpServletDispatcher.getVersion());
             OperatingSystemMXBean omb = ManagementFactory.getOperatingSystemMXBean();
@@ -431,6 +2283,29 @@ public class CommunityDetectionEngineImpl implements CommunityDetectionEngine {
             sObj.setQueuedTasks(_queuedTasks.get());
             sObj.setCompletedTasks(_completedTasks.get());
             sObj.setCanceledTasks(_canceledTasks.get());
+            sObj.setWorkerPools(getWorkerPoolStatus());
+            sObj.setRejectedTasks(_rejectedTasks.get());
+            sObj.setCoalescedTasks(_coalescedTasks.get());
+            sObj.setInFlightInputBytes(_inFlightInputBytes.get());
+            if (_imagePreparer != null){
+                sObj.setAlgorithmStates(_imagePreparer.getStates());
+            }
+            if (_resultCache != null){
+                sObj.setResultCacheHits(_resultCache.getHits());
+                sObj.setResultCacheMisses(_resultCache.getMisses());
+                sObj.setResultCacheEntries(_resultCache.getEntryCount());
+                sObj.setResultCacheBytes(_resultCache.getSizeBytes());
+            }
+            if (_memoryCache != null){
+                sObj.setMemoryCacheHits(_memoryCache.getHits());
+                sObj.setMemoryCacheMisses(_memoryCache.getMisses());
+                sObj.setMemoryCacheEntries(_memoryCache.getEntryCount());
+                sObj.setMemoryCacheBytes(_memoryCache.getSizeBytes());
+            }
+            if (_garbageCollector != null){
+                sObj.setReclaimedBytes(_garbageCollector.getReclaimedBytes());
+                sObj.setEvictedTasks(_garbageCollector.getEvictions());
+            }
             logServerStatus(sObj);
             return sObj;
         } catch(Exception ex){
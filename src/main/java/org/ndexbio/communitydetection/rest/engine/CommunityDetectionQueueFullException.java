@@ -0,0 +1,35 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import org.ndexbio.communitydetection.rest.model.exceptions.CommunityDetectionException;
+
+/**
+ * Denotes a request was rejected because the service has reached one
+ * of its limits on queued tasks or input data. Caller should retry
+ * after {@link #getRetryAfterSeconds()} seconds
+ * 
+ * @author churas
+ */
+public class CommunityDetectionQueueFullException extends CommunityDetectionException {
+    
+    private final long _retryAfterSeconds;
+
+    /**
+     * Constructor
+     * @param message description of limit that was reached
+     * @param retryAfterSeconds suggested number of seconds caller should
+     *                          wait before resubmitting
+     */
+    public CommunityDetectionQueueFullException(final String message, long retryAfterSeconds) {
+        super(message);
+        _retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Gets suggested number of seconds caller should wait before
+     * resubmitting request
+     * @return seconds
+     */
+    public long getRetryAfterSeconds() {
+        return _retryAfterSeconds;
+    }
+}
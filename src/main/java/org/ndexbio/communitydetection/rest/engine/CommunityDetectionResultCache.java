@@ -0,0 +1,249 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Disk backed cache of completed {@link CommunityDetectionResult} objects
+ * keyed by hash of the request that generated them. Each result is stored
+ * as a json file named &lt;hash&gt;{@link #CACHE_FILE_SUFFIX} in the cache
+ * directory. Once the total size of the files exceeds the maximum, the least
+ * recently used results are removed. Last modified time of the files is used
+ * to restore the usage order when the cache is reloaded.
+ *
+ * @author churas
+ */
+public class CommunityDetectionResultCache {
+
+    static Logger _logger = LoggerFactory.getLogger(CommunityDetectionResultCache.class);
+
+    /**
+     * Suffix of files holding cached results
+     */
+    public static final String CACHE_FILE_SUFFIX = ".json";
+
+    /**
+     * Suffix of files being written to the cache
+     */
+    public static final String TMP_FILE_SUFFIX = ".tmp";
+
+    private final File _cacheDir;
+    private final long _maxBytes;
+
+    /**
+     * Map of hash to size of cached result in bytes in least recently used order
+     */
+    private final LinkedHashMap<String, Long> _entries;
+    private long _totalBytes;
+    private final AtomicLong _hits;
+    private final AtomicLong _misses;
+    private final AtomicLong _evictions;
+    private final ObjectMapper _mapper;
+
+    /**
+     * Constructor that loads any results already in {@code cacheDir}
+     * @param cacheDir directory to store cached results in, created if needed
+     * @param maxBytes maximum total size of cached results in bytes
+     */
+    public CommunityDetectionResultCache(final File cacheDir, long maxBytes){
+        _cacheDir = cacheDir;
+        _maxBytes = maxBytes;
+        _entries = new LinkedHashMap<>(16, 0.75f, true);
+        _totalBytes = 0;
+        _hits = new AtomicLong(0);
+        _misses = new AtomicLong(0);
+        _evictions = new AtomicLong(0);
+        _mapper = new ObjectMapper();
+        loadEntries();
+    }
+
+    /**
+     * Loads results in cache directory oldest first and removes any partially
+     * written files
+     */
+    private synchronized void loadEntries(){
+        if (_cacheDir.isDirectory() == false && _cacheDir.mkdirs() == false){
+            _logger.error("Unable to create result cache directory: "
+                    + _cacheDir.getAbsolutePath());
+            return;
+        }
+        File[] tmpFiles = _cacheDir.listFiles((File f) -> f.getName().endsWith(TMP_FILE_SUFFIX));
+        if (tmpFiles != null){
+            for (File tmpFile : tmpFiles){
+                tmpFile.delete();
+            }
+        }
+        File[] files = _cacheDir.listFiles((File f) -> f.isFile()
+                && f.getName().endsWith(CACHE_FILE_SUFFIX));
+        if (files == null){
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong((File f) -> f.lastModified()));
+        for (File f : files){
+            String name = f.getName();
+            long size = f.length();
+            _entries.put(name.substring(0, name.length() - CACHE_FILE_SUFFIX.length()), size);
+            _totalBytes += size;
+        }
+        _logger.info("Loaded " + Integer.toString(_entries.size())
+                + " cached results totaling " + Long.toString(_totalBytes) + " bytes");
+        evict();
+    }
+
+    /**
+     * Gets cached result for request with hash {@code hash}
+     * @param hash hash of request
+     * @return cached result or {@code null} if not in cache
+     */
+    public CommunityDetectionResult get(final String hash){
+        if (hash == null){
+            return null;
+        }
+        synchronized(this){
+            if (_entries.get(hash) == null){
+                _misses.incrementAndGet();
+                return null;
+            }
+        }
+        File cacheFile = getCacheFile(hash);
+        try {
+            CommunityDetectionResult cdr = _mapper.readValue(cacheFile,
+                    CommunityDetectionResult.class);
+            cacheFile.setLastModified(System.currentTimeMillis());
+            _hits.incrementAndGet();
+            return cdr;
+        } catch(IOException io){
+            _logger.error("Unable to read cached result " + cacheFile.getAbsolutePath()
+                    + " removing it from cache", io);
+            remove(hash);
+        }
+        _misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds {@code cdr} to cache under {@code hash} evicting least recently
+     * used results if the cache is over its maximum size. Results larger
+     * than the maximum size of the cache are not added.
+     * @param hash hash of request
+     * @param cdr result to store
+     */
+    public void put(final String hash, final CommunityDetectionResult cdr){
+        if (hash == null || cdr == null){
+            return;
+        }
+        File tmpFile = null;
+        try {
+            tmpFile = File.createTempFile(hash, TMP_FILE_SUFFIX, _cacheDir);
+            _mapper.writeValue(tmpFile, cdr);
+            long size = tmpFile.length();
+            if (size > _maxBytes){
+                _logger.debug("Result for " + hash + " is " + Long.toString(size)
+                        + " bytes which exceeds cache size, not caching");
+                return;
+            }
+            synchronized(this){
+                Files.move(tmpFile.toPath(), getCacheFile(hash).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                Long oldSize = _entries.put(hash, size);
+                if (oldSize != null){
+                    _totalBytes -= oldSize;
+                }
+                _totalBytes += size;
+                evict();
+            }
+        } catch(IOException io){
+            _logger.error("Unable to add result for " + hash + " to cache", io);
+        } finally {
+            if (tmpFile != null && tmpFile.exists()){
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Removes result with {@code hash} from cache
+     * @param hash hash of request
+     */
+    public synchronized void remove(final String hash){
+        Long size = _entries.remove(hash);
+        if (size == null){
+            return;
+        }
+        _totalBytes -= size;
+        getCacheFile(hash).delete();
+    }
+
+    /**
+     * Removes least recently used results until cache is within its
+     * maximum size
+     */
+    private void evict(){
+        Iterator<Map.Entry<String, Long>> itr = _entries.entrySet().iterator();
+        while (_totalBytes > _maxBytes && itr.hasNext()){
+            Map.Entry<String, Long> entry = itr.next();
+            _logger.debug("Evicting cached result " + entry.getKey());
+            getCacheFile(entry.getKey()).delete();
+            _totalBytes -= entry.getValue();
+            itr.remove();
+            _evictions.incrementAndGet();
+        }
+    }
+
+    private File getCacheFile(final String hash){
+        return new File(_cacheDir, hash + CACHE_FILE_SUFFIX);
+    }
+
+    /**
+     * Gets number of requests found in cache
+     * @return number of cache hits
+     */
+    public long getHits(){
+        return _hits.get();
+    }
+
+    /**
+     * Gets number of requests not found in cache
+     * @return number of cache misses
+     */
+    public long getMisses(){
+        return _misses.get();
+    }
+
+    /**
+     * Gets number of results removed to keep cache under its maximum size
+     * @return number of evictions
+     */
+    public long getEvictions(){
+        return _evictions.get();
+    }
+
+    /**
+     * Gets number of results in cache
+     * @return number of results
+     */
+    public synchronized int getEntryCount(){
+        return _entries.size();
+    }
+
+    /**
+     * Gets total size of results in cache
+     * @return size in bytes
+     */
+    public synchronized long getSizeBytes(){
+        return _totalBytes;
+    }
+}
@@ -0,0 +1,167 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In memory cache of the json, as stored, of completed
+ * {@link org.ndexbio.communitydetection.rest.model.CommunityDetectionResult}
+ * objects keyed by task id. Both the plain and the gzip compressed json
+ * of a result can be cached so popular results are sent by the result
+ * endpoint without reading the result file every time a result is
+ * requested. The cache is bounded by the total size of the cached bytes
+ * and least recently used results are removed once it is exceeded.
+ *
+ * Byte arrays returned by this cache are shared and must not be modified.
+ *
+ * @author churas
+ */
+public class CommunityDetectionResultMemoryCache {
+
+    /**
+     * Entry holding the plain and gzip compressed json of a result,
+     * either can be {@code null}
+     */
+    private static class CacheEntry {
+        byte[] json;
+        byte[] compressedJson;
+
+        long getSizeBytes(){
+            return (json == null ? 0 : json.length)
+                    + (compressedJson == null ? 0 : compressedJson.length);
+        }
+    }
+
+    private final long _maxBytes;
+
+    /**
+     * Map of task id to cached result in least recently used order
+     */
+    private final LinkedHashMap<String, CacheEntry> _entries;
+    private long _totalBytes;
+    private long _hits;
+    private long _misses;
+    private long _evictions;
+
+    /**
+     * Constructor
+     * @param maxBytes maximum total size of cached results in bytes
+     */
+    public CommunityDetectionResultMemoryCache(long maxBytes){
+        _maxBytes = maxBytes;
+        _entries = new LinkedHashMap<>(16, 0.75f, true);
+        _totalBytes = 0;
+    }
+
+    /**
+     * Gets maximum total size of cached results
+     * @return size in bytes
+     */
+    public long getMaxBytes(){
+        return _maxBytes;
+    }
+
+    /**
+     * Gets cached json of result of task with {@code id}
+     * @param id id of task
+     * @param compressed if true get gzip compressed json
+     * @return cached json or {@code null} if not in cache
+     */
+    public synchronized byte[] get(final String id, boolean compressed){
+        CacheEntry entry = _entries.get(id);
+        byte[] data = null;
+        if (entry != null){
+            data = compressed ? entry.compressedJson : entry.json;
+        }
+        if (data == null){
+            _misses++;
+            return null;
+        }
+        _hits++;
+        return data;
+    }
+
+    /**
+     * Adds {@code data} to cache evicting least recently used results if the
+     * cache is over its maximum size. Data larger than the maximum size
+     * of the cache is not added
+     * @param id id of task
+     * @param data json of completed result of task
+     * @param compressed if true {@code data} is gzip compressed json
+     */
+    public synchronized void put(final String id, final byte[] data, boolean compressed){
+        if (id == null || data == null || data.length > _maxBytes){
+            return;
+        }
+        CacheEntry entry = _entries.get(id);
+        if (entry == null){
+            entry = new CacheEntry();
+            _entries.put(id, entry);
+        }
+        _totalBytes -= entry.getSizeBytes();
+        if (compressed == true){
+            entry.compressedJson = data;
+        } else {
+            entry.json = data;
+        }
+        _totalBytes += entry.getSizeBytes();
+        Iterator<Map.Entry<String, CacheEntry>> itr = _entries.entrySet().iterator();
+        while (_totalBytes > _maxBytes && itr.hasNext()){
+            _totalBytes -= itr.next().getValue().getSizeBytes();
+            itr.remove();
+            _evictions++;
+        }
+    }
+
+    /**
+     * Removes result of task with {@code id} from cache
+     * @param id id of task
+     */
+    public synchronized void remove(final String id){
+        CacheEntry entry = _entries.remove(id);
+        if (entry != null){
+            _totalBytes -= entry.getSizeBytes();
+        }
+    }
+
+    /**
+     * Gets number of requests found in cache
+     * @return number of cache hits
+     */
+    public synchronized long getHits(){
+        return _hits;
+    }
+
+    /**
+     * Gets number of requests not found in cache
+     * @return number of cache misses
+     */
+    public synchronized long getMisses(){
+        return _misses;
+    }
+
+    /**
+     * Gets number of results removed to keep cache under its maximum size
+     * @return number of evictions
+     */
+    public synchronized long getEvictions(){
+        return _evictions;
+    }
+
+    /**
+     * Gets number of results in cache
+     * @return number of results
+     */
+    public synchronized int getEntryCount(){
+        return _entries.size();
+    }
+
+    /**
+     * Gets total size of results in cache
+     * @return size in bytes
+     */
+    public synchronized long getSizeBytes(){
+        return _totalBytes;
+    }
+}
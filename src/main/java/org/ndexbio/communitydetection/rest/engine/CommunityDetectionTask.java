@@ -0,0 +1,216 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+
+/**
+ * {@link java.util.concurrent.FutureTask} for a community detection task that
+ * adds itself to a completion queue as soon as it finishes, is canceled,
+ * or fails. This lets {@link CommunityDetectionEngineImpl} react to finished
+ * tasks without scanning every outstanding task.
+ *
+ * Tasks are ordered by priority (lower runs first) followed by order of
+ * creation so they can be placed in a
+ * {@link java.util.concurrent.PriorityBlockingQueue}
+ *
+ * A task can be shared by several identical requests. Each request gets its
+ * own id which is registered via {@link #addSubscriber(java.lang.String) }
+ * and the result of the task is saved under every subscribed id.
+ *
+ * @author churas
+ */
+public class CommunityDetectionTask extends FutureTask<CommunityDetectionResult>
+        implements Comparable<CommunityDetectionTask> {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong(0);
+
+    private final String _id;
+    private final BlockingQueue<CommunityDetectionTask> _completionQueue;
+    private final long _sequence;
+    private String _algorithm;
+    private long _inputBytes;
+    private long _estimatedWallTime;
+    private long _priority;
+    private String _requestHash;
+    private boolean _admitted;
+    private final List<String> _subscribers;
+    private boolean _subscribersClosed;
+
+    /**
+     * Constructor
+     * @param id id of task
+     * @param callable the work to run
+     * @param completionQueue queue this task is added to when done, can be {@code null}
+     */
+    public CommunityDetectionTask(final String id,
+            Callable<CommunityDetectionResult> callable,
+            BlockingQueue<CommunityDetectionTask> completionQueue){
+        super(callable);
+        _id = id;
+        _completionQueue = completionQueue;
+        _sequence = SEQUENCE.getAndIncrement();
+        _estimatedWallTime = TaskRuntimeEstimator.UNKNOWN;
+        _subscribers = new ArrayList<>();
+        _subscribers.add(id);
+        _subscribersClosed = false;
+        _admitted = false;
+    }
+
+    /**
+     * Gets id of task
+     * @return id of task
+     */
+    public String getId(){
+        return _id;
+    }
+
+    /**
+     * Gets name of algorithm run by this task
+     * @return name of algorithm
+     */
+    public String getAlgorithm() {
+        return _algorithm;
+    }
+
+    public void setAlgorithm(final String algorithm) {
+        _algorithm = algorithm;
+    }
+
+    /**
+     * Gets size of input for task in bytes
+     * @return size in bytes
+     */
+    public long getInputBytes() {
+        return _inputBytes;
+    }
+
+    public void setInputBytes(long inputBytes) {
+        _inputBytes = inputBytes;
+    }
+
+    /**
+     * Gets estimated wall time of task
+     * @return estimated wall time in milliseconds or
+     *         {@link TaskRuntimeEstimator#UNKNOWN}
+     */
+    public long getEstimatedWallTime() {
+        return _estimatedWallTime;
+    }
+
+    public void setEstimatedWallTime(long estimatedWallTime) {
+        _estimatedWallTime = estimatedWallTime;
+    }
+
+    /**
+     * Gets priority of task, lower values are run first
+     * @return priority
+     */
+    public long getPriority() {
+        return _priority;
+    }
+
+    public void setPriority(long priority) {
+        _priority = priority;
+    }
+
+    /**
+     * Gets hash of request this task is running
+     * @return hash or {@code null} if not set
+     */
+    public String getRequestHash() {
+        return _requestHash;
+    }
+
+    public void setRequestHash(final String requestHash) {
+        _requestHash = requestHash;
+    }
+
+    /**
+     * Denotes whether task was counted against the limits on queued tasks
+     * and input data and needs to be released when done
+     * @return true if task was admitted
+     */
+    public boolean isAdmitted() {
+        return _admitted;
+    }
+
+    public void setAdmitted(boolean admitted) {
+        _admitted = admitted;
+    }
+    
+    /**
+     * Adds id of another request that should receive the result of this task
+     * @param id id of request
+     * @return true if added, false if task has already completed
+     */
+    public synchronized boolean addSubscriber(final String id){
+        if (_subscribersClosed == true){
+            return false;
+        }
+        _subscribers.add(id);
+        return true;
+    }
+    
+    /**
+     * Removes id of request that no longer wants result of this task. Once
+     * the last subscriber is removed no new subscribers can be added
+     * @param id id of request
+     * @return number of remaining subscribers
+     */
+    public synchronized int removeSubscriber(final String id){
+        _subscribers.remove(id);
+        if (_subscribers.isEmpty()){
+            _subscribersClosed = true;
+        }
+        return _subscribers.size();
+    }
+    
+    /**
+     * Gets ids of all current subscribers
+     * @return ids of requests that should receive result of this task
+     */
+    public synchronized List<String> getSubscribers(){
+        return new ArrayList<>(_subscribers);
+    }
+    
+    /**
+     * Prevents new subscribers from being added and returns ids
+     * of all current subscribers
+     * @return ids of requests that should receive result of this task
+     */
+    public synchronized List<String> closeSubscribers(){
+        _subscribersClosed = true;
+        return new ArrayList<>(_subscribers);
+    }
+
+    /**
+     * Compares by priority and then by order of creation
+     * @param o task to compare to
+     * @return negative value if this task should run before {@code o}
+     */
+    @Override
+    public int compareTo(CommunityDetectionTask o) {
+        int res = Long.compare(_priority, o._priority);
+        if (res != 0){
+            return res;
+        }
+        return Long.compare(_sequence, o._sequence);
+    }
+
+    /**
+     * Invoked by {@link java.util.concurrent.FutureTask} when task transitions
+     * to done state. Adds this task to the completion queue passed in
+     * via the constructor.
+     */
+    @Override
+    protected void done() {
+        if (_completionQueue != null){
+            _completionQueue.add(this);
+        }
+    }
+}
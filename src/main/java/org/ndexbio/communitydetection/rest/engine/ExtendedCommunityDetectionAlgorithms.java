@@ -0,0 +1,32 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.util.Map;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithms;
+
+/**
+ * {@link org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithms}
+ * with the state of the docker image of each algorithm when images are
+ * pulled at startup
+ * 
+ * @author churas
+ */
+public class ExtendedCommunityDetectionAlgorithms extends CommunityDetectionAlgorithms {
+    
+    private Map<String, String> _algorithmStates;
+
+    /**
+     * Gets state of docker image of each algorithm
+     * @return map of algorithm name to one of 
+     *         {@link AlgorithmImagePreparer#PULLING_STATE},
+     *         {@link AlgorithmImagePreparer#WARMING_UP_STATE},
+     *         {@link AlgorithmImagePreparer#READY_STATE} or
+     *         {@link AlgorithmImagePreparer#FAILED_STATE}
+     */
+    public Map<String, String> getAlgorithmStates() {
+        return _algorithmStates;
+    }
+
+    public void setAlgorithmStates(Map<String, String> algorithmStates) {
+        _algorithmStates = algorithmStates;
+    }
+}
@@ -0,0 +1,37 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
+
+/**
+ * {@link org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus}
+ * with an estimate of how long the task will take to run
+ * 
+ * @author churas
+ */
+public class ExtendedCommunityDetectionResultStatus extends CommunityDetectionResultStatus {
+    
+    private long _estimatedWallTime = TaskRuntimeEstimator.UNKNOWN;
+
+    /**
+     * Constructor
+     * @param cdr result to get status from
+     */
+    public ExtendedCommunityDetectionResultStatus(CommunityDetectionResult cdr){
+        super(cdr);
+    }
+    
+    /**
+     * Gets estimated wall time of task in milliseconds based on wall times
+     * of previously completed tasks run with the same algorithm
+     * @return estimated wall time in milliseconds or 
+     *         {@link TaskRuntimeEstimator#UNKNOWN} if no estimate is available
+     */
+    public long getEstimatedWallTime() {
+        return _estimatedWallTime;
+    }
+
+    public void setEstimatedWallTime(long estimatedWallTime) {
+        _estimatedWallTime = estimatedWallTime;
+    }
+}
@@ -0,0 +1,218 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.util.Map;
+import org.ndexbio.communitydetection.rest.model.ServerStatus;
+
+/**
+ * {@link org.ndexbio.communitydetection.rest.model.ServerStatus} with
+ * additional information about the internals of the 
+ * {@link CommunityDetectionEngineImpl}
+ * 
+ * @author churas
+ */
+public class ExtendedServerStatus extends ServerStatus {
+    
+    private Map<String, WorkerPoolStatus> _workerPools;
+    private int _rejectedTasks;
+    private int _coalescedTasks;
+    private long _inFlightInputBytes;
+    private long _resultCacheHits;
+    private long _resultCacheMisses;
+    private int _resultCacheEntries;
+    private long _resultCacheBytes;
+    private long _memoryCacheHits;
+    private long _memoryCacheMisses;
+    private int _memoryCacheEntries;
+    private long _memoryCacheBytes;
+    private long _reclaimedBytes;
+    private long _evictedTasks;
+    private Map<String, String> _algorithmStates;
+
+    /**
+     * Gets status of worker pools where key is name of pool which is
+     * either name of algorithm or {@link CommunityDetectionEngineImpl#DEFAULT_POOL}
+     * @return map of pool name to status
+     */
+    public Map<String, WorkerPoolStatus> getWorkerPools() {
+        return _workerPools;
+    }
+
+    public void setWorkerPools(Map<String, WorkerPoolStatus> workerPools) {
+        _workerPools = workerPools;
+    }
+
+    /**
+     * Gets number of requests rejected because a limit on queued
+     * tasks or input data was reached
+     * @return number of rejected requests
+     */
+    public int getRejectedTasks() {
+        return _rejectedTasks;
+    }
+
+    public void setRejectedTasks(int rejectedTasks) {
+        _rejectedTasks = rejectedTasks;
+    }
+
+    /**
+     * Gets total size of input data for queued and running tasks
+     * @return size in bytes
+     */
+    public long getInFlightInputBytes() {
+        return _inFlightInputBytes;
+    }
+
+    public void setInFlightInputBytes(long inFlightInputBytes) {
+        _inFlightInputBytes = inFlightInputBytes;
+    }
+
+    /**
+     * Gets number of requests that were identical to a queued or running
+     * task and shared its execution instead of running again
+     * @return number of coalesced requests
+     */
+    public int getCoalescedTasks() {
+        return _coalescedTasks;
+    }
+
+    public void setCoalescedTasks(int coalescedTasks) {
+        _coalescedTasks = coalescedTasks;
+    }
+
+    /**
+     * Gets number of requests whose result was found in the result cache
+     * @return number of cache hits
+     */
+    public long getResultCacheHits() {
+        return _resultCacheHits;
+    }
+
+    public void setResultCacheHits(long resultCacheHits) {
+        _resultCacheHits = resultCacheHits;
+    }
+
+    /**
+     * Gets number of requests whose result was not found in the result cache
+     * @return number of cache misses
+     */
+    public long getResultCacheMisses() {
+        return _resultCacheMisses;
+    }
+
+    public void setResultCacheMisses(long resultCacheMisses) {
+        _resultCacheMisses = resultCacheMisses;
+    }
+
+    /**
+     * Gets number of results in the result cache
+     * @return number of results
+     */
+    public int getResultCacheEntries() {
+        return _resultCacheEntries;
+    }
+
+    public void setResultCacheEntries(int resultCacheEntries) {
+        _resultCacheEntries = resultCacheEntries;
+    }
+
+    /**
+     * Gets size of results in the result cache
+     * @return size in bytes
+     */
+    public long getResultCacheBytes() {
+        return _resultCacheBytes;
+    }
+
+    public void setResultCacheBytes(long resultCacheBytes) {
+        _resultCacheBytes = resultCacheBytes;
+    }
+
+    /**
+     * Gets number of completed results found in the in memory result cache
+     * @return number of cache hits
+     */
+    public long getMemoryCacheHits() {
+        return _memoryCacheHits;
+    }
+
+    public void setMemoryCacheHits(long memoryCacheHits) {
+        _memoryCacheHits = memoryCacheHits;
+    }
+
+    /**
+     * Gets number of completed results that had to be read from the
+     * result store because they were not in the in memory result cache
+     * @return number of cache misses
+     */
+    public long getMemoryCacheMisses() {
+        return _memoryCacheMisses;
+    }
+
+    public void setMemoryCacheMisses(long memoryCacheMisses) {
+        _memoryCacheMisses = memoryCacheMisses;
+    }
+
+    /**
+     * Gets number of results in the in memory result cache
+     * @return number of results
+     */
+    public int getMemoryCacheEntries() {
+        return _memoryCacheEntries;
+    }
+
+    public void setMemoryCacheEntries(int memoryCacheEntries) {
+        _memoryCacheEntries = memoryCacheEntries;
+    }
+
+    /**
+     * Gets size of json of results in the in memory result cache
+     * @return size in bytes
+     */
+    public long getMemoryCacheBytes() {
+        return _memoryCacheBytes;
+    }
+
+    public void setMemoryCacheBytes(long memoryCacheBytes) {
+        _memoryCacheBytes = memoryCacheBytes;
+    }
+
+    /**
+     * Gets total size of finished task directories removed by the
+     * task directory garbage collector
+     * @return size in bytes
+     */
+    public long getReclaimedBytes() {
+        return _reclaimedBytes;
+    }
+
+    public void setReclaimedBytes(long reclaimedBytes) {
+        _reclaimedBytes = reclaimedBytes;
+    }
+
+    /**
+     * Gets number of finished task directories removed by the
+     * task directory garbage collector
+     * @return number of removed tasks
+     */
+    public long getEvictedTasks() {
+        return _evictedTasks;
+    }
+
+    public void setEvictedTasks(long evictedTasks) {
+        _evictedTasks = evictedTasks;
+    }
+
+    /**
+     * Gets state of docker image of each algorithm when images are
+     * pulled at startup
+     * @return map of algorithm name to state or {@code null} if images
+     *         are not pulled at startup
+     */
+    public Map<String, String> getAlgorithmStates() {
+        return _algorithmStates;
+    }
+
+    public void setAlgorithmStates(Map<String, String> algorithmStates) {
+        _algorithmStates = algorithmStates;
+    }
+}
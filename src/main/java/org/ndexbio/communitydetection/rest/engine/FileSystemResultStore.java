@@ -0,0 +1,281 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
+
+/**
+ * {@link ResultStore} that writes each result as json to
+ * &lt;task dir&gt;/&lt;id&gt;/{@link CommunityDetectionEngineImpl#CDRESULT_JSON_FILE}
+ * with its status in
+ * &lt;task dir&gt;/&lt;id&gt;/{@link CommunityDetectionEngineImpl#CDSTATUS_JSON_FILE}
+ *
+ * If compression is enabled the result is instead written gzip compressed to
+ * &lt;task dir&gt;/&lt;id&gt;/{@link CommunityDetectionEngineImpl#CDRESULT_JSON_GZ_FILE}.
+ * Either file is read regardless of this setting so results written
+ * before it was changed can still be found.
+ *
+ * @author churas
+ */
+public class FileSystemResultStore implements ResultStore {
+
+    /**
+     * Suffix of temporary files results are written to before
+     * being moved into place
+     */
+    public static final String TMP_SUFFIX = ".tmp";
+
+    private final String _taskDir;
+    private final boolean _compress;
+    private final ObjectMapper _mapper;
+
+    /**
+     * Constructor that writes uncompressed results
+     * @param taskDir base directory for tasks
+     */
+    public FileSystemResultStore(final String taskDir){
+        this(taskDir, false);
+    }
+
+    /**
+     * Constructor
+     * @param taskDir base directory for tasks
+     * @param compress if true results are written gzip compressed
+     */
+    public FileSystemResultStore(final String taskDir, boolean compress){
+        _taskDir = taskDir;
+        _compress = compress;
+        _mapper = new ObjectMapper();
+    }
+
+    private File getResultFile(final String id){
+        return new File(_taskDir + File.separator + id + File.separator
+                + CommunityDetectionEngineImpl.CDRESULT_JSON_FILE);
+    }
+
+    private File getCompressedResultFile(final String id){
+        return new File(_taskDir + File.separator + id + File.separator
+                + CommunityDetectionEngineImpl.CDRESULT_JSON_GZ_FILE);
+    }
+
+    private File getStatusFile(final String id){
+        return new File(_taskDir + File.separator + id + File.separator
+                + CommunityDetectionEngineImpl.CDSTATUS_JSON_FILE);
+    }
+
+    /**
+     * Writes result and then its status, the status is only written if
+     * the result was written so it never refers to a missing result.
+     * Each file is written to a temporary file in the task directory and
+     * then atomically moved into place so readers never see a partially
+     * written file
+     * @param cdr result to store
+     * @throws IOException if there is an error writing
+     */
+    @Override
+    public void put(final CommunityDetectionResult cdr) throws IOException {
+        File resultFile = getResultFile(cdr.getId());
+        File compressedFile = getCompressedResultFile(cdr.getId());
+        File taskDir = resultFile.getParentFile();
+        if (taskDir.isDirectory() == false && taskDir.mkdirs() == false){
+            throw new IOException("Unable to create directory: " + taskDir.getAbsolutePath());
+        }
+        if (_compress == true){
+            writeAtomically(compressedFile, cdr, true);
+            resultFile.delete();
+        } else {
+            writeAtomically(resultFile, cdr, false);
+            compressedFile.delete();
+        }
+        writeAtomically(getStatusFile(cdr.getId()),
+                new CommunityDetectionResultStatus(cdr), false);
+    }
+
+    /**
+     * Writes {@code value} as json to a temporary file next to
+     * {@code destFile} and then atomically renames it to {@code destFile}
+     * @param destFile file to write
+     * @param value object to write as json
+     * @param compress if true gzip compress the json
+     * @throws IOException if there is an error writing or moving the file
+     */
+    private void writeAtomically(final File destFile, final Object value,
+            boolean compress) throws IOException {
+        File tmpFile = File.createTempFile(destFile.getName() + ".", TMP_SUFFIX,
+                destFile.getParentFile());
+        try {
+            try (OutputStream out = compress ? new GZIPOutputStream(new FileOutputStream(tmpFile))
+                    : new FileOutputStream(tmpFile)){
+                _mapper.writeValue(out, value);
+            }
+            Files.move(tmpFile.toPath(), destFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (tmpFile.exists()){
+                tmpFile.delete();
+            }
+        }
+    }
+
+    @Override
+    public CommunityDetectionResult get(final String id) throws IOException {
+        File compressedFile = getCompressedResultFile(id);
+        if (compressedFile.isFile()){
+            try (InputStream in = new GZIPInputStream(new FileInputStream(compressedFile))){
+                return _mapper.readValue(in, CommunityDetectionResult.class);
+            }
+        }
+        File resultFile = getResultFile(id);
+        if (resultFile.isFile() == false){
+            return null;
+        }
+        return _mapper.readValue(resultFile, CommunityDetectionResult.class);
+    }
+
+    /**
+     * Gets result file if the result was written in the requested form
+     * @param id id of task
+     * @param compressed if true get gzip compressed result file
+     * @return file or {@code null} if result is not found or was
+     *         not written in the requested form
+     */
+    @Override
+    public File getFile(final String id, boolean compressed) {
+        File resultFile = compressed ? getCompressedResultFile(id) : getResultFile(id);
+        if (resultFile.isFile() == false){
+            return null;
+        }
+        return resultFile;
+    }
+
+    /**
+     * Reads status written next to result. Status is ignored if
+     * result is missing
+     * @param id id of task
+     * @return status or {@code null} if not found
+     * @throws IOException if there is an error reading
+     */
+    @Override
+    public CommunityDetectionResultStatus getStatus(final String id) throws IOException {
+        File statusFile = getStatusFile(id);
+        if (statusFile.isFile() == false || contains(id) == false){
+            return null;
+        }
+        return _mapper.readValue(statusFile, CommunityDetectionResultStatus.class);
+    }
+
+    @Override
+    public boolean contains(final String id) {
+        return getCompressedResultFile(id).isFile() || getResultFile(id).isFile();
+    }
+
+    /**
+     * Gets uncompressed size of result. For compressed results this is
+     * read from the gzip trailer which holds the size modulo 2^32
+     * @param id id of task
+     * @return size in bytes or 0 if not found
+     */
+    @Override
+    public long getSize(final String id) {
+        File compressedFile = getCompressedResultFile(id);
+        if (compressedFile.isFile() == false){
+            return getResultFile(id).length();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(compressedFile, "r")){
+            if (raf.length() < 4){
+                return raf.length();
+            }
+            raf.seek(raf.length() - 4);
+            return Integer.toUnsignedLong(Integer.reverseBytes(raf.readInt()));
+        } catch(IOException io){
+            return compressedFile.length();
+        }
+    }
+
+    /**
+     * Gets last modified time of result file
+     * @param id id of task
+     * @return milliseconds since epoch or 0 if not found
+     */
+    @Override
+    public long getStoredTime(final String id) {
+        File compressedFile = getCompressedResultFile(id);
+        if (compressedFile.isFile()){
+            return compressedFile.lastModified();
+        }
+        return getResultFile(id).lastModified();
+    }
+
+    /**
+     * Results are written to the task directory
+     * @return true
+     */
+    @Override
+    public boolean isStoredInTaskDirectory() {
+        return true;
+    }
+
+    /**
+     * Results are only kept in task directories
+     * @return 0
+     */
+    @Override
+    public long getStoreSize() {
+        return 0;
+    }
+
+    /**
+     * Nothing to compact, removed files give back their space
+     */
+    @Override
+    public void compact() {
+    }
+
+    /**
+     * Removes result and status files leaving the rest of the task
+     * directory alone
+     * @param id id of task
+     * @return true if result was removed
+     */
+    @Override
+    public boolean delete(final String id) {
+        getStatusFile(id).delete();
+        boolean removed = getCompressedResultFile(id).delete();
+        return getResultFile(id).delete() || removed;
+    }
+
+    @Override
+    public List<String> list() {
+        List<String> ids = new ArrayList<>();
+        File[] taskDirs = new File(_taskDir).listFiles((File f) -> f.isDirectory());
+        if (taskDirs == null){
+            return ids;
+        }
+        for (File taskDir : taskDirs){
+            if (contains(taskDir.getName())){
+                ids.add(taskDir.getName());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Nothing to release
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,210 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ResultStore} that keeps all results in a single file using the
+ * embedded <a href="https://www.h2database.com/html/mvstore.html">MVStore</a>
+ * key value store. Results and their statuses are stored as json in
+ * separate maps keyed by task id, along with the size of each result and
+ * the time it was stored so neither requires loading the result. This
+ * replaces the result file of each task, the task directory holding the
+ * input data and algorithm output is only needed until the result is
+ * stored. Since results are not kept in files
+ * {@link #getFile(java.lang.String, boolean)} always returns {@code null}
+ * and results are parsed when requested.
+ *
+ * @author churas
+ */
+public class MVStoreResultStore implements ResultStore {
+
+    static Logger _logger = LoggerFactory.getLogger(MVStoreResultStore.class);
+
+    /**
+     * Default name of store file created under task directory
+     */
+    public static final String RESULT_STORE_FILE = "resultstore.mv.db";
+
+    private static final String RESULTS_MAP = "results";
+    private static final String STATUSES_MAP = "statuses";
+    private static final String SIZES_MAP = "sizes";
+    private static final String STORED_TIMES_MAP = "storedtimes";
+
+    private final File _storeFile;
+    private final MVStore _store;
+    private final MVMap<String, byte[]> _results;
+    private final MVMap<String, byte[]> _statuses;
+    private final MVMap<String, Long> _sizes;
+    private final MVMap<String, Long> _storedTimes;
+    private final ObjectMapper _mapper;
+
+    /**
+     * Constructor that opens, or creates, store in {@code storeFile}
+     * @param storeFile file holding results
+     */
+    public MVStoreResultStore(final File storeFile){
+        _logger.info("Opening result store " + storeFile.getAbsolutePath());
+        _storeFile = storeFile;
+        _store = new MVStore.Builder().fileName(storeFile.getAbsolutePath())
+                .compress().open();
+        _results = _store.openMap(RESULTS_MAP);
+        _statuses = _store.openMap(STATUSES_MAP);
+        _sizes = _store.openMap(SIZES_MAP);
+        _storedTimes = _store.openMap(STORED_TIMES_MAP);
+        _mapper = new ObjectMapper();
+    }
+
+    /**
+     * Stores result and then its status, size and time stored and
+     * commits the change
+     * @param cdr result to store
+     * @throws IOException if there is an error converting result to json
+     */
+    @Override
+    public void put(final CommunityDetectionResult cdr) throws IOException {
+        byte[] result = _mapper.writeValueAsBytes(cdr);
+        byte[] status = _mapper.writeValueAsBytes(new CommunityDetectionResultStatus(cdr));
+        _results.put(cdr.getId(), result);
+        _statuses.put(cdr.getId(), status);
+        _sizes.put(cdr.getId(), (long)result.length);
+        _storedTimes.put(cdr.getId(), System.currentTimeMillis());
+        _store.commit();
+    }
+
+    @Override
+    public CommunityDetectionResult get(final String id) throws IOException {
+        byte[] result = _results.get(id);
+        if (result == null){
+            return null;
+        }
+        return _mapper.readValue(result, CommunityDetectionResult.class);
+    }
+
+    /**
+     * Results are kept in the store file so they are never
+     * available in a file of their own
+     * @param id id of task
+     * @param compressed ignored
+     * @return {@code null}
+     */
+    @Override
+    public File getFile(final String id, boolean compressed) {
+        return null;
+    }
+
+    @Override
+    public CommunityDetectionResultStatus getStatus(final String id) throws IOException {
+        byte[] status = _statuses.get(id);
+        if (status == null){
+            return null;
+        }
+        return _mapper.readValue(status, CommunityDetectionResultStatus.class);
+    }
+
+    @Override
+    public boolean contains(final String id) {
+        return _results.containsKey(id);
+    }
+
+    /**
+     * Gets size of json of result without loading the result. Only
+     * results stored before sizes were recorded are loaded to measure them
+     * @param id id of task
+     * @return size in bytes or 0 if not found
+     */
+    @Override
+    public long getSize(final String id) {
+        Long size = _sizes.get(id);
+        if (size != null){
+            return size;
+        }
+        byte[] result = _results.get(id);
+        if (result == null){
+            return 0;
+        }
+        return result.length;
+    }
+
+    /**
+     * Gets time result was stored. Results stored before times were
+     * recorded are given the time they are first asked about
+     * @param id id of task
+     * @return milliseconds since epoch or 0 if not found
+     */
+    @Override
+    public long getStoredTime(final String id) {
+        Long storedTime = _storedTimes.get(id);
+        if (storedTime != null){
+            return storedTime;
+        }
+        if (_results.containsKey(id) == false){
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        storedTime = _storedTimes.putIfAbsent(id, now);
+        return storedTime == null ? now : storedTime;
+    }
+
+    /**
+     * Results are kept in the store file
+     * @return false
+     */
+    @Override
+    public boolean isStoredInTaskDirectory() {
+        return false;
+    }
+
+    /**
+     * Gets size of store file
+     * @return size in bytes
+     */
+    @Override
+    public long getStoreSize() {
+        return _storeFile.length();
+    }
+
+    /**
+     * Moves chunks of the store file together so space of removed results
+     * is given back
+     */
+    @Override
+    public void compact() {
+        _store.commit();
+        _store.compactMoveChunks();
+    }
+
+    @Override
+    public boolean delete(final String id) {
+        _statuses.remove(id);
+        _sizes.remove(id);
+        _storedTimes.remove(id);
+        boolean removed = _results.remove(id) != null;
+        _store.commit();
+        return removed;
+    }
+
+    @Override
+    public List<String> list() {
+        return new ArrayList<>(_results.keySet());
+    }
+
+    /**
+     * Commits any changes and closes the store file
+     */
+    @Override
+    public void close() {
+        if (_store.isClosed() == false){
+            _store.close();
+        }
+    }
+}
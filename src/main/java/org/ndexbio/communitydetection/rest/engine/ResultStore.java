@@ -0,0 +1,113 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
+
+/**
+ * Persistent storage of completed and failed
+ * {@link org.ndexbio.communitydetection.rest.model.CommunityDetectionResult}
+ * objects keyed by task id. Along with each result a small status is
+ * stored so status requests do not need to load the result.
+ *
+ * @author churas
+ */
+public interface ResultStore {
+
+    /**
+     * Stores {@code cdr} under its id replacing any existing result
+     * @param cdr result to store
+     * @throws IOException if there is an error storing the result
+     */
+    public void put(final CommunityDetectionResult cdr) throws IOException;
+
+    /**
+     * Gets result of task with {@code id}
+     * @param id id of task
+     * @return result or {@code null} if not found
+     * @throws IOException if there is an error loading the result
+     */
+    public CommunityDetectionResult get(final String id) throws IOException;
+
+    /**
+     * Gets file holding json of result of task with {@code id} so it can
+     * be sent to clients without parsing it
+     * @param id id of task
+     * @param compressed if true get file holding gzip compressed json
+     * @return file or {@code null} if result is not found or is not
+     *         stored in a file in the requested form
+     */
+    public File getFile(final String id, boolean compressed);
+
+    /**
+     * Gets status of result of task with {@code id} without loading
+     * the result
+     * @param id id of task
+     * @return status or {@code null} if not found
+     * @throws IOException if there is an error loading the status
+     */
+    public CommunityDetectionResultStatus getStatus(final String id) throws IOException;
+
+    /**
+     * Denotes whether a result exists for task with {@code id}
+     * @param id id of task
+     * @return true if result exists
+     */
+    public boolean contains(final String id);
+
+    /**
+     * Gets size of stored result of task with {@code id}
+     * @param id id of task
+     * @return size in bytes or 0 if not found
+     */
+    public long getSize(final String id);
+
+    /**
+     * Gets time result of task with {@code id} was stored
+     * @param id id of task
+     * @return milliseconds since epoch or 0 if not found
+     */
+    public long getStoredTime(final String id);
+
+    /**
+     * Denotes whether results are kept in the directory of each task. If
+     * not, the task directory of a completed task can be removed once its
+     * result is stored
+     * @return true if results are kept in task directories
+     */
+    public boolean isStoredInTaskDirectory();
+
+    /**
+     * Gets size of storage used by this store outside of the task directories
+     * @return size in bytes
+     */
+    public long getStoreSize();
+
+    /**
+     * Gives back space freed by removed results if this store does not do
+     * so on its own
+     */
+    public void compact();
+
+    /**
+     * Removes result of task with {@code id}
+     * @param id id of task
+     * @return true if a result was removed
+     * @throws IOException if there is an error removing the result
+     */
+    public boolean delete(final String id) throws IOException;
+
+    /**
+     * Gets ids of all stored results
+     * @return ids of tasks with results
+     * @throws IOException if there is an error listing results
+     */
+    public List<String> list() throws IOException;
+
+    /**
+     * Releases any resources held by this store
+     */
+    public void close();
+}
@@ -0,0 +1,233 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes task directories of finished tasks from the task directory so it
+ * does not grow without bound. A sweep first removes directories older than
+ * the maximum age and then, if the task directories still use more than the
+ * maximum total size, removes the oldest directories until the total size
+ * drops below the low watermark percentage of the maximum. The last modified
+ * time of a task directory is used as its age since the result is the last
+ * file written to it.
+ *
+ * A sweep can run while tasks are submitted and finish, directories that
+ * change after they are listed are left for a later sweep.
+ *
+ * Only directories are considered so files such as the task journal and
+ * the result store are never removed. The result cache directory is
+ * skipped as it manages its own size, as is the batch directory whose
+ * contents are removed once each batch finishes.
+ *
+ * If a {@link ResultStore} that does not keep results in the task directories
+ * is passed to {@link #sweep(java.util.function.Predicate, java.util.function.Consumer, org.ndexbio.communitydetection.rest.engine.ResultStore) }
+ * the size of the store counts toward the maximum total size, and results
+ * whose task directory was already removed are aged by the time they were
+ * stored and removed from the store like task directories.
+ *
+ * @author churas
+ */
+public class TaskDirectoryGarbageCollector {
+
+    static Logger _logger = LoggerFactory.getLogger(TaskDirectoryGarbageCollector.class);
+
+    /**
+     * Default percentage of maximum total size that a sweep reduces the
+     * task directories to once the maximum is exceeded
+     */
+    public static final int DEFAULT_LOW_WATERMARK_PERCENT = 80;
+
+    /**
+     * Task directory, or stored result without a task directory,
+     * found during a sweep
+     */
+    private static class TaskDirectory {
+        final String id;
+        final File dir;
+        final long lastModified;
+        final long sizeBytes;
+
+        TaskDirectory(final File dir){
+            this.id = dir.getName();
+            this.dir = dir;
+            this.lastModified = dir.lastModified();
+            this.sizeBytes = FileUtils.sizeOfDirectory(dir);
+        }
+
+        TaskDirectory(final String id, long storedTime, long sizeBytes){
+            this.id = id;
+            this.dir = null;
+            this.lastModified = storedTime;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+
+    private final File _taskDir;
+    private final long _maxAgeMillis;
+    private final long _maxBytes;
+    private final int _lowWatermarkPercent;
+    private final AtomicLong _reclaimedBytes;
+    private final AtomicLong _evictions;
+
+    /**
+     * Constructor
+     * @param taskDir base directory for tasks
+     * @param maxAgeMillis task directories older than this are removed,
+     *                     0 or less disables removal by age
+     * @param maxBytes maximum total size of task directories,
+     *                 0 or less disables removal by size
+     * @param lowWatermarkPercent percentage of {@code maxBytes} to reduce
+     *                            task directories to once {@code maxBytes}
+     *                            is exceeded. Values outside of 0 to 100
+     *                            are set to {@link #DEFAULT_LOW_WATERMARK_PERCENT}
+     */
+    public TaskDirectoryGarbageCollector(final File taskDir, long maxAgeMillis,
+            long maxBytes, int lowWatermarkPercent){
+        _taskDir = taskDir;
+        _maxAgeMillis = maxAgeMillis;
+        _maxBytes = maxBytes;
+        if (lowWatermarkPercent < 0 || lowWatermarkPercent > 100){
+            _lowWatermarkPercent = DEFAULT_LOW_WATERMARK_PERCENT;
+        } else {
+            _lowWatermarkPercent = lowWatermarkPercent;
+        }
+        _reclaimedBytes = new AtomicLong(0);
+        _evictions = new AtomicLong(0);
+    }
+
+    /**
+     * Removes task directories that are too old or that push the total
+     * size over the maximum, oldest first. Tasks for which {@code isActive}
+     * returns true are never removed, but do count toward the total size.
+     * {@code evictTask} is invoked before each directory is removed so
+     * the caller can forget about the task
+     * @param isActive returns true if task with given id is queued or running
+     * @param evictTask invoked with id of task about to be removed
+     * @return number of task directories removed
+     */
+    public int sweep(final Predicate<String> isActive, final Consumer<String> evictTask){
+        return sweep(isActive, evictTask, null);
+    }
+
+    /**
+     * Same as {@link #sweep(java.util.function.Predicate, java.util.function.Consumer) }
+     * but, if {@code resultStore} does not keep results in the task directories,
+     * also counts the size of {@code resultStore} toward the maximum total size
+     * and removes results whose task directory no longer exists, oldest first.
+     * {@code evictTask} is expected to remove the result from {@code resultStore}
+     * @param isActive returns true if task with given id is queued or running
+     * @param evictTask invoked with id of task about to be removed
+     * @param resultStore store of results, can be {@code null}
+     * @return number of task directories and stored results removed
+     */
+    public int sweep(final Predicate<String> isActive, final Consumer<String> evictTask,
+            final ResultStore resultStore){
+        File[] dirs = _taskDir.listFiles((File f) -> f.isDirectory()
+                && CommunityDetectionEngineImpl.RESULT_CACHE_DIR.equals(f.getName()) == false
+                && CommunityDetectionEngineImpl.BATCH_DIR.equals(f.getName()) == false);
+        if (dirs == null){
+            return 0;
+        }
+        List<TaskDirectory> taskDirs = new ArrayList<>();
+        Set<String> dirIds = new HashSet<>();
+        long totalBytes = 0;
+        for (File dir : dirs){
+            TaskDirectory td = new TaskDirectory(dir);
+            taskDirs.add(td);
+            dirIds.add(td.id);
+            totalBytes += td.sizeBytes;
+        }
+        if (resultStore != null && resultStore.isStoredInTaskDirectory() == false){
+            totalBytes += resultStore.getStoreSize();
+            try {
+                for (String id : resultStore.list()){
+                    if (dirIds.contains(id) == false){
+                        taskDirs.add(new TaskDirectory(id, resultStore.getStoredTime(id),
+                                resultStore.getSize(id)));
+                    }
+                }
+            } catch(IOException io){
+                _logger.error("Unable to list stored results", io);
+            }
+        }
+        taskDirs.sort(Comparator.comparingLong((TaskDirectory td) -> td.lastModified));
+
+        long oldestAllowed = _maxAgeMillis > 0 ? System.currentTimeMillis() - _maxAgeMillis : Long.MIN_VALUE;
+        long targetBytes = Long.MAX_VALUE;
+        if (_maxBytes > 0 && totalBytes > _maxBytes){
+            targetBytes = _maxBytes * _lowWatermarkPercent / 100;
+        }
+        int removed = 0;
+        int removedResults = 0;
+        for (TaskDirectory td : taskDirs){
+            if (td.lastModified >= oldestAllowed && totalBytes <= targetBytes){
+                break;
+            }
+            String id = td.id;
+            if (isActive.test(id)){
+                continue;
+            }
+            if (td.dir == null){
+                // stored result whose task directory was already removed
+                evictTask.accept(id);
+                totalBytes -= td.sizeBytes;
+                _reclaimedBytes.addAndGet(td.sizeBytes);
+                _evictions.incrementAndGet();
+                removed++;
+                removedResults++;
+                continue;
+            }
+            // sweeps run while tasks finish so skip directories written
+            // to since they were listed, such as a task saving its result
+            if (td.dir.lastModified() != td.lastModified){
+                continue;
+            }
+            evictTask.accept(id);
+            if (FileUtils.deleteQuietly(td.dir) == false){
+                _logger.error("Unable to remove task directory: " + td.dir.getAbsolutePath());
+                continue;
+            }
+            totalBytes -= td.sizeBytes;
+            _reclaimedBytes.addAndGet(td.sizeBytes);
+            _evictions.incrementAndGet();
+            removed++;
+        }
+        if (removedResults > 0){
+            // space of removed results is only given back once compacted
+            resultStore.compact();
+        }
+        if (removed > 0){
+            _logger.info("Removed " + Integer.toString(removed) + " task directories and stored results, "
+                    + Long.toString(totalBytes) + " bytes remain in task directories");
+        }
+        return removed;
+    }
+
+    /**
+     * Gets total size of task directories removed
+     * @return size in bytes
+     */
+    public long getReclaimedBytes(){
+        return _reclaimedBytes.get();
+    }
+
+    /**
+     * Gets number of task directories removed
+     * @return number of removed task directories
+     */
+    public long getEvictions(){
+        return _evictions.get();
+    }
+}
@@ -0,0 +1,21 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
+
+/**
+ * Receives lifecycle events of a task such as when it starts processing
+ * and when it completes or fails. Listeners are invoked on the thread that
+ * changed the state of the task so implementations should return quickly.
+ *
+ * @author churas
+ */
+@FunctionalInterface
+public interface TaskEventListener {
+
+    /**
+     * Invoked when status of task changes
+     * @param id id of task
+     * @param status new status of task or {@code null} if task was deleted
+     */
+    public void taskEvent(final String id, final CommunityDetectionResultStatus status);
+}
@@ -0,0 +1,305 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only journal of task state changes stored as one json
+ * {@link TaskJournalRecord} per line. Tasks that were submitted but never
+ * finished or deleted are pending and can be queued again after a restart.
+ * 
+ * Once the number of records written since the journal was last compacted
+ * exceeds the compaction threshold, the journal is rewritten with only the
+ * records of pending tasks.
+ * 
+ * @author churas
+ */
+public class TaskJournal {
+    
+    static Logger _logger = LoggerFactory.getLogger(TaskJournal.class);
+    
+    /**
+     * Name of journal file under task directory
+     */
+    public static final String TASK_JOURNAL_FILE = "taskjournal.log";
+    
+    /**
+     * Default number of records written before journal is compacted
+     */
+    public static final int DEFAULT_COMPACT_THRESHOLD = 1000;
+    
+    private final File _journalFile;
+    private final int _compactThreshold;
+    private final ObjectMapper _mapper;
+    
+    /**
+     * Map of task id to submitted record for tasks that have not finished
+     */
+    private final LinkedHashMap<String, TaskJournalRecord> _pending;
+    
+    /**
+     * Ids of pending tasks that have started running
+     */
+    private final Set<String> _started;
+    private int _recordsSinceCompaction;
+    private BufferedWriter _writer;
+    
+    /**
+     * Constructor that loads and compacts existing journal
+     * @param journalFile journal file, created if it does not exist
+     * @param compactThreshold number of records written before journal is compacted
+     * @throws IOException if journal cannot be read or written
+     */
+    public TaskJournal(final File journalFile, int compactThreshold) throws IOException {
+        _journalFile = journalFile;
+        _compactThreshold = compactThreshold;
+        _mapper = new ObjectMapper();
+        _mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        _pending = new LinkedHashMap<>();
+        _started = new HashSet<>();
+        load();
+        compact();
+    }
+    
+    /**
+     * Reads records from journal file skipping any that cannot be parsed,
+     * such as a partially written last line
+     * @throws IOException if there is an error reading the file
+     */
+    private void load() throws IOException {
+        if (_journalFile.isFile() == false){
+            return;
+        }
+        int lineNum = 0;
+        try (BufferedReader br = Files.newBufferedReader(_journalFile.toPath(),
+                StandardCharsets.UTF_8)){
+            String line;
+            while ((line = br.readLine()) != null){
+                lineNum++;
+                if (line.trim().isEmpty()){
+                    continue;
+                }
+                try {
+                    applyRecord(_mapper.readValue(line, TaskJournalRecord.class));
+                } catch(IOException io){
+                    _logger.warn("Skipping invalid record on line " + Integer.toString(lineNum)
+                            + " of " + _journalFile.getAbsolutePath() + " : " + io.getMessage());
+                }
+            }
+        }
+        _logger.info("Loaded " + Integer.toString(lineNum) + " records from "
+                + _journalFile.getAbsolutePath() + " with " 
+                + Integer.toString(_pending.size()) + " pending tasks");
+    }
+    
+    /**
+     * Updates pending tasks with {@code record}
+     * @param record the record
+     */
+    private void applyRecord(final TaskJournalRecord record){
+        if (record == null || record.getId() == null || record.getType() == null){
+            return;
+        }
+        switch (record.getType()){
+            case TaskJournalRecord.SUBMITTED:
+                _pending.put(record.getId(), record);
+                break;
+            case TaskJournalRecord.STARTED:
+                if (_pending.containsKey(record.getId())){
+                    _started.add(record.getId());
+                }
+                break;
+            case TaskJournalRecord.FINISHED:
+            case TaskJournalRecord.DELETED:
+                _pending.remove(record.getId());
+                _started.remove(record.getId());
+                break;
+            default:
+                _logger.warn("Ignoring record with unknown type: " + record.getType());
+        }
+    }
+    
+    /**
+     * Records that task was accepted
+     * @param id id of task
+     * @param algorithm name of algorithm
+     * @param customParameters custom parameters of request
+     * @param requestHash hash of request, can be {@code null}
+     * @param primaryId id of task whose execution this task shares or
+     *                  {@code null} if task has its own execution
+     */
+    public synchronized void submitted(final String id, final String algorithm,
+            final Map<String, String> customParameters, final String requestHash,
+            final String primaryId){
+        submitted(id, algorithm, customParameters, requestHash, primaryId, null);
+    }
+    
+    /**
+     * Records that task was accepted, replacing any pending record
+     * of the task
+     * @param id id of task
+     * @param algorithm name of algorithm
+     * @param customParameters custom parameters of request
+     * @param requestHash hash of request, can be {@code null}
+     * @param primaryId id of task whose execution this task shares or
+     *                  {@code null} if task has its own execution
+     * @param inputId id of task whose directory holds the input data or
+     *                {@code null} if it is in the directory of this task
+     */
+    public synchronized void submitted(final String id, final String algorithm,
+            final Map<String, String> customParameters, final String requestHash,
+            final String primaryId, final String inputId){
+        TaskJournalRecord record = createRecord(TaskJournalRecord.SUBMITTED, id);
+        record.setAlgorithm(algorithm);
+        record.setCustomParameters(customParameters);
+        record.setRequestHash(requestHash);
+        record.setPrimaryId(primaryId);
+        record.setInputId(inputId);
+        append(record);
+    }
+    
+    /**
+     * Records that task started running
+     * @param id id of task
+     */
+    public synchronized void started(final String id){
+        append(createRecord(TaskJournalRecord.STARTED, id));
+    }
+    
+    /**
+     * Records that result of task was saved
+     * @param id id of task
+     */
+    public synchronized void finished(final String id){
+        append(createRecord(TaskJournalRecord.FINISHED, id));
+    }
+    
+    /**
+     * Records that task was deleted
+     * @param id id of task
+     */
+    public synchronized void deleted(final String id){
+        append(createRecord(TaskJournalRecord.DELETED, id));
+    }
+    
+    private TaskJournalRecord createRecord(final String type, final String id){
+        TaskJournalRecord record = new TaskJournalRecord();
+        record.setType(type);
+        record.setId(id);
+        record.setTime(System.currentTimeMillis());
+        return record;
+    }
+    
+    /**
+     * Applies {@code record} and writes it to the journal compacting the
+     * journal if needed
+     * @param record record to write
+     */
+    private void append(final TaskJournalRecord record){
+        applyRecord(record);
+        if (_writer == null){
+            _logger.error("Journal is not open, unable to write record for task "
+                    + record.getId());
+            return;
+        }
+        try {
+            writeRecord(_writer, record);
+            _writer.flush();
+            _recordsSinceCompaction++;
+            if (_recordsSinceCompaction >= Math.max(_compactThreshold, _pending.size() * 2)){
+                compact();
+            }
+        } catch(IOException io){
+            _logger.error("Unable to write record for task " + record.getId()
+                    + " to " + _journalFile.getAbsolutePath(), io);
+        }
+    }
+    
+    private void writeRecord(BufferedWriter writer, final TaskJournalRecord record) throws IOException {
+        writer.write(_mapper.writeValueAsString(record));
+        writer.newLine();
+    }
+    
+    /**
+     * Rewrites journal so it only contains records of pending tasks
+     * @throws IOException if there is an error writing the journal
+     */
+    public synchronized void compact() throws IOException {
+        close();
+        File tmpFile = new File(_journalFile.getAbsolutePath() + ".tmp");
+        try (BufferedWriter bw = Files.newBufferedWriter(tmpFile.toPath(),
+                StandardCharsets.UTF_8)){
+            for (TaskJournalRecord record : _pending.values()){
+                writeRecord(bw, record);
+                if (_started.contains(record.getId())){
+                    writeRecord(bw, createRecord(TaskJournalRecord.STARTED, record.getId()));
+                }
+            }
+        }
+        Files.move(tmpFile.toPath(), _journalFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        _writer = Files.newBufferedWriter(_journalFile.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        _recordsSinceCompaction = 0;
+        _logger.debug("Compacted " + _journalFile.getAbsolutePath() + " to "
+                + Integer.toString(_pending.size()) + " pending tasks");
+    }
+    
+    /**
+     * Gets submitted records of tasks that have not finished or been
+     * deleted in the order they were submitted
+     * @return list of records
+     */
+    public synchronized List<TaskJournalRecord> getPendingTasks(){
+        return new ArrayList<>(_pending.values());
+    }
+    
+    /**
+     * Gets submitted record of pending task with {@code id}
+     * @param id id of task
+     * @return record or {@code null} if task is not pending
+     */
+    public synchronized TaskJournalRecord getPendingTask(final String id){
+        return _pending.get(id);
+    }
+    
+    /**
+     * Denotes whether pending task with {@code id} had started running
+     * @param id id of task
+     * @return true if task had started
+     */
+    public synchronized boolean isStarted(final String id){
+        return _started.contains(id);
+    }
+    
+    /**
+     * Closes journal file, any further records are not written
+     */
+    public synchronized void close(){
+        if (_writer == null){
+            return;
+        }
+        try {
+            _writer.close();
+        } catch(IOException io){
+            _logger.error("Error closing " + _journalFile.getAbsolutePath(), io);
+        }
+        _writer = null;
+    }
+}
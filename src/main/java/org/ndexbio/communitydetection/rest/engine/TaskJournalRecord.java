@@ -0,0 +1,141 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.util.Map;
+
+/**
+ * Single entry in the {@link TaskJournal}
+ * 
+ * @author churas
+ */
+public class TaskJournalRecord {
+    
+    /**
+     * Task was accepted and queued
+     */
+    public static final String SUBMITTED = "submitted";
+    
+    /**
+     * Task started running
+     */
+    public static final String STARTED = "started";
+    
+    /**
+     * Task result was saved
+     */
+    public static final String FINISHED = "finished";
+    
+    /**
+     * Task was deleted before it finished
+     */
+    public static final String DELETED = "deleted";
+    
+    private String _type;
+    private String _id;
+    private long _time;
+    private String _algorithm;
+    private Map<String, String> _customParameters;
+    private String _requestHash;
+    private String _primaryId;
+    private String _inputId;
+
+    /**
+     * Gets type of record which is one of {@link #SUBMITTED}, {@link #STARTED},
+     * {@link #FINISHED}, or {@link #DELETED}
+     * @return type of record
+     */
+    public String getType() {
+        return _type;
+    }
+
+    public void setType(String type) {
+        _type = type;
+    }
+
+    /**
+     * Gets id of task
+     * @return id of task
+     */
+    public String getId() {
+        return _id;
+    }
+
+    public void setId(String id) {
+        _id = id;
+    }
+
+    /**
+     * Gets time record was created
+     * @return time in milliseconds since epoch
+     */
+    public long getTime() {
+        return _time;
+    }
+
+    public void setTime(long time) {
+        _time = time;
+    }
+
+    /**
+     * Gets name of algorithm, only set for {@link #SUBMITTED} records
+     * @return name of algorithm
+     */
+    public String getAlgorithm() {
+        return _algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        _algorithm = algorithm;
+    }
+
+    /**
+     * Gets custom parameters of request, only set for {@link #SUBMITTED} records
+     * @return custom parameters
+     */
+    public Map<String, String> getCustomParameters() {
+        return _customParameters;
+    }
+
+    public void setCustomParameters(Map<String, String> customParameters) {
+        _customParameters = customParameters;
+    }
+
+    /**
+     * Gets hash of request, only set for {@link #SUBMITTED} records
+     * @return hash of request or {@code null}
+     */
+    public String getRequestHash() {
+        return _requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        _requestHash = requestHash;
+    }
+
+    /**
+     * Gets id of task whose execution is shared by this task if this task
+     * was coalesced with an identical request
+     * @return id of task or {@code null} if this task has its own execution
+     */
+    public String getPrimaryId() {
+        return _primaryId;
+    }
+
+    public void setPrimaryId(String primaryId) {
+        _primaryId = primaryId;
+    }
+
+    /**
+     * Gets id of task whose directory holds the input data of this task. 
+     * This is set when a request sharing an execution took over the
+     * execution after the request that created it was deleted
+     * @return id of task or {@code null} if the input data is in the
+     *         directory of this task
+     */
+    public String getInputId() {
+        return _inputId;
+    }
+
+    public void setInputId(String inputId) {
+        _inputId = inputId;
+    }
+}
@@ -0,0 +1,196 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.ndexbio.communitydetection.rest.engine.util.DockerCommunityDetectionRunner;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads progress reported by running algorithms. An algorithm reports
+ * progress by appending lines to
+ * {@link org.ndexbio.communitydetection.rest.engine.util.DockerCommunityDetectionRunner#PROGRESS_FILE}
+ * in the same directory as its input file. Each line is of the form:
+ *
+ * <pre>
+ * &lt;percent complete&gt; [message]
+ * </pre>
+ *
+ * Only the last complete line is used. The file is only read when its
+ * size or last modified time changes and only the tail of the file is read.
+ *
+ * This class is not thread safe and is meant to be used by the
+ * {@link CommunityDetectionEngineImpl} thread
+ *
+ * @author churas
+ */
+public class TaskProgressMonitor {
+
+    static Logger _logger = LoggerFactory.getLogger(TaskProgressMonitor.class);
+
+    /**
+     * Highest progress that can be reported by a running algorithm, 100
+     * is only set when the task finishes
+     */
+    public static final int MAX_PROGRESS = 99;
+
+    /**
+     * Number of bytes read from end of progress file
+     */
+    public static final int TAIL_BYTES = 1024;
+
+    private final String _taskDir;
+    private final Map<String, ProgressEntry> _entries;
+
+    /**
+     * Last progress read from the progress file of a task
+     */
+    private static class ProgressEntry {
+        long lastModified;
+        long length;
+        int progress;
+        String message;
+    }
+
+    /**
+     * Constructor
+     * @param taskDir base directory for tasks
+     */
+    public TaskProgressMonitor(final String taskDir){
+        _taskDir = taskDir;
+        _entries = new HashMap<>();
+    }
+
+    /**
+     * Updates progress and, if reported, message of {@code cdr} with the
+     * latest progress reported by task with {@code taskId}
+     * @param taskId id of task whose directory contains the progress file
+     * @param cdr result to update
+     * @return true if {@code cdr} was changed
+     */
+    public boolean updateProgress(final String taskId, CommunityDetectionResult cdr){
+        ProgressEntry entry = readProgress(taskId);
+        if (entry == null){
+            return false;
+        }
+        boolean updated = false;
+        if (entry.progress != cdr.getProgress()){
+            cdr.setProgress(entry.progress);
+            updated = true;
+        }
+        if (entry.message != null && Objects.equals(entry.message, cdr.getMessage()) == false){
+            cdr.setMessage(entry.message);
+            updated = true;
+        }
+        return updated;
+    }
+
+    /**
+     * Forgets progress of task with {@code taskId}, should be invoked once
+     * task is done
+     * @param taskId id of task
+     */
+    public void remove(final String taskId){
+        _entries.remove(taskId);
+    }
+
+    /**
+     * Gets latest progress of task, reading the progress file only if
+     * it changed since the last read
+     * @param taskId id of task
+     * @return progress or {@code null} if none has been reported
+     */
+    private ProgressEntry readProgress(final String taskId){
+        File progressFile = new File(_taskDir + File.separator + taskId
+                + File.separator + DockerCommunityDetectionRunner.PROGRESS_FILE);
+        long lastModified = progressFile.lastModified();
+        if (lastModified == 0L){
+            _entries.remove(taskId);
+            return null;
+        }
+        long length = progressFile.length();
+        ProgressEntry entry = _entries.get(taskId);
+        if (entry != null && entry.lastModified == lastModified && entry.length == length){
+            return entry;
+        }
+        String line;
+        try {
+            line = readLastLine(progressFile, length);
+        } catch(IOException io){
+            _logger.debug("Unable to read " + progressFile.getAbsolutePath()
+                    + " : " + io.getMessage());
+            return entry;
+        }
+        if (line == null){
+            return entry;
+        }
+        ProgressEntry updated = parseLine(line);
+        if (updated == null){
+            _logger.debug("Ignoring invalid progress for task " + taskId + " : " + line);
+            return entry;
+        }
+        updated.lastModified = lastModified;
+        updated.length = length;
+        _entries.put(taskId, updated);
+        return updated;
+    }
+
+    /**
+     * Reads last newline terminated, non empty line of {@code progressFile}
+     * looking only at the last {@link #TAIL_BYTES} bytes
+     * @param progressFile file to read
+     * @param length length of file
+     * @return last line or {@code null} if none found
+     * @throws IOException if there is an error reading
+     */
+    private String readLastLine(File progressFile, long length) throws IOException {
+        int numBytes = (int)Math.min(length, TAIL_BYTES);
+        byte[] buffer = new byte[numBytes];
+        try (RandomAccessFile raf = new RandomAccessFile(progressFile, "r")){
+            raf.seek(length - numBytes);
+            raf.readFully(buffer);
+        }
+        String tail = new String(buffer, StandardCharsets.UTF_8);
+
+        // anything after last newline may still be being written
+        int end = tail.lastIndexOf('\n');
+        while (end > 0){
+            int start = tail.lastIndexOf('\n', end - 1) + 1;
+            String line = tail.substring(start, end).trim();
+            if (line.isEmpty() == false){
+                return line;
+            }
+            end = start - 1;
+        }
+        return null;
+    }
+
+    /**
+     * Parses line of the form &lt;percent complete&gt; [message]
+     * @param line line to parse
+     * @return parsed progress or {@code null} if line is invalid
+     */
+    private ProgressEntry parseLine(final String line){
+        String[] split = line.split("\\s+", 2);
+        ProgressEntry entry = new ProgressEntry();
+        try {
+            double progress = Double.parseDouble(split[0]);
+            if (Double.isNaN(progress)){
+                return null;
+            }
+            entry.progress = (int)Math.max(0, Math.min(MAX_PROGRESS, progress));
+        } catch(NumberFormatException nfe){
+            return null;
+        }
+        if (split.length > 1){
+            entry.message = split[1];
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,118 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates how long a task will take to run by keeping an exponentially
+ * weighted moving average of wall times of completed tasks for each algorithm.
+ * Tasks are grouped by size of input where each group covers a power of 2
+ * range of bytes. If no history exists for the size group of a task, the
+ * closest group with history is used and linearly scaled by the difference
+ * in size.
+ * 
+ * @author churas
+ */
+public class TaskRuntimeEstimator {
+    
+    /**
+     * Value returned by {@link #estimateWallTime(java.lang.String, long) } 
+     * when no estimate can be made
+     */
+    public static final long UNKNOWN = -1;
+    
+    /**
+     * Default weight given to most recent wall time
+     */
+    public static final double DEFAULT_SMOOTHING = 0.3;
+    
+    private final double _smoothing;
+    
+    /**
+     * Map of algorithm name to map of size group to estimated wall time in ms
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Integer, Double>> _history;
+
+    /**
+     * Constructor using {@link #DEFAULT_SMOOTHING}
+     */
+    public TaskRuntimeEstimator(){
+        this(DEFAULT_SMOOTHING);
+    }
+    
+    /**
+     * Constructor
+     * @param smoothing weight between 0 and 1 given to most recent wall time
+     */
+    public TaskRuntimeEstimator(double smoothing){
+        if (smoothing <= 0 || smoothing > 1){
+            _smoothing = DEFAULT_SMOOTHING;
+        } else {
+            _smoothing = smoothing;
+        }
+        _history = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Gets size group for {@code inputBytes} which is the number of bits
+     * needed to represent the value
+     * @param inputBytes size of input in bytes
+     * @return size group
+     */
+    protected static int getSizeGroup(long inputBytes){
+        if (inputBytes <= 0){
+            return 0;
+        }
+        return 64 - Long.numberOfLeadingZeros(inputBytes);
+    }
+    
+    /**
+     * Adds wall time of a completed task to the history
+     * @param algorithm name of algorithm
+     * @param inputBytes size of input in bytes
+     * @param wallTime wall time of task in milliseconds
+     */
+    public void recordWallTime(final String algorithm, long inputBytes, long wallTime){
+        if (algorithm == null || wallTime < 0){
+            return;
+        }
+        Map<Integer, Double> algoHistory = _history.computeIfAbsent(algorithm,
+                (String k) -> new ConcurrentHashMap<>());
+        algoHistory.merge(getSizeGroup(inputBytes), (double)wallTime,
+                (Double oldVal, Double newVal) -> (_smoothing * newVal) + ((1.0 - _smoothing) * oldVal));
+    }
+    
+    /**
+     * Estimates wall time of a task
+     * @param algorithm name of algorithm
+     * @param inputBytes size of input in bytes
+     * @return estimated wall time in milliseconds or {@link #UNKNOWN} if
+     *         there is no history for {@code algorithm}
+     */
+    public long estimateWallTime(final String algorithm, long inputBytes){
+        if (algorithm == null){
+            return UNKNOWN;
+        }
+        Map<Integer, Double> algoHistory = _history.get(algorithm);
+        if (algoHistory == null || algoHistory.isEmpty()){
+            return UNKNOWN;
+        }
+        int group = getSizeGroup(inputBytes);
+        Double estimate = algoHistory.get(group);
+        if (estimate != null){
+            return Math.round(estimate);
+        }
+        int closestGroup = -1;
+        for (Integer candidate : algoHistory.keySet()){
+            if (closestGroup == -1 ||
+                    Math.abs(candidate - group) < Math.abs(closestGroup - group)){
+                closestGroup = candidate;
+            }
+        }
+        estimate = algoHistory.get(closestGroup);
+        if (estimate == null){
+            return UNKNOWN;
+        }
+        return Math.round(estimate * Math.pow(2, group - closestGroup));
+    }
+}
@@ -0,0 +1,62 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+/**
+ * Status of a pool of workers used to run tasks
+ * @author churas
+ */
+public class WorkerPoolStatus {
+    
+    private int _workers;
+    private int _activeTasks;
+    private int _queuedTasks;
+    private int _queueCapacity;
+
+    /**
+     * Gets number of workers in pool
+     * @return number of workers
+     */
+    public int getWorkers() {
+        return _workers;
+    }
+
+    public void setWorkers(int workers) {
+        _workers = workers;
+    }
+
+    /**
+     * Gets number of tasks currently being run by workers in pool
+     * @return number of running tasks
+     */
+    public int getActiveTasks() {
+        return _activeTasks;
+    }
+
+    public void setActiveTasks(int activeTasks) {
+        _activeTasks = activeTasks;
+    }
+
+    /**
+     * Gets number of tasks waiting for a worker
+     * @return number of waiting tasks
+     */
+    public int getQueuedTasks() {
+        return _queuedTasks;
+    }
+
+    public void setQueuedTasks(int queuedTasks) {
+        _queuedTasks = queuedTasks;
+    }
+
+    /**
+     * Gets number of additional tasks that can be queued before
+     * new tasks are rejected
+     * @return remaining queue capacity or -1 if unbounded
+     */
+    public int getQueueCapacity() {
+        return _queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        _queueCapacity = queueCapacity;
+    }
+}
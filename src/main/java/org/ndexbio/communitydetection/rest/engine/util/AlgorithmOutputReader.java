@@ -0,0 +1,135 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads output of an algorithm into a {@link com.fasterxml.jackson.databind.JsonNode}
+ * based on the {@link org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm#getOutputDataFormat()}
+ * of the algorithm. Text formats are read in a single pass without first
+ * attempting to parse them as json, json formats are parsed directly. Formats
+ * not known to this class are first parsed as json and if that fails
+ * are read as text.
+ *
+ * @author churas
+ */
+public class AlgorithmOutputReader {
+
+    static Logger _logger = LoggerFactory.getLogger(AlgorithmOutputReader.class);
+
+    /**
+     * Text output of community detection algorithms, one line per edge
+     * of the hierarchy
+     */
+    public static final String COMMUNITYDETECTRESULT_FORMAT = "COMMUNITYDETECTRESULT";
+
+    /**
+     * Json output of community detection algorithms
+     */
+    public static final String COMMUNITYDETECTRESULTV2_FORMAT = "COMMUNITYDETECTRESULTV2";
+
+    /**
+     * Json output of functional enrichment algorithms
+     */
+    public static final String MAPPEDTERMJSON_FORMAT = "MAPPEDTERMJSON";
+
+    /**
+     * Json output of diffusion
+     */
+    public static final String CXMATE_OUTPUT_FORMAT = "CXMATE_OUTPUT";
+
+    private static final Set<String> TEXT_FORMATS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(COMMUNITYDETECTRESULT_FORMAT)));
+
+    private static final Set<String> JSON_FORMATS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(COMMUNITYDETECTRESULTV2_FORMAT,
+                    MAPPEDTERMJSON_FORMAT, CXMATE_OUTPUT_FORMAT)));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Reads {@code outFile}
+     * @param outFile output of algorithm
+     * @param outputDataFormat output format of algorithm, can be {@code null}
+     * @return {@link com.fasterxml.jackson.databind.node.TextNode} for text
+     *         output otherwise json parsed from the output
+     * @throws IOException if there is an error reading the file
+     */
+    public static JsonNode read(final File outFile, final String outputDataFormat) throws IOException {
+        String format = outputDataFormat == null ? null : outputDataFormat.toUpperCase();
+        if (format != null && TEXT_FORMATS.contains(format)){
+            return readText(outFile);
+        }
+        if (format != null && JSON_FORMATS.contains(format)){
+            try {
+                return MAPPER.readTree(outFile);
+            } catch(JsonProcessingException jpe){
+                _logger.debug("Output of " + format + " format is not json, storing as string: ", jpe);
+                return readText(outFile);
+            }
+        }
+        try {
+            return MAPPER.readTree(outFile);
+        } catch(JsonParseException jpe){
+            _logger.debug("Received a json parsing error going to try to store result as string: ", jpe);
+            return readText(outFile);
+        }
+    }
+
+    /**
+     * Reads {@code outFile} as UTF-8 text, each line is terminated
+     * with a newline. The file is read in one call and decoded once,
+     * the text is only copied again if its line endings need fixing
+     * @param outFile file to read
+     * @return contents of file
+     * @throws IOException if there is an error reading the file
+     */
+    public static TextNode readText(final File outFile) throws IOException {
+        String text = new String(Files.readAllBytes(outFile.toPath()),
+                StandardCharsets.UTF_8);
+        if (text.isEmpty() || (text.indexOf('\r') == -1
+                && text.charAt(text.length() - 1) == '\n')){
+            return new TextNode(text);
+        }
+        return new TextNode(normalizeLineEndings(text));
+    }
+
+    /**
+     * Replaces \r\n and \r line endings in {@code text} with \n and adds
+     * a trailing \n if missing
+     * @param text text to normalize, must not be empty
+     * @return normalized text
+     */
+    private static String normalizeLineEndings(final String text){
+        StringBuilder sb = new StringBuilder(text.length() + 1);
+        int len = text.length();
+        for (int i = 0; i < len; i++){
+            char c = text.charAt(i);
+            if (c == '\r'){
+                sb.append('\n');
+                if (i + 1 < len && text.charAt(i + 1) == '\n'){
+                    i++;
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        if (sb.charAt(sb.length() - 1) != '\n'){
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
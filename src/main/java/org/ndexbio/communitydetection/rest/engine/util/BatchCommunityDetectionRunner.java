@@ -0,0 +1,137 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs algorithm together with other tasks that have the same custom
+ * parameters via a {@link TaskBatcher}. A task that ends up in a batch
+ * by itself is run the same way {@link DockerCommunityDetectionRunner} does.
+ *
+ * @author churas
+ */
+public class BatchCommunityDetectionRunner extends DockerCommunityDetectionRunner {
+
+    static Logger _logger = LoggerFactory.getLogger(BatchCommunityDetectionRunner.class);
+
+    private final TaskBatcher _batcher;
+
+    /**
+     * Constructor
+     * @param id id of task (should be a 37 char uuid string)
+     * @param cdr The request to process
+     * @param startTime Time task started in ms since epoch (1969)
+     * @param taskDir Base directory for tasks (this task will be put into taskDir/id)
+     * @param dockerCmd Command to run docker (/usr/bin/docker /bin/docker etc..)
+     * @param dockerImage Docker image to run (hello-world)
+     * @param customParameters Parameters to add to command line
+     * @param timeOut Any task exceeding this time (in unit set by unit) will be killed
+     * @param unit Unit to use for timeout
+     * @param mountOptions flags used by container to mount filesystem
+     * @param outputDataFormat output format of algorithm used to parse its
+     *                         output, can be {@code null}
+     * @param batcher batches this task with other tasks
+     * @throws Exception If there is an issue writing the input data from the cdr object
+     */
+    public BatchCommunityDetectionRunner(final String id,
+            final CommunityDetectionRequest cdr, final long startTime, final String taskDir,
+            final String dockerCmd, final String dockerImage,
+            final Map<String, String> customParameters,
+            final long timeOut,
+            final TimeUnit unit,
+            final String mountOptions,
+            final String outputDataFormat,
+            final TaskBatcher batcher) throws Exception {
+        super(id, cdr, startTime, taskDir, dockerCmd, dockerImage, customParameters,
+                timeOut, unit, mountOptions, outputDataFormat);
+        _batcher = batcher;
+    }
+
+    /**
+     * Runs algorithm as part of a batch of tasks
+     * @throws Exception if there was a problem running the batch
+     * @return Result of running task
+     */
+    @Override
+    public CommunityDetectionResult call() throws Exception {
+        return _batcher.run(this);
+    }
+
+    /**
+     * Runs algorithm for this task alone via
+     * {@link DockerCommunityDetectionRunner#call()}
+     * @return Result of running task
+     * @throws Exception if there was a problem with IO
+     */
+    CommunityDetectionResult callInOwnContainer() throws Exception {
+        return super.call();
+    }
+
+    /**
+     * Moves output of this task from its directory in the batch directory
+     * to the task directory and creates result from it
+     * @param batchTaskDir directory of this task in batch directory
+     * @param batchExitValue exit code of algorithm run over the batch
+     * @param batchStdErrFile standard error of algorithm run over the batch
+     * @param command command run for the batch
+     * @return Result of running task
+     */
+    CommunityDetectionResult collectBatchResult(final File batchTaskDir,
+            int batchExitValue, final File batchStdErrFile, final String command){
+        File stdOutFile = getStandardOutFile();
+        File stdErrFile = getStandardErrorFile();
+        CommunityDetectionResult cdr = createCommunityDetectionResult();
+        try {
+            int exitValue = batchExitValue;
+            if (batchExitValue == 0){
+                moveIfExists(new File(batchTaskDir, STD_OUT_FILE), stdOutFile);
+                moveIfExists(new File(batchTaskDir, STD_ERR_FILE), stdErrFile);
+                Integer taskExitValue = TaskBatcher.readExitCode(batchTaskDir);
+                if (taskExitValue == null){
+                    _logger.error("No exit code written for task " + getId() + " in batch");
+                    exitValue = 1;
+                } else {
+                    exitValue = taskExitValue;
+                }
+            } else {
+                // batch failed or timed out so every task gets its error
+                if (batchStdErrFile.isFile()){
+                    Files.copy(batchStdErrFile.toPath(), stdErrFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            writeCommandRunToFile(command);
+            updateCommunityDetectionResult(exitValue, stdOutFile, stdErrFile, cdr);
+        } catch(Exception ex){
+            cdr.setStatus(CommunityDetectionResult.FAILED_STATUS);
+            cdr.setMessage("Received error trying to run task: " + ex.getMessage());
+            _logger.error("Received error collecting result of task " + getId()
+                    + " from batch", ex);
+        }
+        cdr.setProgress(100);
+        cdr.setWallTime(System.currentTimeMillis() - cdr.getStartTime());
+        return cdr;
+    }
+
+    /**
+     * Moves {@code source} to {@code dest} replacing {@code dest}
+     * if {@code source} exists
+     * @param source file to move
+     * @param dest destination
+     * @throws IOException if move fails
+     */
+    private void moveIfExists(final File source, final File dest) throws IOException {
+        if (source.isFile() == false){
+            return;
+        }
+        Files.move(source.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
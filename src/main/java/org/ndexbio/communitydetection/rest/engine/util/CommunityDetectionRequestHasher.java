@@ -0,0 +1,108 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+
+/**
+ * Generates a SHA-256 hash of a {@link org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest}
+ * covering the algorithm name, docker image, custom parameters sorted by name,
+ * and the data. Two requests with the same hash will produce the same result 
+ * when run.
+ * 
+ * @author churas
+ */
+public class CommunityDetectionRequestHasher {
+    
+    /**
+     * Separates fields in the hash input so "ab" + "c" and "a" + "bc" differ
+     */
+    private static final byte SEPARATOR = 0;
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    /**
+     * Generates hash of {@code request}. The data is streamed into the digest
+     * so no copy of the data is made.
+     * 
+     * @param cda The algorithm that will be run
+     * @param request The request
+     * @return lower case hex encoded SHA-256 hash
+     * @throws IOException if there was an error serializing the data
+     */
+    public static String getHash(CommunityDetectionAlgorithm cda,
+            CommunityDetectionRequest request) throws IOException {
+        return getHash(cda, request, null);
+    }
+    
+    /**
+     * Generates hash of {@code request} whose data was written to
+     * {@code dataFile} instead of being set in the request. The file
+     * is streamed into the digest.
+     * 
+     * @param cda The algorithm that will be run
+     * @param request The request
+     * @param dataFile file holding data of request, if {@code null} the
+     *                 data set in {@code request} is used
+     * @return lower case hex encoded SHA-256 hash
+     * @throws IOException if there was an error reading or serializing the data
+     */
+    public static String getHash(CommunityDetectionAlgorithm cda,
+            CommunityDetectionRequest request, final File dataFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException nsae){
+            throw new IOException("Unable to create digest: " + nsae.getMessage());
+        }
+        update(digest, request.getAlgorithm());
+        update(digest, cda == null ? null : cda.getDockerImage());
+        update(digest, cda == null ? null : cda.getVersion());
+        if (request.getCustomParameters() != null){
+            Map<String, String> sortedParams = new TreeMap<>(request.getCustomParameters());
+            for (String key : sortedParams.keySet()){
+                update(digest, key);
+                update(digest, sortedParams.get(key));
+            }
+        }
+        digest.update(SEPARATOR);
+        if (dataFile != null){
+            try (InputStream in = new FileInputStream(dataFile);
+                    OutputStream out = new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, digest)){
+                IOUtils.copy(in, out);
+            }
+        } else if (request.getData() instanceof TextNode){
+            digest.update(request.getData().asText().getBytes(StandardCharsets.UTF_8));
+        } else if (request.getData() != null){
+            try (OutputStream out = new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, digest)){
+                MAPPER.writeValue(out, request.getData());
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()){
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+    
+    private static void update(MessageDigest digest, final String val){
+        if (val != null){
+            digest.update(val.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(SEPARATOR);
+    }
+}
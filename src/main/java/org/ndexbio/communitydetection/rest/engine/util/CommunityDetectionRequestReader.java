@@ -0,0 +1,394 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+
+/**
+ * Reads a {@link org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest}
+ * from json so the data of the request is never held in memory. The data
+ * is written to a file as it is read, in the same form
+ * {@link DockerCommunityDetectionRunner} writes it to the input file, while
+ * the remaining fields, which are small, are read normally.
+ * <p>
+ * The top level object is scanned by this class. If data is a string
+ * its bytes are copied to the file as they arrive, unescaping them on the
+ * way, since Jackson loads the whole of a string value into memory before
+ * handing it out. Every other value is given to Jackson as a stream that
+ * ends with the value. The request must be UTF-8 encoded.
+ *
+ * @author churas
+ */
+public class CommunityDetectionRequestReader {
+
+    /**
+     * Name of field holding data of request
+     */
+    public static final String DATA_FIELD = "data";
+
+    /**
+     * Size of buffers used to read request and write data
+     */
+    static final int BUFFER_SIZE = 8192;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Buffer over the request that lets the reader look at, and give back,
+     * one byte at a time
+     */
+    private static final class JsonSource {
+        private final InputStream _in;
+        private final byte[] _buf = new byte[BUFFER_SIZE];
+        private int _pos;
+        private int _limit;
+
+        JsonSource(final InputStream in){
+            _in = in;
+        }
+
+        /**
+         * Refills buffer if all of it was read
+         * @return false if end of request was reached
+         * @throws IOException if there is an error reading
+         */
+        boolean ensureData() throws IOException {
+            if (_pos < _limit){
+                return true;
+            }
+            int n = 0;
+            while (n == 0){
+                n = _in.read(_buf, 0, _buf.length);
+            }
+            if (n < 0){
+                _pos = 0;
+                _limit = 0;
+                return false;
+            }
+            _pos = 0;
+            _limit = n;
+            return true;
+        }
+
+        int read() throws IOException {
+            if (ensureData() == false){
+                return -1;
+            }
+            return _buf[_pos++] & 0xff;
+        }
+
+        /**
+         * Gives back byte returned by the last call to {@link #read()}
+         */
+        void unread(){
+            _pos--;
+        }
+
+        int readNonWhitespace() throws IOException {
+            int c = read();
+            while (isWhitespace(c)){
+                c = read();
+            }
+            return c;
+        }
+    }
+
+    /**
+     * Stream of the bytes of the json value at the current position of a
+     * {@link JsonSource}. It ends once the value is complete leaving
+     * the source positioned right after the value
+     */
+    private static final class JsonValueInputStream extends InputStream {
+        private final JsonSource _src;
+        private int _depth;
+        private boolean _started;
+        private boolean _inString;
+        private boolean _escape;
+        private boolean _done;
+
+        JsonValueInputStream(final JsonSource src){
+            _src = src;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            if (read(one, 0, 1) <= 0){
+                return -1;
+            }
+            return one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (_done == true){
+                return -1;
+            }
+            if (len == 0){
+                return 0;
+            }
+            if (_src.ensureData() == false){
+                _done = true;
+                return -1;
+            }
+            byte[] buf = _src._buf;
+            int i = _src._pos;
+            int max = Math.min(_src._limit, i + len);
+            while (i < max){
+                int c = buf[i];
+                if (_inString){
+                    i++;
+                    if (_escape){
+                        _escape = false;
+                    } else if (c == '\\'){
+                        _escape = true;
+                    } else if (c == '"'){
+                        _inString = false;
+                        if (_depth == 0){
+                            _done = true;
+                            break;
+                        }
+                    }
+                    continue;
+                }
+                if (_depth == 0 && _started
+                        && (c == ',' || c == '}' || c == ']' || isWhitespace(c))){
+                    // end of number or literal, delimiter belongs to request
+                    _done = true;
+                    break;
+                }
+                i++;
+                _started = true;
+                if (c == '"'){
+                    _inString = true;
+                } else if (c == '{' || c == '['){
+                    _depth++;
+                } else if (c == '}' || c == ']'){
+                    _depth--;
+                    if (_depth <= 0){
+                        _done = true;
+                        break;
+                    }
+                }
+            }
+            int n = i - _src._pos;
+            System.arraycopy(buf, _src._pos, b, off, n);
+            _src._pos = i;
+            if (n == 0){
+                return -1;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Reads request from {@code in} writing its data to {@code dataFile}.
+     * If data is a string, the text of the string is written, otherwise
+     * the data is written as json.
+     *
+     * @param in stream of request as UTF-8 json, not closed by this method
+     * @param dataFile file to write data to, only created if request has data
+     * @return request without data
+     * @throws IOException if the request is not valid json or there is
+     *         an error writing the data
+     */
+    public static CommunityDetectionRequest read(final InputStream in,
+            final File dataFile) throws IOException {
+        JsonFactory factory = MAPPER.getFactory();
+        ObjectNode fields = MAPPER.createObjectNode();
+        JsonSource src = new JsonSource(in);
+        if (src.readNonWhitespace() != '{'){
+            throw new JsonParseException(null, "Request must be a json object");
+        }
+        int c = src.readNonWhitespace();
+        if (c != '}'){
+            while (true){
+                if (c != '"'){
+                    throw new JsonParseException(null, "Expected name of field in request");
+                }
+                ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+                copyString(src, nameBytes);
+                String name = new String(nameBytes.toByteArray(), StandardCharsets.UTF_8);
+                if (src.readNonWhitespace() != ':'){
+                    throw new JsonParseException(null, "Expected ':' after field "
+                            + name + " in request");
+                }
+                c = src.readNonWhitespace();
+                if (c == -1){
+                    break;
+                }
+                if (DATA_FIELD.equals(name) && c == '"'){
+                    try (OutputStream out = new BufferedOutputStream(
+                            new FileOutputStream(dataFile), BUFFER_SIZE)){
+                        copyString(src, out);
+                    }
+                } else {
+                    src.unread();
+                    try (JsonParser parser = factory.createParser(new JsonValueInputStream(src))){
+                        JsonToken token = parser.nextToken();
+                        if (DATA_FIELD.equals(name)){
+                            writeData(factory, parser, token, dataFile);
+                        } else {
+                            JsonNode value = MAPPER.readTree(parser);
+                            fields.set(name, value == null ? NullNode.getInstance() : value);
+                        }
+                    }
+                }
+                c = src.readNonWhitespace();
+                if (c != ','){
+                    break;
+                }
+                c = src.readNonWhitespace();
+            }
+        }
+        if (c != '}'){
+            throw new JsonParseException(null, "Request is not a complete json object");
+        }
+        return MAPPER.treeToValue(fields, CommunityDetectionRequest.class);
+    }
+
+    /**
+     * Writes json value at current position of {@code parser} to {@code dataFile}
+     * @param factory used to create generator for json data
+     * @param parser parser positioned at start of data value
+     * @param token current token of {@code parser}
+     * @param dataFile file to write to
+     * @throws IOException if there is an error parsing or writing
+     */
+    private static void writeData(JsonFactory factory, JsonParser parser,
+            JsonToken token, final File dataFile) throws IOException {
+        if (token == JsonToken.VALUE_NULL){
+            dataFile.delete();
+            return;
+        }
+        try (JsonGenerator generator = factory.createGenerator(
+                new FileOutputStream(dataFile), JsonEncoding.UTF8)){
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+    /**
+     * Copies text of json string, whose opening quote was already read
+     * from {@code src}, to {@code out} as UTF-8. Runs of bytes without
+     * escapes are copied as is
+     * @param src request positioned after opening quote of string
+     * @param out where to write text
+     * @throws IOException if string is not valid or there is an error writing
+     */
+    private static void copyString(final JsonSource src, final OutputStream out) throws IOException {
+        while (true){
+            if (src.ensureData() == false){
+                throw new JsonParseException(null, "Unexpected end of request in string");
+            }
+            byte[] buf = src._buf;
+            int start = src._pos;
+            int end = start;
+            while (end < src._limit){
+                int b = buf[end];
+                if (b == '"' || b == '\\' || (b >= 0 && b < 0x20)){
+                    break;
+                }
+                end++;
+            }
+            out.write(buf, start, end - start);
+            src._pos = end;
+            if (end == src._limit){
+                continue;
+            }
+            int b = src.read();
+            if (b == '"'){
+                return;
+            }
+            if (b != '\\'){
+                throw new JsonParseException(null, "Illegal unescaped control character in string");
+            }
+            copyEscape(src, out);
+        }
+    }
+
+    /**
+     * Writes character of escape sequence, whose backslash was already
+     * read from {@code src}, to {@code out} as UTF-8
+     * @param src request positioned after backslash
+     * @param out where to write character
+     * @throws IOException if escape is not valid or there is an error writing
+     */
+    private static void copyEscape(final JsonSource src, final OutputStream out) throws IOException {
+        int c = src.read();
+        switch (c){
+            case '"':
+            case '\\':
+            case '/':
+                out.write(c);
+                return;
+            case 'b':
+                out.write('\b');
+                return;
+            case 'f':
+                out.write('\f');
+                return;
+            case 'n':
+                out.write('\n');
+                return;
+            case 'r':
+                out.write('\r');
+                return;
+            case 't':
+                out.write('\t');
+                return;
+            case 'u':
+                break;
+            default:
+                throw new JsonParseException(null, "Invalid escape in string");
+        }
+        char ch = readHexChar(src);
+        String text;
+        if (Character.isHighSurrogate(ch)){
+            if (src.read() != '\\' || src.read() != 'u'){
+                throw new JsonParseException(null, "Unpaired surrogate in string");
+            }
+            text = new String(new char[]{ch, readHexChar(src)});
+        } else {
+            text = String.valueOf(ch);
+        }
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the four hex digits of a unicode escape
+     * @param src request positioned after the u of the escape
+     * @return character
+     * @throws IOException if digits are not valid
+     */
+    private static char readHexChar(final JsonSource src) throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++){
+            int digit = Character.digit(src.read(), 16);
+            if (digit < 0){
+                throw new JsonParseException(null, "Invalid unicode escape in string");
+            }
+            value = (value << 4) | digit;
+        }
+        return (char)value;
+    }
+
+    private static boolean isWhitespace(int c){
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+}
@@ -1,5 +1,6 @@
 package org.ndexbio.communitydetection.rest.engine.util;
 
+import java.io.File;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
 import org.ndexbio.communitydetection.rest.model.ErrorResponse;
@@ -18,4 +19,15 @@ public interface CommunityDetectionRequestValidator {
      */
     public ErrorResponse validateRequest(CommunityDetectionAlgorithm cda, CommunityDetectionRequest cdr);
     
+    /**
+     * Validates request whose data was written to {@code dataFile} 
+     * instead of being set in the request
+     * @param cda Algorithm to run
+     * @param cdr The request to validate
+     * @param dataFile File holding data of request
+     * @return null upon success otherwise {@link org.ndexbio.communitydetection.rest.model.ErrorResponse} describing the error
+     */
+    public ErrorResponse validateRequest(CommunityDetectionAlgorithm cda, CommunityDetectionRequest cdr,
+            File dataFile);
+    
 }
@@ -1,5 +1,6 @@
 package org.ndexbio.communitydetection.rest.engine.util;
 
+import java.io.File;
 import java.util.Map;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
@@ -34,6 +35,12 @@ public class CommunityDetectionRequestValidatorImpl implements CommunityDetectio
      */
     @Override
     public ErrorResponse validateRequest(CommunityDetectionAlgorithm cda, CommunityDetectionRequest cdr) {
+        return validateRequest(cda, cdr, null);
+    }
+    
+    @Override
+    public ErrorResponse validateRequest(CommunityDetectionAlgorithm cda,
+            CommunityDetectionRequest cdr, File dataFile) {
         if (cda == null){
             ErrorResponse er = new ErrorResponse();
             er.setMessage("Algorithm is null");
@@ -55,7 +62,7 @@ public class CommunityDetectionRequestValidatorImpl implements CommunityDetectio
             return er;
             
         }
-        if (cdr.getData() == null){
+        if (dataFile == null ? cdr.getData() == null : dataFile.isFile() == false){
             ErrorResponse er = new ErrorResponse();
             er.setMessage("No data passed in with request");
             er.setDescription("All requests require some data to be set in the data field");
@@ -0,0 +1,34 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import java.util.concurrent.Callable;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+
+/**
+ * Creates the object that runs a task for an algorithm. The runner used
+ * for an algorithm is chosen via the
+ * {@link org.ndexbio.communitydetection.rest.services.Configuration#ALGORITHM_RUNNER_SETTING}
+ * setting, algorithms without one are run with docker.
+ *
+ * @author churas
+ */
+public interface CommunityDetectionRunnerFactory {
+    
+    /**
+     * Creates runner for task. Invoked when the task is submitted so the
+     * runner should save input data of the request to the task directory
+     * as {@link DockerCommunityDetectionRunner#INPUT_FILE} allowing the task
+     * to be queued again after a restart. If the request has no data the
+     * input file already exists in the task directory
+     * @param id id of task
+     * @param request the request
+     * @param cda algorithm to run
+     * @param submitTime time request was submitted in milliseconds since epoch
+     * @return runner invoked on worker thread to run the task
+     * @throws Exception if runner could not be created
+     */
+    public Callable<CommunityDetectionResult> createRunner(final String id,
+            final CommunityDetectionRequest request,
+            final CommunityDetectionAlgorithm cda, long submitTime) throws Exception;
+}
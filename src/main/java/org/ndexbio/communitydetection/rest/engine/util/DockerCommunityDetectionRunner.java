@@ -1,15 +1,14 @@
 package org.ndexbio.communitydetection.rest.engine.util;
 
-import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.TextNode;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
@@ -23,7 +22,7 @@ import org.slf4j.LoggerFactory;
  * Runs algorithm via commandline
  * @author churas
  */
-public class DockerCommunityDetectionRunner implements Callable {
+public class DockerCommunityDetectionRunner implements Callable<CommunityDetectionResult> {
 
     
     static Logger _logger = LoggerFactory.getLogger(DockerCommunityDetectionRunner.class);
@@ -33,8 +32,13 @@ public class DockerCommunityDetectionRunner implements Callable {
     public static final String STD_ERR_FILE = "stderr.txt";
     public static final String CMD_RUN_FILE = "cmdrun.sh";
     
+    /**
+     * File in same directory as input file where an algorithm can report
+     * progress by appending lines of the form: &lt;percent complete&gt; [message]
+     */
+    public static final String PROGRESS_FILE = "progress.txt";
+    
     private String _id;
-    private CommunityDetectionRequest _cdr;
     private String _dockerCmd;
     private String _dockerImage;
     private Map<String, String> _customParameters;
@@ -45,6 +49,7 @@ public class DockerCommunityDetectionRunner implements Callable {
     private TimeUnit _timeUnit;
     private String _mountOptions;
     private String _inputFilePath;
+    private String _outputDataFormat;
  
     private CommandLineRunner _runner;
     
@@ -69,8 +74,36 @@ public class DockerCommunityDetectionRunner implements Callable {
             final long timeOut,
             final TimeUnit unit,
             final String mountOptions) throws Exception{
+        this(id, cdr, startTime, taskDir, dockerCmd, dockerImage, customParameters,
+                timeOut, unit, mountOptions, null);
+    }
+    
+    /**
+     * Constructor 
+     * @param id id of task (should be a 37 char uuid string)
+     * @param cdr The request to process
+     * @param startTime Time task started in ms since epoch (1969)
+     * @param taskDir Base directory for tasks (this task will be put into taskDir/id)
+     * @param dockerCmd Command to run docker (/usr/bin/docker /bin/docker etc..)
+     * @param dockerImage Docker image to run (hello-world)
+     * @param customParameters Parameters to add to command line
+     * @param timeOut Any task exceeding this time (in unit set by unit) will be killed
+     * @param unit Unit to use for timeout
+     * @param mountOptions flags used by container to mount filesystem
+     * @param outputDataFormat output format of algorithm used to parse its
+     *                         output, can be {@code null}
+     * @throws Exception If there is an issue writing the input data from the cdr object
+     */
+    public DockerCommunityDetectionRunner(final String id,
+            final CommunityDetectionRequest cdr, final long startTime, final String taskDir,
+            final String dockerCmd, final String dockerImage,
+            final Map<String, String> customParameters,
+            final long timeOut,
+            final TimeUnit unit,
+            final String mountOptions,
+            final String outputDataFormat) throws Exception{
         _id = id;
-        _cdr = cdr;
+        _outputDataFormat = outputDataFormat;
         _dockerCmd = dockerCmd;
         _dockerImage = dockerImage;
         _customParameters = customParameters;
@@ -86,7 +119,8 @@ public class DockerCommunityDetectionRunner implements Callable {
             _mountOptions = "";
         }
 
-        _inputFilePath = writeInputFile();
+        // request is not kept so its data can be freed while task is queued
+        _inputFilePath = writeInputFile(cdr);
        
         _runner = new CommandLineRunnerImpl();
         
@@ -102,14 +136,17 @@ public class DockerCommunityDetectionRunner implements Callable {
     
     /**
      * Writes contents {@link org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest#getData()}
-     * set via constructor 
      * to file which is assumed to be either a {@link com.fasterxml.jackson.databind.node.TextNode}
-     * which is written as text or JSON which is mapped back via ObjectMapper
+     * which is written as text or JSON which is mapped back via ObjectMapper.
+     * If the request has no data and the input file already exists, as is
+     * the case for a task being queued again after a restart or a request
+     * whose data was streamed to the input file, the existing file is used
+     * @param cdr request whose data should be written
      * @return full path to input file as String
      * @throws CommunityDetectionException If there was an issue creating task directories
      * @throws IOException If there was IO error writing the data to a file
      */
-    protected String writeInputFile() throws CommunityDetectionException, IOException {
+    protected String writeInputFile(final CommunityDetectionRequest cdr) throws CommunityDetectionException, IOException {
         File workDir = new File(_workDir);
         
         if (workDir.isDirectory() == false){
@@ -118,16 +155,30 @@ public class DockerCommunityDetectionRunner implements Callable {
             }
         }
         File destFile = getInputFile();
-        if (_cdr.getData()instanceof TextNode){
+        if (cdr.getData() == null && destFile.isFile()){
+            return destFile.getAbsolutePath();
+        }
+        writeData(cdr.getData(), destFile);
+        return destFile.getAbsolutePath();
+    }
+    
+    /**
+     * Writes {@code data} to {@code destFile} as text if it is a
+     * {@link com.fasterxml.jackson.databind.node.TextNode} otherwise as JSON
+     * @param data data to write
+     * @param destFile file to write to
+     * @throws IOException If there was IO error writing the data to a file
+     */
+    public static void writeData(final JsonNode data, final File destFile) throws IOException {
+        if (data instanceof TextNode){
             try (BufferedWriter bw = new BufferedWriter(new FileWriter(destFile))){
-                bw.write(_cdr.getData().asText());
+                bw.write(data.asText());
             }
         }
         else {
             ObjectMapper mapper = new ObjectMapper();
-            mapper.writeValue(destFile, _cdr.getData()); 
+            mapper.writeValue(destFile, data); 
         }
-        return destFile.getAbsolutePath();
     }
     
     /**
@@ -152,7 +203,7 @@ public class DockerCommunityDetectionRunner implements Callable {
     
     /**
      * This method generates a {@link java.io.File} object pointing to input 
-     * file generated by {@link #writeInputFile() ()}
+     * file generated by {@link #writeInputFile(org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest) }
      * which may or may not exist yet.
      * @return input file
      */
@@ -189,33 +240,23 @@ public class DockerCommunityDetectionRunner implements Callable {
     /**
      * Reads contents of 'outFile' {@link java.io.File} setting those contents
      * via {@link org.ndexbio.communitydetection.rest.model.CommunityDetectionResult#setResult(com.fasterxml.jackson.databind.JsonNode)}
-     * This implementation is a bit naive it will first try to use Jackson's {@link com.fasterxml.jackson.databind.ObjectMapper#readTree(java.io.File)}
+     * The contents are parsed by {@link AlgorithmOutputReader} according to 
+     * {@code outputDataFormat}. If the format is not known the code will first
+     * try to use Jackson's {@link com.fasterxml.jackson.databind.ObjectMapper#readTree(java.io.File)}
      * to parse the 'outFile' {@link java.io.File} and if that tosses an exception the code will
      * assume its raw text data and store the result as a {@link com.fasterxml.jackson.databind.node.TextNode}
      * @param cdr The object to update with results from 'outFile' {@link java.io.File}
      * @param outFile {@link java.io.File} to get data from
+     * @param outputDataFormat format of 'outFile', can be {@code null}
      * @throws Exception if there is an error
      */
-    protected void updateCommunityDetectionResultWithFileContents(CommunityDetectionResult cdr, File outFile) throws Exception {
-        StringBuilder sb = new StringBuilder();
+    protected void updateCommunityDetectionResultWithFileContents(CommunityDetectionResult cdr,
+            File outFile, final String outputDataFormat) throws Exception {
         if (outFile.isFile() == false){
             _logger.error(outFile.getAbsolutePath() + " does not exist or is not a file");
             return;
         }
-        ObjectMapper mapper = new ObjectMapper();
-        try {
-            cdr.setResult(mapper.readTree(outFile));
-        } catch(JsonParseException jpe){
-            _logger.debug("Received a json parsing error going to try to store result as string: ", jpe);
-            try (BufferedReader br = new BufferedReader(new FileReader(outFile))){
-                String line = br.readLine();
-                while(line != null){
-                    sb.append(line).append("\n");
-                    line = br.readLine();
-                }
-                cdr.setResult(new TextNode(sb.toString()));
-            }
-        }
+        cdr.setResult(AlgorithmOutputReader.read(outFile, outputDataFormat));
     }
     
     /**
@@ -231,6 +272,7 @@ public class DockerCommunityDetectionRunner implements Callable {
     protected void updateCommunityDetectionResult(int exitValue, File stdOutFile, File stdErrFile, CommunityDetectionResult cdr) throws Exception {
         
         File outFile = stdOutFile;
+        String outFormat = _outputDataFormat;
         if (exitValue != 0){
                 cdr.setStatus(CommunityDetectionResult.FAILED_STATUS);
                 if (exitValue == 500){
@@ -240,12 +282,14 @@ public class DockerCommunityDetectionRunner implements Callable {
                             Integer.toString(exitValue) + " when running algorithm for task: " + cdr.getId());
                 }
                 outFile = stdErrFile;
+                // standard error is not in output format of algorithm
+                outFormat = null;
                 _logger.error(cdr.getMessage());
         } else {
             
                 cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
         }
-        updateCommunityDetectionResultWithFileContents(cdr, outFile);
+        updateCommunityDetectionResultWithFileContents(cdr, outFile, outFormat);
     }
     
     /**
@@ -253,15 +297,99 @@ public class DockerCommunityDetectionRunner implements Callable {
      * filesystem storing contents at {@link #getCommandRunFile() }
      */
     protected void writeCommandRunToFile(){
+        writeCommandRunToFile(_runner.getLastCommand());
+    }
+    
+    /**
+     * Writes {@code command} to the file system storing contents at
+     * {@link #getCommandRunFile() }
+     * @param command command to write
+     */
+    protected void writeCommandRunToFile(final String command){
         File outFile = getCommandRunFile();
         
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(outFile))){
-            bw.write(_runner.getLastCommand());
+            bw.write(command);
         } catch(IOException io){
             _logger.error("Error writing command run to: " + outFile.getAbsolutePath(), io);
         }
     }
     
+    /**
+     * Gets arguments passed to algorithm which are the custom parameters
+     * followed by path to input file
+     * @return arguments
+     */
+    protected List<String> getAlgorithmArguments(){
+        List<String> args = getCustomParameterArguments();
+        args.add(_inputFilePath);
+        return args;
+    }
+    
+    /**
+     * Gets custom parameters as command line arguments
+     * @return arguments, empty if there are no custom parameters
+     */
+    protected List<String> getCustomParameterArguments(){
+        ArrayList<String> args = new ArrayList<>();
+        if (_customParameters != null){
+            _logger.debug("Custom Parameters is not null adding to command line call");
+            for (String key : _customParameters.keySet()){
+                args.add(key);
+
+                String val = _customParameters.get(key);
+                if (val != null && val.trim().isEmpty() == false){
+                    args.add(val);
+                }
+            }
+        } else {
+            _logger.debug("Custom Parameters is null");
+        }
+        return args;
+    }
+    
+    /**
+     * Gets command with arguments that runs algorithm in a new container
+     * with the task directory mounted
+     * @return command with arguments
+     */
+    protected List<String> getCommand(){
+        ArrayList<String> mCmd = new ArrayList<>();
+        mCmd.add(_dockerCmd);
+        mCmd.add("run");
+        mCmd.add("--rm");
+        mCmd.add("-v");
+        mCmd.add(_workDir + ":" + _workDir + _mountOptions);
+        mCmd.add(_dockerImage);
+        mCmd.addAll(getAlgorithmArguments());
+        return mCmd;
+    }
+    
+    /**
+     * Gets id of task
+     * @return id of task
+     */
+    protected String getId(){
+        return _id;
+    }
+    
+    /**
+     * Gets maximum time algorithm can run in unit returned by
+     * {@link #getTimeUnit()}
+     * @return timeout
+     */
+    protected long getTimeOut(){
+        return _timeOut;
+    }
+    
+    /**
+     * Gets unit of {@link #getTimeOut()}
+     * @return unit
+     */
+    protected TimeUnit getTimeUnit(){
+        return _timeUnit;
+    }
+    
     /**
      * Runs the command line process set via the constructor storing output, error, and
      * command run by this process to the file system. 
@@ -273,7 +401,6 @@ public class DockerCommunityDetectionRunner implements Callable {
         
         File workDir = new File(_workDir);
         
-        String mapDir = _workDir + ":" + _workDir + _mountOptions;
         _runner.setWorkingDirectory(_workDir);
         
         File stdOutFile = getStandardOutFile();
@@ -285,27 +412,9 @@ public class DockerCommunityDetectionRunner implements Callable {
             if (workDir.isDirectory() == false){
                 throw new Exception(_workDir + " directory does not exist");
             }
-            ArrayList<String> mCmd = new ArrayList<String>();
-            mCmd.add(_dockerCmd);
-            mCmd.add("run");
-            mCmd.add("--rm");
-            mCmd.add("-v");
-            mCmd.add(mapDir);
-            mCmd.add(_dockerImage);
-            if (_customParameters != null){
-                _logger.debug("Custom Parameters is not null adding to command line call");
-                for (String key : _customParameters.keySet()){
-                    mCmd.add(key);
-                    
-                    String val = _customParameters.get(key);
-                    if (val != null && val.trim().isEmpty() == false){
-                        mCmd.add(val);
-                    }
-                }
-            } else {
-                _logger.debug("Custom Parameters is null");
-            }
-            mCmd.add(_inputFilePath);
+            // remove progress left over from an earlier run of this task
+            new File(workDir, PROGRESS_FILE).delete();
+            List<String> mCmd = getCommand();
             int  exitValue = _runner.runCommandLineProcess(_timeOut, _timeUnit,
                     stdOutFile, stdErrFile, mCmd.toArray(new String[0]));
             writeCommandRunToFile();
@@ -0,0 +1,28 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Map;
+
+/**
+ * Algorithm written in Java that is run directly on the worker thread by
+ * {@link InProcessCommunityDetectionRunner}. Implementations need a public
+ * no argument constructor and must be thread safe as one instance runs
+ * every task for the algorithm.
+ *
+ * @author churas
+ */
+public interface InProcessAlgorithm {
+    
+    /**
+     * Runs algorithm. Implementations that run for a long time should
+     * return when the thread is interrupted since the task was canceled
+     * @param data input data of request, a
+     *             {@link com.fasterxml.jackson.databind.node.TextNode} for
+     *             text data
+     * @param customParameters custom parameters of request, can be {@code null}
+     * @return result in output format of algorithm
+     * @throws Exception if the algorithm failed, the message of the
+     *         exception is set as message of the result
+     */
+    public JsonNode run(JsonNode data, Map<String, String> customParameters) throws Exception;
+}
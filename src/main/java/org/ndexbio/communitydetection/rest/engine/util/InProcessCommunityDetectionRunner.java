@@ -0,0 +1,133 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.apache.commons.io.FileUtils;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.model.exceptions.CommunityDetectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs an {@link InProcessAlgorithm} directly on the worker thread so no
+ * process or container is started.
+ * <p>
+ * If the request holds its data, that data is passed to the algorithm as
+ * is and also written to the task directory so the task can be queued
+ * again after a restart. Requests submitted to the json and multipart
+ * endpoints have their data written to the input file as they are received
+ * and never hold it in memory, for those, and for tasks queued again after
+ * a restart, the input file is parsed once when the task runs. Whether the
+ * file is read as json or text is decided by the input data format of the
+ * algorithm. The algorithm timeout is not enforced, the
+ * algorithm is only interrupted if the task is canceled.
+ *
+ * @author churas
+ */
+public class InProcessCommunityDetectionRunner implements Callable<CommunityDetectionResult> {
+
+    static Logger _logger = LoggerFactory.getLogger(InProcessCommunityDetectionRunner.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String _id;
+    private final long _startTime;
+    private final File _workDir;
+    private final InProcessAlgorithm _algorithm;
+    private final Map<String, String> _customParameters;
+    private final String _inputDataFormat;
+    private JsonNode _data;
+
+    /**
+     * Constructor
+     * @param id id of task (should be a 37 char uuid string)
+     * @param cdr The request to process
+     * @param startTime Time task started in ms since epoch (1969)
+     * @param taskDir Base directory for tasks (this task will be put into taskDir/id)
+     * @param algorithm algorithm to run
+     * @param inputDataFormat input format of algorithm used to parse the
+     *                        input file, can be {@code null}
+     * @throws Exception If there is an issue writing the input data from the cdr object
+     */
+    public InProcessCommunityDetectionRunner(final String id,
+            final CommunityDetectionRequest cdr, final long startTime,
+            final String taskDir, final InProcessAlgorithm algorithm,
+            final String inputDataFormat) throws Exception {
+        _id = id;
+        _startTime = startTime;
+        _workDir = new File(taskDir + File.separator + id);
+        _algorithm = algorithm;
+        _customParameters = cdr.getCustomParameters();
+        _inputDataFormat = inputDataFormat;
+        _data = cdr.getData();
+        if (_workDir.isDirectory() == false){
+            if (_workDir.mkdirs() == false){
+                throw new CommunityDetectionException("Unable to create directory: "
+                        + _workDir.getAbsolutePath());
+            }
+        }
+        if (_data != null){
+            DockerCommunityDetectionRunner.writeData(_data, getInputFile());
+        }
+    }
+
+    /**
+     * Gets file input data of task is written to
+     * @return input file
+     */
+    protected File getInputFile(){
+        return new File(_workDir, DockerCommunityDetectionRunner.INPUT_FILE);
+    }
+
+    /**
+     * Reads input data from input file, as json if the input data format of
+     * the algorithm is a json format and as text otherwise
+     * @return input data
+     * @throws IOException if there is an error reading the file or the
+     *         file does not hold json for a json format
+     */
+    protected JsonNode readInputFile() throws IOException {
+        if (InputDataFormats.isJsonFormat(_inputDataFormat)){
+            return MAPPER.readTree(getInputFile());
+        }
+        return new TextNode(FileUtils.readFileToString(getInputFile(), "UTF-8"));
+    }
+
+    /**
+     * Runs algorithm with input data of request, or the input file if the
+     * request had no data, and sets its output as result of task
+     * @throws Exception if there was a problem with IO
+     * @return Result of running task
+     */
+    @Override
+    public CommunityDetectionResult call() throws Exception {
+        CommunityDetectionResult cdr = new CommunityDetectionResult();
+        cdr.setId(_id);
+        cdr.setStartTime(_startTime);
+        cdr.setStatus(CommunityDetectionResult.PROCESSING_STATUS);
+        try {
+            JsonNode data = _data;
+            if (data == null){
+                data = readInputFile();
+            }
+            cdr.setResult(_algorithm.run(data, _customParameters));
+            cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+        } catch(Exception ex){
+            cdr.setStatus(CommunityDetectionResult.FAILED_STATUS);
+            cdr.setMessage("Received error trying to run task: " + ex.getMessage());
+            _logger.error("Received error trying to run algorithm for task " + _id, ex);
+        } finally {
+            // input data is not needed once algorithm has run
+            _data = null;
+        }
+        cdr.setProgress(100);
+        cdr.setWallTime(System.currentTimeMillis() - cdr.getStartTime());
+        return cdr;
+    }
+}
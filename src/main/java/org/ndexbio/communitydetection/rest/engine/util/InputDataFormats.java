@@ -0,0 +1,75 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.ndexbio.communitydetection.rest.model.exceptions.CommunityDetectionBadRequestException;
+
+/**
+ * Knows which input data formats of algorithms hold json and checks
+ * input files against the input data format of an algorithm
+ *
+ * @author churas
+ */
+public class InputDataFormats {
+
+    /**
+     * Input data formats that hold json, input of any other format
+     * is passed to the algorithm as text
+     */
+    public static final Set<String> JSON_INPUT_FORMATS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("CX", "CX2")));
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /**
+     * Denotes whether {@code inputDataFormat} holds json
+     * @param inputDataFormat input data format of algorithm, can be {@code null}
+     * @return true if format is one of {@link #JSON_INPUT_FORMATS}
+     */
+    public static boolean isJsonFormat(final String inputDataFormat){
+        return inputDataFormat != null
+                && JSON_INPUT_FORMATS.contains(inputDataFormat.toUpperCase());
+    }
+
+    /**
+     * Checks {@code inputFile} holds data in {@code inputDataFormat}. Input
+     * of a json format must be a single json array or object, it is parsed
+     * as a stream of tokens so it is never held in memory. Input of any
+     * other format is text and is not checked
+     * @param inputFile file holding input data
+     * @param inputDataFormat input data format of algorithm, can be {@code null}
+     * @throws CommunityDetectionBadRequestException if input is not in
+     *         {@code inputDataFormat}
+     * @throws IOException if there is an error reading {@code inputFile}
+     */
+    public static void checkInputFile(final File inputFile, final String inputDataFormat)
+            throws CommunityDetectionBadRequestException, IOException {
+        if (isJsonFormat(inputDataFormat) == false){
+            return;
+        }
+        try (JsonParser parser = FACTORY.createParser(inputFile)){
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_ARRAY && token != JsonToken.START_OBJECT){
+                throw new CommunityDetectionBadRequestException("Input data is not in "
+                        + inputDataFormat + " format: expected a json array or object");
+            }
+            parser.skipChildren();
+            if (parser.nextToken() != null){
+                throw new CommunityDetectionBadRequestException("Input data is not in "
+                        + inputDataFormat + " format: unexpected data after json "
+                        + (token == JsonToken.START_ARRAY ? "array" : "object"));
+            }
+        } catch(JsonProcessingException jpe){
+            throw new CommunityDetectionBadRequestException("Input data is not in "
+                    + inputDataFormat + " format: " + jpe.getOriginalMessage());
+        }
+    }
+}
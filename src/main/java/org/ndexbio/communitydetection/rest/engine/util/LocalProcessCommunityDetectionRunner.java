@@ -0,0 +1,57 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+
+/**
+ * Runs algorithm as a local process instead of in a container. The
+ * command is invoked with the same arguments
+ * {@link DockerCommunityDetectionRunner} passes to the container
+ *
+ * @author churas
+ */
+public class LocalProcessCommunityDetectionRunner extends DockerCommunityDetectionRunner {
+
+    private final String _command;
+
+    /**
+     * Constructor
+     * @param id id of task (should be a 37 char uuid string)
+     * @param cdr The request to process
+     * @param startTime Time task started in ms since epoch (1969)
+     * @param taskDir Base directory for tasks (this task will be put into taskDir/id)
+     * @param command Path to executable that runs algorithm
+     * @param customParameters Parameters to add to command line
+     * @param timeOut Any task exceeding this time (in unit set by unit) will be killed
+     * @param unit Unit to use for timeout
+     * @param outputDataFormat output format of algorithm used to parse its
+     *                         output, can be {@code null}
+     * @throws Exception If there is an issue writing the input data from the cdr object
+     */
+    public LocalProcessCommunityDetectionRunner(final String id,
+            final CommunityDetectionRequest cdr, final long startTime, final String taskDir,
+            final String command,
+            final Map<String, String> customParameters,
+            final long timeOut,
+            final TimeUnit unit,
+            final String outputDataFormat) throws Exception {
+        super(id, cdr, startTime, taskDir, null, null, customParameters,
+                timeOut, unit, null, outputDataFormat);
+        _command = command;
+    }
+
+    /**
+     * Gets command with arguments that runs algorithm as a local process
+     * @return command with arguments
+     */
+    @Override
+    protected List<String> getCommand(){
+        List<String> mCmd = new ArrayList<>();
+        mCmd.add(_command);
+        mCmd.addAll(getAlgorithmArguments());
+        return mCmd;
+    }
+}
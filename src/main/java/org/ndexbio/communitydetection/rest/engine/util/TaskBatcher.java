@@ -0,0 +1,314 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.commons.io.FileUtils;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects tasks for an algorithm that have the same custom parameters
+ * and runs them with a single container so short tasks do not each pay
+ * for starting a container.
+ * <p>
+ * The first task to arrive waits up to the linger time, or until the batch
+ * is full, for other tasks to join. The input of every task is then copied
+ * to {@code <batch dir>/<task id>/input.txt} and the algorithm is run as:
+ * <pre>
+ * docker run --rm -v &lt;batch dir&gt;:&lt;batch dir&gt; &lt;image&gt; &lt;custom parameters&gt; --batch &lt;batch dir&gt;
+ * </pre>
+ * For each task directory the algorithm must write output to
+ * {@code stdout.txt}, errors to {@code stderr.txt} and the exit code it
+ * would have had if run on its own to {@code exitcode.txt}. Those files are
+ * then moved to the directory of each task and parsed as usual. The batch
+ * is given the timeout of a task times the number of tasks in the batch.
+ * <p>
+ * Tasks wait in a worker thread so a batch never holds more tasks than
+ * there are workers for the algorithm, the maximum batch size should not
+ * be larger than that.
+ *
+ * @author churas
+ */
+public class TaskBatcher {
+
+    static Logger _logger = LoggerFactory.getLogger(TaskBatcher.class);
+
+    /**
+     * Argument, followed by path to batch directory, that tells algorithm
+     * to run every task in the batch directory
+     */
+    public static final String BATCH_ARG = "--batch";
+
+    /**
+     * File in directory of each task in batch where algorithm writes
+     * exit code for task
+     */
+    public static final String EXIT_CODE_FILE = "exitcode.txt";
+
+    private final String _name;
+    private final String _dockerCmd;
+    private final String _dockerImage;
+    private final File _batchDir;
+    private final String _mountOptions;
+    private final int _maxBatchSize;
+    private final long _lingerMillis;
+
+    /**
+     * Map of custom parameter arguments to batch still accepting tasks
+     */
+    private final Map<List<String>, Batch> _openBatches;
+
+    /**
+     * Tasks collected for one run of the algorithm
+     */
+    private static class Batch {
+        final List<BatchCommunityDetectionRunner> runners = new ArrayList<>();
+        final List<CompletableFuture<CommunityDetectionResult>> results = new ArrayList<>();
+        boolean closed = false;
+    }
+
+    /**
+     * Constructor
+     * @param name name of algorithm used in log messages
+     * @param dockerCmd command to run docker
+     * @param dockerImage docker image of algorithm
+     * @param batchDir directory under which batch directories are created,
+     *                 must be mountable by the container
+     * @param mountOptions flags used by container to mount filesystem,
+     *                     can be {@code null}
+     * @param maxBatchSize maximum number of tasks in a batch
+     * @param lingerMillis maximum time first task of a batch waits for
+     *                     other tasks
+     */
+    public TaskBatcher(final String name, final String dockerCmd,
+            final String dockerImage, final File batchDir, final String mountOptions,
+            int maxBatchSize, long lingerMillis){
+        _name = name;
+        _dockerCmd = dockerCmd;
+        _dockerImage = dockerImage;
+        _batchDir = batchDir;
+        _mountOptions = mountOptions == null ? "" : mountOptions;
+        _maxBatchSize = maxBatchSize;
+        _lingerMillis = lingerMillis;
+        _openBatches = new HashMap<>();
+    }
+
+    /**
+     * Gets maximum number of tasks in a batch
+     * @return maximum number of tasks
+     */
+    public int getMaxBatchSize(){
+        return _maxBatchSize;
+    }
+
+    /**
+     * Gets maximum time first task of a batch waits for other tasks
+     * @return time in milliseconds
+     */
+    public long getLingerMillis(){
+        return _lingerMillis;
+    }
+
+    /**
+     * Adds task run by {@code runner} to a batch and waits for the batch
+     * to be run. Invoked from worker thread running the task
+     * @param runner runner of task
+     * @return result of task
+     * @throws Exception if there was an error running the batch
+     */
+    public CommunityDetectionResult run(final BatchCommunityDetectionRunner runner) throws Exception {
+        List<String> key = runner.getCustomParameterArguments();
+        CompletableFuture<CommunityDetectionResult> result = new CompletableFuture<>();
+        Batch batch;
+        boolean leader = false;
+        synchronized(this){
+            batch = _openBatches.get(key);
+            if (batch == null){
+                batch = new Batch();
+                _openBatches.put(key, batch);
+                leader = true;
+            }
+            batch.runners.add(runner);
+            batch.results.add(result);
+            if (batch.runners.size() >= _maxBatchSize){
+                closeBatch(key, batch);
+            }
+        }
+        if (leader == true){
+            boolean interrupted = waitForBatch(key, batch);
+            runBatch(batch);
+            if (interrupted){
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            return result.get();
+        } catch(ExecutionException ee){
+            if (ee.getCause() instanceof Exception){
+                throw (Exception)ee.getCause();
+            }
+            throw ee;
+        }
+    }
+
+    /**
+     * Stops {@code batch} from accepting more tasks. Caller must
+     * hold lock on this object
+     * @param key custom parameter arguments of batch
+     * @param batch batch to close
+     */
+    private void closeBatch(final List<String> key, final Batch batch){
+        _openBatches.remove(key, batch);
+        batch.closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits until {@code batch} is full or the linger time has passed
+     * and closes the batch
+     * @param key custom parameter arguments of batch
+     * @param batch batch to wait on
+     * @return true if thread was interrupted while waiting
+     */
+    private synchronized boolean waitForBatch(final List<String> key, final Batch batch){
+        boolean interrupted = false;
+        long deadline = System.currentTimeMillis() + _lingerMillis;
+        long remaining = _lingerMillis;
+        while (batch.closed == false && remaining > 0){
+            try {
+                wait(remaining);
+            } catch(InterruptedException ie){
+                // other tasks in batch still need to be run
+                interrupted = true;
+                break;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+        closeBatch(key, batch);
+        return interrupted;
+    }
+
+    /**
+     * Runs tasks in {@code batch} completing the result of each task. A
+     * batch of one task is run the same way as
+     * {@link DockerCommunityDetectionRunner}
+     * @param batch batch to run
+     */
+    private void runBatch(final Batch batch){
+        try {
+            if (batch.runners.size() == 1){
+                batch.results.get(0).complete(batch.runners.get(0).callInOwnContainer());
+                return;
+            }
+            List<CommunityDetectionResult> results = runInContainer(batch.runners);
+            for (int i = 0; i < results.size(); i++){
+                batch.results.get(i).complete(results.get(i));
+            }
+        } catch(Throwable t){
+            _logger.error("Error running batch of tasks for " + _name, t);
+            for (CompletableFuture<CommunityDetectionResult> result : batch.results){
+                result.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * Copies input of every task to a new batch directory, runs algorithm
+     * once over the batch directory and collects result of each task
+     * @param runners runners of tasks in batch
+     * @return result of each task in same order as {@code runners}
+     * @throws Exception if there was an error creating the batch directory
+     *         or running the algorithm
+     */
+    protected List<CommunityDetectionResult> runInContainer(final List<BatchCommunityDetectionRunner> runners) throws Exception {
+        File batchDir = new File(_batchDir, UUID.randomUUID().toString());
+        try {
+            for (BatchCommunityDetectionRunner runner : runners){
+                File taskDir = new File(batchDir, runner.getId());
+                if (taskDir.mkdirs() == false){
+                    throw new IOException("Unable to create directory: " + taskDir.getAbsolutePath());
+                }
+                Files.copy(runner.getInputFile().toPath(),
+                        new File(taskDir, DockerCommunityDetectionRunner.INPUT_FILE).toPath());
+            }
+            BatchCommunityDetectionRunner first = runners.get(0);
+            List<String> mCmd = new ArrayList<>();
+            mCmd.add(_dockerCmd);
+            mCmd.add("run");
+            mCmd.add("--rm");
+            mCmd.add("-v");
+            mCmd.add(batchDir.getAbsolutePath() + ":" + batchDir.getAbsolutePath() + _mountOptions);
+            mCmd.add(_dockerImage);
+            mCmd.addAll(first.getCustomParameterArguments());
+            mCmd.add(BATCH_ARG);
+            mCmd.add(batchDir.getAbsolutePath());
+
+            CommandLineRunner clr = createCommandLineRunner();
+            clr.setWorkingDirectory(batchDir.getAbsolutePath());
+            File stdErrFile = new File(batchDir, DockerCommunityDetectionRunner.STD_ERR_FILE);
+            _logger.debug("Running batch of " + Integer.toString(runners.size())
+                    + " tasks for " + _name + " in " + batchDir.getAbsolutePath());
+            int exitValue = clr.runCommandLineProcess(getBatchTimeOut(first.getTimeOut(),
+                    runners.size()), first.getTimeUnit(),
+                    new File(batchDir, DockerCommunityDetectionRunner.STD_OUT_FILE),
+                    stdErrFile, mCmd.toArray(new String[0]));
+            List<CommunityDetectionResult> results = new ArrayList<>();
+            for (BatchCommunityDetectionRunner runner : runners){
+                results.add(runner.collectBatchResult(new File(batchDir, runner.getId()),
+                        exitValue, stdErrFile, clr.getLastCommand()));
+            }
+            return results;
+        } finally {
+            FileUtils.deleteQuietly(batchDir);
+        }
+    }
+
+    /**
+     * Gets timeout of a batch, the timeout of a task times the number of
+     * tasks since the tasks can be run one after another
+     * @param taskTimeOut timeout of a single task
+     * @param batchSize number of tasks in batch
+     * @return timeout of batch in same unit as {@code taskTimeOut}
+     */
+    static long getBatchTimeOut(long taskTimeOut, int batchSize){
+        if (taskTimeOut > Long.MAX_VALUE / batchSize){
+            return Long.MAX_VALUE;
+        }
+        return taskTimeOut * batchSize;
+    }
+
+    /**
+     * Creates runner used to run algorithm over a batch
+     * @return new command line runner
+     */
+    protected CommandLineRunner createCommandLineRunner(){
+        return new CommandLineRunnerImpl();
+    }
+
+    /**
+     * Reads exit code algorithm wrote for a task in a batch
+     * @param taskDir directory of task in batch directory
+     * @return exit code or {@code null} if the file is missing or invalid
+     */
+    static Integer readExitCode(final File taskDir){
+        File exitCodeFile = new File(taskDir, EXIT_CODE_FILE);
+        if (exitCodeFile.isFile() == false){
+            return null;
+        }
+        try {
+            return Integer.valueOf(FileUtils.readFileToString(exitCodeFile, "UTF-8").trim());
+        } catch(IOException | NumberFormatException ex){
+            _logger.error("Unable to read exit code from " + exitCodeFile.getAbsolutePath(), ex);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,274 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long lived process, normally a container started with {@code docker run -i},
+ * that runs an algorithm for many tasks. Requests are written to standard
+ * in and responses read from standard out, one json object per line:
+ * <p>
+ * Health check, the process must reply with {@code {"type": "pong"}}
+ * <pre>
+ * {"type": "ping"}
+ * </pre>
+ * Run algorithm with {@code args} as command line arguments, writing
+ * output to {@code stdout} and errors to {@code stderr}. The process must
+ * reply with the exit code the algorithm would have had if run on its own:
+ * <pre>
+ * {"type": "run", "id": "task id", "args": ["--k", "3", "/tasks/id/input.txt"],
+ *  "stdout": "/tasks/id/stdout.txt", "stderr": "/tasks/id/stderr.txt"}
+ *
+ * {"id": "task id", "exitcode": 0}
+ * </pre>
+ * Paths are those of the host so the task directory must be mounted at
+ * the same path in the container.
+ * <p>
+ * A container handles one request at a time, {@link WarmContainerPool}
+ * hands it to one runner at a time.
+ *
+ * @author churas
+ */
+public class WarmContainer {
+
+    static Logger _logger = LoggerFactory.getLogger(WarmContainer.class);
+
+    /**
+     * Exit code returned when a request exceeds its timeout, same as
+     * {@link CommandLineRunnerImpl}
+     */
+    public static final int TIMEOUT_EXIT_CODE = 500;
+
+    public static final String TYPE_FIELD = "type";
+    public static final String PING_TYPE = "ping";
+    public static final String PONG_TYPE = "pong";
+    public static final String RUN_TYPE = "run";
+    public static final String ID_FIELD = "id";
+    public static final String ARGS_FIELD = "args";
+    public static final String STDOUT_FIELD = "stdout";
+    public static final String STDERR_FIELD = "stderr";
+    public static final String EXITCODE_FIELD = "exitcode";
+
+    /**
+     * Put on response queue when standard out of process is closed
+     */
+    private static final String END_OF_STREAM = new String("end of stream");
+
+    private final Process _process;
+    private final Writer _writer;
+    private final BlockingQueue<String> _responses;
+    private final ObjectMapper _mapper;
+    private final String _command;
+    private int _uses;
+    private volatile long _lastUsed;
+    private volatile boolean _broken;
+
+    /**
+     * Starts process
+     * @param command command with arguments to start process
+     * @throws IOException if process could not be started
+     */
+    public WarmContainer(final List<String> command) throws IOException {
+        _command = String.join(" ", command);
+        _logger.debug("Starting warm container: " + _command);
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        _process = pb.start();
+        _writer = new BufferedWriter(new OutputStreamWriter(_process.getOutputStream(),
+                StandardCharsets.UTF_8));
+        _responses = new LinkedBlockingQueue<>();
+        _mapper = new ObjectMapper();
+        _lastUsed = System.currentTimeMillis();
+        Thread reader = new Thread(() -> readResponses(), "warmcontainer-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Reads lines from standard out of process until it is closed
+     */
+    private void readResponses(){
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                _process.getInputStream(), StandardCharsets.UTF_8))){
+            String line = br.readLine();
+            while (line != null){
+                if (line.trim().isEmpty() == false){
+                    _responses.add(line);
+                }
+                line = br.readLine();
+            }
+        } catch(IOException io){
+            _logger.debug("Error reading from warm container: " + io.getMessage());
+        }
+        _responses.add(END_OF_STREAM);
+    }
+
+    /**
+     * Writes {@code request} and waits for response
+     * @param request request to send
+     * @param timeoutMillis maximum time to wait for response
+     * @return response or {@code null} if none was received in time
+     * @throws IOException if request could not be sent, response is
+     *         not json, or process exited
+     */
+    private JsonNode send(final ObjectNode request, long timeoutMillis) throws IOException {
+        if (_broken){
+            throw new IOException("Warm container is no longer usable");
+        }
+        _writer.write(_mapper.writeValueAsString(request));
+        _writer.write("\n");
+        _writer.flush();
+        String line;
+        try {
+            line = _responses.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch(InterruptedException ie){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for warm container");
+        }
+        if (line == null){
+            return null;
+        }
+        if (line == END_OF_STREAM){
+            _broken = true;
+            throw new IOException("Warm container exited");
+        }
+        return _mapper.readTree(line);
+    }
+
+    /**
+     * Checks process is alive and answering requests
+     * @param timeoutMillis maximum time to wait for reply
+     * @return true if process replied to a ping in time
+     */
+    public boolean ping(long timeoutMillis){
+        if (isAlive() == false){
+            return false;
+        }
+        ObjectNode request = _mapper.createObjectNode();
+        request.put(TYPE_FIELD, PING_TYPE);
+        try {
+            JsonNode response = send(request, timeoutMillis);
+            if (response != null && PONG_TYPE.equals(response.path(TYPE_FIELD).asText())){
+                return true;
+            }
+        } catch(IOException io){
+            _logger.debug("Warm container failed health check: " + io.getMessage());
+        }
+        _broken = true;
+        return false;
+    }
+
+    /**
+     * Runs algorithm for a task
+     * @param id id of task
+     * @param args command line arguments for algorithm
+     * @param stdOutFile file algorithm should write standard out to
+     * @param stdErrFile file algorithm should write standard error to
+     * @param timeOut timeout value
+     * @param unit unit for timeout value
+     * @return exit code of algorithm or {@link #TIMEOUT_EXIT_CODE} if
+     *         timeout was exceeded in which case this container is closed
+     * @throws IOException if there was an error talking to the process,
+     *         after which this container is no longer usable
+     */
+    public int run(final String id, final List<String> args, final File stdOutFile,
+            final File stdErrFile, long timeOut, TimeUnit unit) throws IOException {
+        _uses++;
+        ObjectNode request = _mapper.createObjectNode();
+        request.put(TYPE_FIELD, RUN_TYPE);
+        request.put(ID_FIELD, id);
+        ArrayNode argsNode = request.putArray(ARGS_FIELD);
+        for (String arg : args){
+            argsNode.add(arg);
+        }
+        request.put(STDOUT_FIELD, stdOutFile.getAbsolutePath());
+        request.put(STDERR_FIELD, stdErrFile.getAbsolutePath());
+        try {
+            JsonNode response = send(request, unit.toMillis(timeOut));
+            if (response == null){
+                _logger.error("Task " + id + " exceeded timeout in warm container, closing container");
+                close();
+                return TIMEOUT_EXIT_CODE;
+            }
+            if (id.equals(response.path(ID_FIELD).asText()) == false
+                    || response.has(EXITCODE_FIELD) == false){
+                throw new IOException("Unexpected response from warm container: " + response.toString());
+            }
+            return response.get(EXITCODE_FIELD).asInt();
+        } catch(IOException io){
+            _broken = true;
+            throw io;
+        } finally {
+            _lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Gets number of tasks run by this container
+     * @return number of tasks
+     */
+    public int getUses(){
+        return _uses;
+    }
+
+    /**
+     * Gets time this container last finished a task or was started
+     * @return time in milliseconds since epoch
+     */
+    public long getLastUsed(){
+        return _lastUsed;
+    }
+
+    /**
+     * Gets command used to start process
+     * @return command as space delimited string
+     */
+    public String getCommand(){
+        return _command;
+    }
+
+    /**
+     * Denotes if process is running and has not failed a request
+     * @return true if process can be used
+     */
+    public boolean isAlive(){
+        return _broken == false && _process.isAlive();
+    }
+
+    /**
+     * Closes standard in of process, which tells it to exit, and
+     * kills it if it has not exited shortly after
+     */
+    public void close(){
+        _broken = true;
+        try {
+            _writer.close();
+        } catch(IOException io){
+            _logger.debug("Error closing standard in of warm container: " + io.getMessage());
+        }
+        try {
+            if (_process.waitFor(1, TimeUnit.SECONDS) == false){
+                _process.destroyForcibly();
+            }
+        } catch(InterruptedException ie){
+            Thread.currentThread().interrupt();
+            _process.destroyForcibly();
+        }
+    }
+}
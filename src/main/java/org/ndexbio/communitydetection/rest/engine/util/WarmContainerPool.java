@@ -0,0 +1,233 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps up to a fixed number of {@link WarmContainer}s for an algorithm so
+ * tasks skip the cost of starting a container. Idle containers are health
+ * checked before being handed out, recycled after a maximum number of uses
+ * and closed after being idle too long.
+ *
+ * @author churas
+ */
+public class WarmContainerPool {
+
+    static Logger _logger = LoggerFactory.getLogger(WarmContainerPool.class);
+
+    /**
+     * Argument added after docker image to start algorithm as a daemon
+     * that speaks the {@link WarmContainer} protocol
+     */
+    public static final String DAEMON_ARG = "--daemon";
+
+    /**
+     * Default maximum time to wait for reply to health check in milliseconds
+     */
+    public static final long DEFAULT_HEALTH_CHECK_TIMEOUT_MILLIS = 5000;
+
+    private final String _name;
+    private final List<String> _command;
+    private final int _size;
+    private final int _maxUses;
+    private final long _idleTimeoutMillis;
+    private final long _healthCheckTimeoutMillis;
+    private final Deque<WarmContainer> _idle;
+    private int _active;
+    private boolean _closed;
+
+    /**
+     * Constructor
+     * @param name name of algorithm used in log messages
+     * @param command command with arguments that starts a container
+     * @param size maximum number of containers
+     * @param maxUses containers are closed after running this many tasks,
+     *                0 or less means no limit
+     * @param idleTimeoutMillis containers idle longer than this are closed
+     *                          by {@link #closeIdleContainers()}, 0 or less
+     *                          means never
+     * @param healthCheckTimeoutMillis maximum time to wait for reply to
+     *                                 health check
+     */
+    public WarmContainerPool(final String name, final List<String> command, int size,
+            int maxUses, long idleTimeoutMillis, long healthCheckTimeoutMillis){
+        _name = name;
+        _command = Collections.unmodifiableList(new ArrayList<>(command));
+        _size = size;
+        _maxUses = maxUses;
+        _idleTimeoutMillis = idleTimeoutMillis;
+        _healthCheckTimeoutMillis = healthCheckTimeoutMillis;
+        _idle = new ArrayDeque<>();
+        _active = 0;
+        _closed = false;
+    }
+
+    /**
+     * Builds command that starts a container for {@code dockerImage} with
+     * {@code taskDir} mounted at the same path
+     * @param dockerCmd command to run docker
+     * @param dockerImage docker image of algorithm
+     * @param taskDir base directory for tasks
+     * @param mountOptions flags used by container to mount filesystem,
+     *                     can be {@code null}
+     * @return command with arguments
+     */
+    public static List<String> getDockerCommand(final String dockerCmd,
+            final String dockerImage, final String taskDir, final String mountOptions){
+        List<String> command = new ArrayList<>();
+        command.add(dockerCmd);
+        command.add("run");
+        command.add("-i");
+        command.add("--rm");
+        command.add("-v");
+        command.add(taskDir + ":" + taskDir + (mountOptions == null ? "" : mountOptions));
+        command.add(dockerImage);
+        command.add(DAEMON_ARG);
+        return command;
+    }
+
+    /**
+     * Gets a healthy container, starting one if none are idle and
+     * the pool is not full
+     * @return container that must be given back via
+     *         {@link #release(org.ndexbio.communitydetection.rest.engine.util.WarmContainer) }
+     *         or {@code null} if all containers are in use or one could
+     *         not be started
+     */
+    public WarmContainer acquire(){
+        while (true){
+            WarmContainer container;
+            synchronized(this){
+                if (_closed){
+                    return null;
+                }
+                container = _idle.pollFirst();
+                if (container == null){
+                    if (_active >= _size){
+                        return null;
+                    }
+                }
+                _active++;
+            }
+            if (container == null){
+                try {
+                    return new WarmContainer(_command);
+                } catch(IOException io){
+                    _logger.error("Unable to start warm container for " + _name, io);
+                    synchronized(this){
+                        _active--;
+                    }
+                    return null;
+                }
+            }
+            if (container.ping(_healthCheckTimeoutMillis)){
+                return container;
+            }
+            _logger.warn("Warm container for " + _name + " failed health check, closing it");
+            container.close();
+            synchronized(this){
+                _active--;
+            }
+        }
+    }
+
+    /**
+     * Gives back container obtained from {@link #acquire()}. The container
+     * is closed if it is no longer alive, has reached maximum uses or
+     * the pool has been closed
+     * @param container container to give back
+     */
+    public void release(final WarmContainer container){
+        if (container == null){
+            return;
+        }
+        boolean keep = container.isAlive()
+                && (_maxUses <= 0 || container.getUses() < _maxUses);
+        synchronized(this){
+            _active--;
+            if (keep && _closed == false){
+                _idle.addFirst(container);
+                return;
+            }
+        }
+        _logger.debug("Closing warm container for " + _name + " after "
+                + Integer.toString(container.getUses()) + " uses");
+        container.close();
+    }
+
+    /**
+     * Closes containers that have been idle longer than the idle timeout
+     * @return number of containers closed
+     */
+    public int closeIdleContainers(){
+        if (_idleTimeoutMillis <= 0){
+            return 0;
+        }
+        long oldestAllowed = System.currentTimeMillis() - _idleTimeoutMillis;
+        List<WarmContainer> toClose = new ArrayList<>();
+        synchronized(this){
+            Iterator<WarmContainer> itr = _idle.iterator();
+            while (itr.hasNext()){
+                WarmContainer container = itr.next();
+                if (container.getLastUsed() < oldestAllowed){
+                    itr.remove();
+                    toClose.add(container);
+                }
+            }
+        }
+        for (WarmContainer container : toClose){
+            container.close();
+        }
+        if (toClose.isEmpty() == false){
+            _logger.info("Closed " + Integer.toString(toClose.size())
+                    + " idle warm containers for " + _name);
+        }
+        return toClose.size();
+    }
+
+    /**
+     * Gets maximum number of containers
+     * @return maximum number of containers
+     */
+    public int getSize(){
+        return _size;
+    }
+
+    /**
+     * Gets number of idle containers
+     * @return number of idle containers
+     */
+    public synchronized int getIdleCount(){
+        return _idle.size();
+    }
+
+    /**
+     * Gets number of containers running a task
+     * @return number of containers in use
+     */
+    public synchronized int getActiveCount(){
+        return _active;
+    }
+
+    /**
+     * Closes idle containers, containers in use are closed when released
+     */
+    public void close(){
+        List<WarmContainer> toClose;
+        synchronized(this){
+            _closed = true;
+            toClose = new ArrayList<>(_idle);
+            _idle.clear();
+        }
+        for (WarmContainer container : toClose){
+            container.close();
+        }
+    }
+}
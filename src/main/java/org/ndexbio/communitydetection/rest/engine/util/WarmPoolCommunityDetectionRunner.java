@@ -0,0 +1,116 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs algorithm in a {@link WarmContainer} taken from a
+ * {@link WarmContainerPool} so the task does not pay for starting a
+ * container. If no warm container is available or the warm container
+ * fails, the algorithm is run in a new container the same way
+ * {@link DockerCommunityDetectionRunner} does.
+ *
+ * @author churas
+ */
+public class WarmPoolCommunityDetectionRunner extends DockerCommunityDetectionRunner {
+
+    static Logger _logger = LoggerFactory.getLogger(WarmPoolCommunityDetectionRunner.class);
+
+    private final WarmContainerPool _pool;
+
+    /**
+     * Constructor
+     * @param id id of task (should be a 37 char uuid string)
+     * @param cdr The request to process
+     * @param startTime Time task started in ms since epoch (1969)
+     * @param taskDir Base directory for tasks (this task will be put into taskDir/id)
+     * @param dockerCmd Command to run docker (/usr/bin/docker /bin/docker etc..)
+     * @param dockerImage Docker image to run (hello-world)
+     * @param customParameters Parameters to add to command line
+     * @param timeOut Any task exceeding this time (in unit set by unit) will be killed
+     * @param unit Unit to use for timeout
+     * @param mountOptions flags used by container to mount filesystem
+     * @param outputDataFormat output format of algorithm used to parse its
+     *                         output, can be {@code null}
+     * @param pool pool to get warm containers from
+     * @throws Exception If there is an issue writing the input data from the cdr object
+     */
+    public WarmPoolCommunityDetectionRunner(final String id,
+            final CommunityDetectionRequest cdr, final long startTime, final String taskDir,
+            final String dockerCmd, final String dockerImage,
+            final Map<String, String> customParameters,
+            final long timeOut,
+            final TimeUnit unit,
+            final String mountOptions,
+            final String outputDataFormat,
+            final WarmContainerPool pool) throws Exception {
+        super(id, cdr, startTime, taskDir, dockerCmd, dockerImage, customParameters,
+                timeOut, unit, mountOptions, outputDataFormat);
+        _pool = pool;
+    }
+
+    /**
+     * Runs algorithm in a warm container storing output and error
+     * to the file system, falling back to {@link DockerCommunityDetectionRunner#call()}
+     * if no warm container is available or it fails. If the task is
+     * canceled while the warm container is running it, the container is
+     * closed and no new container is started
+     * @throws InterruptedException if task was canceled while running
+     * @throws Exception if there was a problem with IO.
+     * @return Result of running task
+     */
+    @Override
+    public CommunityDetectionResult call() throws Exception {
+        WarmContainer container = _pool.acquire();
+        if (container == null){
+            throwIfInterrupted();
+            _logger.debug("No warm container available for task " + getId());
+            return super.call();
+        }
+        File stdOutFile = getStandardOutFile();
+        File stdErrFile = getStandardErrorFile();
+        CommunityDetectionResult cdr = createCommunityDetectionResult();
+        int exitValue;
+        try {
+            // remove progress left over from an earlier run of this task
+            new File(getInputFile().getParentFile(), PROGRESS_FILE).delete();
+            exitValue = container.run(getId(), getAlgorithmArguments(), stdOutFile,
+                    stdErrFile, getTimeOut(), getTimeUnit());
+        } catch(IOException io){
+            _pool.release(container);
+            throwIfInterrupted();
+            _logger.warn("Warm container failed to run task " + getId()
+                    + ", running it in a new container", io);
+            return super.call();
+        }
+        _pool.release(container);
+        writeCommandRunToFile(container.getCommand() + " "
+                + String.join(" ", getAlgorithmArguments()));
+        try {
+            updateCommunityDetectionResult(exitValue, stdOutFile, stdErrFile, cdr);
+        } catch(Exception ex){
+            cdr.setStatus(CommunityDetectionResult.FAILED_STATUS);
+            cdr.setMessage("Received error trying to run task: " + ex.getMessage());
+            _logger.error("Received error trying to run algorithm for task " + getId(), ex);
+        }
+        cdr.setProgress(100);
+        cdr.setWallTime(System.currentTimeMillis() - cdr.getStartTime());
+        return cdr;
+    }
+
+    /**
+     * Checks if task was canceled so no new container is started for it
+     * @throws InterruptedException if current thread was interrupted
+     */
+    private void throwIfInterrupted() throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()){
+            throw new InterruptedException("Task " + getId() + " was interrupted");
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package org.ndexbio.communitydetection.rest.services; // Note your package will be {{ groupId }}.rest
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,24 +23,39 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.info.Info;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.servers.Server;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.zip.GZIPInputStream;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.Response;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.engine.BatchTask;
 import org.ndexbio.communitydetection.rest.engine.CommunityDetectionEngine;
+import org.ndexbio.communitydetection.rest.engine.CommunityDetectionQueueFullException;
+import org.ndexbio.communitydetection.rest.engine.util.CommunityDetectionRequestReader;
+import org.ndexbio.communitydetection.rest.engine.util.InputDataFormats;
 import org.ndexbio.communitydetection.rest.model.CXMateResult;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithms;
@@ -39,6 +64,8 @@ import org.ndexbio.communitydetection.rest.model.ErrorResponse;
 import org.ndexbio.communitydetection.rest.model.Task;
 import org.ndexbio.communitydetection.rest.model.exceptions.CommunityDetectionBadRequestException;
 import org.ndexbio.communitydetection.rest.model.exceptions.CommunityDetectionException;
+import org.jboss.resteasy.plugins.providers.multipart.InputPart;
+import org.jboss.resteasy.plugins.providers.multipart.MultipartFormDataInput;
 
 /**
  * CommunityDetection service
@@ -63,9 +90,59 @@ public class CommunityDetection {
     
     static Logger _logger = LoggerFactory.getLogger(CommunityDetection.class);
     
+    /**
+     * Maximum number of seconds a request for a result will wait for
+     * the task to finish
+     */
+    public static final long MAX_WAIT_SECONDS = 300;
+    
+    /**
+     * Content coding of results sent compressed
+     */
+    public static final String GZIP_ENCODING = "gzip";
+    
+    /**
+     * Prefix of files in task directory that hold data of a request
+     * while it is being received
+     */
+    public static final String UPLOAD_PREFIX = "upload-";
+    
+    /**
+     * Suffix of files in task directory that hold data of a request
+     * while it is being received
+     */
+    public static final String UPLOAD_SUFFIX = ".tmp";
+    
+    /**
+     * Name of multipart form part holding the task as json
+     */
+    public static final String REQUEST_PART = "request";
+    
+    /**
+     * Name of multipart form part holding the input data
+     */
+    public static final String DATA_PART = "data";
+    
+    /**
+     * Request header selecting part of a result to send
+     */
+    public static final String RANGE_HEADER = "Range";
+    
+    /**
+     * Response header denoting part of result sent
+     */
+    public static final String CONTENT_RANGE_HEADER = "Content-Range";
+    
+    /**
+     * Response header advertising support of {@link #RANGE_HEADER}
+     */
+    public static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+    
     /**
      * Handles requests to run CommunityDetection
-     * @param query The task to run
+     * @param query The task to run as json, read as a stream
+     * @param contentLength value of Content-Length header used to refuse
+     *                      a request too large to queue, can be {@code null}
      * @return {@link javax.ws.rs.core.Response} 
      */
     @POST 
@@ -91,14 +168,20 @@ public class CommunityDetection {
                    @ApiResponse(responseCode = "400", description = "Bad Request",
                                 content = @Content(mediaType = MediaType.APPLICATION_JSON,
                                 schema = @Schema(implementation = ErrorResponse.class))),
+                   @ApiResponse(responseCode = "429", description = "Too many tasks are queued. "
+                                + "Resubmit after number of seconds set in Retry-After header",
+                                headers = @Header(name = "Retry-After", description = "Seconds to wait before resubmitting"),
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class))),
                    @ApiResponse(responseCode = "500", description = "Server Error",
                                 content = @Content(mediaType = MediaType.APPLICATION_JSON,
                                 schema = @Schema(implementation = ErrorResponse.class)))
                })
     public Response request(@RequestBody(description="Request as json", required = true,
-                                                   content = @Content(schema = @Schema(implementation = CommunityDetectionRequest.class))) final String query) {
+                                                   content = @Content(schema = @Schema(implementation = CommunityDetectionRequest.class))) final InputStream query,
+                            @Parameter(hidden = true) @HeaderParam(HttpHeaders.CONTENT_LENGTH) final String contentLength) {
         ObjectMapper omappy = new ObjectMapper();
-
+        File dataFile = null;
         try {
             // not sure why but I cannot get resteasy and jackson to worktogether to
             // automatically translate json to Query class so I'm doing it after the
@@ -107,22 +190,316 @@ public class CommunityDetection {
             if (engine == null){
                 throw new NullPointerException("CommunityDetection Engine not loaded");
             }
-            CommunityDetectionRequest pQuery = omappy.readValue(query, CommunityDetectionRequest.class);
-            String id = engine.request(pQuery);
-            if (id == null){
-                throw new CommunityDetectionException("No id returned from CommunityDetection engine");
+            // refuse the request before any of it is written to disk if
+            // it is already known to be too large to queue
+            checkContentLength(engine, contentLength);
+            
+            // data is written to a file as the request is parsed so it is
+            // never held in memory, the engine moves the file into the task
+            // directory if a task is created
+            dataFile = getUploadFile();
+            CommunityDetectionRequest pQuery = CommunityDetectionRequestReader.read(
+                    new InputLimitInputStream(query, engine), dataFile);
+            String id = engine.request(pQuery, dataFile.isFile() ? dataFile : null);
+            return getTaskSubmittedResponse(id, omappy);
+        } catch(Exception ex){
+            return getRequestErrorResponse(ex);
+        } finally {
+            FileUtils.deleteQuietly(dataFile);
+        }
+    }
+    
+    /**
+     * Handles requests to run CommunityDetection where the input data is
+     * uploaded as a file instead of being embedded in json
+     * @param input multipart form with {@link #REQUEST_PART} and {@link #DATA_PART}
+     * @param contentLength value of Content-Length header used to refuse
+     *                      a form too large to queue, can be {@code null}
+     * @return {@link javax.ws.rs.core.Response} 
+     */
+    @POST 
+    @Path(Configuration.V_ONE_PATH + "/")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Submits task with input data uploaded as a file",
+               description="Multipart form alternative to the submit task endpoint for large inputs. "
+                       + "The '" + REQUEST_PART + "' part is the task in JSON format without data and the '"
+                       + DATA_PART + "' part is the input data as is, in the inputDataFormat of the algorithm "
+                       + "as listed by the 'algorithms' endpoint. The input data is kept on "
+                       + "disk so it does not need to be escaped into a JSON string. Input data of an "
+                       + "algorithm taking CX or CX2 must be a JSON array or object or the task is "
+                       + "rejected with a 400 error.",
+               responses = {
+                   @ApiResponse(responseCode = "202",
+                           description = "The task was successfully submitted to the service. Visit the URL "
+                                   + "specified in Location field in HEADERS to get status and results"
+                                   + "In addition, the id(s) of the task(s) are returned as json\n",
+                           headers = @Header(name = "Location", description = "URL containing resource generated by this request"),
+                           content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = Task.class))),
+                   @ApiResponse(responseCode = "400", description = "Bad Request",
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class))),
+                   @ApiResponse(responseCode = "429", description = "Too many tasks are queued. "
+                                + "Resubmit after number of seconds set in Retry-After header",
+                                headers = @Header(name = "Retry-After", description = "Seconds to wait before resubmitting"),
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class))),
+                   @ApiResponse(responseCode = "500", description = "Server Error",
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class)))
+               })
+    public Response requestMultipart(@RequestBody(description="Task as json and input data as a file", required = true) 
+            final MultipartFormDataInput input,
+            @Parameter(hidden = true) @HeaderParam(HttpHeaders.CONTENT_LENGTH) final String contentLength) {
+        ObjectMapper omappy = new ObjectMapper();
+        File dataFile = null;
+        try {
+            CommunityDetectionEngine engine = Configuration.getInstance().getCommunityDetectionEngine();
+            if (engine == null){
+                throw new NullPointerException("CommunityDetection Engine not loaded");
+            }
+            if (input == null){
+                throw new CommunityDetectionBadRequestException("No form received");
+            }
+            checkContentLength(engine, contentLength);
+            InputPart requestPart = getFirstPart(input, REQUEST_PART);
+            if (requestPart == null){
+                throw new CommunityDetectionBadRequestException("Missing " + REQUEST_PART + " part");
+            }
+            CommunityDetectionRequest pQuery = omappy.readValue(requestPart.getBodyAsString(),
+                    CommunityDetectionRequest.class);
+            // the data part is the only source of data for the task
+            pQuery.setData(null);
+            
+            String inputDataFormat = getInputDataFormat(engine, pQuery);
+            InputPart dataPart = getFirstPart(input, DATA_PART);
+            if (dataPart != null){
+                dataFile = getUploadFile();
+                moveDataPart(dataPart, dataFile);
+            }
+            if (dataFile == null || dataFile.length() == 0){
+                throw new CommunityDetectionBadRequestException("Missing " + DATA_PART
+                        + " part with input data in "
+                        + (inputDataFormat == null ? "the algorithm input" : inputDataFormat)
+                        + " format");
             }
-            Task t = new Task();
-            t.setId(id);
-            return Response.status(202).location(new URI(Configuration.getInstance().getHostURL() +
-                                                         Configuration.V_ONE_PATH + "/" + id).normalize()).entity(omappy.writeValueAsString(t)).build();
+            InputDataFormats.checkInputFile(dataFile, inputDataFormat);
+            String id = engine.request(pQuery, dataFile);
+            return getTaskSubmittedResponse(id, omappy);
         } catch(CommunityDetectionBadRequestException breq){
             ErrorResponse er = breq.getErrorResponse();
             if (er == null){
                 er = new ErrorResponse("Bad request received", breq);
             }
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+        } catch(Exception ex){
+            return getRequestErrorResponse(ex);
+        } finally {
+            FileUtils.deleteQuietly(dataFile);
+            if (input != null){
+                // removes any temporary files holding parts of the form
+                input.close();
+            }
+        }
+    }
+    
+    /**
+     * Asks {@code engine} if a request body of {@code contentLength} bytes
+     * fits under the limit of input data for queued tasks. Nothing is
+     * checked if the header is missing or not a number
+     * @param engine engine to check with
+     * @param contentLength value of Content-Length header, can be {@code null}
+     * @throws CommunityDetectionException if request is too large to queue
+     */
+    private void checkContentLength(final CommunityDetectionEngine engine,
+            final String contentLength) throws CommunityDetectionException {
+        if (contentLength == null || contentLength.trim().isEmpty()){
+            return;
+        }
+        long length;
+        try {
+            length = Long.parseLong(contentLength.trim());
+        } catch(NumberFormatException nfe){
+            _logger.debug("Ignoring invalid Content-Length: " + contentLength);
+            return;
+        }
+        if (length > 0){
+            engine.checkInputBytes(length);
+        }
+    }
+    
+    /**
+     * Gets first part named {@code name} in {@code input}
+     * @param input the form
+     * @param name name of part
+     * @return part or {@code null} if not found
+     */
+    private InputPart getFirstPart(final MultipartFormDataInput input, final String name){
+        Map<String, List<InputPart>> parts = input.getFormDataMap();
+        if (parts == null || parts.get(name) == null || parts.get(name).isEmpty()){
+            return null;
+        }
+        return parts.get(name).get(0);
+    }
+    
+    /**
+     * Moves data of {@code dataPart} to {@code dataFile}. The part is taken
+     * from RESTEasy as the temporary file it is spooled to, which is moved
+     * instead of being written to disk a second time
+     * @param dataPart part holding input data
+     * @param dataFile file to move data to
+     * @throws IOException if data could not be moved
+     */
+    private void moveDataPart(final InputPart dataPart, final File dataFile) throws IOException {
+        File spoolFile = dataPart.getBody(File.class, null);
+        if (spoolFile == null){
+            throw new IOException("Unable to read " + DATA_PART + " part");
+        }
+        try {
+            Files.move(spoolFile.toPath(), dataFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            FileUtils.deleteQuietly(spoolFile);
+        }
+    }
+    
+    /**
+     * Gets input data format of algorithm in {@code request}
+     * @param engine engine to get algorithms from
+     * @param request the request
+     * @return input data format or {@code null} if it is not known
+     */
+    private String getInputDataFormat(final CommunityDetectionEngine engine,
+            final CommunityDetectionRequest request){
+        try {
+            CommunityDetectionAlgorithms algos = engine.getAlgorithms();
+            if (algos != null && algos.getAlgorithms() != null && request.getAlgorithm() != null){
+                CommunityDetectionAlgorithm cda = algos.getAlgorithms().get(request.getAlgorithm());
+                if (cda != null && cda.getInputDataFormat() != null){
+                    return cda.getInputDataFormat();
+                }
+            }
+        } catch(CommunityDetectionException cde){
+            _logger.debug("Unable to get algorithms: " + cde.getMessage());
+        }
+        return null;
+    }
+    
+    /**
+     * Gets new file in task directory to hold data of a request while
+     * it is being received. The file is not created
+     * @return file
+     */
+    private File getUploadFile(){
+        return new File(Configuration.getInstance().getTaskDirectory(),
+                    UPLOAD_PREFIX + UUID.randomUUID().toString() + UPLOAD_SUFFIX);
+    }
+    
+    /**
+     * Builds 202 response for a submitted task
+     * @param id id of task
+     * @param omappy mapper to write task with
+     * @return response
+     * @throws Exception if {@code id} is null or response cannot be built
+     */
+    private Response getTaskSubmittedResponse(final String id, ObjectMapper omappy) throws Exception {
+        if (id == null){
+            throw new CommunityDetectionException("No id returned from CommunityDetection engine");
+        }
+        Task t = new Task();
+        t.setId(id);
+        return Response.status(202).location(new URI(Configuration.getInstance().getHostURL() +
+                                                     Configuration.V_ONE_PATH + "/" + id).normalize()).entity(omappy.writeValueAsString(t)).build();
+    }
+    
+    /**
+     * Builds error response for a request that could not be submitted
+     * @param ex the error
+     * @return response
+     */
+    private Response getRequestErrorResponse(Exception ex){
+        // a request refused while its body was being read is thrown
+        // as an IOException by InputLimitInputStream
+        if (ex instanceof IOException
+                && ex.getCause() instanceof CommunityDetectionQueueFullException){
+            ex = (CommunityDetectionQueueFullException)ex.getCause();
+        }
+        if (ex instanceof CommunityDetectionBadRequestException){
+            ErrorResponse er = ((CommunityDetectionBadRequestException)ex).getErrorResponse();
+            if (er == null){
+                er = new ErrorResponse("Bad request received", ex);
+            }
             return Response.serverError().type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
-        }catch(Exception ex){
+        }
+        if (ex instanceof CommunityDetectionQueueFullException){
+            CommunityDetectionQueueFullException qfe = (CommunityDetectionQueueFullException)ex;
+            ErrorResponse er = new ErrorResponse("Service is too busy to accept task, "
+                    + "retry after " + Long.toString(qfe.getRetryAfterSeconds())
+                    + " seconds", qfe);
+            return Response.status(429).header("Retry-After", Long.toString(qfe.getRetryAfterSeconds()))
+                    .type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+        }
+        ErrorResponse er = new ErrorResponse("Error requesting CommunityDetection", ex);
+        return Response.serverError().type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+    }
+
+    /**
+     * Handles requests to run several CommunityDetection tasks at once
+     * @param query JSON array of tasks to run
+     * @return {@link javax.ws.rs.core.Response} 
+     */
+    @POST 
+    @Path(Configuration.V_ONE_PATH + "/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Submits several tasks",
+               description="Payload in JSON format is an array of tasks where each task has the same "
+                       + "format as a task passed to the submit task endpoint. The response is an array "
+                       + "with an entry for each task in the same order as the payload. If the task was "
+                       + "accepted the entry has the id of the task, otherwise the entry has an error "
+                       + "explaining why the task was not accepted",
+               responses = {
+                   @ApiResponse(responseCode = "202",
+                           description = "The tasks were processed by the service. Check each entry "
+                                   + "of the returned array for the id or error of the corresponding task\n",
+                           content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                array = @ArraySchema(schema = @Schema(implementation = BatchTask.class)))),
+                   @ApiResponse(responseCode = "400", description = "Bad Request",
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class))),
+                   @ApiResponse(responseCode = "500", description = "Server Error",
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class)))
+               })
+    public Response requestBatch(@RequestBody(description="Array of requests as json", required = true,
+                                                   content = @Content(array = @ArraySchema(schema = @Schema(implementation = CommunityDetectionRequest.class)))) final String query) {
+        ObjectMapper omappy = new ObjectMapper();
+        List<CommunityDetectionRequest> requests;
+        try {
+            requests = omappy.readValue(query, new TypeReference<List<CommunityDetectionRequest>>(){});
+        } catch(IOException io){
+            ErrorResponse er = new ErrorResponse("Unable to parse array of requests", io);
+            return Response.status(400).type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+        }
+        try {
+            CommunityDetectionEngine engine = Configuration.getInstance().getCommunityDetectionEngine();
+            if (engine == null){
+                throw new NullPointerException("CommunityDetection Engine not loaded");
+            }
+            List<BatchTask> batchTasks = engine.requestBatch(requests);
+            if (batchTasks == null){
+                throw new CommunityDetectionException("No tasks returned from CommunityDetection engine");
+            }
+            return Response.status(202).type(MediaType.APPLICATION_JSON).entity(omappy.writeValueAsString(batchTasks)).build();
+        } catch(CommunityDetectionBadRequestException breq){
+            ErrorResponse er = breq.getErrorResponse();
+            if (er == null){
+                er = new ErrorResponse("Bad request received", breq);
+            }
+            return Response.status(400).type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+        } catch(Exception ex){
             ErrorResponse er = new ErrorResponse("Error requesting CommunityDetection", ex);
             return Response.serverError().type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
         }
@@ -133,39 +510,235 @@ public class CommunityDetection {
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "Gets result of task",
                description="NOTE: For incomplete/failed jobs only Status, message, progress, and walltime will\n" +
-"be returned in JSON",
+"be returned in JSON\n\n" +
+"If <b>wait</b> is set, the request is held until the task completes or fails or\n" +
+"the number of seconds elapses, whichever comes first. The wait is capped at\n" +
+MAX_WAIT_SECONDS + " seconds\n\n" +
+"If the client accepts gzip encoding, finished results stored compressed are\n" +
+"sent as is with a Content-Encoding of gzip\n\n" +
+"Finished results are streamed from storage and a single byte <b>Range</b>\n" +
+"can be requested to resume a download",
                responses = {
                    @ApiResponse(responseCode = "200",
                            description = "Success",
                            content = @Content(mediaType = MediaType.APPLICATION_JSON,
                                 schema = @Schema(implementation = CommunityDetectionResult.class))),
+                   @ApiResponse(responseCode = "206",
+                           description = "Requested range of result"),
                    @ApiResponse(responseCode = "410",
                            description = "Task not found"),
+                   @ApiResponse(responseCode = "416",
+                           description = "Requested range is beyond end of result"),
                    @ApiResponse(responseCode = "500", description = "Server Error",
                                 content = @Content(mediaType = MediaType.APPLICATION_JSON,
                                 schema = @Schema(implementation = ErrorResponse.class)))
                })
-    public Response getResult(@PathParam("id") final String id) {
-        ObjectMapper omappy = new ObjectMapper();
-
+    public void getResult(@PathParam("id") final String id,
+            @Parameter(description = "Number of seconds to wait for task to finish")
+            @QueryParam("wait") final Long wait,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding,
+            @HeaderParam(RANGE_HEADER) final String range,
+            @Suspended final AsyncResponse asyncResponse) {
         try {
-            CommunityDetectionEngine engine = Configuration.getInstance().getCommunityDetectionEngine();
+            final CommunityDetectionEngine engine = Configuration.getInstance().getCommunityDetectionEngine();
             if (engine == null){
                 throw new NullPointerException("CommunityDetection Engine not loaded");
             }
+            final boolean gzip = acceptsGzip(acceptEncoding);
+            if (wait != null && wait > 0){
+                final Runnable listener = () -> asyncResponse.resume(getResultResponse(engine, id, gzip, range));
+                asyncResponse.setTimeoutHandler((AsyncResponse ar) -> {
+                    engine.removeTaskFinishedListener(id, listener);
+                    ar.resume(getResultResponse(engine, id, gzip, range));
+                });
+                if (engine.addTaskFinishedListener(id, listener) == true){
+                    asyncResponse.setTimeout(Math.min(wait, MAX_WAIT_SECONDS), TimeUnit.SECONDS);
+                    return;
+                }
+            }
+            asyncResponse.resume(getResultResponse(engine, id, gzip, range));
+        }
+        catch(Exception ex){
+            ErrorResponse er = new ErrorResponse("Error getting results for id: " + id, ex);
+            asyncResponse.resume(Response.status(500).type(MediaType.APPLICATION_JSON).entity(er.asJson()).build());
+        }
+    }
+    
+    /**
+     * Denotes whether {@code acceptEncoding} header value lists gzip
+     * without a quality value of 0
+     * @param acceptEncoding value of Accept-Encoding header, can be {@code null}
+     * @return true if client accepts gzip encoded responses
+     */
+    protected static boolean acceptsGzip(final String acceptEncoding){
+        if (acceptEncoding == null){
+            return false;
+        }
+        double gzipQuality = -1;
+        double anyQuality = -1;
+        for (String coding : acceptEncoding.split(",")){
+            String[] params = coding.split(";");
+            String name = params[0].trim();
+            if (name.equalsIgnoreCase(GZIP_ENCODING)){
+                gzipQuality = getQuality(params);
+            } else if (name.equals("*")){
+                anyQuality = getQuality(params);
+            }
+        }
+        if (gzipQuality >= 0){
+            return gzipQuality > 0;
+        }
+        return anyQuality > 0;
+    }
+    
+    /**
+     * Gets quality value from parameters of a content coding
+     * @param params content coding followed by its parameters
+     * @return quality value, 1 if not set, or 0 if it cannot be parsed
+     */
+    private static double getQuality(final String[] params){
+        for (int i = 1; i < params.length; i++){
+            String param = params[i].trim();
+            if (param.startsWith("q=")){
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch(NumberFormatException nfe){
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+    
+    /**
+     * Builds response containing current result of task with {@code id}
+     * @param engine engine to query
+     * @param id id of task
+     * @param gzip if true and the result is stored compressed, the 
+     *             compressed result is sent with a Content-Encoding of gzip
+     * @param range value of Range header, can be {@code null}
+     * @return response with result, 410 if task is not found, or
+     *         500 upon error
+     */
+    private Response getResultResponse(final CommunityDetectionEngine engine,
+            final String id, boolean gzip, final String range){
+        ObjectMapper omappy = new ObjectMapper();
+        try {
+            // frequently requested results are sent from memory
+            byte[] resultBytes = gzip ? engine.getResultBytes(id, true) : null;
+            if (resultBytes != null){
+                return getResultBytesResponse(resultBytes, range, true);
+            }
+            resultBytes = engine.getResultBytes(id, false);
+            if (resultBytes != null){
+                return getResultBytesResponse(resultBytes, range, false);
+            }
             
+            File resultFile = gzip ? engine.getResultFile(id, true) : null;
+            if (resultFile != null){
+                return getResultFileResponse(resultFile, range, true);
+            }
+            resultFile = engine.getResultFile(id, false);
+            if (resultFile != null){
+                return getResultFileResponse(resultFile, range, false);
+            }
+            final File compressedFile = gzip ? null : engine.getResultFile(id, true);
+            if (compressedFile != null){
+                // client cannot accept gzip so decompress while streaming
+                StreamingOutput decompressed = (OutputStream out) -> {
+                    try (InputStream in = new GZIPInputStream(new FileInputStream(compressedFile))){
+                        IOUtils.copy(in, out);
+                    }
+                };
+                return Response.ok().type(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .entity(decompressed).build();
+            }
             CommunityDetectionResult eqr = engine.getResult(id);
             if (eqr == null){
                 return Response.status(410).build();
             }
-            return Response.ok().type(MediaType.APPLICATION_JSON).entity(omappy.writeValueAsString(eqr)).build();
+            return Response.ok().type(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .entity(omappy.writeValueAsString(eqr)).build();
         }
         catch(Exception ex){
             ErrorResponse er = new ErrorResponse("Error getting results for id: " + id, ex);
             return Response.status(500).type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
         }
     }
+
+    /**
+     * Builds response that streams {@code resultFile}, or the part of it
+     * selected by {@code range}, without loading it
+     * @param resultFile file holding json of result
+     * @param range value of Range header, can be {@code null}
+     * @param compressed if true {@code resultFile} is gzip compressed
+     * @return response with 200 status, 206 if part of file is sent, or 416
+     *         if range cannot be satisfied
+     */
+    private Response getResultFileResponse(final File resultFile, final String range,
+            boolean compressed){
+        return getRangeResponse(resultFile.length(), range, compressed,
+                (Long start, Long length) -> new ResultFileStream(resultFile, start, length));
+    }
     
+    /**
+     * Builds response that writes {@code resultBytes}, or the part of it
+     * selected by {@code range}
+     * @param resultBytes json of result
+     * @param range value of Range header, can be {@code null}
+     * @param compressed if true {@code resultBytes} is gzip compressed
+     * @return response with 200 status, 206 if part of result is sent, or 416
+     *         if range cannot be satisfied
+     */
+    private Response getResultBytesResponse(final byte[] resultBytes, final String range,
+            boolean compressed){
+        return getRangeResponse(resultBytes.length, range, compressed,
+                (Long start, Long length) -> (OutputStream out) -> {
+                    out.write(resultBytes, start.intValue(), length.intValue());
+                });
+    }
+    
+    /**
+     * Builds response that sends a result of {@code totalLength} bytes, or
+     * the part of it selected by {@code range}
+     * @param totalLength size of result in bytes
+     * @param range value of Range header, can be {@code null}
+     * @param compressed if true result is gzip compressed
+     * @param entityFactory given offset of first byte and number of bytes
+     *                      to send, creates entity that writes them
+     * @return response with 200 status, 206 if part of result is sent, or 416
+     *         if range cannot be satisfied
+     */
+    private Response getRangeResponse(long totalLength, final String range,
+            boolean compressed, final BiFunction<Long, Long, StreamingOutput> entityFactory){
+        long length = totalLength;
+        long[] byteRange = ResultFileStream.getRange(range, length);
+        if (byteRange != null && byteRange.length == 0){
+            return Response.status(416).header(CONTENT_RANGE_HEADER,
+                    ResultFileStream.BYTES_UNIT + " */" + Long.toString(length)).build();
+        }
+        Response.ResponseBuilder rb;
+        if (byteRange == null){
+            rb = Response.ok().entity(entityFactory.apply(0L, length));
+        } else {
+            length = byteRange[1] - byteRange[0] + 1;
+            rb = Response.status(206).header(CONTENT_RANGE_HEADER,
+                    ResultFileStream.BYTES_UNIT + " " + Long.toString(byteRange[0])
+                            + "-" + Long.toString(byteRange[1]) + "/"
+                            + Long.toString(totalLength))
+                    .entity(entityFactory.apply(byteRange[0], length));
+        }
+        if (compressed == true){
+            rb.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+        }
+        return rb.type(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_LENGTH, Long.toString(length))
+                .header(ACCEPT_RANGES_HEADER, ResultFileStream.BYTES_UNIT)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+    }
+
     @GET
     @Path(Configuration.V_ONE_PATH + "/algorithms")
     @Produces(MediaType.APPLICATION_JSON)
@@ -237,6 +810,148 @@ public class CommunityDetection {
             return Response.serverError().type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
         }
     }
+    
+    @GET 
+    @Path(Configuration.V_ONE_PATH + "/{id}/events")
+    @Produces(TaskEventStream.SERVER_SENT_EVENTS)
+    @Operation(summary = "Streams status changes of task",
+               description="Returns a Server-Sent Events stream with an event for the current\n" +
+"status of the task followed by an event each time the status or progress\n" +
+"changes. Events are named after the status and contain the status as JSON.\n" +
+"The stream ends once the task completes, fails, or is deleted. Each open\n" +
+"stream holds a server thread so the number of open streams is limited",
+               responses = {
+                   @ApiResponse(responseCode = "200",
+                           description = "Success",
+                           content = @Content(mediaType = TaskEventStream.SERVER_SENT_EVENTS,
+                                schema = @Schema(implementation = CommunityDetectionResultStatus.class))),
+                   @ApiResponse(responseCode = "410",
+                           description = "Task not found"),
+                   @ApiResponse(responseCode = "503", description = "Too many event streams are open. "
+                                + "Retry after number of seconds set in Retry-After header",
+                                headers = @Header(name = "Retry-After", description = "Seconds to wait before retrying"),
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class))),
+                   @ApiResponse(responseCode = "500", description = "Server Error",
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class)))
+               })
+    public Response getRequestEvents(@PathParam("id") final String id) {
+        try {
+            CommunityDetectionEngine engine = Configuration.getInstance().getCommunityDetectionEngine();
+            if (engine == null){
+                throw new NullPointerException("CommunityDetection Engine not loaded");
+            }
+            int maxStreams = Configuration.getInstance().getMaxEventStreams();
+            if (maxStreams > 0 && TaskEventStream.getOpenStreamCount() >= maxStreams){
+                ErrorResponse er = new ErrorResponse();
+                er.setMessage("Maximum of " + Integer.toString(maxStreams)
+                        + " event streams reached, retry later or poll status of task");
+                return Response.status(503).header("Retry-After",
+                        Long.toString(TaskEventStream.DEFAULT_KEEP_ALIVE_MILLIS / 1000))
+                        .type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+            }
+            TaskEventStream eventStream = new TaskEventStream(id, engine,
+                    TaskEventStream.DEFAULT_KEEP_ALIVE_MILLIS);
+            if (eventStream.open() == false){
+                return Response.status(410).build();
+            }
+            return Response.ok(eventStream, TaskEventStream.SERVER_SENT_EVENTS)
+                    .header("Cache-Control", "no-cache").build();
+        }
+        catch(Exception ex){
+            ErrorResponse er = new ErrorResponse("Error getting events for id: " + id, ex);
+            return Response.serverError().type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+        }
+    }
+
+    @POST 
+    @Path(Configuration.V_ONE_PATH + "/status")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Gets status of several tasks",
+               description="Payload is a JSON array of task ids. Returns a JSON object where each id "
+                       + "maps to the status of the task or null if the task was not found",
+               responses = {
+                   @ApiResponse(responseCode = "200",
+                           description = "Success",
+                           content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(type = "object"))),
+                   @ApiResponse(responseCode = "400", description = "Bad Request",
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class))),
+                   @ApiResponse(responseCode = "500", description = "Server Error",
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class)))
+               })
+    public Response getRequestStatuses(@RequestBody(description="Array of task ids as json", required = true,
+                                                   content = @Content(array = @ArraySchema(schema = @Schema(implementation = String.class)))) final String ids) {
+        ObjectMapper omappy = new ObjectMapper();
+        List<String> idList;
+        try {
+            idList = omappy.readValue(ids, new TypeReference<List<String>>(){});
+        } catch(IOException io){
+            ErrorResponse er = new ErrorResponse("Unable to parse array of ids", io);
+            return Response.status(400).type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+        }
+        try {
+            CommunityDetectionEngine engine = Configuration.getInstance().getCommunityDetectionEngine();
+            if (engine == null){
+                throw new NullPointerException("CommunityDetection Engine not loaded");
+            }
+            Map<String, CommunityDetectionResultStatus> statuses = engine.getStatuses(idList);
+            return Response.ok().type(MediaType.APPLICATION_JSON).entity(omappy.writeValueAsString(statuses)).build();
+        }
+        catch(Exception ex){
+            ErrorResponse er = new ErrorResponse("Error getting status of tasks", ex);
+            return Response.serverError().type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+        }
+    }
+    
+    @POST 
+    @Path(Configuration.V_ONE_PATH + "/results")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Gets results of several tasks",
+               description="Payload is a JSON array of task ids. Returns a JSON object where each id "
+                       + "maps to the result of the task or null if the task was not found\n"
+                       + "NOTE: For incomplete/failed jobs only Status, message, progress, and walltime will\n"
+                       + "be returned in JSON",
+               responses = {
+                   @ApiResponse(responseCode = "200",
+                           description = "Success",
+                           content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(type = "object"))),
+                   @ApiResponse(responseCode = "400", description = "Bad Request",
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class))),
+                   @ApiResponse(responseCode = "500", description = "Server Error",
+                                content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                                schema = @Schema(implementation = ErrorResponse.class)))
+               })
+    public Response getResults(@RequestBody(description="Array of task ids as json", required = true,
+                                                   content = @Content(array = @ArraySchema(schema = @Schema(implementation = String.class)))) final String ids) {
+        ObjectMapper omappy = new ObjectMapper();
+        List<String> idList;
+        try {
+            idList = omappy.readValue(ids, new TypeReference<List<String>>(){});
+        } catch(IOException io){
+            ErrorResponse er = new ErrorResponse("Unable to parse array of ids", io);
+            return Response.status(400).type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+        }
+        try {
+            CommunityDetectionEngine engine = Configuration.getInstance().getCommunityDetectionEngine();
+            if (engine == null){
+                throw new NullPointerException("CommunityDetection Engine not loaded");
+            }
+            Map<String, CommunityDetectionResult> results = engine.getResults(idList);
+            return Response.ok().type(MediaType.APPLICATION_JSON).entity(omappy.writeValueAsString(results)).build();
+        }
+        catch(Exception ex){
+            ErrorResponse er = new ErrorResponse("Error getting results of tasks", ex);
+            return Response.serverError().type(MediaType.APPLICATION_JSON).entity(er.asJson()).build();
+        }
+    }
 
     @DELETE 
     @Path(Configuration.V_ONE_PATH + "/{id}")
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -38,6 +39,263 @@ public class Configuration {
     public static final String ALGORITHM_MAP = "communitydetection.algorithm.map";
     public static final String ALGORITHM_TIMEOUT = "communitydetection.algorithm.timeout";
 
+    /**
+     * Sets how queued tasks are ordered, either {@link #FIFO_SCHEDULER}
+     * or {@link #SHORTEST_JOB_FIRST_SCHEDULER}
+     */
+    public static final String SCHEDULER = "communitydetection.scheduler";
+    
+    /**
+     * Runs tasks in order they were submitted
+     */
+    public static final String FIFO_SCHEDULER = "fifo";
+    
+    /**
+     * Runs tasks with shortest estimated wall time first with
+     * aging so long tasks still get run
+     */
+    public static final String SHORTEST_JOB_FIRST_SCHEDULER = "shortestjobfirst";
+    
+    /**
+     * Multiplier applied to estimated wall time of task when computing
+     * priority for {@link #SHORTEST_JOB_FIRST_SCHEDULER}. Higher values
+     * favor short tasks more
+     */
+    public static final String SCHEDULER_RUNTIME_WEIGHT = "communitydetection.scheduler.runtime.weight";
+    
+    /**
+     * Maximum number of queued or running tasks, new requests over this
+     * limit are rejected. 0 means no limit
+     */
+    public static final String MAX_QUEUED_TASKS = "communitydetection.max.queued.tasks";
+    
+    /**
+     * Maximum total size in bytes of input data for queued or running tasks,
+     * new requests over this limit are rejected. 0 means no limit
+     */
+    public static final String MAX_INFLIGHT_INPUT_BYTES = "communitydetection.max.inflight.input.bytes";
+    
+    /**
+     * Maximum total size in bytes of completed results kept in the result
+     * cache under the task directory. Least recently used results are removed
+     * once this size is exceeded. 0 disables the result cache
+     */
+    public static final String RESULT_CACHE_MAX_BYTES = "communitydetection.result.cache.max.bytes";
+    
+    /**
+     * Maximum total size in bytes of the json of completed results kept in
+     * memory so they do not have to be read from the result store on
+     * every request. 0 disables the in memory cache
+     */
+    public static final String RESULT_MEMORY_CACHE_MAX_BYTES = "communitydetection.result.memory.cache.max.bytes";
+    
+    /**
+     * Default value for {@link #RESULT_MEMORY_CACHE_MAX_BYTES}
+     */
+    public static final long DEFAULT_RESULT_MEMORY_CACHE_MAX_BYTES = 67108864;
+    
+    /**
+     * Where completed results are stored. Can be one of
+     * {@link #FILESYSTEM_RESULT_STORE} or {@link #MVSTORE_RESULT_STORE}
+     */
+    public static final String RESULT_STORE = "communitydetection.result.store";
+    
+    /**
+     * Value for {@link #RESULT_STORE} that stores each result as a json
+     * file in its task directory. This is the default
+     */
+    public static final String FILESYSTEM_RESULT_STORE = "filesystem";
+    
+    /**
+     * Value for {@link #RESULT_STORE} that stores all results in a single
+     * embedded key value store file under the task directory. Task
+     * directories of completed tasks are removed once their result is stored
+     */
+    public static final String MVSTORE_RESULT_STORE = "mvstore";
+    
+    /**
+     * If true, results are stored gzip compressed by the 
+     * {@link #FILESYSTEM_RESULT_STORE} and sent as is to clients that
+     * accept gzip encoding
+     */
+    public static final String RESULT_COMPRESS = "communitydetection.result.compress";
+    
+    /**
+     * Task directories of finished tasks older than this many seconds are
+     * removed. 0 disables removal by age
+     */
+    public static final String TASK_MAX_AGE_SECONDS = "communitydetection.task.max.age.seconds";
+    
+    /**
+     * Maximum total size in bytes of task directories. Once exceeded, task
+     * directories of the oldest finished tasks are removed until the total
+     * size drops to {@link #TASK_LOW_WATERMARK_PERCENT} of this value.
+     * The size of the {@link #MVSTORE_RESULT_STORE} file counts toward this
+     * value and its oldest results are removed as well. 0 disables removal by size
+     */
+    public static final String TASK_MAX_TOTAL_BYTES = "communitydetection.task.max.total.bytes";
+    
+    /**
+     * Percentage of {@link #TASK_MAX_TOTAL_BYTES} task directories are
+     * reduced to once that limit is exceeded
+     */
+    public static final String TASK_LOW_WATERMARK_PERCENT = "communitydetection.task.low.watermark.percent";
+    
+    /**
+     * Default value for {@link #TASK_LOW_WATERMARK_PERCENT}
+     */
+    public static final int DEFAULT_TASK_LOW_WATERMARK_PERCENT = 80;
+    
+    /**
+     * Seconds between checks for task directories to remove
+     */
+    public static final String TASK_GC_INTERVAL_SECONDS = "communitydetection.task.gc.interval.seconds";
+    
+    /**
+     * Default value for {@link #TASK_GC_INTERVAL_SECONDS}
+     */
+    public static final long DEFAULT_TASK_GC_INTERVAL_SECONDS = 300;
+    
+    /**
+     * If true, task state changes are recorded in a journal under the task
+     * directory and tasks that did not finish are queued again on startup
+     */
+    public static final String TASK_JOURNAL = "communitydetection.task.journal";
+    
+    /**
+     * If true, docker images of all algorithms are pulled in parallel when
+     * the service starts and tasks wait for the pull of their image to
+     * finish so pull time is not counted against {@link #ALGORITHM_TIMEOUT}
+     */
+    public static final String IMAGE_PREPULL = "communitydetection.image.prepull";
+    
+    /**
+     * Maximum time in seconds to pull a docker image or run its warm up
+     */
+    public static final String IMAGE_PULL_TIMEOUT = "communitydetection.image.pull.timeout";
+    
+    /**
+     * Default value for {@link #IMAGE_PULL_TIMEOUT}
+     */
+    public static final long DEFAULT_IMAGE_PULL_TIMEOUT = 1800;
+    
+    /**
+     * Maximum number of task event streams open at once. Each open stream
+     * holds a server thread until its task finishes, new streams over this
+     * limit are rejected. 0 means no limit
+     */
+    public static final String MAX_EVENT_STREAMS = "communitydetection.max.event.streams";
+    
+    /**
+     * Default value for {@link #MAX_EVENT_STREAMS}, a quarter of the
+     * default maximum of 200 jetty threads
+     */
+    public static final int DEFAULT_MAX_EVENT_STREAMS = 50;
+    
+    /**
+     * Maximum number of requests in a batch, larger batches are
+     * rejected. 0 means no limit
+     */
+    public static final String MAX_BATCH_SIZE = "communitydetection.max.batch.size";
+    
+    /**
+     * Default value for {@link #MAX_BATCH_SIZE}
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    
+    /**
+     * Prefix for settings that apply to a single algorithm. Settings are
+     * of the form: communitydetection.algo.&lt;algorithm name&gt;.&lt;setting&gt;
+     */
+    public static final String ALGORITHM_SETTING_PREFIX = "communitydetection.algo.";
+    
+    /**
+     * Algorithm setting denoting number of workers dedicated to algorithm
+     */
+    public static final String ALGORITHM_WORKERS_SETTING = "workers";
+    
+    /**
+     * Algorithm setting denoting maximum number of tasks that can wait
+     * for a dedicated worker. 0 or less means no limit
+     */
+    public static final String ALGORITHM_QUEUE_SIZE_SETTING = "queue.size";
+    
+    /**
+     * Algorithm setting denoting maximum number of queued or running tasks
+     * for algorithm, new requests over this limit are rejected. 0 means no limit
+     */
+    public static final String ALGORITHM_MAX_QUEUED_TASKS_SETTING = "max.queued.tasks";
+    
+    /**
+     * Algorithm setting denoting number of warm containers kept for
+     * algorithm. 0 or less means tasks always start a new container
+     */
+    public static final String ALGORITHM_WARM_POOL_SIZE_SETTING = "warm.pool.size";
+    
+    /**
+     * Algorithm setting denoting number of tasks a warm container runs
+     * before it is replaced. 0 or less means no limit
+     */
+    public static final String ALGORITHM_WARM_POOL_MAX_USES_SETTING = "warm.pool.max.uses";
+    
+    /**
+     * Algorithm setting denoting seconds a warm container can be idle
+     * before it is stopped. 0 or less means never
+     */
+    public static final String ALGORITHM_WARM_POOL_IDLE_TIMEOUT_SETTING = "warm.pool.idle.timeout.seconds";
+    
+    /**
+     * Algorithm setting denoting maximum number of tasks with the same
+     * custom parameters run together by one container. 1 or less disables
+     * batching
+     */
+    public static final String ALGORITHM_BATCH_SIZE_SETTING = "batch.size";
+    
+    /**
+     * Algorithm setting denoting milliseconds the first task of a batch
+     * waits for other tasks to join it
+     */
+    public static final String ALGORITHM_BATCH_LINGER_SETTING = "batch.linger.millis";
+    
+    /**
+     * Algorithm setting denoting space delimited arguments for a warm up run
+     * of the algorithm's docker image after it is pulled at startup
+     */
+    public static final String ALGORITHM_WARMUP_ARGS_SETTING = "warmup.args";
+
+    /**
+     * Algorithm setting denoting how algorithm is run, one of
+     * {@link #DOCKER_RUNNER}, {@link #PROCESS_RUNNER} or {@link #JVM_RUNNER}
+     */
+    public static final String ALGORITHM_RUNNER_SETTING = "runner";
+
+    /**
+     * Algorithm setting denoting executable run by {@link #PROCESS_RUNNER}
+     */
+    public static final String ALGORITHM_RUNNER_COMMAND_SETTING = "runner.command";
+
+    /**
+     * Algorithm setting denoting class implementing
+     * {@link org.ndexbio.communitydetection.rest.engine.util.InProcessAlgorithm}
+     * run by {@link #JVM_RUNNER}
+     */
+    public static final String ALGORITHM_RUNNER_CLASS_SETTING = "runner.class";
+
+    /**
+     * Runs algorithm in a docker container, the default
+     */
+    public static final String DOCKER_RUNNER = "docker";
+
+    /**
+     * Runs algorithm as a local process
+     */
+    public static final String PROCESS_RUNNER = "process";
+
+    /**
+     * Runs algorithm written in Java on the worker thread
+     */
+    public static final String JVM_RUNNER = "jvm";
+
     public static final String MOUNT_OPTIONS = "communitydetection.mount.options";
     public static final String DIFFUSION_ALGO = "communitydetection.diffusion.algorithm";
     public static final String DIFFUSION_POLLDELAY = "communitydetection.diffusion.polldelay";
@@ -60,6 +318,24 @@ public class Configuration {
     private static CommunityDetectionAlgorithm _diffusionAlgo;
     private static long _diffusionPollingDelay;
     private static long _timeOut;
+    private Map<String, Map<String, String>> _algorithmSettings;
+    private String _scheduler;
+    private double _schedulerRuntimeWeight;
+    private int _maxQueuedTasks;
+    private long _maxInFlightInputBytes;
+    private long _resultCacheMaxBytes;
+    private long _resultMemoryCacheMaxBytes;
+    private String _resultStore;
+    private boolean _resultCompress;
+    private long _taskMaxAgeSeconds;
+    private long _taskMaxTotalBytes;
+    private int _taskLowWatermarkPercent;
+    private long _taskGcIntervalSeconds;
+    private boolean _taskJournalEnabled;
+    private boolean _imagePrePullEnabled;
+    private long _imagePullTimeOut;
+    private int _maxEventStreams;
+    private int _maxBatchSize;
     private String _mountOptions;
     private String _swaggerTitle;
     private String _swaggerDescription;
@@ -109,6 +385,31 @@ public class Configuration {
 	}
         
         _timeOut = Long.parseLong(props.getProperty(Configuration.ALGORITHM_TIMEOUT, "180"));
+        _algorithmSettings = getAlgorithmSettings(props);
+        _scheduler = props.getProperty(Configuration.SCHEDULER, Configuration.FIFO_SCHEDULER).trim();
+        _schedulerRuntimeWeight = Double.parseDouble(props.getProperty(Configuration.SCHEDULER_RUNTIME_WEIGHT, "1.0"));
+        _maxQueuedTasks = Integer.parseInt(props.getProperty(Configuration.MAX_QUEUED_TASKS, "0"));
+        _maxInFlightInputBytes = Long.parseLong(props.getProperty(Configuration.MAX_INFLIGHT_INPUT_BYTES, "0"));
+        _resultCacheMaxBytes = Long.parseLong(props.getProperty(Configuration.RESULT_CACHE_MAX_BYTES, "0"));
+        _resultMemoryCacheMaxBytes = Long.parseLong(props.getProperty(Configuration.RESULT_MEMORY_CACHE_MAX_BYTES,
+                Long.toString(Configuration.DEFAULT_RESULT_MEMORY_CACHE_MAX_BYTES)));
+        _resultStore = props.getProperty(Configuration.RESULT_STORE,
+                Configuration.FILESYSTEM_RESULT_STORE).trim();
+        _resultCompress = Boolean.parseBoolean(props.getProperty(Configuration.RESULT_COMPRESS, "true").trim());
+        _taskMaxAgeSeconds = Long.parseLong(props.getProperty(Configuration.TASK_MAX_AGE_SECONDS, "0"));
+        _taskMaxTotalBytes = Long.parseLong(props.getProperty(Configuration.TASK_MAX_TOTAL_BYTES, "0"));
+        _taskLowWatermarkPercent = Integer.parseInt(props.getProperty(Configuration.TASK_LOW_WATERMARK_PERCENT,
+                Integer.toString(Configuration.DEFAULT_TASK_LOW_WATERMARK_PERCENT)));
+        _taskGcIntervalSeconds = Long.parseLong(props.getProperty(Configuration.TASK_GC_INTERVAL_SECONDS,
+                Long.toString(Configuration.DEFAULT_TASK_GC_INTERVAL_SECONDS)));
+        _taskJournalEnabled = Boolean.parseBoolean(props.getProperty(Configuration.TASK_JOURNAL, "true").trim());
+        _imagePrePullEnabled = Boolean.parseBoolean(props.getProperty(Configuration.IMAGE_PREPULL, "false").trim());
+        _imagePullTimeOut = Long.parseLong(props.getProperty(Configuration.IMAGE_PULL_TIMEOUT,
+                Long.toString(Configuration.DEFAULT_IMAGE_PULL_TIMEOUT)));
+        _maxEventStreams = Integer.parseInt(props.getProperty(Configuration.MAX_EVENT_STREAMS,
+                Integer.toString(Configuration.DEFAULT_MAX_EVENT_STREAMS)));
+        _maxBatchSize = Integer.parseInt(props.getProperty(Configuration.MAX_BATCH_SIZE,
+                Integer.toString(Configuration.DEFAULT_MAX_BATCH_SIZE)));
         _mountOptions = props.getProperty(Configuration.MOUNT_OPTIONS, ":ro");
         _swaggerTitle = props.getProperty(Configuration.SWAGGER_TITLE, null);
         _swaggerDescription = props.getProperty(Configuration.SWAGGER_DESC, null);
@@ -142,6 +443,34 @@ public class Configuration {
         return null;
     }
         
+    /**
+     * Extracts all properties starting with {@link #ALGORITHM_SETTING_PREFIX}
+     * into a map of algorithm name to map of setting name to value
+     * @param props properties to examine
+     * @return map of algorithm name to settings, never {@code null}
+     */
+    protected Map<String, Map<String, String>> getAlgorithmSettings(Properties props){
+        Map<String, Map<String, String>> settings = new LinkedHashMap<>();
+        for (String key : props.stringPropertyNames()){
+            if (key.startsWith(Configuration.ALGORITHM_SETTING_PREFIX) == false){
+                continue;
+            }
+            String remainder = key.substring(Configuration.ALGORITHM_SETTING_PREFIX.length());
+            int dotIndex = remainder.indexOf('.');
+            if (dotIndex <= 0 || dotIndex == remainder.length() - 1){
+                _logger.warn("Ignoring malformed algorithm setting: " + key);
+                continue;
+            }
+            String algoName = remainder.substring(0, dotIndex);
+            if (settings.containsKey(algoName) == false){
+                settings.put(algoName, new LinkedHashMap<>());
+            }
+            settings.get(algoName).put(remainder.substring(dotIndex + 1),
+                    props.getProperty(key).trim());
+        }
+        return settings;
+    }
+        
     protected void setCommunityDetectionEngine(CommunityDetectionEngine ee){
         _communityEngine = ee;
     }
@@ -198,6 +527,176 @@ public class Configuration {
         return _algorithms;
     }
     
+    /**
+     * Gets scheduler used to order queued tasks
+     * @return {@link #FIFO_SCHEDULER} or {@link #SHORTEST_JOB_FIRST_SCHEDULER}
+     */
+    public String getScheduler(){
+        return _scheduler;
+    }
+    
+    /**
+     * Gets multiplier applied to estimated wall time of task when
+     * computing priority
+     * @return multiplier
+     */
+    public double getSchedulerRuntimeWeight(){
+        return _schedulerRuntimeWeight;
+    }
+    
+    /**
+     * Gets maximum number of queued or running tasks
+     * @return maximum number of tasks, 0 or less means no limit
+     */
+    public int getMaxQueuedTasks(){
+        return _maxQueuedTasks;
+    }
+    
+    /**
+     * Gets maximum total size of input data for queued or running tasks
+     * @return size in bytes, 0 or less means no limit
+     */
+    public long getMaxInFlightInputBytes(){
+        return _maxInFlightInputBytes;
+    }
+    
+    /**
+     * Gets maximum total size of results kept in the result cache
+     * @return size in bytes, 0 or less means result cache is disabled
+     */
+    public long getResultCacheMaxBytes(){
+        return _resultCacheMaxBytes;
+    }
+    
+    /**
+     * Gets maximum total size of results kept in memory
+     * @return size in bytes, 0 or less means in memory cache is disabled
+     */
+    public long getResultMemoryCacheMaxBytes(){
+        return _resultMemoryCacheMaxBytes;
+    }
+    
+    /**
+     * Gets where completed results are stored
+     * @return {@link #FILESYSTEM_RESULT_STORE} or {@link #MVSTORE_RESULT_STORE}
+     */
+    public String getResultStore(){
+        return _resultStore;
+    }
+    
+    /**
+     * Denotes whether results are stored gzip compressed
+     * @return true if results are compressed
+     */
+    public boolean isResultCompressEnabled(){
+        return _resultCompress;
+    }
+    
+    /**
+     * Gets age after which task directories of finished tasks are removed
+     * @return age in seconds, 0 or less means tasks are not removed by age
+     */
+    public long getTaskMaxAgeSeconds(){
+        return _taskMaxAgeSeconds;
+    }
+    
+    /**
+     * Gets maximum total size of task directories
+     * @return size in bytes, 0 or less means tasks are not removed by size
+     */
+    public long getTaskMaxTotalBytes(){
+        return _taskMaxTotalBytes;
+    }
+    
+    /**
+     * Gets percentage of maximum total size task directories are reduced
+     * to once that size is exceeded
+     * @return percentage
+     */
+    public int getTaskLowWatermarkPercent(){
+        return _taskLowWatermarkPercent;
+    }
+    
+    /**
+     * Gets time between checks for task directories to remove
+     * @return time in seconds
+     */
+    public long getTaskGcIntervalSeconds(){
+        return _taskGcIntervalSeconds;
+    }
+    
+    /**
+     * Denotes whether tasks are recorded in a journal so unfinished tasks
+     * can be queued again after a restart
+     * @return true if task journal is enabled
+     */
+    public boolean isTaskJournalEnabled(){
+        return _taskJournalEnabled;
+    }
+    
+    /**
+     * Denotes whether docker images of algorithms are pulled at startup
+     * @return true if images are pulled at startup
+     */
+    public boolean isImagePrePullEnabled(){
+        return _imagePrePullEnabled;
+    }
+    
+    /**
+     * Gets maximum time to pull a docker image or run its warm up
+     * @return seconds
+     */
+    public long getImagePullTimeOut(){
+        return _imagePullTimeOut;
+    }
+    
+    /**
+     * Gets maximum number of task event streams open at once
+     * @return maximum number of streams, 0 or less means no limit
+     */
+    public int getMaxEventStreams(){
+        return _maxEventStreams;
+    }
+    
+    /**
+     * Gets maximum number of requests in a batch
+     * @return maximum number of requests, 0 or less means no limit
+     */
+    public int getMaxBatchSize(){
+        return _maxBatchSize;
+    }
+    
+    /**
+     * Gets value of setting for algorithm set via a property of the form
+     * {@link #ALGORITHM_SETTING_PREFIX}&lt;algorithmName&gt;.&lt;setting&gt;
+     * @param algorithmName name of algorithm
+     * @param setting name of setting such as {@link #ALGORITHM_WORKERS_SETTING}
+     * @param defaultValue value to return if setting is not set
+     * @return value of setting or {@code defaultValue} if not set
+     */
+    public String getAlgorithmSetting(final String algorithmName, final String setting,
+            final String defaultValue){
+        if (_algorithmSettings == null || algorithmName == null){
+            return defaultValue;
+        }
+        Map<String, String> algoSettings = _algorithmSettings.get(algorithmName);
+        if (algoSettings == null || algoSettings.containsKey(setting) == false){
+            return defaultValue;
+        }
+        return algoSettings.get(setting);
+    }
+    
+    /**
+     * Gets all algorithm specific settings
+     * @return unmodifiable map of algorithm name to settings
+     */
+    public Map<String, Map<String, String>> getAlgorithmSettings(){
+        if (_algorithmSettings == null){
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(_algorithmSettings);
+    }
+    
     /**
      * Mount options needed by containers such as docker or pod
      * @return usually :ro or :ro,z
@@ -15,6 +15,8 @@ import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -191,13 +193,18 @@ public class Diffusion {
             }
 
             long pollingDelay = Configuration.getInstance().getDiffusionPollingDelay();
-            // Wait for completion by invoking status once per second
+            
+            // Wait for the engine to report the task finished, checking 
+            // the result at least once every polling delay in case the
+            // notification is missed
+            final CountDownLatch finishedLatch = new CountDownLatch(1);
+            engine.addTaskFinishedListener(id, finishedLatch::countDown);
             CommunityDetectionResult unknownCRes = new CommunityDetectionResult();
             unknownCRes.setProgress(0);
 
             CommunityDetectionResult cRes = unknownCRes;
             while (cRes.getProgress() < 100){				
-                Thread.sleep(pollingDelay);
+                finishedLatch.await(pollingDelay, TimeUnit.MILLISECONDS);
                 try {
                     cRes = engine.getResult(id);
                 } catch(Exception ex){
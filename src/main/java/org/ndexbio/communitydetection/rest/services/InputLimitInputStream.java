@@ -0,0 +1,100 @@
+package org.ndexbio.communitydetection.rest.services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.ndexbio.communitydetection.rest.engine.CommunityDetectionEngine;
+import org.ndexbio.communitydetection.rest.model.exceptions.CommunityDetectionException;
+
+/**
+ * Counts bytes read from a request body and, every {@link #CHECK_INTERVAL}
+ * bytes, asks {@link CommunityDetectionEngine#checkInputBytes(long) } if that
+ * much input data still fits under the limit of input data for queued tasks.
+ * This lets an upload with no Content-Length be refused while it is being
+ * received instead of after all of it is on disk. A refusal is thrown as
+ * an {@link IOException} whose cause is the exception from the engine.
+ *
+ * @author churas
+ */
+public class InputLimitInputStream extends FilterInputStream {
+
+    /**
+     * Number of bytes read between checks with the engine
+     */
+    public static final long CHECK_INTERVAL = 1024L * 1024L;
+
+    private final CommunityDetectionEngine _engine;
+    private long _bytesRead;
+    private long _nextCheck;
+
+    /**
+     * Constructor
+     * @param in stream to read
+     * @param engine engine to check input size with
+     */
+    public InputLimitInputStream(final InputStream in, final CommunityDetectionEngine engine){
+        super(in);
+        _engine = engine;
+        _bytesRead = 0;
+        _nextCheck = CHECK_INTERVAL;
+    }
+
+    /**
+     * Gets number of bytes read so far
+     * @return number of bytes
+     */
+    public long getBytesRead(){
+        return _bytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int val = super.read();
+        if (val != -1){
+            addBytesRead(1);
+        }
+        return val;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int numRead = super.read(b, off, len);
+        if (numRead > 0){
+            addBytesRead(numRead);
+        }
+        return numRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0){
+            addBytesRead(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Adds {@code numBytes} to count of bytes read and checks with the engine
+     * if another {@link #CHECK_INTERVAL} bytes have been read
+     * @param numBytes number of bytes just read
+     * @throws IOException if the engine refuses the input read so far
+     */
+    private void addBytesRead(long numBytes) throws IOException {
+        _bytesRead += numBytes;
+        if (_bytesRead < _nextCheck){
+            return;
+        }
+        _nextCheck = _bytesRead + CHECK_INTERVAL;
+        try {
+            _engine.checkInputBytes(_bytesRead);
+        } catch(CommunityDetectionException cde){
+            throw new IOException(cde.getMessage(), cde);
+        }
+    }
+}
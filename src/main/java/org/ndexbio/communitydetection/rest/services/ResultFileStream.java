@@ -0,0 +1,116 @@
+package org.ndexbio.communitydetection.rest.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Writes all or part of a stored result file to the response using
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * so the result is never loaded into the heap. The part to write is
+ * taken from a single <a href="https://tools.ietf.org/html/rfc7233">HTTP Range</a>
+ * request header.
+ *
+ * @author churas
+ */
+public class ResultFileStream implements StreamingOutput {
+
+    /**
+     * Only unit supported in Range headers
+     */
+    public static final String BYTES_UNIT = "bytes";
+
+    private static final String BYTES_PREFIX = BYTES_UNIT + "=";
+
+    private final File _file;
+    private final long _start;
+    private final long _length;
+
+    /**
+     * Constructor
+     * @param file file to write
+     * @param start offset of first byte to write
+     * @param length number of bytes to write
+     */
+    public ResultFileStream(final File file, long start, long length){
+        _file = file;
+        _start = start;
+        _length = length;
+    }
+
+    /**
+     * Parses a Range header with a single byte range such as
+     * {@code bytes=0-99}, {@code bytes=100-} or {@code bytes=-100}
+     * @param range value of Range header, can be {@code null}
+     * @param fileLength length of file in bytes
+     * @return first and last byte to send, inclusive, or {@code null} if
+     *         {@code range} is not set, cannot be parsed or has multiple
+     *         ranges in which case the entire file should be sent.
+     *         An empty array is returned if the range cannot be satisfied
+     */
+    public static long[] getRange(final String range, long fileLength){
+        if (range == null || range.startsWith(BYTES_PREFIX) == false
+                || range.indexOf(',') != -1){
+            return null;
+        }
+        String spec = range.substring(BYTES_PREFIX.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1){
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0){
+                long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix <= 0 || fileLength == 0){
+                    return new long[0];
+                }
+                start = Math.max(0, fileLength - suffix);
+                end = fileLength - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash).trim());
+                String endStr = spec.substring(dash + 1).trim();
+                end = endStr.isEmpty() ? fileLength - 1 : Long.parseLong(endStr);
+                if (start < 0 || end < start){
+                    return null;
+                }
+                if (start >= fileLength){
+                    return new long[0];
+                }
+                end = Math.min(end, fileLength - 1);
+            }
+            return new long[]{start, end};
+        } catch(NumberFormatException nfe){
+            return null;
+        }
+    }
+
+    /**
+     * Writes the bytes of the file
+     * @param output stream to write to
+     * @throws IOException if there is an error reading the file or writing
+     */
+    @Override
+    public void write(OutputStream output) throws IOException {
+        try (FileChannel channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ)){
+            WritableByteChannel out = Channels.newChannel(output);
+            long position = _start;
+            long remaining = _length;
+            while (remaining > 0){
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0){
+                    throw new IOException("Unexpected end of " + _file.getAbsolutePath());
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+        output.flush();
+    }
+}
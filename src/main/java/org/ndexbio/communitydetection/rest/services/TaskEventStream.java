@@ -0,0 +1,207 @@
+package org.ndexbio.communitydetection.rest.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.StreamingOutput;
+import org.ndexbio.communitydetection.rest.engine.CommunityDetectionEngine;
+import org.ndexbio.communitydetection.rest.engine.TaskEventListener;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes lifecycle events of a task as a
+ * <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html">Server-Sent Events</a>
+ * stream. Each event is named after the status of the task and its data
+ * is the status as json. The stream ends once the task completes, fails,
+ * or is deleted. A comment is written whenever no event arrives within the
+ * keep alive interval so disconnected clients are detected.
+ * <p>
+ * The stream is written by a blocking {@link #write(java.io.OutputStream)}
+ * so every open stream holds a server thread until its task finishes.
+ * The number of open streams is tracked via {@link #getOpenStreamCount()}
+ * so callers can cap it, see {@link Configuration#MAX_EVENT_STREAMS}.
+ * The stream is only registered with the engine while it is being
+ * written so a client that disconnects before the response is
+ * written does not leave a listener behind.
+ *
+ * @author churas
+ */
+public class TaskEventStream implements StreamingOutput, TaskEventListener {
+
+    static Logger _logger = LoggerFactory.getLogger(TaskEventStream.class);
+
+    /**
+     * Media type of Server-Sent Events
+     */
+    public static final String SERVER_SENT_EVENTS = "text/event-stream";
+
+    /**
+     * Name of event sent when task is deleted
+     */
+    public static final String DELETED_EVENT = "deleted";
+
+    /**
+     * Default number of milliseconds between keep alive comments
+     */
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 15000;
+
+    /**
+     * Number of streams currently being written
+     */
+    private static final AtomicInteger OPEN_STREAMS = new AtomicInteger(0);
+
+    private final String _id;
+    private final CommunityDetectionEngine _engine;
+    private final long _keepAliveMillis;
+    private final BlockingDeque<CommunityDetectionResultStatus> _events;
+    private final ObjectMapper _mapper;
+    private CommunityDetectionResultStatus _lastSent;
+
+    /**
+     * Constructor
+     * @param id id of task
+     * @param engine engine running the task
+     * @param keepAliveMillis milliseconds between keep alive comments
+     */
+    public TaskEventStream(final String id, CommunityDetectionEngine engine,
+            long keepAliveMillis){
+        _id = id;
+        _engine = engine;
+        _keepAliveMillis = keepAliveMillis;
+        _events = new LinkedBlockingDeque<>();
+        _mapper = new ObjectMapper();
+    }
+
+    /**
+     * Gets number of streams currently being written
+     * @return number of open streams
+     */
+    public static int getOpenStreamCount(){
+        return OPEN_STREAMS.get();
+    }
+
+    /**
+     * Checks task exists. This stream is not left registered with the
+     * engine, that is done by {@link #write(java.io.OutputStream)}
+     * @return false if task was not found
+     */
+    public boolean open(){
+        CommunityDetectionResultStatus status = _engine.addTaskEventListener(_id, this);
+        if (status == null){
+            return false;
+        }
+        _engine.removeTaskEventListener(_id, this);
+        return true;
+    }
+
+    /**
+     * Queues event from engine to be written to the stream
+     * @param id id of task
+     * @param status new status of task or {@code null} if task was deleted
+     */
+    @Override
+    public void taskEvent(final String id, final CommunityDetectionResultStatus status) {
+        if (status == null){
+            CommunityDetectionResultStatus deleted = new CommunityDetectionResultStatus();
+            deleted.setStatus(DELETED_EVENT);
+            deleted.setProgress(100);
+            _events.add(deleted);
+            return;
+        }
+        _events.add(status);
+    }
+
+    /**
+     * Registers this stream with the engine and writes the current status
+     * of the task followed by events until task completes, fails, or is
+     * deleted or the client disconnects
+     * @param output stream to write to
+     * @throws IOException if there is an error writing
+     */
+    @Override
+    public void write(OutputStream output) throws IOException {
+        OPEN_STREAMS.incrementAndGet();
+        try {
+            CommunityDetectionResultStatus current = _engine.addTaskEventListener(_id, this);
+            if (current == null){
+                // task was deleted after open()
+                taskEvent(_id, null);
+            } else {
+                // events queued since registering are skipped if older
+                _events.addFirst(current);
+            }
+            while (true){
+                CommunityDetectionResultStatus status = _events.poll(_keepAliveMillis,
+                        TimeUnit.MILLISECONDS);
+                if (status == null){
+                    output.write(":\n\n".getBytes(StandardCharsets.UTF_8));
+                    output.flush();
+                    continue;
+                }
+                if (isNewer(status) == false){
+                    continue;
+                }
+                writeEvent(output, status);
+                _lastSent = status;
+                if (isFinished(status)){
+                    return;
+                }
+            }
+        } catch(InterruptedException ie){
+            _logger.debug("Interrupted while waiting for events of task " + _id);
+            Thread.currentThread().interrupt();
+        } finally {
+            _engine.removeTaskEventListener(_id, this);
+            OPEN_STREAMS.decrementAndGet();
+        }
+    }
+
+    private void writeEvent(OutputStream output,
+            final CommunityDetectionResultStatus status) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("event: ").append(status.getStatus()).append("\n");
+        sb.append("data: ").append(_mapper.writeValueAsString(status)).append("\n\n");
+        output.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    /**
+     * Events can be queued out of order since the current status is read
+     * after this stream is registered with the engine. This method
+     * lets stale or duplicate events be skipped
+     * @param status status to check
+     * @return true if {@code status} is further along than the last status sent
+     */
+    private boolean isNewer(final CommunityDetectionResultStatus status){
+        if (_lastSent == null){
+            return true;
+        }
+        int res = Integer.compare(getRank(status), getRank(_lastSent));
+        if (res != 0){
+            return res > 0;
+        }
+        return status.getProgress() > _lastSent.getProgress();
+    }
+
+    private int getRank(final CommunityDetectionResultStatus status){
+        if (CommunityDetectionResult.SUBMITTED_STATUS.equals(status.getStatus())){
+            return 0;
+        }
+        if (CommunityDetectionResult.PROCESSING_STATUS.equals(status.getStatus())){
+            return 1;
+        }
+        return 2;
+    }
+
+    private boolean isFinished(final CommunityDetectionResultStatus status){
+        return getRank(status) == 2;
+    }
+}
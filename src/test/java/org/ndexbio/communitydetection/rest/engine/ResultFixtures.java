@@ -0,0 +1,28 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+
+/**
+ * Builds results shared by the result store and result cache tests
+ *
+ * @author churas
+ */
+class ResultFixtures {
+
+    /**
+     * Creates a finished result
+     * @param id id of task
+     * @param status status of result
+     * @param message message of result
+     * @return result with progress of 100
+     */
+    static CommunityDetectionResult getResult(final String id, final String status,
+            final String message){
+        CommunityDetectionResult cdr = new CommunityDetectionResult();
+        cdr.setId(id);
+        cdr.setStatus(status);
+        cdr.setProgress(100);
+        cdr.setMessage(message);
+        return cdr;
+    }
+}
@@ -0,0 +1,132 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.ndexbio.communitydetection.rest.engine.util.CommandLineRunner;
+
+/**
+ *
+ * @author churas
+ */
+public class TestAlgorithmImagePreparer {
+
+    /**
+     * Records commands and fails pull of any image named bad/image
+     */
+    private static class FakeDockerRunner implements CommandLineRunner {
+
+        final List<String> commands;
+        final CountDownLatch release;
+        String lastCommand;
+
+        FakeDockerRunner(List<String> commands, CountDownLatch release){
+            this.commands = commands;
+            this.release = release;
+        }
+
+        @Override
+        public void setWorkingDirectory(String workingDir) {
+        }
+
+        @Override
+        public void setEnvironmentVariables(Map<String, String> envVars) {
+        }
+
+        @Override
+        public String getLastCommand() {
+            return lastCommand;
+        }
+
+        @Override
+        public int runCommandLineProcess(long timeOut, TimeUnit unit, File stdOutFile,
+                File stdErrFile, String... command) throws Exception {
+            lastCommand = String.join(" ", command);
+            commands.add(lastCommand);
+            release.await();
+            return lastCommand.contains("bad/image") ? 1 : 0;
+        }
+    }
+
+    private AlgorithmImagePreparer createPreparer(Map<String, String> images,
+            Map<String, List<String>> warmUpArgs, final List<String> commands,
+            final CountDownLatch release){
+        return new AlgorithmImagePreparer("docker", images, warmUpArgs, 10, TimeUnit.SECONDS){
+            @Override
+            protected CommandLineRunner createCommandLineRunner(){
+                return new FakeDockerRunner(commands, release);
+            }
+        };
+    }
+
+    @Test
+    public void testPullAndWarmUp() throws Exception {
+        Map<String, String> images = new LinkedHashMap<>();
+        images.put("foo", "foo/image");
+        images.put("foo2", "foo/image");
+        images.put("bad", "bad/image");
+        Map<String, List<String>> warmUpArgs = new LinkedHashMap<>();
+        warmUpArgs.put("foo", Arrays.asList("--help"));
+        List<String> commands = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        AlgorithmImagePreparer preparer = createPreparer(images, warmUpArgs, commands, release);
+
+        assertEquals(AlgorithmImagePreparer.PULLING_STATE, preparer.getStates().get("foo"));
+        assertFalse(preparer.isReady("foo"));
+        preparer.start();
+        release.countDown();
+
+        assertEquals(AlgorithmImagePreparer.READY_STATE, preparer.awaitPrepared("foo"));
+        assertEquals(AlgorithmImagePreparer.READY_STATE, preparer.awaitPrepared("foo2"));
+        assertEquals(AlgorithmImagePreparer.FAILED_STATE, preparer.awaitPrepared("bad"));
+        assertTrue(preparer.isReady("foo"));
+        assertFalse(preparer.isReady("bad"));
+
+        // algorithms not handled by preparer do not wait
+        assertNull(preparer.awaitPrepared("unknown"));
+        assertNull(preparer.awaitPrepared(null));
+
+        // image shared by two algorithms is pulled once
+        assertEquals(3, commands.size());
+        assertTrue(commands.contains("docker pull foo/image"));
+        assertTrue(commands.contains("docker pull bad/image"));
+        assertTrue(commands.contains("docker run --rm foo/image --help"));
+        assertEquals(3, preparer.getStates().size());
+    }
+
+    @Test
+    public void testTasksWaitForPull() throws Exception {
+        Map<String, String> images = new LinkedHashMap<>();
+        images.put("foo", "foo/image");
+        List<String> commands = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        AlgorithmImagePreparer preparer = createPreparer(images, null, commands, release);
+        preparer.start();
+
+        final List<String> waited = Collections.synchronizedList(new ArrayList<>());
+        Thread t = new Thread(() -> {
+            try {
+                waited.add(preparer.awaitPrepared("foo"));
+            } catch(InterruptedException ie){
+            }
+        });
+        t.start();
+        t.join(200);
+        assertTrue(t.isAlive());
+        assertTrue(waited.isEmpty());
+        release.countDown();
+        t.join(10000);
+        assertEquals(Arrays.asList(AlgorithmImagePreparer.READY_STATE), waited);
+    }
+}
@@ -7,9 +7,12 @@ import static org.easymock.EasyMock.mock;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.LinkedHashMap;
 import org.junit.Rule;
 import org.junit.rules.TemporaryFolder;
 import org.junit.Test;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithms;
 import org.ndexbio.communitydetection.rest.model.ServerStatus;
 import org.ndexbio.communitydetection.rest.services.Configuration;
@@ -31,6 +34,20 @@ public class TestBasicCommunityDetectionEngineFactory {
         expect(mockConfig.getNumberWorkers()).andReturn(5);
         expect(mockConfig.getTaskDirectory()).andReturn("/task");
         expect(mockConfig.getDockerCommand()).andReturn("/bin/docker");
+        expect(mockConfig.getScheduler()).andReturn(Configuration.FIFO_SCHEDULER);
+        expect(mockConfig.getSchedulerRuntimeWeight()).andReturn(1.0);
+        expect(mockConfig.getMaxQueuedTasks()).andReturn(0);
+        expect(mockConfig.getMaxInFlightInputBytes()).andReturn(0L);
+        expect(mockConfig.getResultCacheMaxBytes()).andReturn(0L);
+        expect(mockConfig.getResultMemoryCacheMaxBytes()).andReturn(0L);
+        expect(mockConfig.getResultStore()).andReturn(Configuration.FILESYSTEM_RESULT_STORE);
+        expect(mockConfig.isResultCompressEnabled()).andReturn(true);
+        expect(mockConfig.getTaskMaxAgeSeconds()).andReturn(0L);
+        expect(mockConfig.getTaskMaxTotalBytes()).andReturn(0L);
+        expect(mockConfig.getTaskLowWatermarkPercent()).andReturn(80);
+        expect(mockConfig.getTaskGcIntervalSeconds()).andReturn(300L);
+        expect(mockConfig.isTaskJournalEnabled()).andReturn(false);
+        expect(mockConfig.isImagePrePullEnabled()).andReturn(false);
         CommunityDetectionAlgorithms cdas = new CommunityDetectionAlgorithms();
 
         expect(mockConfig.getAlgorithms()).andReturn(cdas);
@@ -43,4 +60,76 @@ public class TestBasicCommunityDetectionEngineFactory {
         ServerStatus ss = cde.getServerStatus();
         assertEquals(ServerStatus.OK_STATUS, ss.getStatus());
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testGetCommunityDetectionEngineWithAlgorithmWorkers() throws Exception {
+
+        CommunityDetectionAlgorithms cdas = new CommunityDetectionAlgorithms();
+        CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+        cda.setName("foo");
+        CommunityDetectionAlgorithm cdb = new CommunityDetectionAlgorithm();
+        cdb.setName("bar");
+        LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+        aMap.put(cda.getName(), cda);
+        aMap.put(cdb.getName(), cdb);
+        cdas.setAlgorithms(aMap);
+        
+        Configuration mockConfig = mock(Configuration.class);
+        expect(mockConfig.getNumberWorkers()).andReturn(1);
+        expect(mockConfig.getTaskDirectory()).andReturn("/task");
+        expect(mockConfig.getDockerCommand()).andReturn("/bin/docker");
+        expect(mockConfig.getScheduler()).andReturn(Configuration.SHORTEST_JOB_FIRST_SCHEDULER);
+        expect(mockConfig.getSchedulerRuntimeWeight()).andReturn(2.0);
+        expect(mockConfig.getMaxQueuedTasks()).andReturn(10);
+        expect(mockConfig.getMaxInFlightInputBytes()).andReturn(1000L);
+        expect(mockConfig.getResultCacheMaxBytes()).andReturn(0L);
+        expect(mockConfig.getResultMemoryCacheMaxBytes()).andReturn(0L);
+        expect(mockConfig.getResultStore()).andReturn(Configuration.FILESYSTEM_RESULT_STORE);
+        expect(mockConfig.isResultCompressEnabled()).andReturn(true);
+        expect(mockConfig.getTaskMaxAgeSeconds()).andReturn(0L);
+        expect(mockConfig.getTaskMaxTotalBytes()).andReturn(0L);
+        expect(mockConfig.getTaskLowWatermarkPercent()).andReturn(80);
+        expect(mockConfig.getTaskGcIntervalSeconds()).andReturn(300L);
+        expect(mockConfig.isTaskJournalEnabled()).andReturn(false);
+        expect(mockConfig.isImagePrePullEnabled()).andReturn(false);
+        expect(mockConfig.getAlgorithms()).andReturn(cdas);
+        expect(mockConfig.getAlgorithmSetting("foo",
+                Configuration.ALGORITHM_MAX_QUEUED_TASKS_SETTING, null)).andReturn("3");
+        expect(mockConfig.getAlgorithmSetting("foo",
+                Configuration.ALGORITHM_WARM_POOL_SIZE_SETTING, null)).andReturn(null);
+        expect(mockConfig.getAlgorithmSetting("foo",
+                Configuration.ALGORITHM_BATCH_SIZE_SETTING, null)).andReturn(null);
+        expect(mockConfig.getAlgorithmSetting("foo",
+                Configuration.ALGORITHM_RUNNER_SETTING, Configuration.DOCKER_RUNNER))
+                .andReturn(Configuration.DOCKER_RUNNER);
+        expect(mockConfig.getAlgorithmSetting("foo",
+                Configuration.ALGORITHM_WORKERS_SETTING, null)).andReturn("2");
+        expect(mockConfig.getAlgorithmSetting("foo",
+                Configuration.ALGORITHM_QUEUE_SIZE_SETTING, "0")).andReturn("5");
+        expect(mockConfig.getAlgorithmSetting("bar",
+                Configuration.ALGORITHM_MAX_QUEUED_TASKS_SETTING, null)).andReturn(null);
+        expect(mockConfig.getAlgorithmSetting("bar",
+                Configuration.ALGORITHM_WARM_POOL_SIZE_SETTING, null)).andReturn(null);
+        expect(mockConfig.getAlgorithmSetting("bar",
+                Configuration.ALGORITHM_BATCH_SIZE_SETTING, null)).andReturn(null);
+        expect(mockConfig.getAlgorithmSetting("bar",
+                Configuration.ALGORITHM_RUNNER_SETTING, Configuration.DOCKER_RUNNER))
+                .andReturn(Configuration.DOCKER_RUNNER);
+        expect(mockConfig.getAlgorithmSetting("bar",
+                Configuration.ALGORITHM_WORKERS_SETTING, null)).andReturn(null);
+        replay(mockConfig);
+        BasicCommunityDetectionEngineFactory factory = new BasicCommunityDetectionEngineFactory(mockConfig);
+        CommunityDetectionEngine cde = factory.getCommunityDetectionEngine();
+        verify(mockConfig);
+        
+        ExtendedServerStatus ss = (ExtendedServerStatus)cde.getServerStatus();
+        assertEquals(2, ss.getWorkerPools().size());
+        assertTrue(ss.getWorkerPools().containsKey(CommunityDetectionEngineImpl.DEFAULT_POOL));
+        WorkerPoolStatus wps = ss.getWorkerPools().get("foo");
+        assertEquals(2, wps.getWorkers());
+        assertEquals(0, wps.getQueuedTasks());
+        assertEquals(5, wps.getQueueCapacity());
+        assertEquals(-1, ss.getWorkerPools().get(
+                CommunityDetectionEngineImpl.DEFAULT_POOL).getQueueCapacity());
+    }
+}
@@ -1,33 +1,48 @@
 package org.ndexbio.communitydetection.rest.engine;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.TextNode;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
 import org.easymock.Capture;
+import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
 import static org.easymock.EasyMock.mock;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.engine.util.BatchCommunityDetectionRunner;
 import org.ndexbio.communitydetection.rest.engine.util.CommunityDetectionRequestValidator;
 import org.ndexbio.communitydetection.rest.engine.util.DockerCommunityDetectionRunner;
+import org.ndexbio.communitydetection.rest.engine.util.TaskBatcher;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithms;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
@@ -54,19 +69,25 @@ public class TestBasicCommunityDetectionEngineImpl {
     }
    
     @Test
-    public void testthreadSleep() throws Exception {
+    public void testRunWithShutDownTrue(){
         CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null, "task",
                 "docker", null, null);
-        engine.updateThreadSleepTime(1);
-        engine.threadSleep();
+        engine.shutdown();
+        engine.run();
     }
     
     @Test
-    public void testRunWithShutDownTrue(){
-        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null, "task",
-                "docker", null, null);
+    public void testShutdownWakesRunningEngine() throws Exception {
+        File tempDir = _folder.newFolder();
+        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                tempDir.getAbsolutePath(), "docker", null, null);
+        engine.updateProgressPollTime(TimeUnit.HOURS.toMillis(1));
+        Thread engineThread = new Thread(engine);
+        engineThread.start();
+        Thread.sleep(100);
         engine.shutdown();
-        engine.run();
+        engineThread.join(10000);
+        assertFalse(engineThread.isAlive());
     }
     
     @Test
@@ -277,6 +298,39 @@ public class TestBasicCommunityDetectionEngineImpl {
         } 
     }
     
+    @Test
+    public void testProcessCompletedTask() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            
+            // try with null
+            engine.processCompletedTask(null);
+            
+            File taskDir = new File(tempDir.getAbsolutePath() + File.separator + "1");
+            assertTrue(taskDir.mkdirs());
+            final CommunityDetectionResult cdr = new CommunityDetectionResult();
+            cdr.setId("1");
+            cdr.setMessage("done");
+            cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            CommunityDetectionTask task = new CommunityDetectionTask("1", () -> cdr, null);
+            task.run();
+            engine.processCompletedTask(task);
+            assertEquals(1, engine.getServerStatus().getCompletedTasks());
+            assertEquals("done", engine.getResult("1").getMessage());
+            
+            // try with canceled task
+            CommunityDetectionTask cTask = new CommunityDetectionTask("2", () -> cdr, null);
+            cTask.cancel(true);
+            engine.processCompletedTask(cTask);
+            assertEquals(1, engine.getServerStatus().getCanceledTasks());
+            assertEquals(1, engine.getServerStatus().getCompletedTasks());
+        } finally {
+            _folder.delete();
+        }
+    }
+    
     @Test
     public void testRequestWhereRequestIsNull(){
         CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null, "task",
@@ -406,8 +460,9 @@ public class TestBasicCommunityDetectionEngineImpl {
             expect(mockValidator.validateRequest(cda, cdr)).andReturn(null);
 
             ExecutorService mockES = mock(ExecutorService.class);
-            Capture<DockerCommunityDetectionRunner> cappy = Capture.newInstance();
-            expect(mockES.submit(capture(cappy))).andThrow(new RejectedExecutionException("failed"));
+            Capture<CommunityDetectionTask> cappy = Capture.newInstance();
+            mockES.execute(capture(cappy));
+            expectLastCall().andThrow(new RejectedExecutionException("failed"));
             replay(mockES);
             replay(mockValidator);
             CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
@@ -422,6 +477,7 @@ public class TestBasicCommunityDetectionEngineImpl {
             }
             
             assertNotNull(cappy.getValue());
+            assertEquals(0, engine.getServerStatus().getQueuedTasks());
             verify(mockValidator);
         } finally {
             _folder.delete();
@@ -462,16 +518,18 @@ public class TestBasicCommunityDetectionEngineImpl {
             expect(mockValidator.validateRequest(cda, cdr)).andReturn(null);
 
             ExecutorService mockES = mock(ExecutorService.class);
-            Capture<DockerCommunityDetectionRunner> cappy = Capture.newInstance();
-            FutureTask<CommunityDetectionResult> mockFT = mock(FutureTask.class);
-            expect(mockES.submit(capture(cappy))).andReturn(mockFT);
-            replay(mockFT);
+            Capture<CommunityDetectionTask> cappy = Capture.newInstance();
+            mockES.execute(capture(cappy));
+            expectLastCall();
             replay(mockES);
             replay(mockValidator);
             CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
                     tempDir.getAbsolutePath(), "docker", algos, mockValidator);
             try {
-                assertNotNull(engine.request(cdr));
+                String id = engine.request(cdr);
+                assertNotNull(id);
+                assertEquals(id, cappy.getValue().getId());
+                assertEquals(1, engine.getServerStatus().getQueuedTasks());
             } catch(CommunityDetectionBadRequestException cdbe){
                 fail("Unexpected exception: " + cdbe.getMessage());
             } catch(CommunityDetectionException cde){
@@ -481,86 +539,1408 @@ public class TestBasicCommunityDetectionEngineImpl {
             assertNotNull(cappy.getValue());
             verify(mockValidator);
             verify(mockES);
-            verify(mockFT);
         } finally {
             _folder.delete();
         }
     }
     
     @Test
-    public void testDeleteNullId() throws IOException {
+    public void testRequestWithInputFile() throws Exception {
         try {
             File tempDir = _folder.newFolder();
-             CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
-                    tempDir.getAbsolutePath(), "docker", null, null);
-            try {
-                engine.delete(null);
-                fail("Expected CommunityDetectionException ");
-            } catch(CommunityDetectionException cde){
-                assertEquals("id is null", cde.getMessage());
-            }
             
+            File confFile = new File(tempDir.getAbsolutePath() + File.separator + "foo.conf");
+            FileWriter fw = new FileWriter(confFile);
+            fw.write(Configuration.TASK_DIR + " = " + tempDir.getAbsolutePath() + "\n");
+            fw.flush();
+            fw.close();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+            cdr.setAlgorithm("foo");
+            
+            File inputFile = new File(tempDir, "upload.tmp");
+            FileUtils.writeStringToFile(inputFile, "1\t2\n", "UTF-8");
+
+            expect(mockValidator.validateRequest(cda, cdr, inputFile)).andReturn(null);
+
+            ExecutorService mockES = mock(ExecutorService.class);
+            Capture<CommunityDetectionTask> cappy = Capture.newInstance();
+            mockES.execute(capture(cappy));
+            expectLastCall();
+            replay(mockES);
+            replay(mockValidator);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+            String id = engine.request(cdr, inputFile);
+            assertNotNull(id);
+            assertEquals(id, cappy.getValue().getId());
+            assertFalse(inputFile.exists());
+            File taskInputFile = new File(tempDir.getAbsolutePath() + File.separator
+                    + id + File.separator + DockerCommunityDetectionRunner.INPUT_FILE);
+            assertEquals("1\t2\n", FileUtils.readFileToString(taskInputFile, "UTF-8"));
+            assertEquals(5, cappy.getValue().getInputBytes());
+            verify(mockValidator);
+            verify(mockES);
         } finally {
             _folder.delete();
         }
     }
     
     @Test
-    public void testDeleteWhereIdNotInResultsOrFilesystem() throws IOException {
+    public void testRequestRejectedByAdmissionLimits() throws Exception {
         try {
             File tempDir = _folder.newFolder();
-             CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
-                    tempDir.getAbsolutePath(), "docker", null, null);
+            
+            File confFile = new File(tempDir.getAbsolutePath() + File.separator + "foo.conf");
+            
+            FileWriter fw = new FileWriter(confFile);
+            
+            fw.write(Configuration.TASK_DIR + " = " + tempDir.getAbsolutePath() + "\n");
+            fw.write(Configuration.ALGORITHM_TIMEOUT + " = 10\n");
+            
+            fw.flush();
+            fw.close();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+            cdr.setAlgorithm("foo");
+            cdr.setData(TextNode.valueOf("hello"));
+            expect(mockValidator.validateRequest(cda, cdr)).andReturn(null).times(3);
+
+            ExecutorService mockES = mock(ExecutorService.class);
+            mockES.execute(anyObject(CommunityDetectionTask.class));
+            expectLastCall();
+            replay(mockES);
+            replay(mockValidator);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+            Map<String, Integer> algoLimits = new HashMap<>();
+            algoLimits.put("foo", 1);
+            engine.updateAdmissionLimits(5, 0, algoLimits);
+            assertNotNull(engine.request(cdr));
+            
+            // algorithm limit of 1 reached, data is changed so
+            // request is not coalesced with the first one
+            cdr.setData(TextNode.valueOf("hello2"));
             try {
-                engine.delete("1");
-                
-            } catch(CommunityDetectionException cde){
-                fail("unexpected CommunityDetectionException: " + cde.getMessage());
+                engine.request(cdr);
+                fail("Expected CommunityDetectionQueueFullException");
+            } catch(CommunityDetectionQueueFullException qfe){
+                assertEquals("Maximum of 1 queued tasks for algorithm foo reached", qfe.getMessage());
+                assertEquals(30, qfe.getRetryAfterSeconds());
+            }
+            
+            // input bytes limit reached
+            cdr.setData(TextNode.valueOf("hello3"));
+            engine.updateAdmissionLimits(5, 6, null);
+            try {
+                engine.request(cdr);
+                fail("Expected CommunityDetectionQueueFullException");
+            } catch(CommunityDetectionQueueFullException qfe){
+                assertEquals("Maximum of 6 bytes of input data for queued tasks reached", qfe.getMessage());
+            }
+            ExtendedServerStatus ss = (ExtendedServerStatus)engine.getServerStatus();
+            assertEquals(1, ss.getQueuedTasks());
+            assertEquals(2, ss.getRejectedTasks());
+            assertEquals(5, ss.getInFlightInputBytes());
+            
+            // checking input size reserves nothing
+            engine.checkInputBytes(1);
+            try {
+                engine.checkInputBytes(2);
+                fail("Expected CommunityDetectionQueueFullException");
+            } catch(CommunityDetectionQueueFullException qfe){
+                assertEquals("Maximum of 6 bytes of input data for queued tasks reached", qfe.getMessage());
             }
+            ss = (ExtendedServerStatus)engine.getServerStatus();
+            assertEquals(3, ss.getRejectedTasks());
+            assertEquals(5, ss.getInFlightInputBytes());
             
+            // only the accepted task should have a directory
+            assertEquals(1, tempDir.listFiles((File f) -> f.isDirectory()).length);
+            verify(mockValidator);
+            verify(mockES);
         } finally {
             _folder.delete();
         }
     }
     
     @Test
-    public void testDeleteWhereIdIsInFilesystem() throws IOException {
+    public void testIdenticalRequestsAreCoalesced() throws Exception {
         try {
             File tempDir = _folder.newFolder();
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setDockerImage("foo/image");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+            cdr.setAlgorithm("foo");
+            cdr.setData(TextNode.valueOf("hello"));
+            expect(mockValidator.validateRequest(cda, cdr)).andReturn(null).times(2);
+
+            ExecutorService mockES = mock(ExecutorService.class);
+            Capture<CommunityDetectionTask> captured = Capture.newInstance();
+            mockES.execute(capture(captured));
+            expectLastCall().once();
+            replay(mockES);
+            replay(mockValidator);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+            String firstId = engine.request(cdr);
+            String secondId = engine.request(cdr);
+            assertNotNull(firstId);
+            assertNotNull(secondId);
+            assertFalse(firstId.equals(secondId));
             
-            File taskDir = new File(tempDir.getAbsolutePath() + File.separator + "1");
-            assertTrue(taskDir.mkdirs());
+            ExtendedServerStatus ss = (ExtendedServerStatus)engine.getServerStatus();
+            assertEquals(1, ss.getCoalescedTasks());
+            assertEquals(1, ss.getQueuedTasks());
+            assertEquals(CommunityDetectionResult.SUBMITTED_STATUS,
+                    engine.getStatus(secondId).getStatus());
             
-            FileWriter fw = new FileWriter(taskDir.getAbsolutePath()
-                    + File.separator + CommunityDetectionEngineImpl.CDRESULT_JSON_FILE);
-            fw.write("haha");
+            // deleting the first request leaves shared task running
+            CommunityDetectionTask task = captured.getValue();
+            engine.delete(firstId);
+            assertFalse(task.isCancelled());
+            assertTrue(new File(tempDir, firstId).isDirectory());
+            
+            // deleting the last request cancels the task
+            engine.delete(secondId);
+            assertTrue(task.isCancelled());
+            engine.processCompletedTask(task);
+            ss = (ExtendedServerStatus)engine.getServerStatus();
+            assertEquals(1, ss.getCanceledTasks());
+            assertEquals(0, ss.getQueuedTasks());
+            assertFalse(new File(tempDir, firstId).exists());
+            verify(mockValidator);
+            verify(mockES);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testDeletingSharedTaskMovesJournalRecordToSubscriber() throws Exception {
+        File tempDir = _folder.newFolder();
+        CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+        CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+        cda.setName("foo");
+        cda.setDockerImage("foo/image");
+        LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+        aMap.put(cda.getName(), cda);
+        algos.setAlgorithms(aMap);
+        CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("foo");
+        cdr.setData(TextNode.valueOf("hello"));
+        expect(mockValidator.validateRequest(cda, cdr)).andReturn(null).times(4);
+
+        ExecutorService mockES = mock(ExecutorService.class);
+        Capture<CommunityDetectionTask> captured = Capture.newInstance();
+        mockES.execute(capture(captured));
+        expectLastCall().once();
+        replay(mockES);
+        replay(mockValidator);
+        TaskJournal journal = new TaskJournal(new File(tempDir, TaskJournal.TASK_JOURNAL_FILE),
+                TaskJournal.DEFAULT_COMPACT_THRESHOLD);
+        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+        engine.updateTaskJournal(journal);
+        final CommunityDetectionResult res = new CommunityDetectionResult();
+        res.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+        engine.updateRunnerFactories(Collections.singletonMap("foo",
+                (id, request, algo, submitTime) -> () -> res));
+        String firstId = engine.request(cdr);
+        String secondId = engine.request(cdr);
+        String thirdId = engine.request(cdr);
+
+        // second request takes over the execution in the journal so it is
+        // queued again after a restart, third request now shares with second
+        engine.delete(firstId);
+        assertNull(journal.getPendingTask(firstId));
+        TaskJournalRecord record = journal.getPendingTask(secondId);
+        assertNull(record.getPrimaryId());
+        assertEquals(firstId, record.getInputId());
+        assertEquals("foo", record.getAlgorithm());
+        assertEquals(secondId, journal.getPendingTask(thirdId).getPrimaryId());
+        
+        // a request subscribing now shares with second request as well
+        String fourthId = engine.request(cdr);
+        assertEquals(secondId, journal.getPendingTask(fourthId).getPrimaryId());
+        
+        engine.delete(thirdId);
+        List<String> pendingIds = new ArrayList<>();
+        for (TaskJournalRecord pendingRecord : journal.getPendingTasks()){
+            pendingIds.add(pendingRecord.getId());
+        }
+        assertEquals(Arrays.asList(secondId, fourthId), pendingIds);
+        
+        // directory of deleted request is kept while task runs in it
+        assertTrue(new File(tempDir, firstId).isDirectory());
+
+        // finishing shared task removes remaining records
+        CommunityDetectionTask task = captured.getValue();
+        assertEquals(firstId, task.getId());
+        task.run();
+        engine.processCompletedTask(task);
+        assertTrue(journal.getPendingTasks().isEmpty());
+        assertFalse(new File(tempDir, firstId).exists());
+        journal.close();
+        verify(mockValidator);
+        verify(mockES);
+    }
+    
+    @Test
+    public void testCollectTaskGarbageKeepsDirectoryOfDeletedSharedTask() throws Exception {
+        File tempDir = _folder.newFolder();
+        CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+        CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+        cda.setName("foo");
+        cda.setDockerImage("foo/image");
+        LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+        aMap.put(cda.getName(), cda);
+        algos.setAlgorithms(aMap);
+        CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("foo");
+        cdr.setData(TextNode.valueOf("hello"));
+        expect(mockValidator.validateRequest(cda, cdr)).andReturn(null).times(2);
+
+        ExecutorService mockES = mock(ExecutorService.class);
+        Capture<CommunityDetectionTask> captured = Capture.newInstance();
+        mockES.execute(capture(captured));
+        expectLastCall().once();
+        replay(mockES);
+        replay(mockValidator);
+        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+        engine.updateTaskDirectoryGarbageCollector(new TaskDirectoryGarbageCollector(
+                tempDir, 60000, 0, 80), 1000);
+        final CommunityDetectionResult res = new CommunityDetectionResult();
+        res.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+        engine.updateRunnerFactories(Collections.singletonMap("foo",
+                (id, request, algo, submitTime) -> () -> res));
+        String firstId = engine.request(cdr);
+        String secondId = engine.request(cdr);
+        engine.delete(firstId);
+        
+        long old = System.currentTimeMillis() - 120000;
+        File firstDir = new File(tempDir, firstId);
+        File secondDir = new File(tempDir, secondId);
+        firstDir.setLastModified(old);
+        secondDir.setLastModified(old);
+
+        // shared task still runs in directory of deleted request
+        assertEquals(0, engine.collectTaskGarbage());
+        assertTrue(firstDir.isDirectory());
+        assertTrue(secondDir.isDirectory());
+
+        CommunityDetectionTask task = captured.getValue();
+        task.run();
+        engine.processCompletedTask(task);
+        assertFalse(firstDir.exists());
+        assertEquals(CommunityDetectionResult.COMPLETE_STATUS,
+                engine.getStatus(secondId).getStatus());
+        verify(mockValidator);
+        verify(mockES);
+    }
+    
+    @Test
+    public void testTaskFinishingBeforeSubmitReturnsDoesNotBlockCoalescing() throws Exception {
+        File tempDir = _folder.newFolder();
+        CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+        CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+        cda.setName("foo");
+        LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+        aMap.put(cda.getName(), cda);
+        algos.setAlgorithms(aMap);
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("foo");
+        cdr.setData(TextNode.valueOf("hello"));
+        CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+        expect(mockValidator.validateRequest(cda, cdr)).andReturn(null).times(3);
+
+        // first task finishes and is processed before execute() returns
+        final CommunityDetectionEngineImpl[] engineHolder = new CommunityDetectionEngineImpl[1];
+        final List<CommunityDetectionTask> executed = new ArrayList<>();
+        ExecutorService mockES = mock(ExecutorService.class);
+        mockES.execute(anyObject());
+        expectLastCall().andAnswer(() -> {
+            CommunityDetectionTask task = (CommunityDetectionTask)getCurrentArguments()[0];
+            executed.add(task);
+            if (executed.size() == 1){
+                task.run();
+                engineHolder[0].processCompletedTask(task);
+            }
+            return null;
+        }).times(2);
+        replay(mockES);
+        replay(mockValidator);
+        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+        engineHolder[0] = engine;
+        engine.updateRunnerFactories(Collections.singletonMap("foo",
+                (id, request, algo, submitTime) -> () -> {
+                    CommunityDetectionResult res = new CommunityDetectionResult(submitTime);
+                    res.setId(id);
+                    res.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+                    return res;
+                }));
+        String firstId = engine.request(cdr);
+        assertEquals(CommunityDetectionResult.COMPLETE_STATUS,
+                engine.getStatus(firstId).getStatus());
+        
+        // finished task must not stay registered as in flight
+        String secondId = engine.request(cdr);
+        String thirdId = engine.request(cdr);
+        assertEquals(2, executed.size());
+        assertEquals(secondId, executed.get(1).getId());
+        ExtendedServerStatus ss = (ExtendedServerStatus)engine.getServerStatus();
+        assertEquals(1, ss.getCoalescedTasks());
+        assertEquals(Arrays.asList(secondId, thirdId), executed.get(1).getSubscribers());
+        verify(mockValidator);
+        verify(mockES);
+    }
+    
+    @Test
+    public void testRequestFoundInResultCache() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setDockerImage("foo/image");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+            cdr.setAlgorithm("foo");
+            cdr.setData(TextNode.valueOf("hello"));
+            expect(mockValidator.validateRequest(cda, cdr)).andReturn(null).times(2);
+
+            ExecutorService mockES = mock(ExecutorService.class);
+            Capture<CommunityDetectionTask> captured = Capture.newInstance();
+            mockES.execute(capture(captured));
+            expectLastCall().once();
+            replay(mockES);
+            replay(mockValidator);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+            engine.updateResultCache(new CommunityDetectionResultCache(new File(tempDir,
+                    CommunityDetectionEngineImpl.RESULT_CACHE_DIR), 100000));
+            String firstId = engine.request(cdr);
+            
+            // complete the task with a fake result
+            CommunityDetectionTask task = captured.getValue();
+            final CommunityDetectionResult res = new CommunityDetectionResult();
+            res.setId(firstId);
+            res.setMessage("done");
+            res.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            CommunityDetectionTask doneTask = new CommunityDetectionTask(firstId, () -> res, null);
+            doneTask.setAlgorithm(task.getAlgorithm());
+            doneTask.setRequestHash(task.getRequestHash());
+            doneTask.run();
+            engine.processCompletedTask(doneTask);
+            
+            String secondId = engine.request(cdr);
+            assertFalse(firstId.equals(secondId));
+            CommunityDetectionResult cachedRes = engine.getResult(secondId);
+            assertEquals(secondId, cachedRes.getId());
+            assertEquals("done", cachedRes.getMessage());
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS, cachedRes.getStatus());
+            
+            ExtendedServerStatus ss = (ExtendedServerStatus)engine.getServerStatus();
+            assertEquals(1, ss.getResultCacheHits());
+            assertEquals(1, ss.getResultCacheMisses());
+            assertEquals(1, ss.getResultCacheEntries());
+            verify(mockValidator);
+            verify(mockES);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testReplayTaskJournal() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = new File(tempDir.getAbsolutePath() + File.separator + "foo.conf");
+            FileWriter fw = new FileWriter(confFile);
+            fw.write(Configuration.TASK_DIR + " = " + tempDir.getAbsolutePath() + "\n");
             fw.flush();
             fw.close();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
             
-             CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
-                    tempDir.getAbsolutePath(), "docker", null, null);
-            try {
-                engine.delete("1");
-                assertFalse(taskDir.exists());
-            } catch(CommunityDetectionException cde){
-                fail("unexpected CommunityDetectionException: " + cde.getMessage());
-            }
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            
+            File journalFile = new File(tempDir, TaskJournal.TASK_JOURNAL_FILE);
+            TaskJournal journal = new TaskJournal(journalFile, TaskJournal.DEFAULT_COMPACT_THRESHOLD);
+            
+            // task with input and no result should be queued
+            File inputFile = new File(tempDir + File.separator + "1" + File.separator
+                    + DockerCommunityDetectionRunner.INPUT_FILE);
+            assertTrue(inputFile.getParentFile().mkdirs());
+            FileUtils.writeStringToFile(inputFile, "hello", "UTF-8");
+            journal.submitted("1", "foo", null, "hash", null);
+            
+            // task coalesced with task 1
+            assertTrue(new File(tempDir, "2").mkdirs());
+            journal.submitted("2", "foo", null, "hash", "1");
+            
+            // task with result should be marked finished
+            assertTrue(new File(tempDir, "3").mkdirs());
+            FileUtils.writeStringToFile(new File(tempDir + File.separator + "3"
+                    + File.separator + CommunityDetectionEngineImpl.CDRESULT_JSON_FILE),
+                    "{\"id\": \"3\"}", "UTF-8");
+            journal.submitted("3", "foo", null, null, null);
             
+            // task with no input should fail
+            journal.submitted("4", "foo", null, null, null);
+            
+            ExecutorService mockES = mock(ExecutorService.class);
+            Capture<CommunityDetectionTask> captured = Capture.newInstance();
+            mockES.execute(capture(captured));
+            expectLastCall().once();
+            replay(mockES);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, null);
+            engine.updateTaskJournal(journal);
+            assertEquals(1, engine.replayTaskJournal());
+            verify(mockES);
+            
+            assertEquals("1", captured.getValue().getId());
+            assertEquals(5, captured.getValue().getInputBytes());
+            assertEquals(CommunityDetectionResult.SUBMITTED_STATUS, engine.getStatus("1").getStatus());
+            assertEquals(CommunityDetectionResult.SUBMITTED_STATUS, engine.getStatus("2").getStatus());
+            assertEquals(CommunityDetectionResult.FAILED_STATUS, engine.getResult("4").getStatus());
+            assertEquals(1, engine.getServerStatus().getQueuedTasks());
+            
+            List<TaskJournalRecord> pending = journal.getPendingTasks();
+            assertEquals(2, pending.size());
+            assertEquals("1", pending.get(0).getId());
+            assertEquals("2", pending.get(1).getId());
+            
+            // finishing task removes both tasks from journal
+            captured.getValue().cancel(true);
+            engine.processCompletedTask(captured.getValue());
+            assertEquals(0, journal.getPendingTasks().size());
+            journal.close();
         } finally {
             _folder.delete();
         }
     }
     
     @Test
-    public void testGetAlgorithmsWhereAlgorithmsIsNull(){
-        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
-                    "task", "docker", null, null);
+    public void testReplayTaskJournalWhereSharedTaskWasDeleted() throws Exception {
         try {
-            engine.getAlgorithms();
-            fail("Expected CommunityDetectionException: ");
-                
-        } catch(CommunityDetectionException cde){
-            assertEquals("No algorithms found", cde.getMessage());
+            File tempDir = _folder.newFolder();
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            
+            File journalFile = new File(tempDir, TaskJournal.TASK_JOURNAL_FILE);
+            TaskJournal journal = new TaskJournal(journalFile, TaskJournal.DEFAULT_COMPACT_THRESHOLD);
+            
+            // task 1 was shared by tasks 2 and 3 and then deleted so task 3
+            // took over the execution with input data left in directory of 1
+            File inputFile = new File(tempDir + File.separator + "1" + File.separator
+                    + DockerCommunityDetectionRunner.INPUT_FILE);
+            assertTrue(inputFile.getParentFile().mkdirs());
+            FileUtils.writeStringToFile(inputFile, "hello", "UTF-8");
+            assertTrue(new File(tempDir, "2").mkdirs());
+            assertTrue(new File(tempDir, "3").mkdirs());
+            journal.submitted("1", "foo", null, "hash", null);
+            journal.submitted("2", "foo", null, "hash", "1");
+            journal.submitted("3", "foo", null, "hash", "1");
+            journal.deleted("1");
+            journal.submitted("3", "foo", null, "hash", null, "1");
+            journal.submitted("2", "foo", null, "hash", "3");
+            journal.close();
+            journal = new TaskJournal(journalFile, TaskJournal.DEFAULT_COMPACT_THRESHOLD);
+            
+            ExecutorService mockES = mock(ExecutorService.class);
+            Capture<CommunityDetectionTask> captured = Capture.newInstance();
+            mockES.execute(capture(captured));
+            expectLastCall().once();
+            replay(mockES);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, null);
+            engine.updateTaskJournal(journal);
+            assertEquals(1, engine.replayTaskJournal());
+            verify(mockES);
+            
+            // task is queued under 3 even though 2 was submitted first
+            assertEquals("3", captured.getValue().getId());
+            assertEquals(Arrays.asList("3", "2"), captured.getValue().getSubscribers());
+            assertEquals("hello", FileUtils.readFileToString(new File(tempDir + File.separator
+                    + "3" + File.separator + DockerCommunityDetectionRunner.INPUT_FILE), "UTF-8"));
+            assertFalse(new File(tempDir, "1").exists());
+            assertEquals(CommunityDetectionResult.SUBMITTED_STATUS, engine.getStatus("2").getStatus());
+            
+            // result of deleted task does not come back
+            captured.getValue().cancel(true);
+            engine.processCompletedTask(captured.getValue());
+            assertFalse(new File(tempDir, "1").exists());
+            try {
+                engine.getResult("1");
+                fail("Expected CommunityDetectionException");
+            } catch(CommunityDetectionException cde){
+                // expected
+            }
+            assertEquals(0, journal.getPendingTasks().size());
+            journal.close();
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testRequestBatch() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = new File(tempDir.getAbsolutePath() + File.separator + "foo.conf");
+            FileWriter fw = new FileWriter(confFile);
+            fw.write(Configuration.TASK_DIR + " = " + tempDir.getAbsolutePath() + "\n");
+            fw.flush();
+            fw.close();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            
+            CommunityDetectionRequest cdrOne = new CommunityDetectionRequest();
+            cdrOne.setAlgorithm("foo");
+            cdrOne.setData(TextNode.valueOf("one"));
+            CommunityDetectionRequest cdrBad = new CommunityDetectionRequest();
+            cdrBad.setAlgorithm("bar");
+            cdrBad.setData(TextNode.valueOf("bad"));
+            CommunityDetectionRequest cdrTwo = new CommunityDetectionRequest();
+            cdrTwo.setAlgorithm("foo");
+            cdrTwo.setData(TextNode.valueOf("two"));
+            
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            expect(mockValidator.validateRequest(cda, cdrOne)).andReturn(null);
+            expect(mockValidator.validateRequest(cda, cdrTwo)).andReturn(null);
+            ExecutorService mockES = mock(ExecutorService.class);
+            mockES.execute(anyObject(CommunityDetectionTask.class));
+            expectLastCall().times(2);
+            replay(mockES);
+            replay(mockValidator);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+            
+            try {
+                engine.requestBatch(null);
+                fail("Expected CommunityDetectionBadRequestException");
+            } catch(CommunityDetectionBadRequestException cbe){
+                assertEquals("Request is null", cbe.getMessage());
+            }
+            
+            engine.updateMaxBatchSize(2);
+            try {
+                engine.requestBatch(Arrays.asList(cdrOne, cdrBad, cdrTwo));
+                fail("Expected CommunityDetectionBadRequestException");
+            } catch(CommunityDetectionBadRequestException cbe){
+                assertEquals("Batch of 3 requests exceeds maximum of 2 requests",
+                        cbe.getMessage());
+            }
+            engine.updateMaxBatchSize(3);
+            
+            List<BatchTask> res = engine.requestBatch(Arrays.asList(cdrOne, cdrBad, cdrTwo));
+            assertEquals(3, res.size());
+            assertNotNull(res.get(0).getId());
+            assertNull(res.get(0).getError());
+            assertNull(res.get(1).getId());
+            assertEquals("Bad request received", res.get(1).getError().getMessage());
+            assertNotNull(res.get(2).getId());
+            assertFalse(res.get(0).getId().equals(res.get(2).getId()));
+            assertEquals("one", FileUtils.readFileToString(new File(tempDir + File.separator
+                    + res.get(0).getId() + File.separator 
+                    + DockerCommunityDetectionRunner.INPUT_FILE), "UTF-8"));
+            assertEquals("two", FileUtils.readFileToString(new File(tempDir + File.separator
+                    + res.get(2).getId() + File.separator 
+                    + DockerCommunityDetectionRunner.INPUT_FILE), "UTF-8"));
+            assertEquals(2, engine.getServerStatus().getQueuedTasks());
+            verify(mockValidator);
+            verify(mockES);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testRequestBatchAfterShutdown() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+            cdr.setAlgorithm("foo");
+            cdr.setData(TextNode.valueOf("one"));
+            
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            expect(mockValidator.validateRequest(cda, cdr)).andReturn(null).times(2);
+            ExecutorService mockES = mock(ExecutorService.class);
+            replay(mockES);
+            replay(mockValidator);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+            engine.updateMaxBatchSize(5);
+            engine.shutdown();
+            
+            // requests are refused instead of waiting on a stopped executor
+            List<BatchTask> res = engine.requestBatch(Arrays.asList(cdr, cdr));
+            assertEquals(2, res.size());
+            assertNull(res.get(0).getId());
+            assertNotNull(res.get(0).getError());
+            assertNull(res.get(1).getId());
+            assertEquals(0, engine.getServerStatus().getQueuedTasks());
+            verify(mockValidator);
+            verify(mockES);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetStatusesAndResults() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            try {
+                engine.getStatuses(null);
+                fail("Expected CommunityDetectionException");
+            } catch(CommunityDetectionException cde){
+                assertEquals("Ids are null", cde.getMessage());
+            }
+            File taskDir = new File(tempDir.getAbsolutePath() + File.separator + "1");
+            assertTrue(taskDir.mkdirs());
+            final CommunityDetectionResult cdr = new CommunityDetectionResult();
+            cdr.setId("1");
+            cdr.setMessage("done");
+            cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            CommunityDetectionTask task = new CommunityDetectionTask("1", () -> cdr, null);
+            task.run();
+            engine.processCompletedTask(task);
+            
+            // status of finished task comes from index not filesystem
+            File resFile = new File(taskDir, CommunityDetectionEngineImpl.CDRESULT_JSON_FILE);
+            CommunityDetectionResult savedRes = engine.getResult("1");
+            assertTrue(resFile.delete());
+            Map<String, CommunityDetectionResultStatus> statuses = engine.getStatuses(Arrays.asList("1", "2"));
+            assertEquals(2, statuses.size());
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS, statuses.get("1").getStatus());
+            assertEquals("done", statuses.get("1").getMessage());
+            assertTrue(statuses.containsKey("2"));
+            assertNull(statuses.get("2"));
+            
+            // results are read from filesystem
+            FileUtils.writeStringToFile(resFile, new ObjectMapper().writeValueAsString(savedRes), "UTF-8");
+            Map<String, CommunityDetectionResult> results = engine.getResults(Arrays.asList("2", "1"));
+            assertEquals("[2, 1]", results.keySet().toString());
+            assertNull(results.get("2"));
+            assertEquals("done", results.get("1").getMessage());
+            
+            // delete removes status from index
+            engine.delete("1");
+            assertNull(engine.getStatuses(Arrays.asList("1")).get("1"));
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testProcessCompletedTaskWithSubscribers() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            assertTrue(new File(tempDir, "1").mkdirs());
+            assertTrue(new File(tempDir, "2").mkdirs());
+            final CommunityDetectionResult cdr = new CommunityDetectionResult();
+            cdr.setId("1");
+            cdr.setMessage("done");
+            cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            CommunityDetectionTask task = new CommunityDetectionTask("1", () -> cdr, null);
+            assertTrue(task.addSubscriber("2"));
+            task.run();
+            engine.processCompletedTask(task);
+            assertFalse(task.addSubscriber("3"));
+            assertEquals(2, engine.getServerStatus().getCompletedTasks());
+            assertEquals("1", engine.getResult("1").getId());
+            assertEquals("done", engine.getResult("1").getMessage());
+            assertEquals("2", engine.getResult("2").getId());
+            assertEquals("done", engine.getResult("2").getMessage());
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testBatchThatThrowsFailsEveryTask() throws Exception {
+        File tempDir = _folder.newFolder();
+        File confFile = new File(tempDir, "foo.conf");
+        try (FileWriter fw = new FileWriter(confFile)){
+            fw.write(Configuration.TASK_DIR + " = " + tempDir.getAbsolutePath() + "\n");
+            fw.write(Configuration.ALGORITHM_TIMEOUT + " = 10\n");
+        }
+        Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+        CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+        CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+        cda.setName("foo");
+        cda.setDockerImage("foo/image");
+        LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+        aMap.put(cda.getName(), cda);
+        algos.setAlgorithms(aMap);
+        CommunityDetectionRequest cdrA = new CommunityDetectionRequest();
+        cdrA.setAlgorithm("foo");
+        cdrA.setData(TextNode.valueOf("a"));
+        CommunityDetectionRequest cdrB = new CommunityDetectionRequest();
+        cdrB.setAlgorithm("foo");
+        cdrB.setData(TextNode.valueOf("b"));
+        CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+        expect(mockValidator.validateRequest(cda, cdrA)).andReturn(null);
+        expect(mockValidator.validateRequest(cda, cdrB)).andReturn(null);
+        replay(mockValidator);
+        
+        TaskBatcher batcher = new TaskBatcher("foo", "docker", "foo/image",
+                new File(tempDir, CommunityDetectionEngineImpl.BATCH_DIR), null, 2, 10000){
+            @Override
+            protected List<CommunityDetectionResult> runInContainer(List<BatchCommunityDetectionRunner> runners) throws Exception {
+                throw new IOException("Unable to create directory: batch");
+            }
+        };
+        ExecutorService es = Executors.newFixedThreadPool(2);
+        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(es,
+                tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+        engine.updateTaskBatchers(Collections.singletonMap("foo", batcher));
+        Thread engineThread = new Thread(engine);
+        engineThread.start();
+        try {
+            String idA = engine.request(cdrA);
+            String idB = engine.request(cdrB);
+            CountDownLatch finished = new CountDownLatch(2);
+            for (String id : new String[]{idA, idB}){
+                if (engine.addTaskFinishedListener(id, finished::countDown) == false){
+                    finished.countDown();
+                }
+            }
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+            for (String id : new String[]{idA, idB}){
+                CommunityDetectionResultStatus status = engine.getStatus(id);
+                assertEquals(CommunityDetectionResult.FAILED_STATUS, status.getStatus());
+                assertTrue(status.getMessage().contains("Unable to create directory: batch"));
+                assertEquals(100, status.getProgress());
+            }
+            assertEquals(0, engine.getServerStatus().getQueuedTasks());
+            verify(mockValidator);
+        } finally {
+            engine.shutdown();
+            engineThread.join(10000);
+            es.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testTaskFinishedListeners() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setDockerImage("foo/image");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+            cdr.setAlgorithm("foo");
+            cdr.setData(TextNode.valueOf("hi"));
+
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            expect(mockValidator.validateRequest(cda, cdr)).andReturn(null);
+            ExecutorService mockES = mock(ExecutorService.class);
+            mockES.execute(anyObject());
+            expectLastCall();
+            replay(mockES);
+            replay(mockValidator);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+            String id = engine.request(cdr);
+            
+            // unknown tasks are not pending
+            assertFalse(engine.addTaskFinishedListener("doesnotexist", () -> {}));
+            assertFalse(engine.addTaskFinishedListener(null, () -> {}));
+            assertFalse(engine.addTaskFinishedListener(id, null));
+            
+            CountDownLatch finishedLatch = new CountDownLatch(1);
+            CountDownLatch removedLatch = new CountDownLatch(1);
+            Runnable removedListener = removedLatch::countDown;
+            assertTrue(engine.addTaskFinishedListener(id, finishedLatch::countDown));
+            assertTrue(engine.addTaskFinishedListener(id, removedListener));
+            assertTrue(engine.removeTaskFinishedListener(id, removedListener));
+            assertFalse(engine.removeTaskFinishedListener(id, removedListener));
+            
+            engine.delete(id);
+            assertTrue(finishedLatch.await(10, TimeUnit.SECONDS));
+            assertEquals(1, removedLatch.getCount());
+            assertFalse(engine.addTaskFinishedListener(id, () -> {}));
+            verify(mockES);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testTaskEventListeners() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setDockerImage("foo/image");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+            cdr.setAlgorithm("foo");
+            cdr.setData(TextNode.valueOf("hi"));
+
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            expect(mockValidator.validateRequest(cda, cdr)).andReturn(null);
+            ExecutorService mockES = mock(ExecutorService.class);
+            mockES.execute(anyObject());
+            expectLastCall();
+            replay(mockES);
+            replay(mockValidator);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+            String id = engine.request(cdr);
+            
+            assertNull(engine.addTaskEventListener("doesnotexist", (String tId, CommunityDetectionResultStatus s) -> {}));
+            
+            final List<CommunityDetectionResultStatus> events = new ArrayList<>();
+            TaskEventListener listener = (String tId, CommunityDetectionResultStatus s) -> events.add(s);
+            CommunityDetectionResultStatus status = engine.addTaskEventListener(id, listener);
+            assertEquals(CommunityDetectionResult.SUBMITTED_STATUS, status.getStatus());
+            
+            // deleting task sends null event and removes listener
+            engine.delete(id);
+            assertEquals(1, events.size());
+            assertNull(events.get(0));
+            assertNull(engine.addTaskEventListener(id, listener));
+            verify(mockES);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testCheckTaskProgress() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = new File(tempDir.getAbsolutePath() + File.separator + "foo.conf");
+            FileWriter fw = new FileWriter(confFile);
+            fw.write(Configuration.TASK_DIR + " = " + tempDir.getAbsolutePath() + "\n");
+            fw.write(Configuration.ALGORITHM_TIMEOUT + " = 10\n");
+            fw.flush();
+            fw.close();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setDockerImage("foo/image");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+            cdr.setAlgorithm("foo");
+            cdr.setData(TextNode.valueOf("hi"));
+
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            expect(mockValidator.validateRequest(cda, cdr)).andReturn(null);
+            ExecutorService mockES = mock(ExecutorService.class);
+            Capture<CommunityDetectionTask> cappy = Capture.newInstance();
+            mockES.execute(capture(cappy));
+            expectLastCall();
+            replay(mockES);
+            replay(mockValidator);
+            
+            // use a command that exits right away in place of docker
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "false", algos, mockValidator);
+            String id = engine.request(cdr);
+            final List<CommunityDetectionResultStatus> events = new ArrayList<>();
+            assertNotNull(engine.addTaskEventListener(id,
+                    (String tId, CommunityDetectionResultStatus s) -> events.add(s)));
+            
+            // running task marks it as processing
+            cappy.getValue().run();
+            assertEquals(CommunityDetectionResult.PROCESSING_STATUS,
+                    engine.getStatus(id).getStatus());
+            assertEquals(1, events.size());
+            assertEquals(CommunityDetectionResult.PROCESSING_STATUS, events.get(0).getStatus());
+            
+            FileUtils.writeStringToFile(new File(tempDir.getAbsolutePath()
+                    + File.separator + id + File.separator
+                    + DockerCommunityDetectionRunner.PROGRESS_FILE),
+                    "42 halfway there\n", "UTF-8");
+            engine.checkTaskProgress();
+            CommunityDetectionResultStatus status = engine.getStatus(id);
+            assertEquals(42, status.getProgress());
+            assertEquals("halfway there", status.getMessage());
+            assertEquals(2, events.size());
+            assertEquals(42, events.get(1).getProgress());
+            
+            // no event if progress is unchanged
+            engine.checkTaskProgress();
+            assertEquals(2, events.size());
+            verify(mockES);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testResultMemoryCache() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            engine.updateResultMemoryCache(new CommunityDetectionResultMemoryCache(1000000));
+            File taskDir = new File(tempDir, "1");
+            assertTrue(taskDir.mkdirs());
+            final CommunityDetectionResult cdr = new CommunityDetectionResult();
+            cdr.setId("1");
+            cdr.setMessage("done");
+            cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            CommunityDetectionTask task = new CommunityDetectionTask("1", () -> cdr, null);
+            task.run();
+            engine.processCompletedTask(task);
+            
+            // first read parses file, second comes from memory
+            CommunityDetectionResult res = engine.getResult("1");
+            assertEquals("done", res.getMessage());
+            assertTrue(engine.getResult("1") == res);
+            ExtendedServerStatus sObj = (ExtendedServerStatus)engine.getServerStatus();
+            assertEquals(1, sObj.getMemoryCacheHits());
+            assertEquals(1, sObj.getMemoryCacheMisses());
+            assertEquals(1, sObj.getMemoryCacheEntries());
+            assertEquals(new File(taskDir, CommunityDetectionEngineImpl.CDRESULT_JSON_FILE).length(),
+                    sObj.getMemoryCacheBytes());
+            
+            // delete removes result from memory
+            engine.delete("1");
+            sObj = (ExtendedServerStatus)engine.getServerStatus();
+            assertEquals(0, sObj.getMemoryCacheEntries());
+            try {
+                engine.getResult("1");
+                fail("Expected CommunityDetectionException");
+            } catch(CommunityDetectionException cde){
+                assertEquals("No task with id of 1 found", cde.getMessage());
+            }
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetStatusReadsStatusFileAfterRestart() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            File taskDir = new File(tempDir, "1");
+            assertTrue(taskDir.mkdirs());
+            final CommunityDetectionResult cdr = new CommunityDetectionResult();
+            cdr.setId("1");
+            cdr.setMessage("done");
+            cdr.setProgress(100);
+            cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            cdr.setResult(TextNode.valueOf("a big result"));
+            CommunityDetectionTask task = new CommunityDetectionTask("1", () -> cdr, null);
+            task.run();
+            engine.processCompletedTask(task);
+            File statusFile = new File(taskDir, CommunityDetectionEngineImpl.CDSTATUS_JSON_FILE);
+            assertTrue(statusFile.isFile());
+            
+            // replace result with invalid json to show it is not parsed
+            FileUtils.writeStringToFile(new File(taskDir,
+                    CommunityDetectionEngineImpl.CDRESULT_JSON_FILE), "haha", "UTF-8");
+            
+            CommunityDetectionEngineImpl restartedEngine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            CommunityDetectionResultStatus status = restartedEngine.getStatus("1");
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS, status.getStatus());
+            assertEquals("done", status.getMessage());
+            assertEquals(100, status.getProgress());
+            
+            // status file is ignored if result is gone
+            CommunityDetectionEngineImpl anotherEngine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            assertTrue(new File(taskDir, CommunityDetectionEngineImpl.CDRESULT_JSON_FILE).delete());
+            try {
+                anotherEngine.getStatus("1");
+                fail("Expected CommunityDetectionException");
+            } catch(CommunityDetectionException cde){
+                assertEquals("No task with id of 1 found", cde.getMessage());
+            }
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testCollectTaskGarbage() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = new File(tempDir.getAbsolutePath() + File.separator + "foo.conf");
+            FileWriter fw = new FileWriter(confFile);
+            fw.write(Configuration.TASK_DIR + " = " + tempDir.getAbsolutePath() + "\n");
+            fw.flush();
+            fw.close();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setDockerImage("foo/image");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+            cdr.setAlgorithm("foo");
+            cdr.setData(TextNode.valueOf("hi"));
+
+            CommunityDetectionRequestValidator mockValidator = mock(CommunityDetectionRequestValidator.class);
+            expect(mockValidator.validateRequest(cda, cdr)).andReturn(null);
+            ExecutorService mockES = mock(ExecutorService.class);
+            mockES.execute(anyObject());
+            expectLastCall();
+            replay(mockES);
+            replay(mockValidator);
+
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(mockES,
+                    tempDir.getAbsolutePath(), "docker", algos, mockValidator);
+            assertEquals(0, engine.collectTaskGarbage());
+            engine.updateTaskDirectoryGarbageCollector(new TaskDirectoryGarbageCollector(
+                    tempDir, 60000, 0, 80), 1000);
+
+            // queued task is never removed
+            String queuedId = engine.request(cdr);
+
+            File taskDir = new File(tempDir, "1");
+            assertTrue(taskDir.mkdirs());
+            final CommunityDetectionResult res = new CommunityDetectionResult();
+            res.setId("1");
+            res.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            CommunityDetectionTask task = new CommunityDetectionTask("1", () -> res, null);
+            task.run();
+            engine.processCompletedTask(task);
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS,
+                    engine.getStatus("1").getStatus());
+
+            long old = System.currentTimeMillis() - 120000;
+            File queuedDir = new File(tempDir, queuedId);
+            assertTrue(queuedDir.isDirectory());
+            queuedDir.setLastModified(old);
+            taskDir.setLastModified(old);
+
+            assertEquals(1, engine.collectTaskGarbage());
+            assertFalse(taskDir.exists());
+            assertTrue(queuedDir.exists());
+            try {
+                engine.getStatus("1");
+                fail("Expected CommunityDetectionException");
+            } catch(CommunityDetectionException cde){
+                assertEquals("No task with id of 1 found", cde.getMessage());
+            }
+            assertEquals(CommunityDetectionResult.SUBMITTED_STATUS,
+                    engine.getStatus(queuedId).getStatus());
+
+            ExtendedServerStatus ss = (ExtendedServerStatus)engine.getServerStatus();
+            assertEquals(1, ss.getEvictedTasks());
+            assertTrue(ss.getReclaimedBytes() > 0);
+            verify(mockES);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetResultFile() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            try {
+                engine.getResultFile(null, false);
+                fail("Expected CommunityDetectionException");
+            } catch(CommunityDetectionException cde){
+                assertEquals("Id is null", cde.getMessage());
+            }
+            assertNull(engine.getResultFile("1", false));
+            
+            final CommunityDetectionResult cdr = new CommunityDetectionResult();
+            cdr.setId("1");
+            cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            CommunityDetectionTask task = new CommunityDetectionTask("1", () -> cdr, null);
+            task.run();
+            engine.processCompletedTask(task);
+            assertEquals(new File(tempDir.getAbsolutePath() + File.separator + "1"
+                    + File.separator + CommunityDetectionEngineImpl.CDRESULT_JSON_FILE),
+                    engine.getResultFile("1", false));
+            assertNull(engine.getResultFile("1", true));
+            
+            engine.updateResultStore(new FileSystemResultStore(tempDir.getAbsolutePath(), true));
+            task = new CommunityDetectionTask("1", () -> cdr, null);
+            task.run();
+            engine.processCompletedTask(task);
+            assertNull(engine.getResultFile("1", false));
+            assertEquals(new File(tempDir.getAbsolutePath() + File.separator + "1"
+                    + File.separator + CommunityDetectionEngineImpl.CDRESULT_JSON_GZ_FILE),
+                    engine.getResultFile("1", true));
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testTaskDirectoryRemovedOnceResultInMVStore() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            MVStoreResultStore store = new MVStoreResultStore(new File(tempDir,
+                    MVStoreResultStore.RESULT_STORE_FILE));
+            engine.updateResultStore(store);
+            try {
+                assertTrue(new File(tempDir, "1").mkdirs());
+                assertTrue(new File(tempDir, "2").mkdirs());
+                final CommunityDetectionResult complete = new CommunityDetectionResult();
+                complete.setId("1");
+                complete.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+                CommunityDetectionTask task = new CommunityDetectionTask("1", () -> complete, null);
+                task.run();
+                engine.processCompletedTask(task);
+                
+                final CommunityDetectionResult failed = new CommunityDetectionResult();
+                failed.setId("2");
+                failed.setStatus(CommunityDetectionResult.FAILED_STATUS);
+                task = new CommunityDetectionTask("2", () -> failed, null);
+                task.run();
+                engine.processCompletedTask(task);
+                
+                // directory of failed task is kept for its logs
+                assertFalse(new File(tempDir, "1").exists());
+                assertTrue(new File(tempDir, "2").isDirectory());
+                assertEquals(CommunityDetectionResult.COMPLETE_STATUS, engine.getResult("1").getStatus());
+                assertEquals(CommunityDetectionResult.FAILED_STATUS, engine.getResult("2").getStatus());
+            } finally {
+                store.close();
+            }
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetResultBytes() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            final CommunityDetectionResult cdr = new CommunityDetectionResult();
+            cdr.setId("1");
+            cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            CommunityDetectionTask task = new CommunityDetectionTask("1", () -> cdr, null);
+            task.run();
+            engine.processCompletedTask(task);
+            
+            // no cache so caller falls back to result file
+            assertNull(engine.getResultBytes("1", false));
+            
+            CommunityDetectionResultMemoryCache cache = new CommunityDetectionResultMemoryCache(100000);
+            engine.updateResultMemoryCache(cache);
+            try {
+                engine.getResultBytes(null, false);
+                fail("Expected CommunityDetectionException");
+            } catch(CommunityDetectionException cde){
+                assertEquals("Id is null", cde.getMessage());
+            }
+            assertNull(engine.getResultBytes("2", false));
+            assertNull(engine.getResultBytes("1", true));
+            File resultFile = engine.getResultFile("1", false);
+            byte[] json = engine.getResultBytes("1", false);
+            assertArrayEquals(FileUtils.readFileToByteArray(resultFile), json);
+            assertEquals(1, cache.getEntryCount());
+            
+            // cached json is used for results too
+            assertSame(json, engine.getResultBytes("1", false));
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS, engine.getResult("1").getStatus());
+            
+            // result deleted so it is removed from cache
+            engine.delete("1");
+            assertEquals(0, cache.getEntryCount());
+            assertNull(engine.getResultBytes("1", false));
+            
+            // compressed results are cached as compressed and uncompressed json
+            engine.updateResultStore(new FileSystemResultStore(tempDir.getAbsolutePath(), true));
+            task = new CommunityDetectionTask("1", () -> cdr, null);
+            task.run();
+            engine.processCompletedTask(task);
+            assertArrayEquals(FileUtils.readFileToByteArray(engine.getResultFile("1", true)),
+                    engine.getResultBytes("1", true));
+            CommunityDetectionResult res = new ObjectMapper().readValue(
+                    engine.getResultBytes("1", false), CommunityDetectionResult.class);
+            assertEquals("1", res.getId());
+            
+            // results too large for cache are not cached
+            engine.updateResultMemoryCache(new CommunityDetectionResultMemoryCache(1));
+            assertNull(engine.getResultBytes("1", true));
+            assertNull(engine.getResultBytes("1", false));
+            assertEquals("1", engine.getResult("1").getId());
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testDeleteNullId() throws IOException {
+        try {
+            File tempDir = _folder.newFolder();
+             CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            try {
+                engine.delete(null);
+                fail("Expected CommunityDetectionException ");
+            } catch(CommunityDetectionException cde){
+                assertEquals("id is null", cde.getMessage());
+            }
+            
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testDeleteWhereIdNotInResultsOrFilesystem() throws IOException {
+        try {
+            File tempDir = _folder.newFolder();
+             CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            try {
+                engine.delete("1");
+                
+            } catch(CommunityDetectionException cde){
+                fail("unexpected CommunityDetectionException: " + cde.getMessage());
+            }
+            
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testDeleteWhereIdIsInFilesystem() throws IOException {
+        try {
+            File tempDir = _folder.newFolder();
+            
+            File taskDir = new File(tempDir.getAbsolutePath() + File.separator + "1");
+            assertTrue(taskDir.mkdirs());
+            
+            FileWriter fw = new FileWriter(taskDir.getAbsolutePath()
+                    + File.separator + CommunityDetectionEngineImpl.CDRESULT_JSON_FILE);
+            fw.write("haha");
+            fw.flush();
+            fw.close();
+            
+             CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", null, null);
+            try {
+                engine.delete("1");
+                assertFalse(taskDir.exists());
+            } catch(CommunityDetectionException cde){
+                fail("unexpected CommunityDetectionException: " + cde.getMessage());
+            }
+            
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetAlgorithmsWhereAlgorithmsIsNull(){
+        CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    "task", "docker", null, null);
+        try {
+            engine.getAlgorithms();
+            fail("Expected CommunityDetectionException: ");
+                
+        } catch(CommunityDetectionException cde){
+            assertEquals("No algorithms found", cde.getMessage());
+        }
+    }
+    
+    @Test
+    public void testGetAlgorithmsAndServerStatusWithImageStates() throws Exception {
+        File tempDir = _folder.newFolder();
+        try {
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setDockerImage("foo/image");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionEngineImpl engine = new CommunityDetectionEngineImpl(null,
+                    tempDir.getAbsolutePath(), "docker", algos, null);
+            assertEquals(algos, engine.getAlgorithms());
+            assertNull(((ExtendedServerStatus)engine.getServerStatus()).getAlgorithmStates());
+            
+            Map<String, String> images = new LinkedHashMap<>();
+            images.put("foo", "foo/image");
+            engine.updateAlgorithmImagePreparer(new AlgorithmImagePreparer("docker",
+                    images, null, 1, TimeUnit.SECONDS));
+            ExtendedCommunityDetectionAlgorithms eAlgos = (ExtendedCommunityDetectionAlgorithms)engine.getAlgorithms();
+            assertEquals(aMap, eAlgos.getAlgorithms());
+            assertEquals(AlgorithmImagePreparer.PULLING_STATE, eAlgos.getAlgorithmStates().get("foo"));
+            ExtendedServerStatus ss = (ExtendedServerStatus)engine.getServerStatus();
+            assertEquals(AlgorithmImagePreparer.PULLING_STATE, ss.getAlgorithmStates().get("foo"));
+        } finally {
+            _folder.delete();
         }
     }
-}
\ No newline at end of file
+}
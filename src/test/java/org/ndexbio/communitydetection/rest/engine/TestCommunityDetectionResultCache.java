@@ -0,0 +1,104 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.io.File;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.ndexbio.communitydetection.rest.engine.ResultFixtures.getResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+
+/**
+ *
+ * @author churas
+ */
+public class TestCommunityDetectionResultCache {
+    
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+    
+    @Test
+    public void testPutAndGet() throws Exception {
+        File cacheDir = new File(_folder.newFolder(), "cache");
+        CommunityDetectionResultCache cache = new CommunityDetectionResultCache(cacheDir, 100000);
+        assertTrue(cacheDir.isDirectory());
+        assertNull(cache.get(null));
+        assertNull(cache.get("abc"));
+        assertEquals(1, cache.getMisses());
+        
+        cache.put(null, getResult("someid", CommunityDetectionResult.COMPLETE_STATUS, "hi"));
+        cache.put("abc", null);
+        assertEquals(0, cache.getEntryCount());
+        
+        cache.put("abc", getResult("someid", CommunityDetectionResult.COMPLETE_STATUS, "hi"));
+        assertEquals(1, cache.getEntryCount());
+        assertTrue(cache.getSizeBytes() > 0);
+        CommunityDetectionResult cdr = cache.get("abc");
+        assertNotNull(cdr);
+        assertEquals("hi", cdr.getMessage());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        
+        // replace existing entry
+        long origSize = cache.getSizeBytes();
+        cache.put("abc", getResult("someid", CommunityDetectionResult.COMPLETE_STATUS, "hi"));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(origSize, cache.getSizeBytes());
+        
+        cache.remove("abc");
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSizeBytes());
+        assertFalse(new File(cacheDir, "abc" + CommunityDetectionResultCache.CACHE_FILE_SUFFIX).exists());
+    }
+    
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        File cacheDir = _folder.newFolder();
+        CommunityDetectionResultCache cache = new CommunityDetectionResultCache(cacheDir, 100000);
+        cache.put("one", getResult("someid", CommunityDetectionResult.COMPLETE_STATUS, "1"));
+        long entrySize = cache.getSizeBytes();
+        
+        // cache can hold two entries
+        cache = new CommunityDetectionResultCache(cacheDir, entrySize * 2);
+        assertEquals(1, cache.getEntryCount());
+        cache.put("two", getResult("someid", CommunityDetectionResult.COMPLETE_STATUS, "2"));
+        
+        // use one so two becomes least recently used
+        assertNotNull(cache.get("one"));
+        cache.put("three", getResult("someid", CommunityDetectionResult.COMPLETE_STATUS, "3"));
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("two"));
+        assertNotNull(cache.get("one"));
+        assertNotNull(cache.get("three"));
+        assertFalse(new File(cacheDir, "two" + CommunityDetectionResultCache.CACHE_FILE_SUFFIX).exists());
+    }
+    
+    @Test
+    public void testResultLargerThanCacheNotAdded() throws Exception {
+        File cacheDir = _folder.newFolder();
+        CommunityDetectionResultCache cache = new CommunityDetectionResultCache(cacheDir, 5);
+        cache.put("one", getResult("someid", CommunityDetectionResult.COMPLETE_STATUS, "1"));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cacheDir.listFiles().length);
+    }
+    
+    @Test
+    public void testLoadRemovesTmpAndCorruptFiles() throws Exception {
+        File cacheDir = _folder.newFolder();
+        File tmpFile = new File(cacheDir, "foo" + CommunityDetectionResultCache.TMP_FILE_SUFFIX);
+        assertTrue(tmpFile.createNewFile());
+        File badFile = new File(cacheDir, "bad" + CommunityDetectionResultCache.CACHE_FILE_SUFFIX);
+        assertTrue(badFile.createNewFile());
+        CommunityDetectionResultCache cache = new CommunityDetectionResultCache(cacheDir, 100000);
+        assertFalse(tmpFile.exists());
+        assertEquals(1, cache.getEntryCount());
+        assertNull(cache.get("bad"));
+        assertEquals(0, cache.getEntryCount());
+        assertFalse(badFile.exists());
+    }
+}
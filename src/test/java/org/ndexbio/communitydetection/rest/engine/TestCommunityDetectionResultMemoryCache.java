@@ -0,0 +1,76 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ *
+ * @author churas
+ */
+public class TestCommunityDetectionResultMemoryCache {
+
+    @Test
+    public void testGetPutAndRemove(){
+        CommunityDetectionResultMemoryCache cache = new CommunityDetectionResultMemoryCache(100);
+        assertEquals(100, cache.getMaxBytes());
+        assertNull(cache.get("1", false));
+        byte[] json = new byte[10];
+        cache.put("1", json, false);
+        assertSame(json, cache.get("1", false));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(10, cache.getSizeBytes());
+
+        // compressed json is kept in same entry
+        assertNull(cache.get("1", true));
+        byte[] compressed = new byte[5];
+        cache.put("1", compressed, true);
+        assertSame(compressed, cache.get("1", true));
+        assertSame(json, cache.get("1", false));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(15, cache.getSizeBytes());
+
+        // replacing json updates size
+        cache.put("1", new byte[20], false);
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(25, cache.getSizeBytes());
+
+        cache.remove("1");
+        cache.remove("doesnotexist");
+        assertNull(cache.get("1", false));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void testPutIgnoresInvalidAndOversizedResults(){
+        CommunityDetectionResultMemoryCache cache = new CommunityDetectionResultMemoryCache(100);
+        cache.put(null, new byte[10], false);
+        cache.put("1", null, false);
+        cache.put("2", new byte[101], false);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted(){
+        CommunityDetectionResultMemoryCache cache = new CommunityDetectionResultMemoryCache(100);
+        byte[] one = new byte[40];
+        byte[] three = new byte[40];
+        cache.put("1", one, false);
+        cache.put("2", new byte[40], false);
+
+        // access 1 so 2 becomes least recently used
+        cache.get("1", false);
+        cache.put("3", three, false);
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(80, cache.getSizeBytes());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("2", false));
+        assertSame(one, cache.get("1", false));
+        assertSame(three, cache.get("3", false));
+    }
+}
@@ -93,6 +93,11 @@ public class TestConfiguration {
             assertEquals("/cd", config.getRunServerContextPath());
             assertEquals("/communitydetection", config.getRunServerApplicationPath());
             assertEquals("/cd/communitydetection", config.getSwaggerServer());
+            assertFalse(config.isImagePrePullEnabled());
+            assertEquals(Configuration.DEFAULT_IMAGE_PULL_TIMEOUT, config.getImagePullTimeOut());
+            assertEquals(Configuration.DEFAULT_MAX_EVENT_STREAMS, config.getMaxEventStreams());
+            assertEquals(Configuration.DEFAULT_MAX_BATCH_SIZE, config.getMaxBatchSize());
+            assertEquals(Configuration.DEFAULT_RESULT_MEMORY_CACHE_MAX_BYTES, config.getResultMemoryCacheMaxBytes());
             
             
             assertEquals(null, config.getAlgorithms());
@@ -240,4 +245,36 @@ public class TestConfiguration {
             _folder.delete();
         }
     }
+    
+    @Test
+    public void testAlgorithmSettings() throws CommunityDetectionException, IOException {
+        File tempDir = _folder.newFolder();
+        try {
+            File configFile = new File(tempDir.getAbsolutePath() + File.separator + "conf");
+            Properties props = new Properties();
+            props.setProperty(Configuration.ALGORITHM_SETTING_PREFIX + "louvain."
+                    + Configuration.ALGORITHM_WORKERS_SETTING, "2");
+            props.setProperty(Configuration.ALGORITHM_SETTING_PREFIX + "louvain."
+                    + Configuration.ALGORITHM_QUEUE_SIZE_SETTING, " 10 ");
+            props.setProperty(Configuration.ALGORITHM_SETTING_PREFIX + "bad", "1");
+            FileOutputStream fos = new FileOutputStream(configFile);
+            props.store(fos, "hello");
+            fos.flush();
+            fos.close();
+            Configuration.setAlternateConfigurationFile(configFile.getAbsolutePath());
+            Configuration config = Configuration.reloadConfiguration();
+            assertEquals("2", config.getAlgorithmSetting("louvain",
+                    Configuration.ALGORITHM_WORKERS_SETTING, null));
+            assertEquals("10", config.getAlgorithmSetting("louvain",
+                    Configuration.ALGORITHM_QUEUE_SIZE_SETTING, null));
+            assertEquals("x", config.getAlgorithmSetting("louvain", "foo", "x"));
+            assertEquals("x", config.getAlgorithmSetting("infomap",
+                    Configuration.ALGORITHM_WORKERS_SETTING, "x"));
+            assertEquals("x", config.getAlgorithmSetting(null,
+                    Configuration.ALGORITHM_WORKERS_SETTING, "x"));
+            assertEquals(1, config.getAlgorithmSettings().size());
+        } finally {
+            _folder.delete();
+        }
+    }
 }
@@ -0,0 +1,152 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.ndexbio.communitydetection.rest.engine.ResultFixtures.getResult;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
+
+/**
+ *
+ * @author churas
+ */
+public class TestFileSystemResultStore {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    @Test
+    public void testEmptyStore() throws Exception {
+        File tempDir = _folder.newFolder();
+        FileSystemResultStore store = new FileSystemResultStore(tempDir.getAbsolutePath());
+        assertNull(store.get("1"));
+        assertNull(store.getStatus("1"));
+        assertFalse(store.contains("1"));
+        assertEquals(0, store.getSize("1"));
+        assertEquals(0, store.getStoredTime("1"));
+        assertTrue(store.isStoredInTaskDirectory());
+        assertEquals(0, store.getStoreSize());
+        assertFalse(store.delete("1"));
+        assertTrue(store.list().isEmpty());
+        store.close();
+    }
+
+    @Test
+    public void testPutGetAndDelete() throws Exception {
+        File tempDir = _folder.newFolder();
+        FileSystemResultStore store = new FileSystemResultStore(tempDir.getAbsolutePath());
+        store.put(getResult("1", CommunityDetectionResult.COMPLETE_STATUS, "hi"));
+        File resultFile = new File(tempDir.getAbsolutePath() + File.separator + "1"
+                + File.separator + CommunityDetectionEngineImpl.CDRESULT_JSON_FILE);
+        assertTrue(resultFile.isFile());
+        assertTrue(store.contains("1"));
+        assertEquals(resultFile.length(), store.getSize("1"));
+        assertEquals(resultFile.lastModified(), store.getStoredTime("1"));
+
+        CommunityDetectionResult cdr = store.get("1");
+        assertEquals("1", cdr.getId());
+        assertEquals("hi", cdr.getMessage());
+
+        CommunityDetectionResultStatus status = store.getStatus("1");
+        assertEquals(CommunityDetectionResult.COMPLETE_STATUS, status.getStatus());
+        assertEquals(100, status.getProgress());
+
+        // task directory without result is not listed
+        new File(tempDir, "2").mkdirs();
+        assertEquals(1, store.list().size());
+        assertEquals("1", store.list().get(0));
+
+        assertTrue(store.delete("1"));
+        assertFalse(store.contains("1"));
+        assertNull(store.getStatus("1"));
+        assertTrue(store.list().isEmpty());
+    }
+
+    @Test
+    public void testGetStatusIgnoredIfResultMissing() throws Exception {
+        File tempDir = _folder.newFolder();
+        FileSystemResultStore store = new FileSystemResultStore(tempDir.getAbsolutePath());
+        store.put(getResult("1", CommunityDetectionResult.COMPLETE_STATUS, "hi"));
+        new File(tempDir.getAbsolutePath() + File.separator + "1"
+                + File.separator + CommunityDetectionEngineImpl.CDRESULT_JSON_FILE).delete();
+        assertNull(store.getStatus("1"));
+    }
+
+    @Test
+    public void testCompressedPutGetAndDelete() throws Exception {
+        File tempDir = _folder.newFolder();
+        FileSystemResultStore store = new FileSystemResultStore(tempDir.getAbsolutePath(), true);
+        CommunityDetectionResult cdr = getResult("1", CommunityDetectionResult.COMPLETE_STATUS, "hi");
+        cdr.setMessage(new String(new char[1000]).replace('\0', 'x'));
+        store.put(cdr);
+        File taskDir = new File(tempDir, "1");
+        File compressedFile = new File(taskDir, CommunityDetectionEngineImpl.CDRESULT_JSON_GZ_FILE);
+        assertTrue(compressedFile.isFile());
+        assertFalse(new File(taskDir, CommunityDetectionEngineImpl.CDRESULT_JSON_FILE).exists());
+        assertTrue(store.contains("1"));
+        assertEquals(cdr.getMessage(), store.get("1").getMessage());
+        assertEquals(CommunityDetectionResult.COMPLETE_STATUS, store.getStatus("1").getStatus());
+        assertEquals(1, store.list().size());
+
+        assertEquals(compressedFile, store.getFile("1", true));
+        assertNull(store.getFile("1", false));
+
+        // size is of uncompressed json
+        byte[] json;
+        try (InputStream in = new GZIPInputStream(new FileInputStream(compressedFile))){
+            json = IOUtils.toByteArray(in);
+        }
+        assertEquals(json.length, store.getSize("1"));
+        assertTrue(compressedFile.length() < json.length);
+
+        assertTrue(store.delete("1"));
+        assertFalse(store.contains("1"));
+        assertNull(store.getFile("1", true));
+    }
+
+    @Test
+    public void testUncompressedResultReadByCompressingStore() throws Exception {
+        File tempDir = _folder.newFolder();
+        new FileSystemResultStore(tempDir.getAbsolutePath()).put(getResult("1",
+                CommunityDetectionResult.COMPLETE_STATUS, "hi"));
+        FileSystemResultStore store = new FileSystemResultStore(tempDir.getAbsolutePath(), true);
+        assertTrue(store.contains("1"));
+        assertEquals("hi", store.get("1").getMessage());
+        assertNull(store.getFile("1", true));
+        assertNotNull(store.getFile("1", false));
+
+        // rewriting the result replaces the uncompressed file
+        store.put(getResult("1", CommunityDetectionResult.COMPLETE_STATUS, "hi"));
+        assertFalse(new File(tempDir.getAbsolutePath() + File.separator + "1"
+                + File.separator + CommunityDetectionEngineImpl.CDRESULT_JSON_FILE).exists());
+        assertNotNull(store.getFile("1", true));
+    }
+
+    @Test
+    public void testPutReplacesFilesWithoutLeavingTempFiles() throws Exception {
+        File tempDir = _folder.newFolder();
+        FileSystemResultStore store = new FileSystemResultStore(tempDir.getAbsolutePath());
+        store.put(getResult("1", CommunityDetectionResult.COMPLETE_STATUS, "hi"));
+        CommunityDetectionResult cdr = getResult("1", CommunityDetectionResult.COMPLETE_STATUS, "hi");
+        cdr.setMessage("bye");
+        cdr.setStatus(CommunityDetectionResult.FAILED_STATUS);
+        store.put(cdr);
+        assertEquals("bye", store.get("1").getMessage());
+        assertEquals(CommunityDetectionResult.FAILED_STATUS, store.getStatus("1").getStatus());
+
+        File[] tmpFiles = new File(tempDir, "1").listFiles((File f) ->
+                f.getName().endsWith(FileSystemResultStore.TMP_SUFFIX));
+        assertEquals(0, tmpFiles.length);
+    }
+}
@@ -0,0 +1,101 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.ndexbio.communitydetection.rest.engine.ResultFixtures.getResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
+
+/**
+ *
+ * @author churas
+ */
+public class TestMVStoreResultStore {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    @Test
+    public void testEmptyStore() throws Exception {
+        File tempDir = _folder.newFolder();
+        MVStoreResultStore store = new MVStoreResultStore(new File(tempDir,
+                MVStoreResultStore.RESULT_STORE_FILE));
+        try {
+            assertNull(store.get("1"));
+            assertNull(store.getStatus("1"));
+            assertFalse(store.contains("1"));
+            assertEquals(0, store.getSize("1"));
+            assertEquals(0, store.getStoredTime("1"));
+            assertFalse(store.isStoredInTaskDirectory());
+            assertNull(store.getFile("1", false));
+            assertFalse(store.delete("1"));
+            assertTrue(store.list().isEmpty());
+        } finally {
+            store.close();
+        }
+        // close can be called more than once
+        store.close();
+    }
+
+    @Test
+    public void testPutGetAndDelete() throws Exception {
+        File tempDir = _folder.newFolder();
+        MVStoreResultStore store = new MVStoreResultStore(new File(tempDir,
+                MVStoreResultStore.RESULT_STORE_FILE));
+        try {
+            store.put(getResult("1", CommunityDetectionResult.FAILED_STATUS, "failed"));
+            store.put(getResult("2", CommunityDetectionResult.FAILED_STATUS, "failed"));
+            assertTrue(store.contains("1"));
+            assertEquals(new ObjectMapper().writeValueAsBytes(store.get("1")).length,
+                    store.getSize("1"));
+            assertTrue(store.getStoredTime("1") > 0);
+            assertTrue(store.getStoreSize() > 0);
+            CommunityDetectionResult cdr = store.get("1");
+            assertEquals("1", cdr.getId());
+            assertEquals("failed", cdr.getMessage());
+
+            CommunityDetectionResultStatus status = store.getStatus("1");
+            assertEquals(CommunityDetectionResult.FAILED_STATUS, status.getStatus());
+            assertEquals(2, store.list().size());
+
+            assertTrue(store.delete("1"));
+            assertFalse(store.contains("1"));
+            assertNull(store.getStatus("1"));
+            assertEquals(1, store.list().size());
+            assertEquals("2", store.list().get(0));
+            assertEquals(0, store.getSize("1"));
+            assertEquals(0, store.getStoredTime("1"));
+            store.compact();
+            assertTrue(store.contains("2"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testResultsPersistAfterReopen() throws Exception {
+        File tempDir = _folder.newFolder();
+        File storeFile = new File(tempDir, MVStoreResultStore.RESULT_STORE_FILE);
+        MVStoreResultStore store = new MVStoreResultStore(storeFile);
+        store.put(getResult("1", CommunityDetectionResult.FAILED_STATUS, "failed"));
+        store.close();
+        assertTrue(storeFile.isFile());
+
+        store = new MVStoreResultStore(storeFile);
+        try {
+            assertTrue(store.contains("1"));
+            assertEquals("1", store.get("1").getId());
+            assertEquals(CommunityDetectionResult.FAILED_STATUS,
+                    store.getStatus("1").getStatus());
+        } finally {
+            store.close();
+        }
+    }
+}
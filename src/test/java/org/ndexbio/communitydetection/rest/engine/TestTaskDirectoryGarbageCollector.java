@@ -0,0 +1,191 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.mock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author churas
+ */
+public class TestTaskDirectoryGarbageCollector {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * Creates task directory with a file of {@code size} bytes
+     * last modified {@code ageMillis} ago
+     */
+    private File createTaskDir(File taskDir, final String id, int size,
+            long ageMillis) throws Exception {
+        File dir = new File(taskDir, id);
+        dir.mkdirs();
+        FileUtils.writeByteArrayToFile(new File(dir,
+                CommunityDetectionEngineImpl.CDRESULT_JSON_FILE), new byte[size]);
+        dir.setLastModified(System.currentTimeMillis() - ageMillis);
+        return dir;
+    }
+
+    @Test
+    public void testSweepOnMissingDirectory() throws Exception {
+        File tempDir = _folder.newFolder();
+        TaskDirectoryGarbageCollector gc = new TaskDirectoryGarbageCollector(
+                new File(tempDir, "doesnotexist"), 1000, 1000, 80);
+        assertEquals(0, gc.sweep((String id) -> false, (String id) -> {}));
+        assertEquals(0, gc.getEvictions());
+        assertEquals(0, gc.getReclaimedBytes());
+    }
+
+    @Test
+    public void testSweepByAge() throws Exception {
+        File tempDir = _folder.newFolder();
+        File oldDir = createTaskDir(tempDir, "old", 10, 100000);
+        File oldActiveDir = createTaskDir(tempDir, "oldactive", 10, 100000);
+        File newDir = createTaskDir(tempDir, "new", 10, 0);
+        File cacheDir = createTaskDir(tempDir,
+                CommunityDetectionEngineImpl.RESULT_CACHE_DIR, 10, 100000);
+        File journal = new File(tempDir, TaskJournal.TASK_JOURNAL_FILE);
+        FileUtils.writeStringToFile(journal, "hi", "UTF-8");
+        journal.setLastModified(System.currentTimeMillis() - 100000);
+
+        TaskDirectoryGarbageCollector gc = new TaskDirectoryGarbageCollector(
+                tempDir, 50000, 0, 80);
+        List<String> evicted = new ArrayList<>();
+        assertEquals(1, gc.sweep((String id) -> "oldactive".equals(id),
+                (String id) -> evicted.add(id)));
+        assertEquals(1, evicted.size());
+        assertEquals("old", evicted.get(0));
+        assertFalse(oldDir.exists());
+        assertTrue(oldActiveDir.exists());
+        assertTrue(newDir.exists());
+        assertTrue(cacheDir.exists());
+        assertTrue(journal.exists());
+        assertEquals(1, gc.getEvictions());
+        assertEquals(10, gc.getReclaimedBytes());
+    }
+
+    @Test
+    public void testSweepBySizeRemovesOldestUntilLowWatermark() throws Exception {
+        File tempDir = _folder.newFolder();
+        File oneDir = createTaskDir(tempDir, "1", 300, 40000);
+        File twoDir = createTaskDir(tempDir, "2", 300, 30000);
+        File threeDir = createTaskDir(tempDir, "3", 300, 20000);
+        File fourDir = createTaskDir(tempDir, "4", 300, 10000);
+
+        // 1200 bytes is over 1000 so remove oldest until at or below 800
+        TaskDirectoryGarbageCollector gc = new TaskDirectoryGarbageCollector(
+                tempDir, 0, 1000, 80);
+        List<String> evicted = new ArrayList<>();
+        assertEquals(2, gc.sweep((String id) -> "1".equals(id),
+                (String id) -> evicted.add(id)));
+        assertEquals(2, evicted.size());
+        assertEquals("2", evicted.get(0));
+        assertEquals("3", evicted.get(1));
+        assertTrue(oneDir.exists());
+        assertFalse(twoDir.exists());
+        assertFalse(threeDir.exists());
+        assertTrue(fourDir.exists());
+        assertEquals(600, gc.getReclaimedBytes());
+
+        // now under maximum so nothing is removed
+        assertEquals(0, gc.sweep((String id) -> false, (String id) -> {}));
+        assertEquals(2, gc.getEvictions());
+    }
+
+    @Test
+    public void testSweepCountsAndRemovesStoredResults() throws Exception {
+        File tempDir = _folder.newFolder();
+        File oneDir = createTaskDir(tempDir, "1", 300, 40000);
+        File twoDir = createTaskDir(tempDir, "2", 300, 0);
+
+        // store file of 600 bytes holds results of task 1 which still
+        // has a directory and of tasks a and b whose directories are gone
+        ResultStore mockStore = mock(ResultStore.class);
+        expect(mockStore.isStoredInTaskDirectory()).andReturn(false);
+        expect(mockStore.getStoreSize()).andReturn(600L);
+        expect(mockStore.list()).andReturn(Arrays.asList("1", "a", "b"));
+        expect(mockStore.getStoredTime("a")).andReturn(System.currentTimeMillis() - 50000);
+        expect(mockStore.getSize("a")).andReturn(300L);
+        expect(mockStore.getStoredTime("b")).andReturn(System.currentTimeMillis() - 30000);
+        expect(mockStore.getSize("b")).andReturn(300L);
+        mockStore.compact();
+        expectLastCall().once();
+        replay(mockStore);
+
+        // 1200 bytes is over 1000 so remove oldest until at or below 800
+        TaskDirectoryGarbageCollector gc = new TaskDirectoryGarbageCollector(
+                tempDir, 0, 1000, 80);
+        List<String> evicted = new ArrayList<>();
+        assertEquals(2, gc.sweep((String id) -> false,
+                (String id) -> evicted.add(id), mockStore));
+        assertEquals(Arrays.asList("a", "1"), evicted);
+        assertFalse(oneDir.exists());
+        assertTrue(twoDir.exists());
+        assertEquals(600, gc.getReclaimedBytes());
+        verify(mockStore);
+    }
+
+    @Test
+    public void testSweepIgnoresStoreKeepingResultsInTaskDirectories() throws Exception {
+        File tempDir = _folder.newFolder();
+        createTaskDir(tempDir, "1", 300, 40000);
+        ResultStore mockStore = mock(ResultStore.class);
+        expect(mockStore.isStoredInTaskDirectory()).andReturn(true);
+        replay(mockStore);
+        TaskDirectoryGarbageCollector gc = new TaskDirectoryGarbageCollector(
+                tempDir, 0, 1000, 80);
+        assertEquals(0, gc.sweep((String id) -> false, (String id) -> {}, mockStore));
+        verify(mockStore);
+    }
+
+    @Test
+    public void testInvalidLowWatermarkUsesDefault() throws Exception {
+        File tempDir = _folder.newFolder();
+        createTaskDir(tempDir, "1", 100, 20000);
+        createTaskDir(tempDir, "2", 100, 10000);
+        createTaskDir(tempDir, "3", 100, 0);
+
+        // 300 bytes is over 250, default of 80% means remove until at or below 200
+        TaskDirectoryGarbageCollector gc = new TaskDirectoryGarbageCollector(
+                tempDir, 0, 250, 500);
+        assertEquals(1, gc.sweep((String id) -> false, (String id) -> {}));
+        assertFalse(new File(tempDir, "1").exists());
+    }
+
+    @Test
+    public void testSweepSkipsDirectoryWrittenToDuringSweep() throws Exception {
+        File tempDir = _folder.newFolder();
+        File oldDir = createTaskDir(tempDir, "old", 10, 100000);
+
+        // task finishes and saves its result after directory was listed
+        TaskDirectoryGarbageCollector gc = new TaskDirectoryGarbageCollector(
+                tempDir, 50000, 0, 80);
+        List<String> evicted = new ArrayList<>();
+        assertEquals(0, gc.sweep((String id) -> {
+                    new File(oldDir, CommunityDetectionEngineImpl.CDSTATUS_JSON_FILE).delete();
+                    try {
+                        FileUtils.writeStringToFile(new File(oldDir,
+                                CommunityDetectionEngineImpl.CDSTATUS_JSON_FILE), "{}", "UTF-8");
+                    } catch(Exception ex){
+                        throw new RuntimeException(ex);
+                    }
+                    return false;
+                }, (String id) -> evicted.add(id)));
+        assertTrue(evicted.isEmpty());
+        assertTrue(oldDir.exists());
+    }
+}
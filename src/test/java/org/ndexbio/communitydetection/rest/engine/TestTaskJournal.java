@@ -0,0 +1,115 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author churas
+ */
+public class TestTaskJournal {
+    
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+    
+    @Test
+    public void testPendingTasksSurviveReload() throws Exception {
+        File journalFile = new File(_folder.newFolder(), TaskJournal.TASK_JOURNAL_FILE);
+        TaskJournal journal = new TaskJournal(journalFile, TaskJournal.DEFAULT_COMPACT_THRESHOLD);
+        assertTrue(journalFile.isFile());
+        HashMap<String, String> params = new HashMap<>();
+        params.put("--seed", "1");
+        journal.submitted("1", "foo", params, "hash1", null);
+        journal.submitted("2", "foo", null, "hash1", "1");
+        journal.submitted("3", "bar", null, null, null);
+        journal.started("1");
+        journal.finished("3");
+        journal.submitted("4", "bar", null, null, null);
+        journal.deleted("4");
+        journal.close();
+        
+        journal = new TaskJournal(journalFile, TaskJournal.DEFAULT_COMPACT_THRESHOLD);
+        List<TaskJournalRecord> pending = journal.getPendingTasks();
+        assertEquals(2, pending.size());
+        assertEquals("1", pending.get(0).getId());
+        assertEquals("foo", pending.get(0).getAlgorithm());
+        assertEquals("1", pending.get(0).getCustomParameters().get("--seed"));
+        assertEquals("hash1", pending.get(0).getRequestHash());
+        assertNull(pending.get(0).getPrimaryId());
+        assertTrue(journal.isStarted("1"));
+        assertEquals("2", pending.get(1).getId());
+        assertEquals("1", pending.get(1).getPrimaryId());
+        assertFalse(journal.isStarted("2"));
+        
+        // journal is compacted on load
+        assertEquals(3, Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8).size());
+        journal.close();
+    }
+    
+    @Test
+    public void testResubmittedTaskReplacesPendingRecord() throws Exception {
+        File journalFile = new File(_folder.newFolder(), TaskJournal.TASK_JOURNAL_FILE);
+        TaskJournal journal = new TaskJournal(journalFile, TaskJournal.DEFAULT_COMPACT_THRESHOLD);
+        journal.submitted("1", "foo", null, "hash1", null);
+        journal.submitted("2", "foo", null, "hash1", "1");
+        journal.deleted("1");
+        journal.submitted("2", "foo", null, "hash1", null, "1");
+        assertNull(journal.getPendingTask("1"));
+        assertNull(journal.getPendingTask("2").getPrimaryId());
+        journal.close();
+        
+        journal = new TaskJournal(journalFile, TaskJournal.DEFAULT_COMPACT_THRESHOLD);
+        List<TaskJournalRecord> pending = journal.getPendingTasks();
+        assertEquals(1, pending.size());
+        assertEquals("2", pending.get(0).getId());
+        assertNull(pending.get(0).getPrimaryId());
+        assertEquals("1", pending.get(0).getInputId());
+        journal.close();
+    }
+    
+    @Test
+    public void testInvalidRecordsSkipped() throws Exception {
+        File journalFile = new File(_folder.newFolder(), TaskJournal.TASK_JOURNAL_FILE);
+        try (FileWriter fw = new FileWriter(journalFile)){
+            fw.write("{\"type\":\"submitted\",\"id\":\"1\",\"algorithm\":\"foo\"}\n");
+            fw.write("\n");
+            fw.write("{\"type\":\"unknown\",\"id\":\"1\"}\n");
+            fw.write("{\"type\":\"submitted\",\"id\":\"2\",\"alg");
+        }
+        TaskJournal journal = new TaskJournal(journalFile, TaskJournal.DEFAULT_COMPACT_THRESHOLD);
+        List<TaskJournalRecord> pending = journal.getPendingTasks();
+        assertEquals(1, pending.size());
+        assertEquals("1", pending.get(0).getId());
+        journal.close();
+    }
+    
+    @Test
+    public void testCompactionWhenThresholdReached() throws Exception {
+        File journalFile = new File(_folder.newFolder(), TaskJournal.TASK_JOURNAL_FILE);
+        TaskJournal journal = new TaskJournal(journalFile, 4);
+        journal.submitted("1", "foo", null, null, null);
+        journal.submitted("2", "foo", null, null, null);
+        journal.finished("1");
+        assertEquals(3, Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8).size());
+        
+        // 4th record triggers compaction
+        journal.started("2");
+        assertEquals(2, Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8).size());
+        journal.close();
+        
+        // records after close are not written
+        journal.finished("2");
+        assertEquals(2, Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8).size());
+    }
+}
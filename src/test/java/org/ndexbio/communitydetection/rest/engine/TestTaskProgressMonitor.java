@@ -0,0 +1,103 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.engine.util.DockerCommunityDetectionRunner;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+
+/**
+ *
+ * @author churas
+ */
+public class TestTaskProgressMonitor {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private File getProgressFile(File tempDir, final String id){
+        File taskDir = new File(tempDir, id);
+        taskDir.mkdirs();
+        return new File(taskDir, DockerCommunityDetectionRunner.PROGRESS_FILE);
+    }
+
+    @Test
+    public void testNoProgressFile() throws IOException {
+        File tempDir = _folder.newFolder();
+        TaskProgressMonitor monitor = new TaskProgressMonitor(tempDir.getAbsolutePath());
+        CommunityDetectionResult cdr = new CommunityDetectionResult();
+        assertFalse(monitor.updateProgress("1", cdr));
+        assertEquals(0, cdr.getProgress());
+    }
+
+    @Test
+    public void testUpdateProgressUsesLastCompleteLine() throws IOException {
+        File tempDir = _folder.newFolder();
+        File progressFile = getProgressFile(tempDir, "1");
+        FileUtils.writeStringToFile(progressFile,
+                "10 loading\n\n25.7 clustering network\n30", StandardCharsets.UTF_8);
+        TaskProgressMonitor monitor = new TaskProgressMonitor(tempDir.getAbsolutePath());
+        CommunityDetectionResult cdr = new CommunityDetectionResult();
+        assertTrue(monitor.updateProgress("1", cdr));
+        assertEquals(25, cdr.getProgress());
+        assertEquals("clustering network", cdr.getMessage());
+
+        // no change reported when progress is the same
+        assertFalse(monitor.updateProgress("1", cdr));
+
+        // progress without message leaves message alone and 100 is capped
+        FileUtils.writeStringToFile(progressFile, "\n100\n",
+                StandardCharsets.UTF_8, true);
+        progressFile.setLastModified(progressFile.lastModified() + 1000);
+        assertTrue(monitor.updateProgress("1", cdr));
+        assertEquals(TaskProgressMonitor.MAX_PROGRESS, cdr.getProgress());
+        assertEquals("clustering network", cdr.getMessage());
+    }
+
+    @Test
+    public void testInvalidLineIsIgnored() throws IOException {
+        File tempDir = _folder.newFolder();
+        File progressFile = getProgressFile(tempDir, "1");
+        FileUtils.writeStringToFile(progressFile, "50 halfway\n", StandardCharsets.UTF_8);
+        TaskProgressMonitor monitor = new TaskProgressMonitor(tempDir.getAbsolutePath());
+        CommunityDetectionResult cdr = new CommunityDetectionResult();
+        assertTrue(monitor.updateProgress("1", cdr));
+        assertEquals(50, cdr.getProgress());
+
+        FileUtils.writeStringToFile(progressFile, "oops\n",
+                StandardCharsets.UTF_8, true);
+        progressFile.setLastModified(progressFile.lastModified() + 1000);
+        CommunityDetectionResult otherCdr = new CommunityDetectionResult();
+        assertTrue(monitor.updateProgress("1", otherCdr));
+        assertEquals(50, otherCdr.getProgress());
+        assertEquals("halfway", otherCdr.getMessage());
+    }
+
+    @Test
+    public void testLongProgressFileAndRemove() throws IOException {
+        File tempDir = _folder.newFolder();
+        File progressFile = getProgressFile(tempDir, "1");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 150; i++){
+            sb.append(i).append(" step ").append(i).append("\n");
+        }
+        FileUtils.writeStringToFile(progressFile, sb.toString(), StandardCharsets.UTF_8);
+        assertTrue(progressFile.length() > TaskProgressMonitor.TAIL_BYTES);
+        TaskProgressMonitor monitor = new TaskProgressMonitor(tempDir.getAbsolutePath());
+        CommunityDetectionResult cdr = new CommunityDetectionResult();
+        assertTrue(monitor.updateProgress("1", cdr));
+        assertEquals(TaskProgressMonitor.MAX_PROGRESS, cdr.getProgress());
+        assertEquals("step 149", cdr.getMessage());
+
+        monitor.remove("1");
+        assertTrue(progressFile.delete());
+        assertFalse(monitor.updateProgress("1", new CommunityDetectionResult()));
+    }
+}
@@ -0,0 +1,79 @@
+package org.ndexbio.communitydetection.rest.engine;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author churas
+ */
+public class TestTaskRuntimeEstimator {
+    
+    @Test
+    public void testGetSizeGroup(){
+        assertEquals(0, TaskRuntimeEstimator.getSizeGroup(-1));
+        assertEquals(0, TaskRuntimeEstimator.getSizeGroup(0));
+        assertEquals(1, TaskRuntimeEstimator.getSizeGroup(1));
+        assertEquals(2, TaskRuntimeEstimator.getSizeGroup(3));
+        assertEquals(11, TaskRuntimeEstimator.getSizeGroup(1024));
+    }
+    
+    @Test
+    public void testEstimateNoHistory(){
+        TaskRuntimeEstimator est = new TaskRuntimeEstimator();
+        assertEquals(TaskRuntimeEstimator.UNKNOWN, est.estimateWallTime(null, 10));
+        assertEquals(TaskRuntimeEstimator.UNKNOWN, est.estimateWallTime("foo", 10));
+        est.recordWallTime(null, 10, 100);
+        est.recordWallTime("foo", 10, -1);
+        assertEquals(TaskRuntimeEstimator.UNKNOWN, est.estimateWallTime("foo", 10));
+    }
+    
+    @Test
+    public void testEstimateWithHistory(){
+        TaskRuntimeEstimator est = new TaskRuntimeEstimator(0.5);
+        est.recordWallTime("foo", 1024, 100);
+        assertEquals(100, est.estimateWallTime("foo", 1024));
+        est.recordWallTime("foo", 1024, 200);
+        assertEquals(150, est.estimateWallTime("foo", 1024));
+        
+        // larger input should be scaled up from closest group
+        assertEquals(600, est.estimateWallTime("foo", 4096));
+        
+        // smaller input should be scaled down from closest group
+        assertEquals(75, est.estimateWallTime("foo", 512));
+        assertEquals(TaskRuntimeEstimator.UNKNOWN, est.estimateWallTime("bar", 1024));
+    }
+    
+    @Test
+    public void testTaskOrdering(){
+        CommunityDetectionTask first = new CommunityDetectionTask("1", () -> null, null);
+        first.setPriority(100);
+        CommunityDetectionTask second = new CommunityDetectionTask("2", () -> null, null);
+        second.setPriority(10);
+        CommunityDetectionTask third = new CommunityDetectionTask("3", () -> null, null);
+        third.setPriority(100);
+        assertTrue(second.compareTo(first) < 0);
+        assertTrue(first.compareTo(third) < 0);
+        
+        PriorityBlockingQueue<CommunityDetectionTask> queue = new PriorityBlockingQueue<>();
+        queue.add(third);
+        queue.add(first);
+        queue.add(second);
+        assertEquals("2", queue.poll().getId());
+        assertEquals("1", queue.poll().getId());
+        assertEquals("3", queue.poll().getId());
+    }
+    
+    @Test
+    public void testBoundedPriorityBlockingQueue(){
+        BoundedPriorityBlockingQueue<Integer> queue = new BoundedPriorityBlockingQueue<>(2);
+        assertEquals(2, queue.remainingCapacity());
+        assertTrue(queue.offer(5));
+        assertTrue(queue.offer(1));
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(false, queue.offer(3));
+        assertEquals(1, (int)queue.poll());
+    }
+}
@@ -0,0 +1,117 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark comparing the old way algorithm output was read, try
+ * parsing as json then read line by line as text, with
+ * {@link AlgorithmOutputReader#readText(java.io.File)} on a large
+ * {@link AlgorithmOutputReader#COMMUNITYDETECTRESULT_FORMAT} file.
+ * <p>
+ * This is not run by the unit tests. Run it via {@link #main(java.lang.String[])}
+ * with the test classpath, for example:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=org.ndexbio.communitydetection.rest.engine.util.AlgorithmOutputReaderBenchmark
+ * </pre>
+ * Lines of the generated file start with a cluster name, as json
+ * parsing of output starting with a number stops after the number and
+ * the old way returned that number instead of the text.
+ *
+ * @author churas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AlgorithmOutputReaderBenchmark {
+
+    /**
+     * Number of lines in output file
+     */
+    @Param({"100000", "1000000"})
+    public int numLines;
+
+    private File _outFile;
+
+    @Setup(Level.Trial)
+    public void writeOutFile() throws IOException {
+        _outFile = File.createTempFile("cdresult", ".txt");
+        try (BufferedWriter bw = Files.newBufferedWriter(_outFile.toPath(),
+                StandardCharsets.UTF_8)){
+            for (int i = 0; i < numLines; i++){
+                bw.write("c" + Integer.toString(i / 10) + ","
+                        + Integer.toString(i) + ",c-m;\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteOutFile(){
+        _outFile.delete();
+    }
+
+    /**
+     * Old way output was read
+     * @return output of algorithm
+     * @throws IOException if there is an error reading the file
+     */
+    @Benchmark
+    public JsonNode tryJsonThenText() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        try {
+            return mapper.readTree(_outFile);
+        } catch(JsonParseException jpe){
+            StringBuilder sb = new StringBuilder();
+            try (BufferedReader br = new BufferedReader(new FileReader(_outFile))){
+                String line = br.readLine();
+                while(line != null){
+                    sb.append(line).append("\n");
+                    line = br.readLine();
+                }
+            }
+            return new TextNode(sb.toString());
+        }
+    }
+
+    @Benchmark
+    public JsonNode readText() throws IOException {
+        return AlgorithmOutputReader.readText(_outFile);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opts = new OptionsBuilder()
+                .include(AlgorithmOutputReaderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opts).run();
+    }
+}
@@ -0,0 +1,79 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author churas
+ */
+public class TestAlgorithmOutputReader {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private File writeOutFile(final String contents) throws Exception {
+        File outFile = _folder.newFile();
+        FileUtils.writeStringToFile(outFile, contents, "UTF-8");
+        return outFile;
+    }
+
+    @Test
+    public void testTextFormatIsNotParsedAsJson() throws Exception {
+        // without a format the leading number is parsed as json
+        File outFile = writeOutFile("1,2,c-c;\r\n1,3,c-m;");
+        JsonNode res = AlgorithmOutputReader.read(outFile, null);
+        assertTrue(res.isNumber());
+
+        res = AlgorithmOutputReader.read(outFile,
+                AlgorithmOutputReader.COMMUNITYDETECTRESULT_FORMAT);
+        assertTrue(res.isTextual());
+        assertEquals("1,2,c-c;\n1,3,c-m;\n", res.asText());
+
+        // format is not case sensitive
+        res = AlgorithmOutputReader.read(outFile, "communitydetectresult");
+        assertTrue(res.isTextual());
+    }
+
+    @Test
+    public void testJsonFormat() throws Exception {
+        File outFile = writeOutFile("{\"a\": [1, 2]}");
+        JsonNode res = AlgorithmOutputReader.read(outFile,
+                AlgorithmOutputReader.MAPPEDTERMJSON_FORMAT);
+        assertEquals(2, res.get("a").size());
+
+        // json format that is not json is stored as text
+        outFile = writeOutFile("{not json");
+        res = AlgorithmOutputReader.read(outFile,
+                AlgorithmOutputReader.CXMATE_OUTPUT_FORMAT);
+        assertTrue(res.isTextual());
+        assertEquals("{not json\n", res.asText());
+    }
+
+    @Test
+    public void testUnknownFormat() throws Exception {
+        File outFile = writeOutFile("{\"a\": 1}");
+        JsonNode res = AlgorithmOutputReader.read(outFile, "SOMEFORMAT");
+        assertEquals(1, res.get("a").asInt());
+
+        outFile = writeOutFile("hello\nworld");
+        res = AlgorithmOutputReader.read(outFile, "SOMEFORMAT");
+        assertEquals("hello\nworld\n", res.asText());
+    }
+
+    @Test
+    public void testReadTextLineEndings() throws Exception {
+        assertEquals("", AlgorithmOutputReader.readText(writeOutFile("")).asText());
+        assertEquals("a\nb\n", AlgorithmOutputReader.readText(writeOutFile("a\nb\n")).asText());
+        assertEquals("a\n\nb\n", AlgorithmOutputReader.readText(writeOutFile("a\r\rb")).asText());
+        assertEquals("a\nb\n", AlgorithmOutputReader.readText(writeOutFile("a\r\nb\r\n")).asText());
+        assertEquals("\u00e9t\u00e9\n", AlgorithmOutputReader.readText(
+                writeOutFile("\u00e9t\u00e9")).asText());
+    }
+}
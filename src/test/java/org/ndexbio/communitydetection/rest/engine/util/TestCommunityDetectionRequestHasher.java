@@ -0,0 +1,111 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.File;
+import java.util.LinkedHashMap;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+
+/**
+ *
+ * @author churas
+ */
+public class TestCommunityDetectionRequestHasher {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    @Test
+    public void testSameRequestWithParametersInDifferentOrder() throws Exception {
+        CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+        cda.setName("foo");
+        cda.setDockerImage("foo/image");
+        
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("foo");
+        cdr.setData(new TextNode("hi"));
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        params.put("--a", "1");
+        params.put("--b", "2");
+        cdr.setCustomParameters(params);
+        
+        CommunityDetectionRequest cdrTwo = new CommunityDetectionRequest();
+        cdrTwo.setAlgorithm("foo");
+        cdrTwo.setData(new TextNode("hi"));
+        LinkedHashMap<String, String> paramsTwo = new LinkedHashMap<>();
+        paramsTwo.put("--b", "2");
+        paramsTwo.put("--a", "1");
+        cdrTwo.setCustomParameters(paramsTwo);
+        
+        String hash = CommunityDetectionRequestHasher.getHash(cda, cdr);
+        assertNotNull(hash);
+        assertEquals(64, hash.length());
+        assertEquals(hash, CommunityDetectionRequestHasher.getHash(cda, cdrTwo));
+    }
+    
+    @Test
+    public void testDifferentRequestsGetDifferentHashes() throws Exception {
+        CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+        cda.setName("foo");
+        cda.setDockerImage("foo/image");
+        
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("foo");
+        cdr.setData(new TextNode("hi"));
+        String hash = CommunityDetectionRequestHasher.getHash(cda, cdr);
+        
+        cdr.setData(new TextNode("bye"));
+        assertFalse(hash.equals(CommunityDetectionRequestHasher.getHash(cda, cdr)));
+        
+        // json data
+        ObjectMapper mapper = new ObjectMapper();
+        cdr.setData(mapper.readTree("[1,2,3]"));
+        String jsonHash = CommunityDetectionRequestHasher.getHash(cda, cdr);
+        cdr.setData(mapper.readTree("[1,2,3]"));
+        assertEquals(jsonHash, CommunityDetectionRequestHasher.getHash(cda, cdr));
+        
+        // different docker image
+        cda.setDockerImage("foo/image:2");
+        assertFalse(jsonHash.equals(CommunityDetectionRequestHasher.getHash(cda, cdr)));
+        
+        // custom parameter added
+        cda.setDockerImage("foo/image");
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        params.put("--a", "1");
+        cdr.setCustomParameters(params);
+        assertFalse(jsonHash.equals(CommunityDetectionRequestHasher.getHash(cda, cdr)));
+    }
+    
+    @Test
+    public void testDataFileHashesSameAsData() throws Exception {
+        CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+        cda.setName("foo");
+        cda.setDockerImage("foo/image");
+        
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("foo");
+        cdr.setData(new TextNode("1\t2\n"));
+        String textHash = CommunityDetectionRequestHasher.getHash(cda, cdr);
+        ObjectMapper mapper = new ObjectMapper();
+        cdr.setData(mapper.readTree("{\"a\": [1,2,3]}"));
+        String jsonHash = CommunityDetectionRequestHasher.getHash(cda, cdr);
+        
+        // request as it comes out of CommunityDetectionRequestReader
+        File dataFile = _folder.newFile();
+        CommunityDetectionRequest noData = new CommunityDetectionRequest();
+        noData.setAlgorithm("foo");
+        FileUtils.writeStringToFile(dataFile, "1\t2\n", "UTF-8");
+        assertEquals(textHash, CommunityDetectionRequestHasher.getHash(cda, noData, dataFile));
+        
+        FileUtils.writeStringToFile(dataFile, "{\"a\":[1,2,3]}", "UTF-8");
+        assertEquals(jsonHash, CommunityDetectionRequestHasher.getHash(cda, noData, dataFile));
+    }
+}
@@ -0,0 +1,185 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+
+/**
+ *
+ * @author churas
+ */
+public class TestCommunityDetectionRequestReader {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private InputStream toStream(final String json){
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadTextData() throws Exception {
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("foo");
+        cdr.setData(new TextNode("1\t2\n2\t3é\n"));
+        HashMap<String, String> params = new HashMap<>();
+        params.put("--a", "1");
+        cdr.setCustomParameters(params);
+        ObjectMapper mapper = new ObjectMapper();
+
+        File dataFile = new File(_folder.getRoot(), "data");
+        CommunityDetectionRequest res = CommunityDetectionRequestReader.read(
+                toStream(mapper.writeValueAsString(cdr)), dataFile);
+        assertEquals("foo", res.getAlgorithm());
+        assertEquals("1", res.getCustomParameters().get("--a"));
+        assertNull(res.getData());
+        assertEquals("1\t2\n2\t3é\n", FileUtils.readFileToString(dataFile, "UTF-8"));
+    }
+
+    @Test
+    public void testReadJsonData() throws Exception {
+        File dataFile = new File(_folder.getRoot(), "data");
+        CommunityDetectionRequest res = CommunityDetectionRequestReader.read(
+                toStream("{\"data\": {\"a\": [1, 2, {\"b\": null}]}, \"algorithm\": \"foo\"}"),
+                dataFile);
+        assertEquals("foo", res.getAlgorithm());
+        assertNull(res.getData());
+        assertEquals("{\"a\":[1,2,{\"b\":null}]}",
+                FileUtils.readFileToString(dataFile, "UTF-8"));
+    }
+
+    @Test
+    public void testReadNullAndMissingData() throws Exception {
+        File dataFile = new File(_folder.getRoot(), "data");
+        CommunityDetectionRequest res = CommunityDetectionRequestReader.read(
+                toStream("{\"algorithm\": \"foo\", \"data\": null}"), dataFile);
+        assertEquals("foo", res.getAlgorithm());
+        assertFalse(dataFile.exists());
+
+        res = CommunityDetectionRequestReader.read(
+                toStream("{\"algorithm\": \"foo\"}"), dataFile);
+        assertEquals("foo", res.getAlgorithm());
+        assertFalse(dataFile.exists());
+    }
+
+    @Test
+    public void testReadNotAnObject() throws Exception {
+        File dataFile = new File(_folder.getRoot(), "data");
+        try {
+            CommunityDetectionRequestReader.read(toStream("[1, 2]"), dataFile);
+            fail("Expected JsonParseException");
+        } catch(JsonParseException jpe){
+            assertEquals(true, jpe.getMessage().startsWith("Request must be a json object"));
+        }
+    }
+
+    @Test
+    public void testReadInvalidJson() throws Exception {
+        File dataFile = new File(_folder.getRoot(), "data");
+        try {
+            CommunityDetectionRequestReader.read(toStream("{\"data\": \"hi\", "), dataFile);
+            fail("Expected IOException");
+        } catch(IOException io){
+            // expected
+        }
+    }
+
+    @Test
+    public void testReadEscapedTextData() throws Exception {
+        File dataFile = new File(_folder.getRoot(), "data");
+        CommunityDetectionRequest res = CommunityDetectionRequestReader.read(
+                toStream("{\"algorithm\":\"foo\",\"data\":\"a\\\"\\\\\\/\\b\\f\\n\\r\\t"
+                        + "\\u00e9\\ud83d\\ude00\u00e9\",\"customParameters\":{\"--a\":\"1\"}}"),
+                dataFile);
+        assertEquals("foo", res.getAlgorithm());
+        assertEquals("1", res.getCustomParameters().get("--a"));
+        assertEquals("a\"\\/\b\f\n\r\t\u00e9\ud83d\ude00\u00e9",
+                FileUtils.readFileToString(dataFile, "UTF-8"));
+    }
+
+    @Test
+    public void testReadTextDataIsWrittenWhileRead() throws Exception {
+        final File dataFile = new File(_folder.getRoot(), "data");
+        final byte[] prefix = "{\"algorithm\": \"foo\", \"data\": \"".getBytes(StandardCharsets.UTF_8);
+        final byte[] line = "1\\t2\\n".getBytes(StandardCharsets.UTF_8);
+        final byte[] suffix = "\"}".getBytes(StandardCharsets.UTF_8);
+        final int numLines = 500000;
+        final long[] writtenAtEnd = new long[]{-1};
+
+        // generates request, well over the size of parser buffers, and
+        // notes how much data was in the file before the end was read
+        InputStream in = new InputStream(){
+            private long _pos = 0;
+            private final long _length = prefix.length
+                    + (long)line.length * numLines + suffix.length;
+
+            @Override
+            public int read() throws IOException {
+                if (_pos >= _length){
+                    return -1;
+                }
+                int b;
+                if (_pos < prefix.length){
+                    b = prefix[(int)_pos];
+                } else if (_pos >= _length - suffix.length){
+                    if (writtenAtEnd[0] == -1){
+                        writtenAtEnd[0] = dataFile.length();
+                    }
+                    b = suffix[(int)(_pos - (_length - suffix.length))];
+                } else {
+                    b = line[(int)((_pos - prefix.length) % line.length)];
+                }
+                _pos++;
+                return b;
+            }
+        };
+        CommunityDetectionRequest res = CommunityDetectionRequestReader.read(in, dataFile);
+        assertEquals("foo", res.getAlgorithm());
+        long expectedLength = 4L * numLines;
+        assertEquals(expectedLength, dataFile.length());
+
+        // all but the last buffer of data was on disk before the request
+        // was read to the end so the string was not held in memory
+        assertTrue(writtenAtEnd[0] >= expectedLength
+                - 2 * CommunityDetectionRequestReader.BUFFER_SIZE);
+    }
+
+    @Test
+    public void testReadScalarsAndNestedFields() throws Exception {
+        File dataFile = new File(_folder.getRoot(), "data");
+        CommunityDetectionRequest res = CommunityDetectionRequestReader.read(
+                toStream(" { \"customParameters\" : { \"--a\" : \"}]\" } ,\n"
+                        + "\"data\" : [ 1 , \"x\\\"]\" ] , \"algorithm\" : \"foo\" } "),
+                dataFile);
+        assertEquals("foo", res.getAlgorithm());
+        assertEquals("}]", res.getCustomParameters().get("--a"));
+        assertEquals("[1,\"x\\\"]\"]", FileUtils.readFileToString(dataFile, "UTF-8"));
+    }
+
+    @Test
+    public void testReadInvalidEscape() throws Exception {
+        File dataFile = new File(_folder.getRoot(), "data");
+        try {
+            CommunityDetectionRequestReader.read(toStream("{\"data\": \"\\x\"}"), dataFile);
+            fail("Expected JsonParseException");
+        } catch(JsonParseException jpe){
+            assertEquals(true, jpe.getMessage().startsWith("Invalid escape in string"));
+        }
+    }
+}
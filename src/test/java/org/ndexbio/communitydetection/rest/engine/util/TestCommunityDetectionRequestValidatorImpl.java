@@ -1,10 +1,14 @@
 package org.ndexbio.communitydetection.rest.engine.util;
 
 import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.File;
 import java.util.HashMap;
 import java.util.HashSet;
 import static org.junit.Assert.assertEquals;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
 import org.ndexbio.communitydetection.rest.model.CustomParameter;
@@ -16,6 +20,9 @@ import org.ndexbio.communitydetection.rest.model.ErrorResponse;
  */
 public class TestCommunityDetectionRequestValidatorImpl {
 
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
     @Test
     public void testNullAlgorithmAndNullRequest(){
         CommunityDetectionRequestValidatorImpl validator = new CommunityDetectionRequestValidatorImpl();
@@ -42,6 +49,22 @@ public class TestCommunityDetectionRequestValidatorImpl {
         assertEquals("No data passed in with request", er.getMessage());
     }
     
+    @Test
+    public void testDataFile() throws Exception {
+        CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+        cda.setName("foo");
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        
+        CommunityDetectionRequestValidatorImpl validator = new CommunityDetectionRequestValidatorImpl();
+        File dataFile = new File(_folder.getRoot(), "data");
+        ErrorResponse er = validator.validateRequest(cda, cdr, dataFile);
+        assertEquals("No data passed in with request", er.getMessage());
+        
+        FileUtils.writeStringToFile(dataFile, "hi", "UTF-8");
+        er = validator.validateRequest(cda, cdr, dataFile);
+        assertEquals(null, er);
+    }
+    
     @Test
     public void testAlgorithmNameIsNull(){
         CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
@@ -126,7 +126,7 @@ public class TestDockerCommunityDetectionRunner {
             CommunityDetectionResult res = new CommunityDetectionResult();
             res.setId("1");
             res.setResult(TextNode.valueOf("hello"));
-            runner.updateCommunityDetectionResultWithFileContents(res, nonExistantFile);
+            runner.updateCommunityDetectionResultWithFileContents(res, nonExistantFile, null);
             assertFalse(nonExistantFile.exists());
         }finally {
             _folder.delete();
@@ -151,7 +151,7 @@ public class TestDockerCommunityDetectionRunner {
             CommunityDetectionResult res = new CommunityDetectionResult();
             res.setId("1");
             res.setResult(TextNode.valueOf("hello"));
-            runner.updateCommunityDetectionResultWithFileContents(res, outFile);
+            runner.updateCommunityDetectionResultWithFileContents(res, outFile, null);
             assertTrue(outFile.exists());
             assertEquals("hello", res.getResult().asText());
         }finally {
@@ -180,7 +180,7 @@ public class TestDockerCommunityDetectionRunner {
             CommunityDetectionResult res = new CommunityDetectionResult();
             res.setId("1");
             res.setResult(TextNode.valueOf("hello"));
-            runner.updateCommunityDetectionResultWithFileContents(res, outFile);
+            runner.updateCommunityDetectionResultWithFileContents(res, outFile, null);
             assertTrue(outFile.exists());
             assertEquals("hello\n", res.getResult().asText());
         }finally {
@@ -466,4 +466,32 @@ public class TestDockerCommunityDetectionRunner {
             _folder.delete();
         }
     }
+    
+    @Test
+    public void testLocalProcessRunnerCallSuccess() throws Exception {
+        File tempDir = _folder.newFolder();
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setData(new TextNode("blah"));
+        Map<String, String> cParams = new LinkedHashMap<>();
+        cParams.put("--k", "3");
+        LocalProcessCommunityDetectionRunner runner = new LocalProcessCommunityDetectionRunner("someid",
+                cdr, 0, tempDir.getAbsolutePath(), "/usr/local/bin/algo.py", cParams, 1,
+                TimeUnit.SECONDS, null);
+        
+        CommandLineRunner mockCLR = mock(CommandLineRunner.class);
+        String wDir = tempDir.getAbsolutePath() + File.separator + "someid";
+        mockCLR.setWorkingDirectory(wDir);
+        File stdOutFile = runner.getStandardOutFile();
+        FileUtils.writeStringToFile(stdOutFile, "hello", "UTF-8");
+        expect(mockCLR.runCommandLineProcess(1, TimeUnit.SECONDS, stdOutFile,
+                runner.getStandardErrorFile(), "/usr/local/bin/algo.py", "--k", "3",
+                runner.getInputFile().getAbsolutePath())).andReturn(0);
+        expect(mockCLR.getLastCommand()).andReturn("lastcommand");
+        runner.setAlternateCommandLineRunner(mockCLR);
+        replay(mockCLR);
+        CommunityDetectionResult res = runner.call();
+        assertEquals(CommunityDetectionResult.COMPLETE_STATUS, res.getStatus());
+        assertEquals("hello\n", res.getResult().asText());
+        verify(mockCLR);
+    }
 }
@@ -0,0 +1,130 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+
+/**
+ *
+ * @author churas
+ */
+public class TestInProcessCommunityDetectionRunner {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * Records data passed to it and returns data with parameter --suffix
+     * appended, failing if data is fail
+     */
+    private static class EchoAlgorithm implements InProcessAlgorithm {
+
+        final List<JsonNode> received = new ArrayList<>();
+
+        @Override
+        public JsonNode run(JsonNode data, Map<String, String> customParameters) throws Exception {
+            received.add(data);
+            if (data.asText().equals("fail")){
+                throw new Exception("bad data");
+            }
+            return new TextNode(data.asText() + customParameters.get("--suffix"));
+        }
+    }
+
+    private CommunityDetectionRequest createRequest(final String data){
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("echo");
+        if (data != null){
+            cdr.setData(new TextNode(data));
+        }
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("--suffix", "!");
+        cdr.setCustomParameters(params);
+        return cdr;
+    }
+
+    @Test
+    public void testRunWithDataInMemory() throws Exception {
+        File taskDir = _folder.newFolder();
+        EchoAlgorithm algo = new EchoAlgorithm();
+        CommunityDetectionRequest cdr = createRequest("hi");
+        InProcessCommunityDetectionRunner runner = new InProcessCommunityDetectionRunner("a",
+                cdr, 5, taskDir.getAbsolutePath(), algo, "EDGELIST");
+
+        // input is saved so task can be queued again after a restart
+        assertEquals("hi", FileUtils.readFileToString(runner.getInputFile(), "UTF-8"));
+
+        CommunityDetectionResult res = runner.call();
+        assertEquals("a", res.getId());
+        assertEquals(5, res.getStartTime());
+        assertEquals(CommunityDetectionResult.COMPLETE_STATUS, res.getStatus());
+        assertEquals(100, res.getProgress());
+        assertEquals("hi!", res.getResult().asText());
+        assertSame(cdr.getData(), algo.received.get(0));
+    }
+
+    @Test
+    public void testRunWithDataFromInputFile() throws Exception {
+        File taskDir = _folder.newFolder();
+        File inputFile = new File(taskDir, "a" + File.separator
+                + DockerCommunityDetectionRunner.INPUT_FILE);
+        assertTrue(inputFile.getParentFile().mkdirs());
+        FileUtils.writeStringToFile(inputFile, "from file", "UTF-8");
+        EchoAlgorithm algo = new EchoAlgorithm();
+        InProcessCommunityDetectionRunner runner = new InProcessCommunityDetectionRunner("a",
+                createRequest(null), 0, taskDir.getAbsolutePath(), algo, "EDGELIST");
+        CommunityDetectionResult res = runner.call();
+        assertEquals(CommunityDetectionResult.COMPLETE_STATUS, res.getStatus());
+        assertEquals("from file!", res.getResult().asText());
+    }
+
+    @Test
+    public void testRunAlgorithmFails() throws Exception {
+        File taskDir = _folder.newFolder();
+        InProcessCommunityDetectionRunner runner = new InProcessCommunityDetectionRunner("a",
+                createRequest("fail"), 0, taskDir.getAbsolutePath(), new EchoAlgorithm(),
+                null);
+        CommunityDetectionResult res = runner.call();
+        assertEquals(CommunityDetectionResult.FAILED_STATUS, res.getStatus());
+        assertEquals("Received error trying to run task: bad data", res.getMessage());
+        assertEquals(100, res.getProgress());
+    }
+
+    @Test
+    public void testInputFileReadByInputDataFormat() throws Exception {
+        File taskDir = _folder.newFolder();
+        File inputFile = new File(taskDir, "a" + File.separator
+                + DockerCommunityDetectionRunner.INPUT_FILE);
+        assertTrue(inputFile.getParentFile().mkdirs());
+        FileUtils.writeStringToFile(inputFile, "[{\"x\": 1}]", "UTF-8");
+
+        // json format is parsed
+        EchoAlgorithm algo = new EchoAlgorithm();
+        InProcessCommunityDetectionRunner runner = new InProcessCommunityDetectionRunner("a",
+                createRequest(null), 0, taskDir.getAbsolutePath(), algo, "cx2");
+        assertEquals(CommunityDetectionResult.COMPLETE_STATUS, runner.call().getStatus());
+        assertTrue(algo.received.get(0).isArray());
+        assertEquals(1, algo.received.get(0).get(0).get("x").asInt());
+
+        // text format is passed as is even if it looks like json
+        algo = new EchoAlgorithm();
+        runner = new InProcessCommunityDetectionRunner("a",
+                createRequest(null), 0, taskDir.getAbsolutePath(), algo, "EDGELIST");
+        assertEquals(CommunityDetectionResult.COMPLETE_STATUS, runner.call().getStatus());
+        assertTrue(algo.received.get(0).isTextual());
+        assertEquals("[{\"x\": 1}]", algo.received.get(0).asText());
+    }
+}
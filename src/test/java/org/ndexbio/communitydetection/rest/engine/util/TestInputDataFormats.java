@@ -0,0 +1,57 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.model.exceptions.CommunityDetectionBadRequestException;
+
+/**
+ *
+ * @author churas
+ */
+public class TestInputDataFormats {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    @Test
+    public void testIsJsonFormat(){
+        assertTrue(InputDataFormats.isJsonFormat("CX"));
+        assertTrue(InputDataFormats.isJsonFormat("cx2"));
+        assertFalse(InputDataFormats.isJsonFormat("EDGELIST"));
+        assertFalse(InputDataFormats.isJsonFormat(null));
+    }
+
+    @Test
+    public void testCheckInputFile() throws Exception {
+        File inputFile = _folder.newFile();
+        FileUtils.writeStringToFile(inputFile, "[{\"nodes\": [{\"@id\": 1}]}]", "UTF-8");
+        InputDataFormats.checkInputFile(inputFile, "CX");
+        InputDataFormats.checkInputFile(inputFile, "CX2");
+
+        // text formats are not checked
+        FileUtils.writeStringToFile(inputFile, "1\t2\n2\t3\n", "UTF-8");
+        InputDataFormats.checkInputFile(inputFile, "EDGELIST");
+        InputDataFormats.checkInputFile(inputFile, null);
+    }
+
+    @Test
+    public void testCheckInputFileNotJson() throws Exception {
+        File inputFile = _folder.newFile();
+        String[] invalid = {"1\t2\n2\t3\n", "\"a string\"", "[1, 2", "[1, 2] [3]", ""};
+        for (String data : invalid){
+            FileUtils.writeStringToFile(inputFile, data, "UTF-8");
+            try {
+                InputDataFormats.checkInputFile(inputFile, "CX2");
+                fail("Expected CommunityDetectionBadRequestException for: " + data);
+            } catch(CommunityDetectionBadRequestException cdbe){
+                assertTrue(cdbe.getMessage().startsWith("Input data is not in CX2 format"));
+            }
+        }
+    }
+}
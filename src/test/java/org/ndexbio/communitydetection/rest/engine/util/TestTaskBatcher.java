@@ -0,0 +1,219 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+
+/**
+ *
+ * @author churas
+ */
+public class TestTaskBatcher {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * Pretends to be algorithm run in batch mode writing output of each
+     * task as out-&lt;task id&gt; and exit code 0, except for task b
+     * which gets exit code 2 and task c which gets no exit code
+     */
+    private static class FakeBatchRunner implements CommandLineRunner {
+
+        final List<String[]> commands = Collections.synchronizedList(new ArrayList<>());
+        final int exitValue;
+        String lastCommand;
+        long lastTimeOutSeconds;
+
+        FakeBatchRunner(int exitValue){
+            this.exitValue = exitValue;
+        }
+
+        @Override
+        public void setWorkingDirectory(String workingDir) {
+        }
+
+        @Override
+        public void setEnvironmentVariables(Map<String, String> envVars) {
+        }
+
+        @Override
+        public String getLastCommand() {
+            return lastCommand;
+        }
+
+        @Override
+        public int runCommandLineProcess(long timeOut, TimeUnit unit, File stdOutFile,
+                File stdErrFile, String... command) throws Exception {
+            commands.add(command);
+            lastCommand = String.join(" ", command);
+            lastTimeOutSeconds = unit.toSeconds(timeOut);
+            if (exitValue != 0){
+                FileUtils.writeStringToFile(stdErrFile, "batch failed", "UTF-8");
+                return exitValue;
+            }
+            File batchDir = new File(command[command.length - 1]);
+            for (File taskDir : batchDir.listFiles()){
+                if (taskDir.isDirectory() == false){
+                    continue;
+                }
+                assertTrue(new File(taskDir, DockerCommunityDetectionRunner.INPUT_FILE).isFile());
+                FileUtils.writeStringToFile(new File(taskDir,
+                        DockerCommunityDetectionRunner.STD_OUT_FILE),
+                        "out-" + taskDir.getName(), "UTF-8");
+                if (taskDir.getName().equals("c")){
+                    continue;
+                }
+                FileUtils.writeStringToFile(new File(taskDir, TaskBatcher.EXIT_CODE_FILE),
+                        taskDir.getName().equals("b") ? "2\n" : "0\n", "UTF-8");
+            }
+            return 0;
+        }
+    }
+
+    private BatchCommunityDetectionRunner createRunner(final File taskDir, final String id,
+            final String paramValue, final TaskBatcher batcher) throws Exception {
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("foo");
+        cdr.setData(new TextNode("data for " + id));
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("--k", paramValue);
+        return new BatchCommunityDetectionRunner(id, cdr, 0, taskDir.getAbsolutePath(),
+                "docker", "foo/image", params, 10, TimeUnit.SECONDS, ":ro", null, batcher);
+    }
+
+    private TaskBatcher createBatcher(final File batchDir, final FakeBatchRunner clr,
+            int maxBatchSize, long lingerMillis){
+        return new TaskBatcher("foo", "docker", "foo/image", batchDir, ":ro",
+                maxBatchSize, lingerMillis){
+            @Override
+            protected CommandLineRunner createCommandLineRunner(){
+                return clr;
+            }
+        };
+    }
+
+    @Test
+    public void testTasksRunTogether() throws Exception {
+        File taskDir = _folder.newFolder();
+        File batchDir = new File(taskDir, "batches");
+        FakeBatchRunner clr = new FakeBatchRunner(0);
+        TaskBatcher batcher = createBatcher(batchDir, clr, 3, 10000);
+        ExecutorService es = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<CommunityDetectionResult>> futures = new ArrayList<>();
+            for (String id : new String[]{"a", "b", "c"}){
+                futures.add(es.submit(createRunner(taskDir, id, "3", batcher)));
+            }
+            CommunityDetectionResult resA = futures.get(0).get(10, TimeUnit.SECONDS);
+            CommunityDetectionResult resB = futures.get(1).get(10, TimeUnit.SECONDS);
+            CommunityDetectionResult resC = futures.get(2).get(10, TimeUnit.SECONDS);
+
+            assertEquals(1, clr.commands.size());
+            String cmd = String.join(" ", clr.commands.get(0));
+            assertTrue(cmd, cmd.startsWith("docker run --rm -v "
+                    + batchDir.getAbsolutePath()));
+            assertTrue(cmd, cmd.contains(" foo/image --k 3 " + TaskBatcher.BATCH_ARG + " "));
+
+            // batch of 3 tasks gets 3 times the 10 second timeout of a task
+            assertEquals(30, clr.lastTimeOutSeconds);
+
+            assertEquals("a", resA.getId());
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS, resA.getStatus());
+            assertTrue(resA.getResult().asText().startsWith("out-a"));
+            assertEquals(100, resA.getProgress());
+            assertEquals(cmd, FileUtils.readFileToString(new File(taskDir,
+                    "a" + File.separator + DockerCommunityDetectionRunner.CMD_RUN_FILE),
+                    "UTF-8"));
+
+            assertEquals(CommunityDetectionResult.FAILED_STATUS, resB.getStatus());
+            assertTrue(resB.getMessage().contains("exit code: 2"));
+
+            assertEquals(CommunityDetectionResult.FAILED_STATUS, resC.getStatus());
+
+            // batch directories are removed once batch is done
+            assertEquals(0, batchDir.listFiles().length);
+        } finally {
+            es.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedBatchFailsEveryTask() throws Exception {
+        File taskDir = _folder.newFolder();
+        File batchDir = new File(taskDir, "batches");
+        FakeBatchRunner clr = new FakeBatchRunner(500);
+        TaskBatcher batcher = createBatcher(batchDir, clr, 2, 10000);
+        ExecutorService es = Executors.newFixedThreadPool(2);
+        try {
+            Future<CommunityDetectionResult> futureA = es.submit(createRunner(taskDir,
+                    "a", "3", batcher));
+            Future<CommunityDetectionResult> futureB = es.submit(createRunner(taskDir,
+                    "b", "3", batcher));
+            for (CommunityDetectionResult res : new CommunityDetectionResult[]{
+                    futureA.get(10, TimeUnit.SECONDS), futureB.get(10, TimeUnit.SECONDS)}){
+                assertEquals(CommunityDetectionResult.FAILED_STATUS, res.getStatus());
+                assertEquals("Runtime limit exceeded", res.getMessage());
+                assertTrue(res.getResult().asText().startsWith("batch failed"));
+            }
+            assertEquals(1, clr.commands.size());
+        } finally {
+            es.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTaskAloneOrWithDifferentParametersRunsInOwnContainer() throws Exception {
+        File taskDir = _folder.newFolder();
+        FakeBatchRunner clr = new FakeBatchRunner(0);
+        TaskBatcher batcher = createBatcher(new File(taskDir, "batches"), clr, 2, 10);
+
+        BatchCommunityDetectionRunner runnerA = createRunner(taskDir, "a", "3", batcher);
+        BatchCommunityDetectionRunner runnerB = createRunner(taskDir, "b", "4", batcher);
+        FakeBatchRunner ownRunner = new FakeBatchRunner(0){
+            @Override
+            public int runCommandLineProcess(long timeOut, TimeUnit unit, File stdOutFile,
+                    File stdErrFile, String... command) throws Exception {
+                commands.add(command);
+                lastCommand = String.join(" ", command);
+                FileUtils.writeStringToFile(stdOutFile, "alone", "UTF-8");
+                return 0;
+            }
+        };
+        runnerA.setAlternateCommandLineRunner(ownRunner);
+        runnerB.setAlternateCommandLineRunner(ownRunner);
+        ExecutorService es = Executors.newFixedThreadPool(2);
+        try {
+            Future<CommunityDetectionResult> futureA = es.submit(runnerA);
+            Future<CommunityDetectionResult> futureB = es.submit(runnerB);
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS,
+                    futureA.get(10, TimeUnit.SECONDS).getStatus());
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS,
+                    futureB.get(10, TimeUnit.SECONDS).getStatus());
+        } finally {
+            es.shutdownNow();
+        }
+        assertEquals(0, clr.commands.size());
+        assertEquals(2, ownRunner.commands.size());
+        for (String[] command : ownRunner.commands){
+            assertFalse(String.join(" ", command).contains(TaskBatcher.BATCH_ARG));
+        }
+    }
+}
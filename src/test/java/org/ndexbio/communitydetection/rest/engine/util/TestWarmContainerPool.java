@@ -0,0 +1,172 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Uses small shell scripts in place of algorithm containers
+ * @author churas
+ */
+public class TestWarmContainerPool {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * Answers ping with pong and every run request with exit code 0
+     */
+    private static final List<String> DAEMON_CMD = Arrays.asList("/bin/sh", "-c",
+            "while read line; do case \"$line\" in *ping*) echo '{\"type\":\"pong\"}';; "
+            + "*) id=$(echo \"$line\" | sed 's/.*\"id\":\"\\([^\"]*\\)\".*/\\1/'); "
+            + "echo \"{\\\"id\\\":\\\"$id\\\",\\\"exitcode\\\":0}\";; esac; done");
+
+    /**
+     * Reads requests but never answers
+     */
+    private static final List<String> SILENT_CMD = Arrays.asList("/bin/sh", "-c",
+            "while read line; do :; done");
+
+    /**
+     * Exits right away
+     */
+    private static final List<String> EXIT_CMD = Arrays.asList("/bin/sh", "-c", "exit 0");
+
+    private int run(WarmContainer container, final String id) throws IOException {
+        File stdOut = new File(_folder.getRoot(), "stdout.txt");
+        File stdErr = new File(_folder.getRoot(), "stderr.txt");
+        return container.run(id, Collections.singletonList("input.txt"), stdOut, stdErr,
+                10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testGetDockerCommand(){
+        List<String> cmd = WarmContainerPool.getDockerCommand("docker", "foo/image",
+                "/tasks", ":ro");
+        assertEquals(Arrays.asList("docker", "run", "-i", "--rm", "-v", "/tasks:/tasks:ro",
+                "foo/image", WarmContainerPool.DAEMON_ARG), cmd);
+        cmd = WarmContainerPool.getDockerCommand("docker", "foo/image", "/tasks", null);
+        assertEquals("/tasks:/tasks", cmd.get(5));
+    }
+
+    @Test
+    public void testContainerIsReused() throws Exception {
+        WarmContainerPool pool = new WarmContainerPool("foo", DAEMON_CMD, 1, 0, 0, 5000);
+        try {
+            WarmContainer container = pool.acquire();
+            assertNotNull(container);
+            assertEquals(1, pool.getActiveCount());
+
+            // pool is full
+            assertNull(pool.acquire());
+
+            assertEquals(0, run(container, "task1"));
+            pool.release(container);
+            assertEquals(0, pool.getActiveCount());
+            assertEquals(1, pool.getIdleCount());
+
+            WarmContainer again = pool.acquire();
+            assertSame(container, again);
+            assertEquals(0, run(again, "task2"));
+            assertEquals(2, again.getUses());
+            pool.release(again);
+        } finally {
+            pool.close();
+        }
+        assertEquals(0, pool.getIdleCount());
+        assertNull(pool.acquire());
+    }
+
+    @Test
+    public void testContainerRecycledAfterMaxUses() throws Exception {
+        WarmContainerPool pool = new WarmContainerPool("foo", DAEMON_CMD, 1, 1, 0, 5000);
+        try {
+            WarmContainer container = pool.acquire();
+            assertEquals(0, run(container, "task1"));
+            pool.release(container);
+            assertEquals(0, pool.getIdleCount());
+            assertFalse(container.isAlive());
+
+            WarmContainer another = pool.acquire();
+            assertNotNull(another);
+            assertTrue(another != container);
+            pool.release(another);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testContainerThatExits() throws Exception {
+        WarmContainerPool pool = new WarmContainerPool("foo", EXIT_CMD, 1, 0, 0, 5000);
+        try {
+            WarmContainer container = pool.acquire();
+            try {
+                run(container, "task1");
+                fail("Expected IOException");
+            } catch(IOException io){
+                // either write fails or end of stream is reached first
+            }
+            assertFalse(container.isAlive());
+            pool.release(container);
+            assertEquals(0, pool.getIdleCount());
+            assertEquals(0, pool.getActiveCount());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testTimeoutAndFailedHealthCheck() throws Exception {
+        WarmContainerPool pool = new WarmContainerPool("foo", SILENT_CMD, 1, 0, 0, 200);
+        try {
+            WarmContainer container = pool.acquire();
+            File stdOut = new File(_folder.getRoot(), "stdout.txt");
+            File stdErr = new File(_folder.getRoot(), "stderr.txt");
+            assertEquals(WarmContainer.TIMEOUT_EXIT_CODE, container.run("task1",
+                    Collections.singletonList("input.txt"), stdOut, stdErr,
+                    200, TimeUnit.MILLISECONDS));
+            assertFalse(container.isAlive());
+            pool.release(container);
+            assertEquals(0, pool.getIdleCount());
+
+            // new container never answers ping
+            WarmContainer silent = new WarmContainer(SILENT_CMD);
+            assertFalse(silent.ping(200));
+            assertFalse(silent.isAlive());
+            silent.close();
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testCloseIdleContainers() throws Exception {
+        WarmContainerPool pool = new WarmContainerPool("foo", DAEMON_CMD, 2, 0, 1, 5000);
+        try {
+            WarmContainer container = pool.acquire();
+            assertEquals(0, run(container, "task1"));
+            pool.release(container);
+            assertEquals(1, pool.getIdleCount());
+            Thread.sleep(20);
+            assertEquals(1, pool.closeIdleContainers());
+            assertEquals(0, pool.getIdleCount());
+            assertFalse(container.isAlive());
+        } finally {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.ndexbio.communitydetection.rest.engine.util;
+
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+
+/**
+ * Uses small shell scripts in place of algorithm containers
+ * @author churas
+ */
+public class TestWarmPoolCommunityDetectionRunner {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * Answers ping with pong but never answers run requests
+     */
+    private static final List<String> HUNG_CMD = Arrays.asList("/bin/sh", "-c",
+            "while read line; do case \"$line\" in *ping*) echo '{\"type\":\"pong\"}';; esac; done");
+
+    @Test
+    public void testCanceledTaskDoesNotFallBackToNewContainer() throws Exception {
+        File tempDir = _folder.newFolder();
+
+        // docker command that leaves a file behind if it is ever run
+        File marker = new File(tempDir, "dockerwasrun");
+        File dockerCmd = new File(tempDir, "docker.sh");
+        assertTrue(dockerCmd.createNewFile());
+        FileUtils.writeStringToFile(dockerCmd,
+                "#!/bin/sh\ntouch " + marker.getAbsolutePath() + "\n", "UTF-8");
+        assertTrue(dockerCmd.setExecutable(true));
+
+        CommunityDetectionRequest cdr = new CommunityDetectionRequest();
+        cdr.setAlgorithm("somealgo");
+        cdr.setData(new TextNode("blah"));
+        WarmContainerPool pool = new WarmContainerPool("somealgo", HUNG_CMD, 1, 0, 0, 5000);
+        try {
+            WarmPoolCommunityDetectionRunner runner = new WarmPoolCommunityDetectionRunner("someid",
+                    cdr, 0, tempDir.getAbsolutePath(), dockerCmd.getAbsolutePath(),
+                    "hello-world", null, 1, TimeUnit.MINUTES, ":ro", null, pool);
+            final AtomicReference<Object> outcome = new AtomicReference<>();
+            final CountDownLatch done = new CountDownLatch(1);
+            Thread worker = new Thread(() -> {
+                try {
+                    CommunityDetectionResult res = runner.call();
+                    outcome.set(res);
+                } catch(Exception ex){
+                    outcome.set(ex);
+                }
+                done.countDown();
+            });
+            worker.start();
+
+            // wait for warm container to be handed to task
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getActiveCount() == 0 && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            assertEquals(1, pool.getActiveCount());
+            worker.interrupt();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertNotNull(outcome.get());
+            assertTrue(outcome.get().toString(), outcome.get() instanceof InterruptedException);
+            assertFalse(marker.exists());
+            assertEquals(0, pool.getActiveCount());
+            assertEquals(0, pool.getIdleCount());
+        } finally {
+            pool.close();
+        }
+    }
+}
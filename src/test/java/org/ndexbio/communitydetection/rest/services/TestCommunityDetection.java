@@ -1,27 +1,52 @@
 package org.ndexbio.communitydetection.rest.services;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import org.apache.commons.io.FileUtils;
+import static org.easymock.EasyMock.anyBoolean;
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
 import static org.easymock.EasyMock.notNull;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import org.jboss.resteasy.core.Dispatcher;
+import org.jboss.resteasy.core.SynchronousDispatcher;
+import org.jboss.resteasy.core.SynchronousExecutionContext;
 import org.jboss.resteasy.mock.MockDispatcherFactory;
 import org.jboss.resteasy.mock.MockHttpRequest;
 import org.jboss.resteasy.mock.MockHttpResponse;
 import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.ndexbio.communitydetection.rest.engine.BatchTask;
 import org.ndexbio.communitydetection.rest.engine.CommunityDetectionEngine;
+import org.ndexbio.communitydetection.rest.engine.CommunityDetectionQueueFullException;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithm;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionAlgorithms;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionRequest;
 import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
@@ -129,7 +154,9 @@ public class TestCommunityDetection {
             
             // create mock enrichment engine that returns null
             CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
-            expect(mockEngine.request(notNull())).andThrow(new CommunityDetectionException("some error"));
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.request(notNull(), anyObject())).andThrow(new CommunityDetectionException("some error"));
             replay(mockEngine);
             Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
             
@@ -167,7 +194,9 @@ public class TestCommunityDetection {
             
             // create mock enrichment engine that returns null
             CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
-            expect(mockEngine.request(notNull())).andThrow(new CommunityDetectionBadRequestException("some error"));
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.request(notNull(), anyObject())).andThrow(new CommunityDetectionBadRequestException("some error"));
             replay(mockEngine);
             Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
             
@@ -205,9 +234,11 @@ public class TestCommunityDetection {
             
             // create mock enrichment engine that returns null
             CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
             ErrorResponse xer = new ErrorResponse();
             xer.setMessage("hello");
-            expect(mockEngine.request(notNull())).andThrow(new CommunityDetectionBadRequestException("some error", xer));
+            expect(mockEngine.request(notNull(), anyObject())).andThrow(new CommunityDetectionBadRequestException("some error", xer));
             replay(mockEngine);
             Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
             
@@ -245,7 +276,9 @@ public class TestCommunityDetection {
             
             // create mock enrichment engine that returns null
             CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
-            expect(mockEngine.request(notNull())).andReturn(null);
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.request(notNull(), anyObject())).andReturn(null);
             replay(mockEngine);
             Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
             
@@ -283,7 +316,9 @@ public class TestCommunityDetection {
             
             // create mock enrichment engine that returns null
             CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
-            expect(mockEngine.request(notNull())).andReturn("12345");
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.request(notNull(), anyObject())).andReturn("12345");
             replay(mockEngine);
             Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
             
@@ -303,6 +338,454 @@ public class TestCommunityDetection {
         }
     }
     
+    @Test
+    public void testRequestWhereQueueIsFull() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH);
+            CommunityDetectionRequest query = new CommunityDetectionRequest();
+            ObjectMapper omappy = new ObjectMapper();
+            request.contentType(MediaType.APPLICATION_JSON);
+            
+            request.content(omappy.writeValueAsBytes(query));
+
+            MockHttpResponse response = new MockHttpResponse();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            // create mock engine that rejects request
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.request(notNull(), anyObject())).andThrow(new CommunityDetectionQueueFullException("full", 42));
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(429, response.getStatus());
+            
+            MultivaluedMap<String, Object> resmap = response.getOutputHeaders();
+            assertEquals("42", resmap.getFirst("Retry-After"));
+            ObjectMapper mapper = new ObjectMapper();
+            ErrorResponse er = mapper.readValue(response.getOutput(),
+                    ErrorResponse.class);
+            assertEquals("Service is too busy to accept task, retry after 42 seconds", er.getMessage());
+            verify(mockEngine);
+
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testRequestRefusedByContentLength() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH);
+            CommunityDetectionRequest query = new CommunityDetectionRequest();
+            query.setAlgorithm("foo");
+            query.setData(new TextNode("1\t2\n"));
+            ObjectMapper omappy = new ObjectMapper();
+            request.contentType(MediaType.APPLICATION_JSON);
+            request.header(HttpHeaders.CONTENT_LENGTH, "5000000");
+            request.content(omappy.writeValueAsBytes(query));
+
+            MockHttpResponse response = new MockHttpResponse();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            // create mock engine that refuses the size of the request so
+            // request is never passed to the engine
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            mockEngine.checkInputBytes(5000000L);
+            expectLastCall().andThrow(new CommunityDetectionQueueFullException("full", 42));
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(429, response.getStatus());
+            assertEquals("42", response.getOutputHeaders().getFirst("Retry-After"));
+            verify(mockEngine);
+            
+            // nothing was written to disk
+            File[] uploads = tempDir.listFiles((File f) -> f.getName().startsWith(CommunityDetection.UPLOAD_PREFIX));
+            assertEquals(0, uploads.length);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testRequestRefusedWhileBeingRead() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH);
+            CommunityDetectionRequest query = new CommunityDetectionRequest();
+            query.setAlgorithm("foo");
+            char[] data = new char[(int)InputLimitInputStream.CHECK_INTERVAL * 2];
+            Arrays.fill(data, 'x');
+            query.setData(new TextNode(new String(data)));
+            ObjectMapper omappy = new ObjectMapper();
+            request.contentType(MediaType.APPLICATION_JSON);
+            request.content(omappy.writeValueAsBytes(query));
+
+            MockHttpResponse response = new MockHttpResponse();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            // create mock engine that refuses the request once a
+            // check interval of it has been read
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().andThrow(new CommunityDetectionQueueFullException("full", 42));
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(429, response.getStatus());
+            assertEquals("42", response.getOutputHeaders().getFirst("Retry-After"));
+            verify(mockEngine);
+            
+            // partial upload is removed
+            File[] uploads = tempDir.listFiles((File f) -> f.getName().startsWith(CommunityDetection.UPLOAD_PREFIX));
+            assertEquals(0, uploads.length);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testRequestWithDataStreamedToFile() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH);
+            CommunityDetectionRequest query = new CommunityDetectionRequest();
+            query.setAlgorithm("foo");
+            query.setData(new TextNode("1\t2\n"));
+            ObjectMapper omappy = new ObjectMapper();
+            request.contentType(MediaType.APPLICATION_JSON);
+            request.content(omappy.writeValueAsBytes(query));
+
+            MockHttpResponse response = new MockHttpResponse();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            // create mock engine that checks the data was written to file
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.request(notNull(), notNull())).andAnswer(() -> {
+                CommunityDetectionRequest cdr = (CommunityDetectionRequest)getCurrentArguments()[0];
+                File dataFile = (File)getCurrentArguments()[1];
+                assertEquals("foo", cdr.getAlgorithm());
+                assertNull(cdr.getData());
+                assertEquals(tempDir, dataFile.getParentFile());
+                assertEquals("1\t2\n", FileUtils.readFileToString(dataFile, "UTF-8"));
+                return "12345";
+            });
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(202, response.getStatus());
+            verify(mockEngine);
+            
+            // data file not taken by engine is removed
+            File[] uploads = tempDir.listFiles((File f) -> f.getName().startsWith(CommunityDetection.UPLOAD_PREFIX));
+            assertEquals(0, uploads.length);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    /**
+     * Builds multipart form body with {@code request} and {@code data} parts
+     * using boundary {@code XXBOUNDARYXX}, {@code data} is left out if null
+     */
+    private byte[] getMultipartBody(final String request, final String data){
+        StringBuilder sb = new StringBuilder();
+        sb.append("--XXBOUNDARYXX\r\n");
+        sb.append("Content-Disposition: form-data; name=\"" + CommunityDetection.REQUEST_PART + "\"\r\n");
+        sb.append("Content-Type: application/json\r\n\r\n");
+        sb.append(request).append("\r\n");
+        if (data != null){
+            sb.append("--XXBOUNDARYXX\r\n");
+            sb.append("Content-Disposition: form-data; name=\"" + CommunityDetection.DATA_PART
+                    + "\"; filename=\"edges.txt\"\r\n");
+            sb.append("Content-Type: application/octet-stream\r\n\r\n");
+            sb.append(data).append("\r\n");
+        }
+        sb.append("--XXBOUNDARYXX--\r\n");
+        return sb.toString().getBytes();
+    }
+    
+    @Test
+    public void testRequestMultipart() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH);
+            request.contentType("multipart/form-data; boundary=XXBOUNDARYXX");
+            request.content(getMultipartBody("{\"algorithm\": \"foo\", \"data\": \"ignored\"}",
+                    "1\t2\n2\t3\n"));
+
+            MockHttpResponse response = new MockHttpResponse();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setInputDataFormat("EDGELIST");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            
+            // create mock engine that checks the data was written to file
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.getAlgorithms()).andReturn(algos);
+            expect(mockEngine.request(notNull(), notNull())).andAnswer(() -> {
+                CommunityDetectionRequest cdr = (CommunityDetectionRequest)getCurrentArguments()[0];
+                File dataFile = (File)getCurrentArguments()[1];
+                assertEquals("foo", cdr.getAlgorithm());
+                assertNull(cdr.getData());
+                assertEquals("1\t2\n2\t3\n", FileUtils.readFileToString(dataFile, "UTF-8"));
+                return "12345";
+            });
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(202, response.getStatus());
+            MultivaluedMap<String, Object> resmap = response.getOutputHeaders();
+            assertEquals(new URI(Configuration.V_ONE_PATH + "/12345"), resmap.getFirst("Location"));
+            verify(mockEngine);
+            
+            File[] uploads = tempDir.listFiles((File f) -> f.getName().startsWith(CommunityDetection.UPLOAD_PREFIX));
+            assertEquals(0, uploads.length);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testRequestMultipartMissingData() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH);
+            request.contentType("multipart/form-data; boundary=XXBOUNDARYXX");
+            request.content(getMultipartBody("{\"algorithm\": \"foo\"}", null));
+
+            MockHttpResponse response = new MockHttpResponse();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setInputDataFormat("EDGELIST");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.getAlgorithms()).andReturn(algos);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(400, response.getStatus());
+            ObjectMapper mapper = new ObjectMapper();
+            ErrorResponse er = mapper.readValue(response.getOutput(),
+                    ErrorResponse.class);
+            assertEquals("Bad request received", er.getMessage());
+            assertTrue(er.getDescription().contains("Missing data part with input data in EDGELIST format"));
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testRequestMultipartDataNotInInputDataFormat() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH);
+            request.contentType("multipart/form-data; boundary=XXBOUNDARYXX");
+            request.content(getMultipartBody("{\"algorithm\": \"foo\"}", "1\t2\n2\t3\n"));
+
+            MockHttpResponse response = new MockHttpResponse();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            CommunityDetectionAlgorithms algos = new CommunityDetectionAlgorithms();
+            CommunityDetectionAlgorithm cda = new CommunityDetectionAlgorithm();
+            cda.setName("foo");
+            cda.setInputDataFormat("CX2");
+            LinkedHashMap<String, CommunityDetectionAlgorithm> aMap = new LinkedHashMap<>();
+            aMap.put(cda.getName(), cda);
+            algos.setAlgorithms(aMap);
+            
+            // engine is never asked to queue the task
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.getAlgorithms()).andReturn(algos);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(400, response.getStatus());
+            ObjectMapper mapper = new ObjectMapper();
+            ErrorResponse er = mapper.readValue(response.getOutput(),
+                    ErrorResponse.class);
+            assertEquals("Bad request received", er.getMessage());
+            assertTrue(er.getDescription().contains("Input data is not in CX2 format"));
+            verify(mockEngine);
+            
+            File[] uploads = tempDir.listFiles((File f) -> f.getName().startsWith(CommunityDetection.UPLOAD_PREFIX));
+            assertEquals(0, uploads.length);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testRequestBatch() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+            ObjectMapper omappy = new ObjectMapper();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+
+            // try with invalid json
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH + "/batch");
+            request.contentType(MediaType.APPLICATION_JSON);
+            request.content("{\"not\": \"array\"}".getBytes());
+            MockHttpResponse response = new MockHttpResponse();
+            dispatcher.invoke(request, response);
+            assertEquals(400, response.getStatus());
+            ErrorResponse er = omappy.readValue(response.getOutput(), ErrorResponse.class);
+            assertEquals("Unable to parse array of requests", er.getMessage());
+            
+            request = MockHttpRequest.post(Configuration.V_ONE_PATH + "/batch");
+            request.contentType(MediaType.APPLICATION_JSON);
+            request.content(omappy.writeValueAsBytes(Arrays.asList(new CommunityDetectionRequest(),
+                    new CommunityDetectionRequest())));
+            response = new MockHttpResponse();
+            
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            expect(mockEngine.requestBatch(notNull())).andReturn(Arrays.asList(new BatchTask("12345", null),
+                    new BatchTask(null, new ErrorResponse("bad", new Exception("hi")))));
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(202, response.getStatus());
+            List<BatchTask> res = omappy.readValue(response.getOutput(),
+                    new TypeReference<List<BatchTask>>(){});
+            assertEquals(2, res.size());
+            assertEquals("12345", res.get(0).getId());
+            assertNull(res.get(0).getError());
+            assertNull(res.get(1).getId());
+            assertEquals("bad", res.get(1).getError().getMessage());
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetRequestStatuses() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+            ObjectMapper omappy = new ObjectMapper();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+
+            // try with invalid json
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH + "/status");
+            request.contentType(MediaType.APPLICATION_JSON);
+            request.content("{".getBytes());
+            MockHttpResponse response = new MockHttpResponse();
+            dispatcher.invoke(request, response);
+            assertEquals(400, response.getStatus());
+            
+            request = MockHttpRequest.post(Configuration.V_ONE_PATH + "/status");
+            request.contentType(MediaType.APPLICATION_JSON);
+            request.content(omappy.writeValueAsBytes(Arrays.asList("1", "2")));
+            response = new MockHttpResponse();
+            
+            CommunityDetectionResult cdr = new CommunityDetectionResult();
+            cdr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            Map<String, CommunityDetectionResultStatus> statuses = new LinkedHashMap<>();
+            statuses.put("1", new CommunityDetectionResultStatus(cdr));
+            statuses.put("2", null);
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            expect(mockEngine.getStatuses(Arrays.asList("1", "2"))).andReturn(statuses);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(200, response.getStatus());
+            Map<String, CommunityDetectionResultStatus> res = omappy.readValue(response.getOutput(),
+                    new TypeReference<Map<String, CommunityDetectionResultStatus>>(){});
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS, res.get("1").getStatus());
+            assertTrue(res.containsKey("2"));
+            assertNull(res.get("2"));
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetResultsWhereEngineFails() throws Exception {
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+            ObjectMapper omappy = new ObjectMapper();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+
+            MockHttpRequest request = MockHttpRequest.post(Configuration.V_ONE_PATH + "/results");
+            request.contentType(MediaType.APPLICATION_JSON);
+            request.content(omappy.writeValueAsBytes(Arrays.asList("1")));
+            MockHttpResponse response = new MockHttpResponse();
+            
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            expect(mockEngine.getResults(Arrays.asList("1"))).andThrow(new CommunityDetectionException("some error"));
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(500, response.getStatus());
+            ErrorResponse er = omappy.readValue(response.getOutput(), ErrorResponse.class);
+            assertEquals("Error getting results of tasks", er.getMessage());
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
         @Test
     public void testRequestWhereQuerySuccessAndHostURLSet() throws Exception {
         try {
@@ -327,7 +810,9 @@ public class TestCommunityDetection {
             
             // create mock enrichment engine that returns null
             CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
-            expect(mockEngine.request(notNull())).andReturn("12345");
+            mockEngine.checkInputBytes(anyLong());
+            expectLastCall().anyTimes();
+            expect(mockEngine.request(notNull(), anyObject())).andReturn("12345");
             replay(mockEngine);
             Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
             
@@ -358,6 +843,8 @@ public class TestCommunityDetection {
             MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH + "/12345");
 
             MockHttpResponse response = new MockHttpResponse();
+            request.setAsynchronousContext(new SynchronousExecutionContext(
+                    (SynchronousDispatcher)dispatcher, request, response));
             Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
             Configuration.getInstance().setCommunityDetectionEngine(null);
             dispatcher.invoke(request, response);
@@ -383,10 +870,15 @@ public class TestCommunityDetection {
             MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH + "/12345");
 
             MockHttpResponse response = new MockHttpResponse();
+            request.setAsynchronousContext(new SynchronousExecutionContext(
+                    (SynchronousDispatcher)dispatcher, request, response));
             Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
             
             // create mock enrichment engine that returns null
             CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            expect(mockEngine.getResultBytes(eq("12345"), anyBoolean())).andReturn(null).anyTimes();
+            expect(mockEngine.getResultFile("12345", false)).andReturn(null);
+            expect(mockEngine.getResultFile("12345", true)).andReturn(null);
             expect(mockEngine.getResult("12345")).andReturn(null);
             replay(mockEngine);
             Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
@@ -411,23 +903,456 @@ public class TestCommunityDetection {
                                                           "/12345?start=1&size=2");
 
             MockHttpResponse response = new MockHttpResponse();
+            request.setAsynchronousContext(new SynchronousExecutionContext(
+                    (SynchronousDispatcher)dispatcher, request, response));
             Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
             
             // create mock enrichment engine that returns null
             CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
             CommunityDetectionResult eqr = new CommunityDetectionResult();
             eqr.setMessage("hi");
+            expect(mockEngine.getResultBytes(eq("12345"), anyBoolean())).andReturn(null).anyTimes();
+            expect(mockEngine.getResultFile("12345", false)).andReturn(null);
+            expect(mockEngine.getResultFile("12345", true)).andReturn(null);
+            expect(mockEngine.getResult("12345")).andReturn(eqr);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(200, response.getStatus());
+            ObjectMapper mapper = new ObjectMapper();
+            CommunityDetectionResult res = mapper.readValue(response.getOutput(),
+                    CommunityDetectionResult.class);
+            assertEquals("hi", res.getMessage());
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetWithWaitWhereTaskFinishes() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH +
+                                                          "/12345?wait=60");
+
+            MockHttpResponse response = new MockHttpResponse();
+            request.setAsynchronousContext(new SynchronousExecutionContext(
+                    (SynchronousDispatcher)dispatcher, request, response));
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            // create mock engine that finishes task as soon as listener is added
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            CommunityDetectionResult eqr = new CommunityDetectionResult();
+            eqr.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            expect(mockEngine.addTaskFinishedListener(eq("12345"),
+                    notNull())).andAnswer(() -> {
+                        ((Runnable)getCurrentArguments()[1]).run();
+                        return true;
+                    });
+            expect(mockEngine.getResultBytes(eq("12345"), anyBoolean())).andReturn(null).anyTimes();
+            expect(mockEngine.getResultFile("12345", false)).andReturn(null);
+            expect(mockEngine.getResultFile("12345", true)).andReturn(null);
+            expect(mockEngine.getResult("12345")).andReturn(eqr);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(200, response.getStatus());
+            ObjectMapper mapper = new ObjectMapper();
+            CommunityDetectionResult res = mapper.readValue(response.getOutput(),
+                    CommunityDetectionResult.class);
+            assertEquals(CommunityDetectionResult.COMPLETE_STATUS, res.getStatus());
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetWithWaitWhereTaskNotPending() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH +
+                                                          "/12345?wait=60");
+
+            MockHttpResponse response = new MockHttpResponse();
+            request.setAsynchronousContext(new SynchronousExecutionContext(
+                    (SynchronousDispatcher)dispatcher, request, response));
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            expect(mockEngine.addTaskFinishedListener(eq("12345"),
+                    notNull())).andReturn(false);
+            expect(mockEngine.getResultBytes(eq("12345"), anyBoolean())).andReturn(null).anyTimes();
+            expect(mockEngine.getResultFile("12345", false)).andReturn(null);
+            expect(mockEngine.getResultFile("12345", true)).andReturn(null);
+            expect(mockEngine.getResult("12345")).andReturn(null);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(410, response.getStatus());
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testAcceptsGzip(){
+        assertFalse(CommunityDetection.acceptsGzip(null));
+        assertFalse(CommunityDetection.acceptsGzip(""));
+        assertFalse(CommunityDetection.acceptsGzip("deflate, br"));
+        assertFalse(CommunityDetection.acceptsGzip("gzip;q=0"));
+        assertFalse(CommunityDetection.acceptsGzip("gzip;q=0, *"));
+        assertFalse(CommunityDetection.acceptsGzip("gzip;q=blah"));
+        assertTrue(CommunityDetection.acceptsGzip("gzip"));
+        assertTrue(CommunityDetection.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(CommunityDetection.acceptsGzip("*"));
+        assertTrue(CommunityDetection.acceptsGzip("*;q=0, gzip"));
+    }
+    
+    @Test
+    public void testGetWhereResultSentCompressed() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH + "/12345");
+            request.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+            MockHttpResponse response = new MockHttpResponse();
+            request.setAsynchronousContext(new SynchronousExecutionContext(
+                    (SynchronousDispatcher)dispatcher, request, response));
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            // bytes are passed through as is
+            byte[] compressed = new byte[]{1, 2, 3, 4};
+            File resultFile = new File(tempDir, "cdresult.json.gz");
+            FileUtils.writeByteArrayToFile(resultFile, compressed);
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            expect(mockEngine.getResultBytes(eq("12345"), anyBoolean())).andReturn(null).anyTimes();
+            expect(mockEngine.getResultFile("12345", true)).andReturn(resultFile);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(200, response.getStatus());
+            assertEquals(CommunityDetection.GZIP_ENCODING,
+                    response.getOutputHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            assertArrayEquals(compressed, response.getOutput());
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetWhereResultSentFromMemory() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH + "/12345");
+            request.header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            request.header(CommunityDetection.RANGE_HEADER, "bytes=1-2");
+
+            MockHttpResponse response = new MockHttpResponse();
+            request.setAsynchronousContext(new SynchronousExecutionContext(
+                    (SynchronousDispatcher)dispatcher, request, response));
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            // compressed result is not cached so uncompressed json is sent
+            // and result file is never looked up
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            expect(mockEngine.getResultBytes("12345", true)).andReturn(null);
+            expect(mockEngine.getResultBytes("12345", false)).andReturn("0123".getBytes("UTF-8"));
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(206, response.getStatus());
+            assertEquals("bytes 1-2/4",
+                    response.getOutputHeaders().getFirst(CommunityDetection.CONTENT_RANGE_HEADER));
+            assertEquals("2", response.getOutputHeaders().getFirst(HttpHeaders.CONTENT_LENGTH));
+            assertNull(response.getOutputHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            assertEquals("12", response.getContentAsString());
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetWhereGzipAcceptedButResultNotCompressed() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH + "/12345");
+            request.header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+            MockHttpResponse response = new MockHttpResponse();
+            request.setAsynchronousContext(new SynchronousExecutionContext(
+                    (SynchronousDispatcher)dispatcher, request, response));
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            CommunityDetectionResult eqr = new CommunityDetectionResult();
+            eqr.setStatus(CommunityDetectionResult.PROCESSING_STATUS);
+            expect(mockEngine.getResultBytes(eq("12345"), anyBoolean())).andReturn(null).anyTimes();
+            expect(mockEngine.getResultFile("12345", false)).andReturn(null);
+            expect(mockEngine.getResultFile("12345", true)).andReturn(null);
             expect(mockEngine.getResult("12345")).andReturn(eqr);
             replay(mockEngine);
             Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
             
             dispatcher.invoke(request, response);
             assertEquals(200, response.getStatus());
+            assertNull(response.getOutputHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            ObjectMapper mapper = new ObjectMapper();
+            CommunityDetectionResult res = mapper.readValue(response.getOutput(),
+                    CommunityDetectionResult.class);
+            assertEquals(CommunityDetectionResult.PROCESSING_STATUS, res.getStatus());
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    /**
+     * Invokes GET on result of task 12345 stored in {@code resultFile}
+     * @param range value of Range header or {@code null}
+     * @param compressed if true {@code resultFile} is returned as gzip compressed
+     */
+    private MockHttpResponse getStoredResult(File confFile, File resultFile,
+            final String range, boolean compressed) throws Exception {
+        Dispatcher dispatcher = getDispatcher();
+        MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH + "/12345");
+        if (range != null){
+            request.header(CommunityDetection.RANGE_HEADER, range);
+        }
+        MockHttpResponse response = new MockHttpResponse();
+        request.setAsynchronousContext(new SynchronousExecutionContext(
+                (SynchronousDispatcher)dispatcher, request, response));
+        Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+
+        CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+        expect(mockEngine.getResultBytes(eq("12345"), anyBoolean())).andReturn(null).anyTimes();
+        expect(mockEngine.getResultFile("12345", false)).andReturn(compressed ? null : resultFile);
+        if (compressed){
+            expect(mockEngine.getResultFile("12345", true)).andReturn(resultFile);
+        }
+        replay(mockEngine);
+        Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+
+        dispatcher.invoke(request, response);
+        verify(mockEngine);
+        return response;
+    }
+    
+    @Test
+    public void testGetWhereResultStreamedFromFile() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            File resultFile = new File(tempDir, "cdresult.json");
+            FileUtils.writeStringToFile(resultFile, "{\"message\":\"hi\"}", "UTF-8");
+            
+            MockHttpResponse response = getStoredResult(confFile, resultFile, null, false);
+            assertEquals(200, response.getStatus());
+            assertEquals(ResultFileStream.BYTES_UNIT,
+                    response.getOutputHeaders().getFirst(CommunityDetection.ACCEPT_RANGES_HEADER));
+            assertNull(response.getOutputHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
             ObjectMapper mapper = new ObjectMapper();
             CommunityDetectionResult res = mapper.readValue(response.getOutput(),
                     CommunityDetectionResult.class);
             assertEquals("hi", res.getMessage());
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetWithRangeOfResult() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            File resultFile = new File(tempDir, "cdresult.json");
+            FileUtils.writeStringToFile(resultFile, "0123456789", "UTF-8");
+            
+            MockHttpResponse response = getStoredResult(confFile, resultFile, "bytes=2-5", false);
+            assertEquals(206, response.getStatus());
+            assertEquals("bytes 2-5/10",
+                    response.getOutputHeaders().getFirst(CommunityDetection.CONTENT_RANGE_HEADER));
+            assertEquals("2345", response.getContentAsString());
+            
+            response = getStoredResult(confFile, resultFile, "bytes=7-", false);
+            assertEquals(206, response.getStatus());
+            assertEquals("789", response.getContentAsString());
+            
+            response = getStoredResult(confFile, resultFile, "bytes=10-", false);
+            assertEquals(416, response.getStatus());
+            assertEquals("bytes */10",
+                    response.getOutputHeaders().getFirst(CommunityDetection.CONTENT_RANGE_HEADER));
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetWhereCompressedResultDecompressedForClient() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            File resultFile = new File(tempDir, "cdresult.json.gz");
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (GZIPOutputStream gos = new GZIPOutputStream(bos)){
+                gos.write("{\"message\":\"hi\"}".getBytes("UTF-8"));
+            }
+            FileUtils.writeByteArrayToFile(resultFile, bos.toByteArray());
+            
+            MockHttpResponse response = getStoredResult(confFile, resultFile, null, true);
+            assertEquals(200, response.getStatus());
+            assertNull(response.getOutputHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            ObjectMapper mapper = new ObjectMapper();
+            CommunityDetectionResult res = mapper.readValue(response.getOutput(),
+                    CommunityDetectionResult.class);
+            assertEquals("hi", res.getMessage());
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetRequestEventsWhereIdDoesNotExist() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH + "/12345/events");
+
+            MockHttpResponse response = new MockHttpResponse();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            expect(mockEngine.addTaskEventListener(eq("12345"), notNull())).andReturn(null);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(410, response.getStatus());
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetRequestEventsWhereTaskIsComplete() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = createBasicConfigurationFile(tempDir);
+            Dispatcher dispatcher = getDispatcher();
+
+            MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH + "/12345/events");
+
+            MockHttpResponse response = new MockHttpResponse();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+            
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            CommunityDetectionResultStatus eqs = new CommunityDetectionResultStatus();
+            eqs.setStatus(CommunityDetectionResult.COMPLETE_STATUS);
+            eqs.setProgress(100);
+            expect(mockEngine.addTaskEventListener(eq("12345"), notNull())).andReturn(eqs).times(2);
+            mockEngine.removeTaskEventListener(eq("12345"), notNull());
+            expectLastCall().times(2);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            
+            dispatcher.invoke(request, response);
+            assertEquals(200, response.getStatus());
+            assertEquals(TaskEventStream.SERVER_SENT_EVENTS,
+                    response.getOutputHeaders().getFirst("Content-Type").toString());
+            assertTrue(response.getContentAsString().startsWith("event: "
+                    + CommunityDetectionResult.COMPLETE_STATUS + "\ndata: {"));
+            verify(mockEngine);
+        } finally {
+            _folder.delete();
+        }
+    }
+    
+    @Test
+    public void testGetRequestEventsWhereTooManyStreamsOpen() throws Exception {
+
+        try {
+            File tempDir = _folder.newFolder();
+            File confFile = new File(tempDir, "foo.conf");
+            FileUtils.writeStringToFile(confFile, Configuration.TASK_DIR + " = "
+                    + tempDir.getAbsolutePath() + "\n"
+                    + Configuration.MAX_EVENT_STREAMS + " = 1\n", "UTF-8");
+            Dispatcher dispatcher = getDispatcher();
+            Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
+
+            // keep one stream open
+            CommunityDetectionEngine streamEngine = createMock(CommunityDetectionEngine.class);
+            CommunityDetectionResultStatus eqs = new CommunityDetectionResultStatus();
+            eqs.setStatus(CommunityDetectionResult.SUBMITTED_STATUS);
+            expect(streamEngine.addTaskEventListener(eq("1"), notNull())).andReturn(eqs);
+            streamEngine.removeTaskEventListener(eq("1"), notNull());
+            expectLastCall();
+            replay(streamEngine);
+            final TaskEventStream openStream = new TaskEventStream("1", streamEngine, 1000);
+            Thread writer = new Thread(() -> {
+                try {
+                    openStream.write(new ByteArrayOutputStream());
+                } catch(IOException io){
+                    // ignore
+                }
+            });
+            writer.start();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (TaskEventStream.getOpenStreamCount() == 0
+                    && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+
+            CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+            replay(mockEngine);
+            Configuration.getInstance().setCommunityDetectionEngine(mockEngine);
+            MockHttpRequest request = MockHttpRequest.get(Configuration.V_ONE_PATH + "/12345/events");
+            MockHttpResponse response = new MockHttpResponse();
+            dispatcher.invoke(request, response);
+            assertEquals(503, response.getStatus());
+            assertEquals("15", response.getOutputHeaders().getFirst("Retry-After").toString());
             verify(mockEngine);
+
+            openStream.taskEvent("1", null);
+            writer.join();
+            assertEquals(0, TaskEventStream.getOpenStreamCount());
+            verify(streamEngine);
         } finally {
             _folder.delete();
         }
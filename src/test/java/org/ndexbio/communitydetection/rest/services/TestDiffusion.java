@@ -9,6 +9,7 @@ import javax.ws.rs.core.MediaType;
 import org.easymock.Capture;
 import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.notNull;
@@ -274,6 +275,7 @@ public class TestDiffusion {
             Configuration.setAlternateConfigurationFile(confFile.getAbsolutePath());
             CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
             expect(mockEngine.request(notNull())).andReturn("12345");
+            expect(mockEngine.addTaskFinishedListener(eq("12345"), notNull())).andReturn(true);
             expect(mockEngine.getResult("12345")).andReturn(inCompleteTask).andReturn(completeTask);
             replay(mockEngine);
 			
@@ -424,6 +426,7 @@ public class TestDiffusion {
 
             Capture<CommunityDetectionRequest> cappy = Capture.newInstance();
             expect(mockEngine.request(capture(cappy))).andReturn("12345");
+            expect(mockEngine.addTaskFinishedListener(eq("12345"), notNull())).andReturn(true);
             mockEngine.delete("12345");
             replay(mockEngine);
 			
@@ -478,6 +481,7 @@ public class TestDiffusion {
 
             Capture<CommunityDetectionRequest> cappy = Capture.newInstance();
             expect(mockEngine.request(capture(cappy))).andReturn("12345");
+            expect(mockEngine.addTaskFinishedListener(eq("12345"), notNull())).andReturn(true);
             mockEngine.delete("12345");
             expectLastCall().andThrow(new CommunityDetectionException("delete error"));
             replay(mockEngine);
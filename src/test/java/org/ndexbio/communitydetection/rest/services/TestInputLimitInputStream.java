@@ -0,0 +1,77 @@
+package org.ndexbio.communitydetection.rest.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.apache.commons.io.IOUtils;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.ndexbio.communitydetection.rest.engine.CommunityDetectionEngine;
+import org.ndexbio.communitydetection.rest.engine.CommunityDetectionQueueFullException;
+
+/**
+ *
+ * @author churas
+ */
+public class TestInputLimitInputStream {
+
+    @Test
+    public void testSmallInputIsNotChecked() throws Exception {
+        CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+        replay(mockEngine);
+        InputLimitInputStream in = new InputLimitInputStream(
+                new ByteArrayInputStream("hello".getBytes("UTF-8")), mockEngine);
+        assertEquals("hello", IOUtils.toString(in, "UTF-8"));
+        assertEquals(5, in.getBytesRead());
+        verify(mockEngine);
+    }
+
+    @Test
+    public void testInputCheckedEveryInterval() throws Exception {
+        int size = (int)InputLimitInputStream.CHECK_INTERVAL * 2 + 10;
+        CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+        mockEngine.checkInputBytes(InputLimitInputStream.CHECK_INTERVAL);
+        mockEngine.checkInputBytes(InputLimitInputStream.CHECK_INTERVAL * 2);
+        replay(mockEngine);
+        InputLimitInputStream in = new InputLimitInputStream(
+                new ByteArrayInputStream(new byte[size]), mockEngine);
+        
+        // read in chunks that land exactly on each interval
+        byte[] buf = new byte[1024];
+        long total = 0;
+        int numRead;
+        while ((numRead = in.read(buf)) != -1){
+            total += numRead;
+        }
+        assertEquals(size, total);
+        assertEquals(size, in.getBytesRead());
+        verify(mockEngine);
+    }
+
+    @Test
+    public void testRefusedInput() throws Exception {
+        int size = (int)InputLimitInputStream.CHECK_INTERVAL * 2;
+        CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+        mockEngine.checkInputBytes(InputLimitInputStream.CHECK_INTERVAL);
+        expectLastCall().andThrow(new CommunityDetectionQueueFullException("full", 42));
+        replay(mockEngine);
+        InputLimitInputStream in = new InputLimitInputStream(
+                new ByteArrayInputStream(new byte[size]), mockEngine);
+        try {
+            byte[] buf = new byte[1024];
+            while (in.read(buf) != -1){
+            }
+            fail("Expected IOException");
+        } catch(IOException io){
+            assertEquals("full", io.getMessage());
+            assertTrue(io.getCause() instanceof CommunityDetectionQueueFullException);
+        }
+        assertEquals(InputLimitInputStream.CHECK_INTERVAL, in.getBytesRead());
+        verify(mockEngine);
+    }
+}
@@ -0,0 +1,70 @@
+package org.ndexbio.communitydetection.rest.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author churas
+ */
+public class TestResultFileStream {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    @Test
+    public void testGetRangeWholeFile(){
+        assertNull(ResultFileStream.getRange(null, 10));
+        assertNull(ResultFileStream.getRange("", 10));
+        assertNull(ResultFileStream.getRange("items=0-1", 10));
+        assertNull(ResultFileStream.getRange("bytes=0-1,3-4", 10));
+        assertNull(ResultFileStream.getRange("bytes=5", 10));
+        assertNull(ResultFileStream.getRange("bytes=a-b", 10));
+        assertNull(ResultFileStream.getRange("bytes=5-3", 10));
+    }
+
+    @Test
+    public void testGetRange(){
+        assertArrayEquals(new long[]{0, 9}, ResultFileStream.getRange("bytes=0-", 10));
+        assertArrayEquals(new long[]{2, 5}, ResultFileStream.getRange("bytes=2-5", 10));
+        assertArrayEquals(new long[]{2, 9}, ResultFileStream.getRange("bytes=2-100", 10));
+        assertArrayEquals(new long[]{7, 9}, ResultFileStream.getRange("bytes=-3", 10));
+        assertArrayEquals(new long[]{0, 9}, ResultFileStream.getRange("bytes=-30", 10));
+    }
+
+    @Test
+    public void testGetRangeUnsatisfiable(){
+        assertEquals(0, ResultFileStream.getRange("bytes=10-", 10).length);
+        assertEquals(0, ResultFileStream.getRange("bytes=-0", 10).length);
+        assertEquals(0, ResultFileStream.getRange("bytes=-5", 0).length);
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        File tempDir = _folder.newFolder();
+        File f = new File(tempDir, "foo");
+        FileUtils.writeStringToFile(f, "0123456789", "UTF-8");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new ResultFileStream(f, 0, 10).write(bos);
+        assertEquals("0123456789", bos.toString("UTF-8"));
+
+        bos = new ByteArrayOutputStream();
+        new ResultFileStream(f, 3, 4).write(bos);
+        assertEquals("3456", bos.toString("UTF-8"));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testWritePastEndOfFile() throws Exception {
+        File tempDir = _folder.newFolder();
+        File f = new File(tempDir, "foo");
+        FileUtils.writeStringToFile(f, "01", "UTF-8");
+        new ResultFileStream(f, 0, 10).write(new ByteArrayOutputStream());
+    }
+}
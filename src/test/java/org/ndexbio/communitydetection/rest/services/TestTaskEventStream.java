@@ -0,0 +1,144 @@
+package org.ndexbio.communitydetection.rest.services;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.ndexbio.communitydetection.rest.engine.CommunityDetectionEngine;
+import org.ndexbio.communitydetection.rest.engine.TaskEventListener;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResult;
+import org.ndexbio.communitydetection.rest.model.CommunityDetectionResultStatus;
+
+/**
+ *
+ * @author churas
+ */
+public class TestTaskEventStream {
+
+    private CommunityDetectionResultStatus getStatus(final String status, int progress){
+        CommunityDetectionResultStatus cdrs = new CommunityDetectionResultStatus();
+        cdrs.setStatus(status);
+        cdrs.setProgress(progress);
+        return cdrs;
+    }
+
+    @Test
+    public void testOpenWhereTaskNotFound(){
+        CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+        expect(mockEngine.addTaskEventListener(eq("1"),
+                isA(TaskEventListener.class))).andReturn(null);
+        replay(mockEngine);
+        TaskEventStream stream = new TaskEventStream("1", mockEngine, 1000);
+        assertFalse(stream.open());
+        verify(mockEngine);
+    }
+
+    @Test
+    public void testWriteSkipsStaleEventsAndEndsWhenComplete() throws Exception {
+        CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+        expect(mockEngine.addTaskEventListener(eq("1"),
+                isA(TaskEventListener.class))).andReturn(getStatus(
+                        CommunityDetectionResult.PROCESSING_STATUS, 0)).times(2);
+        mockEngine.removeTaskEventListener(eq("1"), isA(TaskEventListener.class));
+        expectLastCall().times(2);
+        replay(mockEngine);
+        TaskEventStream stream = new TaskEventStream("1", mockEngine, 1000);
+        assertTrue(stream.open());
+        stream.taskEvent("1", getStatus(CommunityDetectionResult.SUBMITTED_STATUS, 0));
+        stream.taskEvent("1", getStatus(CommunityDetectionResult.PROCESSING_STATUS, 0));
+        stream.taskEvent("1", getStatus(CommunityDetectionResult.PROCESSING_STATUS, 50));
+        stream.taskEvent("1", getStatus(CommunityDetectionResult.COMPLETE_STATUS, 100));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream.write(out);
+        String[] events = out.toString(StandardCharsets.UTF_8.name()).split("\n\n");
+        assertEquals(3, events.length);
+        assertTrue(events[0].startsWith("event: "
+                + CommunityDetectionResult.PROCESSING_STATUS + "\ndata: {"));
+        assertTrue(events[1].startsWith("event: "
+                + CommunityDetectionResult.PROCESSING_STATUS + "\ndata: {"));
+        assertTrue(events[1].contains("\"progress\":50"));
+        assertTrue(events[2].startsWith("event: "
+                + CommunityDetectionResult.COMPLETE_STATUS + "\ndata: {"));
+        verify(mockEngine);
+    }
+
+    @Test
+    public void testWriteSendsKeepAliveUntilDeleted() throws Exception {
+        CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+        expect(mockEngine.addTaskEventListener(eq("1"),
+                isA(TaskEventListener.class))).andReturn(getStatus(
+                        CommunityDetectionResult.SUBMITTED_STATUS, 0)).times(2);
+        mockEngine.removeTaskEventListener(eq("1"), isA(TaskEventListener.class));
+        expectLastCall().times(2);
+        replay(mockEngine);
+        final TaskEventStream stream = new TaskEventStream("1", mockEngine, 10);
+        assertTrue(stream.open());
+        final int[] openStreams = new int[1];
+        Thread deleter = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch(InterruptedException ie){
+                // ignore
+            }
+            openStreams[0] = TaskEventStream.getOpenStreamCount();
+            stream.taskEvent("1", null);
+        });
+        deleter.start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream.write(out);
+        deleter.join();
+        String res = out.toString(StandardCharsets.UTF_8.name());
+        assertTrue(res.startsWith("event: " + CommunityDetectionResult.SUBMITTED_STATUS));
+        assertTrue(res.contains("\n\n:\n\n"));
+        assertTrue(res.endsWith("\n\n"));
+        assertTrue(res.contains("event: " + TaskEventStream.DELETED_EVENT + "\ndata: {"));
+        assertEquals(1, openStreams[0]);
+        assertEquals(0, TaskEventStream.getOpenStreamCount());
+        verify(mockEngine);
+    }
+
+    @Test
+    public void testOpenDoesNotLeaveListenerRegistered(){
+        CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+        expect(mockEngine.addTaskEventListener(eq("1"),
+                isA(TaskEventListener.class))).andReturn(getStatus(
+                        CommunityDetectionResult.SUBMITTED_STATUS, 0));
+        mockEngine.removeTaskEventListener(eq("1"), isA(TaskEventListener.class));
+        expectLastCall();
+        replay(mockEngine);
+
+        // client disconnects so write() is never invoked
+        TaskEventStream stream = new TaskEventStream("1", mockEngine, 1000);
+        assertTrue(stream.open());
+        verify(mockEngine);
+    }
+
+    @Test
+    public void testWriteWhereTaskDeletedAfterOpen() throws Exception {
+        CommunityDetectionEngine mockEngine = createMock(CommunityDetectionEngine.class);
+        expect(mockEngine.addTaskEventListener(eq("1"),
+                isA(TaskEventListener.class))).andReturn(getStatus(
+                        CommunityDetectionResult.SUBMITTED_STATUS, 0));
+        expect(mockEngine.addTaskEventListener(eq("1"),
+                isA(TaskEventListener.class))).andReturn(null);
+        mockEngine.removeTaskEventListener(eq("1"), isA(TaskEventListener.class));
+        expectLastCall().times(2);
+        replay(mockEngine);
+        TaskEventStream stream = new TaskEventStream("1", mockEngine, 1000);
+        assertTrue(stream.open());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream.write(out);
+        assertTrue(out.toString(StandardCharsets.UTF_8.name()).startsWith("event: "
+                + TaskEventStream.DELETED_EVENT + "\ndata: {"));
+        verify(mockEngine);
+    }
+}